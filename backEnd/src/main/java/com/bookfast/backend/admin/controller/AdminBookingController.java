@@ -2,17 +2,33 @@ package com.bookfast.backend.admin.controller;
 
 import com.bookfast.backend.common.dto.ErrorResponse;
 import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.common.pagination.KeysetListing;
+import com.bookfast.backend.common.pagination.KeysetPage;
+import com.bookfast.backend.common.pagination.KeysetPager;
+import com.bookfast.backend.common.pagination.KeysetRequest;
+import com.bookfast.backend.common.pagination.SortKey;
 import com.bookfast.backend.common.repository.UserRepository;
+import com.bookfast.backend.resource.dto.AdminBookingDTO;
 import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.BookingOutboxEvent;
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.repository.BookingOutboxRepository;
 import com.bookfast.backend.resource.repository.BookingRepository;
+import com.bookfast.backend.resource.service.BookingIntervalIndex;
+import com.bookfast.backend.resource.service.BookingService;
+import jakarta.persistence.criteria.Join;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/admin/bookings")
@@ -20,72 +36,108 @@ import java.util.Optional;
 public class AdminBookingController {
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
+    private final BookingService bookingService;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final BookingOutboxRepository outboxRepository;
+    private final KeysetPager keysetPager;
 
-    public AdminBookingController(BookingRepository bookingRepository, UserRepository userRepository) {
+    private static final KeysetListing<Booking> BOOKING_LISTING = KeysetListing.of(Booking.class, Booking::getId)
+        .sortKey(SortKey.ofDateTime("startTime", "startTime", Booking::getStartTime))
+        .sortKey(SortKey.ofDouble("finalAmount", "finalAmount", Booking::getFinalAmount))
+        .defaultSort("id", true)
+        .fetch("resource");
+
+    public AdminBookingController(BookingRepository bookingRepository, UserRepository userRepository,
+                                  BookingService bookingService, BookingIntervalIndex bookingIntervalIndex,
+                                  BookingOutboxRepository outboxRepository, KeysetPager keysetPager) {
         this.bookingRepository = bookingRepository;
         this.userRepository = userRepository;
+        this.bookingService = bookingService;
+        this.bookingIntervalIndex = bookingIntervalIndex;
+        this.outboxRepository = outboxRepository;
+        this.keysetPager = keysetPager;
     }
 
     @GetMapping
     public ResponseEntity<?> getAllBookings() {
         try {
-            List<Booking> bookings = bookingRepository.findAll();
-            List<Map<String, Object>> bookingDTOs = new ArrayList<>();
-            
-            for (Booking booking : bookings) {
-                Map<String, Object> dto = new HashMap<>();
-                dto.put("id", booking.getId());
-                dto.put("customerId", booking.getCustomerId());
-                dto.put("customerName", booking.getCustomerName());
-                dto.put("customerEmail", booking.getCustomerEmail());
-                dto.put("customerPhone", booking.getCustomerPhone());
-                dto.put("customerZip", booking.getCustomerZip());
-                dto.put("status", booking.getStatus());
-                dto.put("paymentStatus", booking.getPaymentStatus());
-                dto.put("finalAmount", booking.getFinalAmount());
-                dto.put("startTime", booking.getStartTime());
-                dto.put("endTime", booking.getEndTime());
-                dto.put("date", booking.getDate());
-                dto.put("startTimeStr", booking.getStartTimeStr());
-                dto.put("endTimeStr", booking.getEndTimeStr());
-                dto.put("slotId", booking.getSlotId());
-                
-                // Populate resource information
-                if (booking.getResource() != null) {
-                    dto.put("resourceId", booking.getResource().getId());
-                    dto.put("resourceName", booking.getResource().getName());
-                    dto.put("resourceDescription", booking.getResource().getDescription());
-                    dto.put("resourcePrice", booking.getResource().getPrice());
-                    
-                    // Populate provider information
-                    if (booking.getResource().getProviderId() != null) {
-                        Optional<User> providerOpt = userRepository.findById(booking.getResource().getProviderId());
-                        if (providerOpt.isPresent()) {
-                            User provider = providerOpt.get();
-                            dto.put("providerId", provider.getId());
-                            dto.put("providerName", provider.getFirstName() + " " + provider.getLastName());
-                            dto.put("providerEmail", provider.getEmail());
-                            dto.put("providerOrganization", provider.getOrganizationName());
-                        } else {
-                            dto.put("providerName", "N/A");
-                        }
-                    } else {
-                        dto.put("providerName", "N/A");
+            return ResponseEntity.ok(bookingRepository.findAdminBookings());
+        } catch (Exception ex) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Failed to fetch bookings: " + ex.getMessage()));
+        }
+    }
+
+    /**
+     * Bookings one page at a time, filtered and sorted in the database. Pass nextCursor back as
+     * cursor for the following page.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getBookingsPage(@RequestParam(required = false) String cursor,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) String sort,
+                                             @RequestParam(required = false) String direction,
+                                             @RequestParam(required = false) String status,
+                                             @RequestParam(required = false) String paymentStatus,
+                                             @RequestParam(required = false) Long resourceId,
+                                             @RequestParam(required = false) Long providerId,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                             @RequestParam(required = false) String q) {
+        try {
+            KeysetPage<Booking> page = keysetPager.fetch(BOOKING_LISTING, new KeysetRequest(sort, direction, cursor, limit),
+                (cb, root, where) -> {
+                    Join<Booking, Resource> resource = KeysetPager.fetched(root, "resource");
+                    if (status != null && !status.isBlank()) {
+                        where.add(cb.equal(cb.lower(root.get("status")), status.toLowerCase()));
                     }
-                } else {
-                    dto.put("resourceName", "N/A");
-                    dto.put("providerName", "N/A");
-                }
-                
-                bookingDTOs.add(dto);
-            }
-            
-            return ResponseEntity.ok(bookingDTOs);
+                    if (paymentStatus != null && !paymentStatus.isBlank()) {
+                        where.add(cb.equal(cb.lower(root.get("paymentStatus")), paymentStatus.toLowerCase()));
+                    }
+                    if (resourceId != null) {
+                        where.add(cb.equal(resource.get("id"), resourceId));
+                    }
+                    if (providerId != null) {
+                        where.add(cb.equal(resource.get("providerId"), providerId));
+                    }
+                    if (from != null) {
+                        where.add(cb.greaterThanOrEqualTo(root.get("startTime"), from));
+                    }
+                    if (to != null) {
+                        where.add(cb.lessThan(root.get("startTime"), to));
+                    }
+                    if (q != null && !q.isBlank()) {
+                        where.add(KeysetPager.containsIgnoreCase(cb, q,
+                            List.of(root.get("customerName"), root.get("customerEmail"), resource.get("name"))));
+                    }
+                });
+            return ResponseEntity.ok(new KeysetPage<>(toDtos(page.items()), page.nextCursor(), page.hasMore(), page.limit()));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(ex.getMessage()));
         } catch (Exception ex) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to fetch bookings: " + ex.getMessage()));
         }
     }
 
+    private List<AdminBookingDTO> toDtos(List<Booking> bookings) {
+        // Providers of the whole page in one query instead of one lookup per booking
+        Set<Long> providerIds = new HashSet<>();
+        for (Booking booking : bookings) {
+            if (booking.getResource() != null && booking.getResource().getProviderId() != null) {
+                providerIds.add(booking.getResource().getProviderId());
+            }
+        }
+        Map<Long, User> providers = new HashMap<>();
+        for (User provider : userRepository.findAllById(providerIds)) {
+            providers.put(provider.getId(), provider);
+        }
+        List<AdminBookingDTO> rows = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            Long providerId = booking.getResource() != null ? booking.getResource().getProviderId() : null;
+            rows.add(AdminBookingDTO.of(booking, providerId != null ? providers.get(providerId) : null));
+        }
+        return rows;
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getBookingById(@PathVariable Long id) {
         try {
@@ -100,20 +152,21 @@ public class AdminBookingController {
     @PutMapping("/{id}")
     public ResponseEntity<?> updateBooking(@PathVariable Long id, @RequestBody Booking bookingData) {
         try {
-            return bookingRepository.findById(id)
-                .map(booking -> {
-                    if (bookingData.getStatus() != null) {
-                        booking.setStatus(bookingData.getStatus());
-                    }
-                    if (bookingData.getPaymentStatus() != null) {
-                        booking.setPaymentStatus(bookingData.getPaymentStatus());
-                    }
-                    if (bookingData.getFinalAmount() != null) {
-                        booking.setFinalAmount(bookingData.getFinalAmount());
-                    }
-                    return ResponseEntity.ok(bookingRepository.save(booking));
-                })
-                .orElse(ResponseEntity.notFound().build());
+            if (!bookingRepository.existsById(id)) {
+                return ResponseEntity.notFound().build();
+            }
+            // A status change can bring a cancelled booking back, so this goes through the locked path
+            return ResponseEntity.ok(bookingService.changeBooking(id, booking -> {
+                if (bookingData.getStatus() != null) {
+                    booking.setStatus(bookingData.getStatus());
+                }
+                if (bookingData.getPaymentStatus() != null) {
+                    booking.setPaymentStatus(bookingData.getPaymentStatus());
+                }
+                if (bookingData.getFinalAmount() != null) {
+                    booking.setFinalAmount(bookingData.getFinalAmount());
+                }
+            }));
         } catch (Exception ex) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to update booking: " + ex.getMessage()));
         }
@@ -123,7 +176,7 @@ public class AdminBookingController {
     public ResponseEntity<?> deleteBooking(@PathVariable Long id) {
         try {
             if (bookingRepository.existsById(id)) {
-                bookingRepository.deleteById(id);
+                bookingService.deleteBooking(id);
                 return ResponseEntity.ok().build();
             }
             return ResponseEntity.notFound().build();
@@ -131,5 +184,42 @@ public class AdminBookingController {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to delete booking: " + ex.getMessage()));
         }
     }
-}
 
+    @GetMapping("/index/consistency")
+    public ResponseEntity<?> checkIntervalIndex() {
+        try {
+            return ResponseEntity.ok(bookingIntervalIndex.verifyAgainstDatabase());
+        } catch (Exception ex) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Failed to verify booking index: " + ex.getMessage()));
+        }
+    }
+
+    // Overlap checks answered by the interval index vs the database, and conflicts the index missed
+    @GetMapping("/index/stats")
+    public ResponseEntity<?> getIntervalIndexStats() {
+        return ResponseEntity.ok(bookingService.getOverlapCheckStats());
+    }
+
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<?> getOutboxStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        for (String status : List.of(BookingOutboxEvent.STATUS_PENDING, BookingOutboxEvent.STATUS_IN_PROGRESS,
+                BookingOutboxEvent.STATUS_DONE, BookingOutboxEvent.STATUS_DEAD)) {
+            stats.put(status, outboxRepository.countByStatus(status));
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/outbox/dead")
+    public List<BookingOutboxEvent> getDeadOutboxEvents() {
+        return outboxRepository.findByStatusOrderByIdDesc(BookingOutboxEvent.STATUS_DEAD);
+    }
+
+    @PostMapping("/outbox/{id}/retry")
+    public ResponseEntity<?> retryOutboxEvent(@PathVariable Long id) {
+        if (outboxRepository.retryDead(id, LocalDateTime.now()) == 0) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Outbox event " + id + " is not in DEAD state"));
+        }
+        return ResponseEntity.ok().build();
+    }
+}
@@ -1,6 +1,15 @@
 package com.bookfast.backend.admin.controller;
 
 import com.bookfast.backend.admin.service.AdminDashboardService;
+import com.bookfast.backend.common.auth.service.JwtAuthenticationCache;
+import com.bookfast.backend.common.notification.EmailDispatcher;
+import com.bookfast.backend.common.notification.SmsDispatcher;
+import com.bookfast.backend.common.service.SchedulerLeaseService;
+import com.bookfast.backend.provider.service.CalendarSyncService;
+import com.bookfast.backend.provider.service.CalendarTokenRefresher;
+import com.bookfast.backend.resource.service.AvailabilityBitmapService;
+import com.bookfast.backend.resource.service.AvailabilityTemplateService;
+import com.bookfast.backend.resource.service.SlotHoldService;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 import java.util.Map;
@@ -11,9 +20,31 @@ import java.util.HashMap;
 @CrossOrigin(origins = {"http://localhost:4200", "https://*.vercel.app"}, allowCredentials = "true")
 public class AdminDashboardController {
     private final AdminDashboardService dashboardService;
+    private final JwtAuthenticationCache jwtAuthenticationCache;
+    private final CalendarSyncService calendarSyncService;
+    private final CalendarTokenRefresher calendarTokenRefresher;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final EmailDispatcher emailDispatcher;
+    private final SmsDispatcher smsDispatcher;
+    private final AvailabilityBitmapService availabilityBitmaps;
+    private final AvailabilityTemplateService availabilityTemplates;
+    private final SlotHoldService slotHolds;
 
-    public AdminDashboardController(AdminDashboardService dashboardService) {
+    public AdminDashboardController(AdminDashboardService dashboardService, JwtAuthenticationCache jwtAuthenticationCache,
+                                    CalendarSyncService calendarSyncService, CalendarTokenRefresher calendarTokenRefresher,
+                                    SchedulerLeaseService schedulerLeaseService, EmailDispatcher emailDispatcher,
+                                    SmsDispatcher smsDispatcher, AvailabilityBitmapService availabilityBitmaps,
+                                    AvailabilityTemplateService availabilityTemplates, SlotHoldService slotHolds) {
         this.dashboardService = dashboardService;
+        this.jwtAuthenticationCache = jwtAuthenticationCache;
+        this.calendarSyncService = calendarSyncService;
+        this.calendarTokenRefresher = calendarTokenRefresher;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.emailDispatcher = emailDispatcher;
+        this.smsDispatcher = smsDispatcher;
+        this.availabilityBitmaps = availabilityBitmaps;
+        this.availabilityTemplates = availabilityTemplates;
+        this.slotHolds = slotHolds;
     }
 
     @GetMapping("/dashboard")
@@ -65,6 +96,60 @@ public class AdminDashboardController {
         }
     }
 
+    // Hit rate of the verified-JWT cache in front of request authentication
+    @GetMapping("/stats/auth-cache")
+    public ResponseEntity<Map<String, Object>> getAuthCacheStats() {
+        return ResponseEntity.ok(jwtAuthenticationCache.stats());
+    }
+
+    // Bookings waiting to be synced to Google Calendar
+    @GetMapping("/stats/calendar-sync")
+    public ResponseEntity<Map<String, Object>> getCalendarSyncStats() {
+        return ResponseEntity.ok(calendarSyncService.getStats());
+    }
+
+    // Background Google token renewals: outcomes and latency
+    @GetMapping("/stats/calendar-tokens")
+    public ResponseEntity<Map<String, Object>> getCalendarTokenStats() {
+        return ResponseEntity.ok(calendarTokenRefresher.stats());
+    }
+
+    // Which instance holds each scheduled-job lease
+    @GetMapping("/stats/scheduler-leases")
+    public ResponseEntity<Map<String, Object>> getSchedulerLeaseStats() {
+        return ResponseEntity.ok(schedulerLeaseService.stats());
+    }
+
+    // Email queue depth and per-template send counts and latency
+    @GetMapping("/stats/email")
+    public ResponseEntity<Map<String, Object>> getEmailStats() {
+        return ResponseEntity.ok(emailDispatcher.getStats());
+    }
+
+    // SMS queue, outcomes and per-sender rate limiter state
+    @GetMapping("/stats/sms")
+    public ResponseEntity<Map<String, Object>> getSmsStats() {
+        return ResponseEntity.ok(smsDispatcher.getStats());
+    }
+
+    // Availability bitmap cache hits, recomputations and invalidations
+    @GetMapping("/stats/availability-bitmaps")
+    public ResponseEntity<Map<String, Object>> getAvailabilityBitmapStats() {
+        return ResponseEntity.ok(availabilityBitmaps.getStats());
+    }
+
+    // Expanded schedule days cached, expanded and virtual slots materialized by bookings
+    @GetMapping("/stats/availability-templates")
+    public ResponseEntity<Map<String, Object>> getAvailabilityTemplateStats() {
+        return ResponseEntity.ok(availabilityTemplates.getStats());
+    }
+
+    // Checkout holds placed, rejected, consumed by bookings, released and expired
+    @GetMapping("/stats/slot-holds")
+    public ResponseEntity<Map<String, Object>> getSlotHoldStats() {
+        return ResponseEntity.ok(slotHolds.getStats());
+    }
+
     @GetMapping("/recent-activity")
     public ResponseEntity<Map<String, Object>> getRecentActivity() {
         try {
@@ -5,6 +5,7 @@ import com.bookfast.backend.common.dto.ErrorResponse;
 import com.bookfast.backend.common.dto.ProviderCreateRequest;
 import com.bookfast.backend.common.dto.ProviderUpdateRequest;
 import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.common.pagination.KeysetRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -29,6 +30,23 @@ public class AdminProviderController {
         }
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<?> getProvidersPage(@RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(required = false) String sort,
+                                              @RequestParam(required = false) String direction,
+                                              @RequestParam(required = false) String category,
+                                              @RequestParam(required = false) Boolean active,
+                                              @RequestParam(required = false) String q) {
+        try {
+            return ResponseEntity.ok(adminProviderService.getProvidersPage(new KeysetRequest(sort, direction, cursor, limit), category, active, q));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Failed to fetch providers: " + ex.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getProviderById(@PathVariable Long id) {
         try {
@@ -2,14 +2,24 @@ package com.bookfast.backend.admin.controller;
 
 import com.bookfast.backend.admin.service.AdminReportService;
 import com.bookfast.backend.common.dto.ErrorResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/admin/reports")
 public class AdminReportController {
+    private static final Logger log = LoggerFactory.getLogger(AdminReportController.class);
+
     private final AdminReportService adminReportService;
 
     public AdminReportController(AdminReportService adminReportService) {
@@ -17,9 +27,10 @@ public class AdminReportController {
     }
 
     @GetMapping
-    public ResponseEntity<?> getSystemReports(@RequestParam(defaultValue = "30") String period) {
+    public ResponseEntity<?> getSystemReports(@RequestParam(defaultValue = "30") String period,
+                                              @RequestParam(required = false) String granularity) {
         try {
-            Map<String, Object> reports = adminReportService.getSystemReports(period);
+            Map<String, Object> reports = adminReportService.getSystemReports(period, granularity);
             return ResponseEntity.ok(reports);
         } catch (Exception ex) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to fetch system reports: " + ex.getMessage()));
@@ -37,9 +48,10 @@ public class AdminReportController {
     }
 
     @GetMapping("/users")
-    public ResponseEntity<?> getUserReports(@RequestParam(defaultValue = "30") String period) {
+    public ResponseEntity<?> getUserReports(@RequestParam(defaultValue = "30") String period,
+                                            @RequestParam(required = false) String granularity) {
         try {
-            Map<String, Object> reports = adminReportService.getUserReports(period);
+            Map<String, Object> reports = adminReportService.getUserReports(period, granularity);
             return ResponseEntity.ok(reports);
         } catch (Exception ex) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to fetch user reports: " + ex.getMessage()));
@@ -47,9 +59,10 @@ public class AdminReportController {
     }
 
     @GetMapping("/bookings")
-    public ResponseEntity<?> getBookingReports(@RequestParam(defaultValue = "30") String period) {
+    public ResponseEntity<?> getBookingReports(@RequestParam(defaultValue = "30") String period,
+                                               @RequestParam(required = false) String granularity) {
         try {
-            Map<String, Object> reports = adminReportService.getBookingReports(period);
+            Map<String, Object> reports = adminReportService.getBookingReports(period, granularity);
             return ResponseEntity.ok(reports);
         } catch (Exception ex) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to fetch booking reports: " + ex.getMessage()));
@@ -57,9 +70,10 @@ public class AdminReportController {
     }
 
     @GetMapping("/revenue")
-    public ResponseEntity<?> getRevenueReports(@RequestParam(defaultValue = "30") String period) {
+    public ResponseEntity<?> getRevenueReports(@RequestParam(defaultValue = "30") String period,
+                                               @RequestParam(required = false) String granularity) {
         try {
-            Map<String, Object> reports = adminReportService.getRevenueReports(period);
+            Map<String, Object> reports = adminReportService.getRevenueReports(period, granularity);
             return ResponseEntity.ok(reports);
         } catch (Exception ex) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Failed to fetch revenue reports: " + ex.getMessage()));
@@ -76,19 +90,41 @@ public class AdminReportController {
         }
     }
 
+    /**
+     * Streams the CSV as it is read from the database; gzip-compressed when the client accepts it.
+     * The report type and period are checked first so a bad request still gets a 400.
+     */
     @GetMapping("/export/{reportType}")
-    public ResponseEntity<byte[]> exportReport(@PathVariable String reportType, @RequestParam(defaultValue = "30") String period) {
-        try {
-            byte[] csvData = adminReportService.exportReportToCSV(reportType, period);
-            
-            org.springframework.http.HttpHeaders headers = new org.springframework.http.HttpHeaders();
-            headers.setContentType(org.springframework.http.MediaType.parseMediaType("text/csv"));
-            headers.setContentDispositionFormData("attachment", reportType + "_report_" + java.time.LocalDate.now() + ".csv");
-            headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
-            
-            return new ResponseEntity<>(csvData, headers, org.springframework.http.HttpStatus.OK);
-        } catch (Exception ex) {
-            return ResponseEntity.badRequest().build();
+    public ResponseEntity<StreamingResponseBody> exportReport(@PathVariable String reportType,
+                                                              @RequestParam(defaultValue = "30") String period,
+                                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Throws before the stream starts; GlobalExceptionHandler turns it into a 400
+        adminReportService.validateExport(reportType, period);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("text/csv"));
+        headers.setContentDispositionFormData("attachment", reportType + "_report_" + java.time.LocalDate.now() + ".csv");
+        headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
         }
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            try {
+                adminReportService.exportReportToCSV(reportType, period, target);
+            } catch (Exception ex) {
+                // Headers are already sent. The gzip trailer is not written and the rethrown error aborts the
+                // connection (see GlobalExceptionHandler), so the client sees a failed download, not a short file.
+                log.error("CSV export of {} failed after the response started", reportType, ex);
+                throw ex;
+            }
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 }
@@ -5,6 +5,7 @@ import com.bookfast.backend.common.dto.ErrorResponse;
 import com.bookfast.backend.common.dto.UserCreateRequest;
 import com.bookfast.backend.common.dto.UserUpdateRequest;
 import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.common.pagination.KeysetRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -29,6 +30,23 @@ public class AdminUserController {
         }
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<?> getUsersPage(@RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) String sort,
+                                          @RequestParam(required = false) String direction,
+                                          @RequestParam(required = false) String role,
+                                          @RequestParam(required = false) Boolean active,
+                                          @RequestParam(required = false) String q) {
+        try {
+            return ResponseEntity.ok(adminUserService.getUsersPage(new KeysetRequest(sort, direction, cursor, limit), role, active, q));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(ex.getMessage()));
+        } catch (Exception ex) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("Failed to fetch users: " + ex.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getUserById(@PathVariable Long id) {
         try {
@@ -6,7 +6,6 @@ import com.bookfast.backend.resource.repository.ReviewRepository;
 import com.bookfast.backend.resource.repository.PaymentRepository;
 import com.bookfast.backend.resource.model.Booking;
 import com.bookfast.backend.resource.model.Review;
-import com.bookfast.backend.resource.model.Payment;
 import com.bookfast.backend.common.model.User;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,10 +53,7 @@ public class AdminDashboardService {
     }
 
     public double getTotalRevenue() {
-        List<Payment> payments = paymentRepository.findAll();
-        return payments.stream()
-                .mapToDouble(payment -> payment.getAmount() != null ? payment.getAmount() : 0.0)
-                .sum();
+        return paymentRepository.sumAmounts();
     }
 
     public List<Map<String, Object>> getRecentBookings() {
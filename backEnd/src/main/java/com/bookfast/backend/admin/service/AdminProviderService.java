@@ -1,10 +1,14 @@
 package com.bookfast.backend.admin.service;
 
 import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.common.pagination.KeysetPage;
+import com.bookfast.backend.common.pagination.KeysetPager;
+import com.bookfast.backend.common.pagination.KeysetRequest;
 import com.bookfast.backend.common.repository.UserRepository;
 import com.bookfast.backend.common.repository.RoleRepository;
 import com.bookfast.backend.common.util.PasswordUtil;
 import com.bookfast.backend.common.notification.EmailService;
+import com.bookfast.backend.common.notification.EmailTemplates;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,6 +25,7 @@ public class AdminProviderService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final EmailService emailService;
+    private final KeysetPager keysetPager;
 
     @Value("${app.frontend.url:https://bookfast-q319.vercel.app}")
     private String frontendUrl;
@@ -28,16 +33,27 @@ public class AdminProviderService {
     private static final String PASSWORD_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!@#$%^&*";
     private static final int PASSWORD_LENGTH = 12;
 
-    public AdminProviderService(UserRepository userRepository, RoleRepository roleRepository, EmailService emailService) {
+    public AdminProviderService(UserRepository userRepository, RoleRepository roleRepository, EmailService emailService,
+                                KeysetPager keysetPager) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.emailService = emailService;
+        this.keysetPager = keysetPager;
     }
 
     public List<User> getAllProviders() {
         return userRepository.findByRoleNameIgnoreCase("PROVIDER");
     }
 
+    /**
+     * Providers one page at a time; category, active and q (name, email or organization contains)
+     * filter in the database.
+     */
+    public KeysetPage<User> getProvidersPage(KeysetRequest request, String category, Boolean active, String q) {
+        return keysetPager.fetch(AdminUserService.USER_LISTING, request,
+            AdminUserService.userFilter("PROVIDER", category, active, q));
+    }
+
     public User getProviderById(Long id) {
         Optional<User> user = userRepository.findById(id);
         if (user.isPresent() && "PROVIDER".equals(user.get().getRole().getName())) {
@@ -62,81 +78,15 @@ public class AdminProviderService {
     }
 
     /**
-     * Create HTML email content for provider welcome email
+     * Values of the provider welcome email template
      */
-    private String createProviderWelcomeEmail(User provider, String generatedPassword) {
-        String organizationName = provider.getOrganizationName() != null ? provider.getOrganizationName() : "your business";
-        
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #6366f1; color: white; padding: 20px; text-align: center; border-radius: 8px 8px 0 0; }
-                    .content { background-color: #f9fafb; padding: 30px; border: 1px solid #e5e7eb; }
-                    .credentials { background-color: white; padding: 20px; margin: 20px 0; border-left: 4px solid #6366f1; border-radius: 4px; }
-                    .credential-item { margin: 10px 0; }
-                    .credential-label { font-weight: bold; color: #6366f1; }
-                    .credential-value { font-family: monospace; background-color: #f3f4f6; padding: 5px 10px; border-radius: 4px; display: inline-block; margin-top: 5px; }
-                    .button { display: inline-block; background-color: #6366f1; color: white; padding: 12px 30px; text-decoration: none; border-radius: 6px; margin: 20px 0; }
-                    .footer { text-align: center; padding: 20px; color: #6b7280; font-size: 0.875rem; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>🎉 Welcome to BookFast!</h1>
-                    </div>
-                    <div class="content">
-                        <h2>Hello %s,</h2>
-                        <p>Great news! BookFast has successfully registered <strong>%s</strong> as a service provider on our booking platform.</p>
-                        
-                        <p>You can now offer your services to customers and manage your bookings through our platform.</p>
-                        
-                        <div class="credentials">
-                            <h3>📧 Your Login Credentials:</h3>
-                            <div class="credential-item">
-                                <div class="credential-label">Email:</div>
-                                <div class="credential-value">%s</div>
-                            </div>
-                            <div class="credential-item">
-                                <div class="credential-label">Temporary Password:</div>
-                                <div class="credential-value">%s</div>
-                            </div>
-                        </div>
-                        
-                        <p><strong>⚠️ Important:</strong> Please change your password after your first login for security purposes.</p>
-                        
-                        <div style="text-align: center;">
-                            <a href="%s/login" class="button">Login to Your Account</a>
-                        </div>
-                        
-                        <h3>🚀 Next Steps:</h3>
-                        <ol>
-                            <li>Login to your provider account</li>
-                            <li>Complete your profile information</li>
-                            <li>Add your services and availability</li>
-                            <li>Start receiving bookings!</li>
-                        </ol>
-                        
-                        <p>If you have any questions or need assistance, please don't hesitate to contact our support team.</p>
-                    </div>
-                    <div class="footer">
-                        <p>© 2025 BookFast. All rights reserved.</p>
-                        <p>This is an automated message. Please do not reply to this email.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            provider.getFirstName(),
-            organizationName,
-            provider.getEmail(),
-            generatedPassword,
-            frontendUrl
-        );
+    private Map<String, Object> welcomeEmailValues(User provider, String generatedPassword) {
+        return EmailTemplates.values(
+            "firstName", provider.getFirstName(),
+            "organizationName", provider.getOrganizationName() != null ? provider.getOrganizationName() : "your business",
+            "email", provider.getEmail(),
+            "password", generatedPassword,
+            "frontendUrl", frontendUrl);
     }
 
     @Transactional
@@ -171,13 +121,13 @@ public class AdminProviderService {
         // Send welcome email with credentials
         try {
             if (savedProvider.getEmail() != null && !savedProvider.getEmail().isEmpty()) {
-                String emailContent = createProviderWelcomeEmail(savedProvider, generatedPassword);
-                emailService.sendHtmlEmail(
+                emailService.send(
                     savedProvider.getEmail(),
                     "Welcome to BookFast - Your Provider Account Credentials",
-                    emailContent
+                    "provider-account-created",
+                    welcomeEmailValues(savedProvider, generatedPassword)
                 );
-                System.out.println("[AdminProviderService] Welcome email sent to: " + savedProvider.getEmail());
+                System.out.println("[AdminProviderService] Welcome email queued for: " + savedProvider.getEmail());
             } else {
                 System.err.println("[AdminProviderService] Cannot send email: email address is null or empty");
             }
@@ -2,57 +2,107 @@ package com.bookfast.backend.admin.service;
 
 import com.bookfast.backend.common.model.User;
 import com.bookfast.backend.common.repository.UserRepository;
+import com.bookfast.backend.provider.repository.BookingDailyRollupRepository;
 import com.bookfast.backend.resource.model.Booking;
 import com.bookfast.backend.resource.model.Payment;
+import com.bookfast.backend.resource.model.RatingStats;
 import com.bookfast.backend.resource.repository.BookingRepository;
 import com.bookfast.backend.resource.repository.PaymentRepository;
+import com.bookfast.backend.resource.service.RatingAggregateService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class AdminReportService {
+    private static final int TOP_PROVIDERS = 5;
+    private static final int RECENT_ACTIVITY = 10;
+    private static final List<String> EXPORT_TYPES = List.of("users", "bookings", "revenue", "providers", "overview");
+    // Matches the fetch-size hint on the export queries
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
     private final PaymentRepository paymentRepository;
+    private final BookingDailyRollupRepository rollupRepository;
+    private final RatingAggregateService ratingAggregates;
+    private final ReportCache reportCache;
+    private final TransactionTemplate exportTransaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
-    public AdminReportService(UserRepository userRepository, BookingRepository bookingRepository, PaymentRepository paymentRepository) {
+    public AdminReportService(UserRepository userRepository, BookingRepository bookingRepository, PaymentRepository paymentRepository,
+                              BookingDailyRollupRepository rollupRepository, RatingAggregateService ratingAggregates,
+                              ReportCache reportCache, PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
         this.bookingRepository = bookingRepository;
         this.paymentRepository = paymentRepository;
+        this.rollupRepository = rollupRepository;
+        this.ratingAggregates = ratingAggregates;
+        this.reportCache = reportCache;
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
     }
 
     public Map<String, Object> getSystemReports(String period) {
+        return getSystemReports(period, null);
+    }
+
+    public Map<String, Object> getSystemReports(String period, String granularity) {
+        int days = parsePeriod(period);
+        String unit = resolveUnit(granularity, days);
+        return reportCache.get("system:" + days + ":" + unit, () -> buildSystemReports(days, unit));
+    }
+
+    private Map<String, Object> buildSystemReports(int days, String unit) {
         Map<String, Object> reports = new HashMap<>();
         
         // Calculate date range
         LocalDateTime endDate = LocalDateTime.now();
-        LocalDateTime startDate = endDate.minus(Integer.parseInt(period), ChronoUnit.DAYS);
+        LocalDateTime startDate = endDate.minus(days, ChronoUnit.DAYS);
         
         // Get counts
         long totalUsers = userRepository.count();
         long totalProviders = userRepository.countByRoleNameIgnoreCase("PROVIDER");
         long totalBookings = bookingRepository.count();
-        long totalPayments = paymentRepository.count();
         
         // Get period-specific counts
         long newUsers = userRepository.countByCreatedDateAfter(startDate.toLocalDate());
         long newProviders = userRepository.countByRoleNameIgnoreCaseAndCreatedDateAfter("PROVIDER", startDate.toLocalDate());
         long newBookings = bookingRepository.countByDateAfter(startDate);
         
-        // Calculate revenue (simplified)
-        double totalRevenue = paymentRepository.findAll().stream()
-            .mapToDouble(payment -> payment.getAmount() != null ? payment.getAmount() : 0.0)
-            .sum();
-        
-        double periodRevenue = paymentRepository.findByPaymentDateAfter(startDate).stream()
-            .mapToDouble(payment -> payment.getAmount() != null ? payment.getAmount() : 0.0)
-            .sum();
+        // Revenue is summed by the database
+        double totalRevenue = paymentRepository.sumAmounts();
+        double periodRevenue = paymentRepository.sumAmountsSince(startDate);
         
         reports.put("totalUsers", totalUsers);
         reports.put("totalProviders", totalProviders);
@@ -64,16 +114,13 @@ public class AdminReportService {
         reports.put("newBookings", newBookings);
         reports.put("periodRevenue", periodRevenue);
         
-        // Mock data for charts and detailed reports
-        reports.put("userGrowthData", generateMockChartData(7));
-        reports.put("bookingTrendsData", generateMockChartData(7));
-        reports.put("revenueData", generateMockChartData(7));
-        
-        // Top providers (mock data for now)
-        reports.put("topProviders", generateMockTopProviders());
+        reports.put("granularity", unit);
+        reports.put("userGrowthData", userGrowthSeries(startDate, unit));
+        reports.put("bookingTrendsData", bookingTrendSeries(startDate, unit));
+        reports.put("revenueData", revenueSeries(startDate, unit));
+        reports.put("topProviders", topProviders(startDate));
         
-        // Recent activity (mock data)
-        reports.put("recentActivity", generateMockRecentActivity());
+        reports.put("recentActivity", recentActivity());
         
         return reports;
     }
@@ -83,165 +130,351 @@ public class AdminReportService {
     }
 
     public Map<String, Object> getUserReports(String period) {
-        Map<String, Object> reports = new HashMap<>();
-        reports.put("totalUsers", userRepository.count());
-        reports.put("newUsers", userRepository.countByCreatedDateAfter(
-            LocalDateTime.now().minus(Integer.parseInt(period), ChronoUnit.DAYS).toLocalDate()));
-        reports.put("userGrowthData", generateMockChartData(Integer.parseInt(period)));
-        return reports;
+        return getUserReports(period, null);
+    }
+
+    public Map<String, Object> getUserReports(String period, String granularity) {
+        int days = parsePeriod(period);
+        String unit = resolveUnit(granularity, days);
+        return reportCache.get("users:" + days + ":" + unit, () -> {
+            LocalDateTime startDate = LocalDateTime.now().minus(days, ChronoUnit.DAYS);
+            Map<String, Object> reports = new HashMap<>();
+            reports.put("totalUsers", userRepository.count());
+            reports.put("newUsers", userRepository.countByCreatedDateAfter(startDate.toLocalDate()));
+            reports.put("granularity", unit);
+            reports.put("userGrowthData", userGrowthSeries(startDate, unit));
+            return reports;
+        });
     }
 
     public Map<String, Object> getBookingReports(String period) {
-        Map<String, Object> reports = new HashMap<>();
-        reports.put("totalBookings", bookingRepository.count());
-        reports.put("newBookings", bookingRepository.countByDateAfter(
-            LocalDateTime.now().minus(Integer.parseInt(period), ChronoUnit.DAYS)));
-        reports.put("bookingTrendsData", generateMockChartData(Integer.parseInt(period)));
-        return reports;
+        return getBookingReports(period, null);
+    }
+
+    public Map<String, Object> getBookingReports(String period, String granularity) {
+        int days = parsePeriod(period);
+        String unit = resolveUnit(granularity, days);
+        return reportCache.get("bookings:" + days + ":" + unit, () -> {
+            LocalDateTime startDate = LocalDateTime.now().minus(days, ChronoUnit.DAYS);
+            Map<String, Object> reports = new HashMap<>();
+            reports.put("totalBookings", bookingRepository.count());
+            reports.put("newBookings", bookingRepository.countByDateAfter(startDate));
+            reports.put("granularity", unit);
+            reports.put("bookingTrendsData", bookingTrendSeries(startDate, unit));
+            return reports;
+        });
     }
 
     public Map<String, Object> getRevenueReports(String period) {
-        Map<String, Object> reports = new HashMap<>();
-        double totalRevenue = paymentRepository.findAll().stream()
-            .mapToDouble(payment -> payment.getAmount() != null ? payment.getAmount() : 0.0)
-            .sum();
-        reports.put("totalRevenue", totalRevenue);
-        reports.put("revenueData", generateMockChartData(Integer.parseInt(period)));
-        return reports;
+        return getRevenueReports(period, null);
+    }
+
+    public Map<String, Object> getRevenueReports(String period, String granularity) {
+        int days = parsePeriod(period);
+        String unit = resolveUnit(granularity, days);
+        return reportCache.get("revenue:" + days + ":" + unit, () -> {
+            LocalDateTime startDate = LocalDateTime.now().minus(days, ChronoUnit.DAYS);
+            Map<String, Object> reports = new HashMap<>();
+            reports.put("totalRevenue", paymentRepository.sumAmounts());
+            reports.put("periodRevenue", paymentRepository.sumAmountsSince(startDate));
+            reports.put("granularity", unit);
+            reports.put("revenueData", revenueSeries(startDate, unit));
+            return reports;
+        });
     }
 
     public Map<String, Object> getProviderReports(String period) {
-        Map<String, Object> reports = new HashMap<>();
-        reports.put("totalProviders", userRepository.countByRoleNameIgnoreCase("PROVIDER"));
-        reports.put("topProviders", generateMockTopProviders());
-        return reports;
+        int days = parsePeriod(period);
+        return reportCache.get("providers:" + days, () -> {
+            LocalDateTime startDate = LocalDateTime.now().minus(days, ChronoUnit.DAYS);
+            Map<String, Object> reports = new HashMap<>();
+            reports.put("totalProviders", userRepository.countByRoleNameIgnoreCase("PROVIDER"));
+            reports.put("topProviders", topProviders(startDate));
+            return reports;
+        });
+    }
+
+    private List<Map<String, Object>> userGrowthSeries(LocalDateTime startDate, String unit) {
+        return toSeries(userRepository.countRegistrationsByBucket(unit, startDate.toLocalDate()), startDate, unit);
     }
 
-    private List<Map<String, Object>> generateMockChartData(int days) {
-        return List.of(
-            Map.of("date", "2024-01-01", "value", 10),
-            Map.of("date", "2024-01-02", "value", 15),
-            Map.of("date", "2024-01-03", "value", 12),
-            Map.of("date", "2024-01-04", "value", 18),
-            Map.of("date", "2024-01-05", "value", 20),
-            Map.of("date", "2024-01-06", "value", 16),
-            Map.of("date", "2024-01-07", "value", 22)
-        );
+    // From the daily booking rollups (bucketed by booking start date)
+    private List<Map<String, Object>> bookingTrendSeries(LocalDateTime startDate, String unit) {
+        return toSeries(rollupRepository.countBookingsByBucket(unit, startDate.toLocalDate()), startDate, unit);
     }
 
-    private List<Map<String, Object>> generateMockTopProviders() {
-        return List.of(
-            Map.of("name", "Tech Solutions Inc", "bookings", 45, "revenue", 12500.50, "rating", 4.8),
-            Map.of("name", "Creative Design Co", "bookings", 38, "revenue", 9800.25, "rating", 4.6),
-            Map.of("name", "Marketing Pro", "bookings", 32, "revenue", 8750.75, "rating", 4.7),
-            Map.of("name", "Consulting Group", "bookings", 28, "revenue", 7200.00, "rating", 4.5)
-        );
+    private List<Map<String, Object>> revenueSeries(LocalDateTime startDate, String unit) {
+        return toSeries(paymentRepository.sumAmountsByBucket(unit, startDate), startDate, unit);
     }
 
-    private List<Map<String, Object>> generateMockRecentActivity() {
-        return List.of(
-            Map.of("description", "New user registered", "timestamp", LocalDateTime.now().minusHours(1), "icon", "fa-user-plus"),
-            Map.of("description", "Provider created new resource", "timestamp", LocalDateTime.now().minusHours(2), "icon", "fa-plus-circle"),
-            Map.of("description", "Booking completed", "timestamp", LocalDateTime.now().minusHours(3), "icon", "fa-check-circle"),
-            Map.of("description", "Payment processed", "timestamp", LocalDateTime.now().minusHours(4), "icon", "fa-credit-card"),
-            Map.of("description", "Review submitted", "timestamp", LocalDateTime.now().minusHours(5), "icon", "fa-star")
-        );
+    /**
+     * Turn (bucket start, value) rows into one point per bucket from startDate to today, so buckets
+     * without data show as 0 instead of being skipped by the chart.
+     */
+    private static List<Map<String, Object>> toSeries(List<Object[]> rows, LocalDateTime startDate, String unit) {
+        Map<LocalDate, Number> values = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                values.put(toLocalDate(row[0]), (Number) row[1]);
+            }
+        }
+        List<Map<String, Object>> series = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        for (LocalDate bucket = bucketStart(startDate.toLocalDate(), unit); !bucket.isAfter(today); bucket = nextBucket(bucket, unit)) {
+            Number value = values.get(bucket);
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", bucket.toString());
+            point.put("value", value != null ? value : 0);
+            series.add(point);
+        }
+        return series;
+    }
+
+    /**
+     * Providers ranked by bookings in the period (from the daily rollups), with names and
+     * ratings fetched for just those providers.
+     */
+    private List<Map<String, Object>> topProviders(LocalDateTime startDate) {
+        List<Object[]> rows = rollupRepository.findTopProviders(startDate.toLocalDate(), TOP_PROVIDERS);
+        List<Long> providerIds = rows.stream().map(row -> ((Number) row[0]).longValue()).toList();
+        Map<Long, User> providers = new HashMap<>();
+        userRepository.findAllById(providerIds).forEach(user -> providers.put(user.getId(), user));
+        Map<Long, RatingStats> ratings = ratingAggregates.getProviderStats(providerIds);
+
+        List<Map<String, Object>> topProviders = new ArrayList<>();
+        for (Object[] row : rows) {
+            Long providerId = ((Number) row[0]).longValue();
+            RatingStats rating = ratings.getOrDefault(providerId, new RatingStats());
+            Map<String, Object> provider = new LinkedHashMap<>();
+            provider.put("id", providerId);
+            provider.put("name", providerName(providers.get(providerId)));
+            provider.put("bookings", ((Number) row[1]).longValue());
+            provider.put("revenue", Math.round(((Number) row[2]).doubleValue() * 100) / 100.0);
+            provider.put("rating", Math.round(rating.average() * 10) / 10.0);
+            topProviders.add(provider);
+        }
+        return topProviders;
+    }
+
+    private static String providerName(User provider) {
+        if (provider == null) {
+            return "Unknown provider";
+        }
+        if (provider.getOrganizationName() != null && !provider.getOrganizationName().isBlank()) {
+            return provider.getOrganizationName();
+        }
+        String name = ((provider.getFirstName() != null ? provider.getFirstName() : "") + " "
+            + (provider.getLastName() != null ? provider.getLastName() : "")).trim();
+        return name.isEmpty() ? provider.getEmail() : name;
+    }
+
+    private static int parsePeriod(String period) {
+        int days = Integer.parseInt(period);
+        if (days < 1) {
+            throw new IllegalArgumentException("Period must be at least 1 day");
+        }
+        return days;
     }
 
     /**
-     * Export report data to CSV format
+     * day, week or month; without an explicit choice the period picks one that keeps charts readable.
      */
-    public byte[] exportReportToCSV(String reportType, String period) {
+    private static String resolveUnit(String granularity, int days) {
+        if (granularity == null || granularity.isBlank()) {
+            return days <= 31 ? "day" : days <= 180 ? "week" : "month";
+        }
+        String unit = granularity.trim().toLowerCase();
+        if (!unit.equals("day") && !unit.equals("week") && !unit.equals("month")) {
+            throw new IllegalArgumentException("Granularity must be day, week or month");
+        }
+        return unit;
+    }
+
+    // Same boundaries as PostgreSQL date_trunc: weeks start on Monday
+    private static LocalDate bucketStart(LocalDate date, String unit) {
+        return switch (unit) {
+            case "week" -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case "month" -> date.withDayOfMonth(1);
+            default -> date;
+        };
+    }
+
+    private static LocalDate nextBucket(LocalDate bucket, String unit) {
+        return switch (unit) {
+            case "week" -> bucket.plusWeeks(1);
+            case "month" -> bucket.plusMonths(1);
+            default -> bucket.plusDays(1);
+        };
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof LocalDate date) {
+            return date;
+        }
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        if (value instanceof java.sql.Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toLocalDate();
+        }
+        return ((LocalDateTime) value).toLocalDate();
+    }
+
+    /**
+     * Latest bookings, payments and registrations, newest first. Each source is read with the same
+     * limit, so the merged list is exact for its first RECENT_ACTIVITY entries.
+     */
+    private List<Map<String, Object>> recentActivity() {
+        PageRequest latest = PageRequest.of(0, RECENT_ACTIVITY);
+        List<Map<String, Object>> activity = new ArrayList<>();
+        for (Booking booking : bookingRepository.findRecentlyCreated(latest)) {
+            String resourceName = booking.getResource() != null ? booking.getResource().getName() : "a service";
+            activity.add(activityEntry("Booking #" + booking.getId() + " made for " + resourceName
+                + (booking.getCustomerName() != null ? " by " + booking.getCustomerName() : ""),
+                booking.getCreatedAt(), "fa-calendar-check"));
+        }
+        for (Payment payment : paymentRepository.findRecentPayments(latest)) {
+            activity.add(activityEntry(String.format("Payment of $%.2f processed", payment.getAmount() != null ? payment.getAmount() : 0.0)
+                + (payment.getBooking() != null ? " for booking #" + payment.getBooking().getId() : ""),
+                payment.getPaymentDate(), "fa-credit-card"));
+        }
+        for (User user : userRepository.findRecentlyRegistered(latest)) {
+            boolean provider = user.getRole() != null && "PROVIDER".equalsIgnoreCase(user.getRole().getName());
+            activity.add(activityEntry((provider ? "New provider registered: " : "New user registered: ")
+                + user.getFirstName() + " " + user.getLastName(), user.getCreatedDate().atStartOfDay(), "fa-user-plus"));
+        }
+        activity.sort(Comparator.comparing((Map<String, Object> entry) -> (LocalDateTime) entry.get("timestamp")).reversed());
+        return activity.size() > RECENT_ACTIVITY ? new ArrayList<>(activity.subList(0, RECENT_ACTIVITY)) : activity;
+    }
+
+    private static Map<String, Object> activityEntry(String description, LocalDateTime timestamp, String icon) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("description", description);
+        entry.put("timestamp", timestamp);
+        entry.put("icon", icon);
+        return entry;
+    }
+
+    /**
+     * Reject an unknown report type or a bad period before any of the export is streamed, while the
+     * response can still carry an error status.
+     */
+    public void validateExport(String reportType, String period) {
+        if (reportType == null || !EXPORT_TYPES.contains(reportType.toLowerCase())) {
+            throw new IllegalArgumentException("Unknown report type: " + reportType + " (expected one of " + EXPORT_TYPES + ")");
+        }
         try {
-            StringBuilder csv = new StringBuilder();
-            DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-            
-            switch (reportType.toLowerCase()) {
-                case "users":
-                    csv.append("ID,First Name,Last Name,Email,Role,Created Date,Active\n");
-                    List<User> users = userRepository.findAll();
-                    for (User user : users) {
-                        csv.append(String.format("%d,\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",%b\n",
-                            user.getId(),
-                            escapeCsv(user.getFirstName()),
-                            escapeCsv(user.getLastName()),
-                            escapeCsv(user.getEmail()),
-                            user.getRole() != null ? user.getRole().getName() : "N/A",
-                            user.getCreatedDate() != null ? user.getCreatedDate().format(dateFormatter) : "N/A",
-                            user.getIsActive() != null ? user.getIsActive() : false
-                        ));
-                    }
-                    break;
-                    
-                case "bookings":
-                    csv.append("Booking ID,Customer Name,Email,Phone,Resource,Start Time,End Time,Status,Amount,Payment Status\n");
-                    List<Booking> bookings = bookingRepository.findAll();
-                    for (Booking booking : bookings) {
-                        csv.append(String.format("%d,\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",%.2f,\"%s\"\n",
-                            booking.getId(),
-                            escapeCsv(booking.getCustomerName()),
-                            escapeCsv(booking.getCustomerEmail()),
-                            escapeCsv(booking.getCustomerPhone()),
-                            booking.getResource() != null ? escapeCsv(booking.getResource().getName()) : "N/A",
-                            booking.getStartTime() != null ? booking.getStartTime().format(dateTimeFormatter) : "N/A",
-                            booking.getEndTime() != null ? booking.getEndTime().format(dateTimeFormatter) : "N/A",
-                            escapeCsv(booking.getStatus()),
-                            booking.getFinalAmount() != null ? booking.getFinalAmount() : 0.0,
-                            escapeCsv(booking.getPaymentStatus())
-                        ));
-                    }
-                    break;
-                    
-                case "revenue":
-                    csv.append("Payment ID,Booking ID,Amount,Payment Date,Payment Method,Status\n");
-                    List<Payment> payments = paymentRepository.findAll();
-                    for (Payment payment : payments) {
-                        csv.append(String.format("%d,%d,%.2f,\"%s\",\"%s\",\"%s\"\n",
-                            payment.getId(),
-                            payment.getBooking() != null ? payment.getBooking().getId() : 0,
-                            payment.getAmount() != null ? payment.getAmount() : 0.0,
-                            payment.getPaymentDate() != null ? payment.getPaymentDate().format(dateTimeFormatter) : "N/A",
-                            escapeCsv(payment.getPaymentMethod()),
-                            escapeCsv(payment.getPaymentStatus())
-                        ));
-                    }
-                    break;
-                    
-                case "providers":
-                    csv.append("ID,Name,Email,Organization,Service Category,Created Date,Active\n");
-                    List<User> providers = userRepository.findAll().stream()
-                        .filter(u -> u.getRole() != null && "PROVIDER".equalsIgnoreCase(u.getRole().getName()))
-                        .toList();
-                    for (User provider : providers) {
-                        csv.append(String.format("%d,\"%s %s\",\"%s\",\"%s\",\"%s\",\"%s\",%b\n",
-                            provider.getId(),
-                            escapeCsv(provider.getFirstName()),
-                            escapeCsv(provider.getLastName()),
-                            escapeCsv(provider.getEmail()),
-                            escapeCsv(provider.getOrganizationName()),
-                            escapeCsv(provider.getServiceCategory()),
-                            provider.getCreatedDate() != null ? provider.getCreatedDate().format(dateFormatter) : "N/A",
-                            provider.getIsActive() != null ? provider.getIsActive() : false
-                        ));
+            parsePeriod(period);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Period must be a number of days: " + period);
+        }
+    }
+
+    /**
+     * Write report data as CSV straight to the given stream. Rows are read through a database
+     * cursor in fetch-size chunks and detached as they are written, so memory stays flat however
+     * large the table is. The caller owns (and closes) the stream.
+     */
+    public void exportReportToCSV(String reportType, String period, OutputStream out) throws IOException {
+        Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+        DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        
+        switch (reportType.toLowerCase()) {
+            case "users":
+                csv.write("ID,First Name,Last Name,Email,Role,Created Date,Active\n");
+                exportRows(userRepository::streamAllForExport, csv, user -> String.format("%d,\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",%b\n",
+                    user.getId(),
+                    escapeCsv(user.getFirstName()),
+                    escapeCsv(user.getLastName()),
+                    escapeCsv(user.getEmail()),
+                    user.getRole() != null ? user.getRole().getName() : "N/A",
+                    user.getCreatedDate() != null ? user.getCreatedDate().format(dateFormatter) : "N/A",
+                    user.getIsActive() != null ? user.getIsActive() : false
+                ));
+                break;
+                
+            case "bookings":
+                csv.write("Booking ID,Customer Name,Email,Phone,Resource,Start Time,End Time,Status,Amount,Payment Status\n");
+                exportRows(bookingRepository::streamAllForExport, csv, booking -> String.format("%d,\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",\"%s\",%.2f,\"%s\"\n",
+                    booking.getId(),
+                    escapeCsv(booking.getCustomerName()),
+                    escapeCsv(booking.getCustomerEmail()),
+                    escapeCsv(booking.getCustomerPhone()),
+                    booking.getResource() != null ? escapeCsv(booking.getResource().getName()) : "N/A",
+                    booking.getStartTime() != null ? booking.getStartTime().format(dateTimeFormatter) : "N/A",
+                    booking.getEndTime() != null ? booking.getEndTime().format(dateTimeFormatter) : "N/A",
+                    escapeCsv(booking.getStatus()),
+                    booking.getFinalAmount() != null ? booking.getFinalAmount() : 0.0,
+                    escapeCsv(booking.getPaymentStatus())
+                ));
+                break;
+                
+            case "revenue":
+                csv.write("Payment ID,Booking ID,Amount,Payment Date,Payment Method,Status\n");
+                exportRows(paymentRepository::streamAllForExport, csv, payment -> String.format("%d,%d,%.2f,\"%s\",\"%s\",\"%s\"\n",
+                    payment.getId(),
+                    payment.getBooking() != null ? payment.getBooking().getId() : 0,
+                    payment.getAmount() != null ? payment.getAmount() : 0.0,
+                    payment.getPaymentDate() != null ? payment.getPaymentDate().format(dateTimeFormatter) : "N/A",
+                    escapeCsv(payment.getPaymentMethod()),
+                    escapeCsv(payment.getPaymentStatus())
+                ));
+                break;
+                
+            case "providers":
+                csv.write("ID,Name,Email,Organization,Service Category,Created Date,Active\n");
+                exportRows(() -> userRepository.streamByRoleNameForExport("PROVIDER"), csv, provider -> String.format("%d,\"%s %s\",\"%s\",\"%s\",\"%s\",\"%s\",%b\n",
+                    provider.getId(),
+                    escapeCsv(provider.getFirstName()),
+                    escapeCsv(provider.getLastName()),
+                    escapeCsv(provider.getEmail()),
+                    escapeCsv(provider.getOrganizationName()),
+                    escapeCsv(provider.getServiceCategory()),
+                    provider.getCreatedDate() != null ? provider.getCreatedDate().format(dateFormatter) : "N/A",
+                    provider.getIsActive() != null ? provider.getIsActive() : false
+                ));
+                break;
+                
+            case "overview":
+                csv.write("System Overview Report\n");
+                csv.write("Generated," + LocalDateTime.now().format(dateTimeFormatter) + "\n\n");
+                Map<String, Object> reports = getSystemReports(period);
+                csv.write("Metric,Value\n");
+                csv.write("Total Users," + reports.get("totalUsers") + "\n");
+                csv.write("Total Providers," + reports.get("totalProviders") + "\n");
+                csv.write("Total Bookings," + reports.get("totalBookings") + "\n");
+                csv.write("Total Revenue,$" + reports.get("totalRevenue") + "\n");
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown report type: " + reportType);
+        }
+        csv.flush();
+    }
+
+    /**
+     * Stream the query inside a read-only transaction (PostgreSQL only honours the fetch size with
+     * autocommit off) and clear the persistence context every chunk so written rows can be collected.
+     */
+    private <T> void exportRows(Supplier<Stream<T>> query, Writer csv, Function<T, String> formatter) throws IOException {
+        try {
+            exportTransaction.executeWithoutResult(status -> {
+                try (Stream<T> rows = query.get()) {
+                    int written = 0;
+                    for (Iterator<T> it = rows.iterator(); it.hasNext(); ) {
+                        csv.write(formatter.apply(it.next()));
+                        if (++written % EXPORT_FETCH_SIZE == 0) {
+                            entityManager.clear();
+                        }
                     }
-                    break;
-                    
-                default:
-                    csv.append("System Overview Report\n");
-                    csv.append("Generated," + LocalDateTime.now().format(dateTimeFormatter) + "\n\n");
-                    Map<String, Object> reports = getSystemReports(period);
-                    csv.append("Metric,Value\n");
-                    csv.append("Total Users," + reports.get("totalUsers") + "\n");
-                    csv.append("Total Providers," + reports.get("totalProviders") + "\n");
-                    csv.append("Total Bookings," + reports.get("totalBookings") + "\n");
-                    csv.append("Total Revenue,$" + reports.get("totalRevenue") + "\n");
-                    break;
-            }
-            
-            return csv.toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to export CSV: " + e.getMessage(), e);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-download
+            throw e.getCause();
         }
     }
 
@@ -4,16 +4,23 @@ import com.bookfast.backend.common.dto.UserCreateRequest;
 import com.bookfast.backend.common.dto.UserUpdateRequest;
 import com.bookfast.backend.common.model.Role;
 import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.common.pagination.KeysetListing;
+import com.bookfast.backend.common.pagination.KeysetPage;
+import com.bookfast.backend.common.pagination.KeysetPager;
+import com.bookfast.backend.common.pagination.KeysetRequest;
+import com.bookfast.backend.common.pagination.SortKey;
 import com.bookfast.backend.common.repository.UserRepository;
 import com.bookfast.backend.common.repository.RoleRepository;
 import com.bookfast.backend.common.util.PasswordUtil;
 import com.bookfast.backend.common.notification.EmailService;
+import com.bookfast.backend.common.notification.EmailTemplates;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.SecureRandom;
 import java.time.LocalDate;
+import java.util.Map;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +30,15 @@ public class AdminUserService {
     private final RoleRepository roleRepository;
     private final EmailService emailService;
     private final com.bookfast.backend.common.repository.PasswordResetTokenRepository passwordResetTokenRepository;
+    private final KeysetPager keysetPager;
+
+    // Shared with AdminProviderService, which pages the same table restricted to providers
+    static final KeysetListing<User> USER_LISTING = KeysetListing.of(User.class, User::getId)
+        .sortKey(SortKey.ofString("email", "email", User::getEmail))
+        .sortKey(SortKey.ofString("lastName", "lastName", User::getLastName))
+        .sortKey(SortKey.ofDate("createdDate", "createdDate", User::getCreatedDate))
+        .defaultSort("id", false)
+        .fetch("role");
     
     @Value("${app.frontend.url:http://localhost:4200}")
     private String frontendUrl;
@@ -31,11 +47,13 @@ public class AdminUserService {
     private static final int PASSWORD_LENGTH = 12;
 
     public AdminUserService(UserRepository userRepository, RoleRepository roleRepository, EmailService emailService,
-                            com.bookfast.backend.common.repository.PasswordResetTokenRepository passwordResetTokenRepository) {
+                            com.bookfast.backend.common.repository.PasswordResetTokenRepository passwordResetTokenRepository,
+                            KeysetPager keysetPager) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.emailService = emailService;
         this.passwordResetTokenRepository = passwordResetTokenRepository;
+        this.keysetPager = keysetPager;
     }
     
     /**
@@ -57,6 +75,34 @@ public class AdminUserService {
         return userRepository.findAll();
     }
 
+    /**
+     * Users one page at a time; role, active and q (name or email contains) filter in the database.
+     */
+    public KeysetPage<User> getUsersPage(KeysetRequest request, String role, Boolean active, String q) {
+        return keysetPager.fetch(USER_LISTING, request, userFilter(role, null, active, q));
+    }
+
+    static KeysetPager.Filter<User> userFilter(String role, String category, Boolean active, String q) {
+        return (cb, root, where) -> {
+            if (role != null && !role.isBlank()) {
+                where.add(cb.equal(cb.lower(KeysetPager.fetched(root, "role").get("name")), role.toLowerCase()));
+            }
+            if (category != null && !category.isBlank()) {
+                where.add(cb.equal(cb.lower(root.get("serviceCategory")), category.toLowerCase()));
+            }
+            if (active != null) {
+                // Accounts created before the flag existed have NULL, which counts as active
+                where.add(active
+                    ? cb.or(cb.isNull(root.get("isActive")), cb.isTrue(root.get("isActive")))
+                    : cb.isFalse(root.get("isActive")));
+            }
+            if (q != null && !q.isBlank()) {
+                where.add(KeysetPager.containsIgnoreCase(cb, q, List.of(root.get("firstName"), root.get("lastName"),
+                    root.get("email"), root.get("organizationName"))));
+            }
+        };
+    }
+
     public User getUserById(Long id) {
         return userRepository.findById(id).orElse(null);
     }
@@ -98,27 +144,26 @@ public class AdminUserService {
         try {
             if (savedUser.getEmail() != null && !savedUser.getEmail().isEmpty()) {
                 System.out.println("[AdminUserService] Attempting to send welcome email to: " + savedUser.getEmail());
-                String emailContent;
+                String template;
                 String subject;
                 
                 if ("CUSTOMER".equalsIgnoreCase(roleName)) {
-                    emailContent = createCustomerWelcomeEmail(savedUser, generatedPassword);
+                    template = "admin-customer-welcome";
                     subject = "Welcome to BookFast - Your Account Has Been Created";
                     System.out.println("[AdminUserService] Created customer welcome email");
                 } else if ("PROVIDER".equalsIgnoreCase(roleName)) {
-                    emailContent = createProviderWelcomeEmail(savedUser, generatedPassword);
+                    template = "admin-provider-welcome";
                     subject = "Welcome to BookFast - Your Provider Account Credentials";
                     System.out.println("[AdminUserService] Created provider welcome email");
                 } else {
                     // For other roles (like ADMIN), send a generic welcome email
-                    emailContent = createGenericWelcomeEmail(savedUser, generatedPassword);
+                    template = "admin-user-welcome";
                     subject = "Welcome to BookFast - Your Account Has Been Created";
                     System.out.println("[AdminUserService] Created generic welcome email");
                 }
                 
-                System.out.println("[AdminUserService] Calling emailService.sendHtmlEmail...");
-                emailService.sendHtmlEmail(savedUser.getEmail(), subject, emailContent);
-                System.out.println("[AdminUserService] SUCCESS: Welcome email sent to: " + savedUser.getEmail());
+                emailService.send(savedUser.getEmail(), subject, template, welcomeEmailValues(savedUser, generatedPassword));
+                System.out.println("[AdminUserService] Welcome email queued for: " + savedUser.getEmail());
             } else {
                 System.err.println("[AdminUserService] Cannot send email: email is null or empty");
             }
@@ -199,218 +244,14 @@ public class AdminUserService {
     }
     
     /**
-     * Create welcome email for customer created by admin
-     */
-    private String createCustomerWelcomeEmail(User user, String password) {
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #10b981; color: white; padding: 20px; text-align: center; border-radius: 8px 8px 0 0; }
-                    .content { background-color: #f9fafb; padding: 30px; border: 1px solid #e5e7eb; }
-                    .credentials { background-color: white; padding: 20px; margin: 20px 0; border-left: 4px solid #10b981; border-radius: 4px; }
-                    .credential-item { margin: 10px 0; }
-                    .credential-label { font-weight: bold; color: #10b981; }
-                    .credential-value { font-family: monospace; background-color: #f3f4f6; padding: 5px 10px; border-radius: 4px; display: inline-block; margin-top: 5px; }
-                    .button { display: inline-block; background-color: #10b981; color: white; padding: 12px 30px; text-decoration: none; border-radius: 6px; margin: 20px 0; }
-                    .footer { text-align: center; padding: 20px; color: #6b7280; font-size: 0.875rem; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>🎉 Welcome to BookFast!</h1>
-                    </div>
-                    <div class="content">
-                        <h2>Hello %s,</h2>
-                        <p>Your BookFast account has been successfully created by an administrator.</p>
-                        
-                        <div class="credentials">
-                            <h3>📧 Your Login Credentials:</h3>
-                            <div class="credential-item">
-                                <div class="credential-label">Email:</div>
-                                <div class="credential-value">%s</div>
-                            </div>
-                            <div class="credential-item">
-                                <div class="credential-label">Password:</div>
-                                <div class="credential-value">%s</div>
-                            </div>
-                        </div>
-                        
-                        <p><strong>⚠️ Important:</strong> Please change your password after your first login for security purposes.</p>
-                        
-                        <div style="text-align: center;">
-                            <a href="%s/login" class="button">Login to Your Account</a>
-                        </div>
-                        
-                        <h3>🚀 What You Can Do:</h3>
-                        <ul>
-                            <li>Browse and search for service providers</li>
-                            <li>Book appointments with your preferred providers</li>
-                            <li>Manage your bookings and appointments</li>
-                            <li>Leave reviews and ratings</li>
-                        </ul>
-                        
-                        <p>If you have any questions or need assistance, please don't hesitate to contact our support team.</p>
-                    </div>
-                    <div class="footer">
-                        <p>© 2025 BookFast. All rights reserved.</p>
-                        <p>This is an automated message. Please do not reply to this email.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            user.getFirstName(),
-            user.getEmail(),
-            password,
-            frontendUrl
-        );
-    }
-    
-    /**
-     * Create welcome email for provider created by admin
-     */
-    private String createProviderWelcomeEmail(User user, String password) {
-        String organizationName = user.getOrganizationName() != null ? user.getOrganizationName() : "your business";
-        
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #6366f1; color: white; padding: 20px; text-align: center; border-radius: 8px 8px 0 0; }
-                    .content { background-color: #f9fafb; padding: 30px; border: 1px solid #e5e7eb; }
-                    .credentials { background-color: white; padding: 20px; margin: 20px 0; border-left: 4px solid #6366f1; border-radius: 4px; }
-                    .credential-item { margin: 10px 0; }
-                    .credential-label { font-weight: bold; color: #6366f1; }
-                    .credential-value { font-family: monospace; background-color: #f3f4f6; padding: 5px 10px; border-radius: 4px; display: inline-block; margin-top: 5px; }
-                    .button { display: inline-block; background-color: #6366f1; color: white; padding: 12px 30px; text-decoration: none; border-radius: 6px; margin: 20px 0; }
-                    .footer { text-align: center; padding: 20px; color: #6b7280; font-size: 0.875rem; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>🎉 Welcome to BookFast!</h1>
-                    </div>
-                    <div class="content">
-                        <h2>Hello %s,</h2>
-                        <p>Great news! BookFast has successfully registered <strong>%s</strong> as a service provider on our booking platform.</p>
-                        
-                        <p>You can now offer your services to customers and manage your bookings through our platform.</p>
-                        
-                        <div class="credentials">
-                            <h3>📧 Your Login Credentials:</h3>
-                            <div class="credential-item">
-                                <div class="credential-label">Email:</div>
-                                <div class="credential-value">%s</div>
-                            </div>
-                            <div class="credential-item">
-                                <div class="credential-label">Password:</div>
-                                <div class="credential-value">%s</div>
-                            </div>
-                        </div>
-                        
-                        <p><strong>⚠️ Important:</strong> Please change your password after your first login for security purposes.</p>
-                        
-                        <div style="text-align: center;">
-                            <a href="%s/login" class="button">Login to Your Account</a>
-                        </div>
-                        
-                        <h3>🚀 Next Steps:</h3>
-                        <ol>
-                            <li>Login to your provider account</li>
-                            <li>Complete your profile information</li>
-                            <li>Add your services and availability</li>
-                            <li>Start receiving bookings!</li>
-                        </ol>
-                        
-                        <p>If you have any questions or need assistance, please don't hesitate to contact our support team.</p>
-                    </div>
-                    <div class="footer">
-                        <p>© 2025 BookFast. All rights reserved.</p>
-                        <p>This is an automated message. Please do not reply to this email.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            user.getFirstName(),
-            organizationName,
-            user.getEmail(),
-            password,
-            frontendUrl
-        );
-    }
-    
-    /**
-     * Create generic welcome email for other roles
+     * Values of the welcome email templates for a user created by admin
      */
-    private String createGenericWelcomeEmail(User user, String password) {
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #6366f1; color: white; padding: 20px; text-align: center; border-radius: 8px 8px 0 0; }
-                    .content { background-color: #f9fafb; padding: 30px; border: 1px solid #e5e7eb; }
-                    .credentials { background-color: white; padding: 20px; margin: 20px 0; border-left: 4px solid #6366f1; border-radius: 4px; }
-                    .credential-item { margin: 10px 0; }
-                    .credential-label { font-weight: bold; color: #6366f1; }
-                    .credential-value { font-family: monospace; background-color: #f3f4f6; padding: 5px 10px; border-radius: 4px; display: inline-block; margin-top: 5px; }
-                    .button { display: inline-block; background-color: #6366f1; color: white; padding: 12px 30px; text-decoration: none; border-radius: 6px; margin: 20px 0; }
-                    .footer { text-align: center; padding: 20px; color: #6b7280; font-size: 0.875rem; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>🎉 Welcome to BookFast!</h1>
-                    </div>
-                    <div class="content">
-                        <h2>Hello %s,</h2>
-                        <p>Your BookFast account has been successfully created by an administrator.</p>
-                        
-                        <div class="credentials">
-                            <h3>📧 Your Login Credentials:</h3>
-                            <div class="credential-item">
-                                <div class="credential-label">Email:</div>
-                                <div class="credential-value">%s</div>
-                            </div>
-                            <div class="credential-item">
-                                <div class="credential-label">Password:</div>
-                                <div class="credential-value">%s</div>
-                            </div>
-                        </div>
-                        
-                        <p><strong>⚠️ Important:</strong> Please change your password after your first login for security purposes.</p>
-                        
-                        <div style="text-align: center;">
-                            <a href="%s/login" class="button">Login to Your Account</a>
-                        </div>
-                        
-                        <p>If you have any questions or need assistance, please don't hesitate to contact our support team.</p>
-                    </div>
-                    <div class="footer">
-                        <p>© 2025 BookFast. All rights reserved.</p>
-                        <p>This is an automated message. Please do not reply to this email.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            user.getFirstName(),
-            user.getEmail(),
-            password,
-            frontendUrl
-        );
+    private Map<String, Object> welcomeEmailValues(User user, String password) {
+        return EmailTemplates.values(
+            "firstName", user.getFirstName(),
+            "organizationName", user.getOrganizationName() != null ? user.getOrganizationName() : "your business",
+            "email", user.getEmail(),
+            "password", password,
+            "frontendUrl", frontendUrl);
     }
 }
@@ -0,0 +1,120 @@
+package com.bookfast.backend.admin.service;
+
+import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.Payment;
+import com.bookfast.backend.resource.model.Review;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches computed admin reports per (report, period) for a short TTL.
+ *
+ * Every committed insert, update or delete of a booking, payment, user or review clears the
+ * cache, so an admin sees their own changes immediately. A report that was being computed
+ * while such a write committed is returned but not stored.
+ */
+@Component
+public class ReportCache implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+    private static final Set<Class<?>> REPORTED_ENTITIES = Set.of(Booking.class, Payment.class, User.class, Review.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${reports.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    public ReportCache(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @PostConstruct
+    void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        long now = System.currentTimeMillis();
+        Entry cached = entries.get(key);
+        if (cached != null && cached.expiresAt > now) {
+            return (T) cached.value;
+        }
+        long startedAt = generation.get();
+        T value = loader.get();
+        if (ttlSeconds > 0 && generation.get() == startedAt) {
+            entries.put(key, new Entry(value, now + ttlSeconds * 1000));
+        }
+        return value;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        invalidateIfReported(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        invalidateIfReported(event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        invalidateIfReported(event.getEntity());
+    }
+
+    // A failed commit changed nothing, so there is nothing to invalidate
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return REPORTED_ENTITIES.contains(persister.getMappedClass());
+    }
+
+    private void invalidateIfReported(Object entity) {
+        if (entity != null && REPORTED_ENTITIES.stream().anyMatch(type -> type.isInstance(entity))) {
+            invalidateAll();
+        }
+    }
+
+    private record Entry(Object value, long expiresAt) {
+    }
+}
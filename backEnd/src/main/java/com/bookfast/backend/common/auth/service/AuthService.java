@@ -5,10 +5,13 @@ import com.bookfast.backend.common.model.*;
 import com.bookfast.backend.common.repository.*;
 import com.bookfast.backend.common.util.PasswordUtil;
 import com.bookfast.backend.common.notification.EmailService;
+import com.bookfast.backend.common.notification.EmailTemplates;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
+
 @Service
 public class AuthService {
     private final UserRepository userRepo;
@@ -53,15 +56,13 @@ public class AuthService {
         try {
             if (savedUser.getEmail() != null && !savedUser.getEmail().isEmpty()) {
                 System.out.println("[AuthService] Attempting to send welcome email to customer: " + savedUser.getEmail());
-                String emailContent = createCustomerWelcomeEmail(savedUser);
-                System.out.println("[AuthService] Email content created, length: " + (emailContent != null ? emailContent.length() : 0));
-                System.out.println("[AuthService] Calling emailService.sendHtmlEmail...");
-                emailService.sendHtmlEmail(
+                emailService.send(
                     savedUser.getEmail(),
                     "Welcome to BookFast!",
-                    emailContent
+                    "customer-welcome",
+                    welcomeEmailValues(savedUser)
                 );
-                System.out.println("[AuthService] SUCCESS: Welcome email sent to customer: " + savedUser.getEmail());
+                System.out.println("[AuthService] Welcome email queued for customer: " + savedUser.getEmail());
             } else {
                 System.err.println("[AuthService] Cannot send welcome email: email is null or empty");
             }
@@ -106,15 +107,13 @@ public class AuthService {
         try {
             if (savedUser.getEmail() != null && !savedUser.getEmail().isEmpty()) {
                 System.out.println("[AuthService] Attempting to send welcome email to provider: " + savedUser.getEmail());
-                String emailContent = createProviderWelcomeEmail(savedUser);
-                System.out.println("[AuthService] Email content created, length: " + (emailContent != null ? emailContent.length() : 0));
-                System.out.println("[AuthService] Calling emailService.sendHtmlEmail...");
-                emailService.sendHtmlEmail(
+                emailService.send(
                     savedUser.getEmail(),
                     "Welcome to BookFast - Provider Account Created!",
-                    emailContent
+                    "provider-welcome",
+                    welcomeEmailValues(savedUser)
                 );
-                System.out.println("[AuthService] SUCCESS: Welcome email sent to provider: " + savedUser.getEmail());
+                System.out.println("[AuthService] Welcome email queued for provider: " + savedUser.getEmail());
             } else {
                 System.err.println("[AuthService] Cannot send welcome email: email is null or empty");
             }
@@ -143,114 +142,9 @@ public class AuthService {
     }
     
     /**
-     * Create welcome email for customer registration
-     */
-    private String createCustomerWelcomeEmail(User user) {
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #10b981; color: white; padding: 20px; text-align: center; border-radius: 8px 8px 0 0; }
-                    .content { background-color: #f9fafb; padding: 30px; border: 1px solid #e5e7eb; }
-                    .button { display: inline-block; background-color: #10b981; color: white; padding: 12px 30px; text-decoration: none; border-radius: 6px; margin: 20px 0; }
-                    .footer { text-align: center; padding: 20px; color: #6b7280; font-size: 0.875rem; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>🎉 Welcome to BookFast!</h1>
-                    </div>
-                    <div class="content">
-                        <h2>Hello %s,</h2>
-                        <p>Thank you for registering with BookFast! We're excited to have you on board.</p>
-                        
-                        <p>Your account has been successfully created. You can now:</p>
-                        <ul>
-                            <li>Browse and search for service providers</li>
-                            <li>Book appointments with your preferred providers</li>
-                            <li>Manage your bookings and appointments</li>
-                            <li>Leave reviews and ratings</li>
-                        </ul>
-                        
-                        <div style="text-align: center;">
-                            <a href="%s/customer/home" class="button">Get Started</a>
-                        </div>
-                        
-                        <p>If you have any questions or need assistance, please don't hesitate to contact our support team.</p>
-                        
-                        <p>Welcome aboard!</p>
-                        <p><strong>The BookFast Team</strong></p>
-                    </div>
-                    <div class="footer">
-                        <p>© 2025 BookFast. All rights reserved.</p>
-                        <p>This is an automated message. Please do not reply to this email.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            user.getFirstName(),
-            frontendUrl
-        );
-    }
-    
-    /**
-     * Create welcome email for provider registration
+     * Values of the customer and provider welcome email templates
      */
-    private String createProviderWelcomeEmail(User user) {
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #6366f1; color: white; padding: 20px; text-align: center; border-radius: 8px 8px 0 0; }
-                    .content { background-color: #f9fafb; padding: 30px; border: 1px solid #e5e7eb; }
-                    .button { display: inline-block; background-color: #6366f1; color: white; padding: 12px 30px; text-decoration: none; border-radius: 6px; margin: 20px 0; }
-                    .footer { text-align: center; padding: 20px; color: #6b7280; font-size: 0.875rem; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>🎉 Welcome to BookFast!</h1>
-                    </div>
-                    <div class="content">
-                        <h2>Hello %s,</h2>
-                        <p>Thank you for registering as a service provider with BookFast! We're excited to have you on our platform.</p>
-                        
-                        <p>Your provider account has been successfully created. You can now:</p>
-                        <ul>
-                            <li>Add your services and resources</li>
-                            <li>Set your availability and schedule</li>
-                            <li>Manage bookings from customers</li>
-                            <li>View analytics and reports</li>
-                        </ul>
-                        
-                        <div style="text-align: center;">
-                            <a href="%s/provider/dashboard" class="button">Access Your Dashboard</a>
-                        </div>
-                        
-                        <p>If you have any questions or need assistance, please don't hesitate to contact our support team.</p>
-                        
-                        <p>Welcome to the BookFast provider community!</p>
-                        <p><strong>The BookFast Team</strong></p>
-                    </div>
-                    <div class="footer">
-                        <p>© 2025 BookFast. All rights reserved.</p>
-                        <p>This is an automated message. Please do not reply to this email.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            user.getFirstName(),
-            frontendUrl
-        );
+    private Map<String, Object> welcomeEmailValues(User user) {
+        return EmailTemplates.values("firstName", user.getFirstName(), "frontendUrl", frontendUrl);
     }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.bookfast.backend.common.auth.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verified JWTs by SHA-256 of the token, so a token seen again skips parsing and the HMAC check.
+ *
+ * Entries expire with the token itself (and at the latest after ttl-seconds); only tokens that
+ * verified are stored, so garbage tokens cannot fill the cache. When max-entries is exceeded,
+ * expired entries are dropped first and then arbitrary ones.
+ */
+@Component
+public class JwtAuthenticationCache {
+    private final Map<String, JwtPrincipal> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Value("${jwt.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jwt.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${jwt.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    public JwtPrincipal get(String token) {
+        if (!enabled) {
+            return null;
+        }
+        String key = hash(token);
+        JwtPrincipal principal = entries.get(key);
+        if (principal != null && principal.expiresAtMillis() > System.currentTimeMillis()) {
+            hits.increment();
+            return principal;
+        }
+        if (principal != null) {
+            entries.remove(key, principal);
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String token, JwtPrincipal principal) {
+        if (!enabled) {
+            return;
+        }
+        long cappedExpiry = Math.min(principal.expiresAtMillis(), System.currentTimeMillis() + ttlSeconds * 1000);
+        entries.put(hash(token), new JwtPrincipal(principal.username(), principal.authorities(), cappedExpiry));
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", lookups > 0 ? (double) hitCount / lookups : 0.0);
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    private synchronized void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(principal -> principal.expiresAtMillis() <= now);
+        // Leave some headroom so the next inserts do not evict again straight away
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (entries.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+            evictions.increment();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Subject and granted authorities of a verified token.
+     */
+    public record JwtPrincipal(String username, List<GrantedAuthority> authorities, long expiresAtMillis) {
+    }
+}
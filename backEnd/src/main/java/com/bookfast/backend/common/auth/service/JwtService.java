@@ -1,8 +1,11 @@
 package com.bookfast.backend.common.auth.service;
 
+import com.bookfast.backend.common.auth.service.JwtAuthenticationCache.JwtPrincipal;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Service;
 import java.security.Key;
 import java.util.Date;
@@ -12,12 +15,21 @@ import java.util.List;
 
 @Service
 public class JwtService {
-    @Value("${jwt.secret}")
-    private String jwtSecret;
     private final long jwtExpirationMs = 7 * 24 * 60 * 60 * 1000; // 7 days
 
+    // Derived once; JwtParser is immutable and safe to share between requests
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final JwtAuthenticationCache authenticationCache;
+
+    public JwtService(@Value("${jwt.secret}") String jwtSecret, JwtAuthenticationCache authenticationCache) {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.authenticationCache = authenticationCache;
+    }
+
     private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        return signingKey;
     }
 
     public String generateToken(String email, String role) {
@@ -33,32 +45,42 @@ public class JwtService {
                 .compact();
     }
 
-    public boolean validateToken(String token) {
-        try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
-        }
-    }
-
     public String extractUsername(String token) {
-        Claims claims = Jwts.parserBuilder()
-            .setSigningKey(getSigningKey())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
-        return claims.getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public Claims parseClaims(String token) {
-        return Jwts.parserBuilder()
-            .setSigningKey(getSigningKey())
-            .build()
-            .parseClaimsJws(token)
-            .getBody();
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * Verify the token once and return its subject and authorities, or null if it is invalid,
+     * expired or lacks either. Tokens seen before are answered from the cache without any crypto.
+     */
+    public JwtPrincipal authenticate(String token) {
+        JwtPrincipal cached = authenticationCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        Claims claims;
+        try {
+            claims = parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        String username = claims.getSubject();
+        List<?> rawAuthorities = claims.get("authorities", List.class);
+        if (username == null || rawAuthorities == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = rawAuthorities.stream()
+                .map(Object::toString)
+                .map(auth -> auth.startsWith("ROLE_") ? auth : "ROLE_" + auth)
+                .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                .toList();
+        long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        JwtPrincipal principal = new JwtPrincipal(username, authorities, expiresAt);
+        authenticationCache.put(token, principal);
+        return principal;
     }
 }
\ No newline at end of file
@@ -1,10 +1,15 @@
 package com.bookfast.backend.common.config;
 
+import com.google.api.client.googleapis.apache.v2.GoogleApacheHttpTransport;
+import com.google.api.client.http.HttpTransport;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+
 @Configuration
 public class GoogleCalendarConfig {
 
@@ -31,6 +36,15 @@ public class GoogleCalendarConfig {
         return new RestTemplate();
     }
 
+    /**
+     * One HTTP transport for all Google API calls: trusted Google certificates are loaded once and
+     * connections are pooled and kept alive across requests (Apache client, 200 total / 20 per route).
+     */
+    @Bean(destroyMethod = "shutdown")
+    public HttpTransport googleHttpTransport() throws GeneralSecurityException, IOException {
+        return GoogleApacheHttpTransport.newTrustedTransport();
+    }
+
     // Getters for configuration values
     public String getClientId() {
         return clientId;
@@ -0,0 +1,45 @@
+package com.bookfast.backend.common.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves pooled id sequences past the ids already in their tables. Needed for tables that used
+ * IDENTITY columns before switching to a sequence: ddl-auto creates the sequence at 1, which
+ * would hand out ids that already exist. Runs before the web server accepts requests.
+ */
+@Component
+public class IdSequenceSynchronizer implements SmartInitializingSingleton {
+    // sequence name -> table name
+    private static final Map<String, String> SEQUENCES = Map.of(
+        "booking_seq", "booking",
+        "availability_slot_seq", "availability_slot"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // EntityManagerFactory is only injected so that the schema update (which creates the sequences) has run
+    public IdSequenceSynchronizer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        SEQUENCES.forEach((sequence, table) -> {
+            try {
+                // Only ever moves forward, so blocks already handed out to other instances stay valid
+                Long value = jdbcTemplate.queryForObject(
+                    "SELECT setval('" + sequence + "', GREATEST((SELECT COALESCE(MAX(\"id\"), 0) FROM \"" + table + "\"), "
+                        + "(SELECT last_value FROM \"" + sequence + "\"), 1))",
+                    Long.class);
+                System.out.println("[IdSequenceSynchronizer] " + sequence + " synchronized to " + value);
+            } catch (Exception e) {
+                System.err.println("[IdSequenceSynchronizer] Failed to synchronize " + sequence + ": " + e.getMessage());
+            }
+        });
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.http.HttpMethod;
+import jakarta.servlet.DispatcherType;
 
 @Configuration
 public class SecurityConfig {
@@ -67,6 +68,7 @@ public class SecurityConfig {
                 )
                 .cors(withDefaults())
                 .authorizeHttpRequests(auth -> auth
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() // Completion of streamed responses (e.g. CSV export) that were already authorized
                         .requestMatchers(HttpMethod.GET, "/uploads/**").permitAll() // Allow access to uploaded files
                         .requestMatchers(HttpMethod.GET, "/api/categories", "/api/resources/**").permitAll()
                         .requestMatchers("/api/auth/**", "/api/auth/logout", "/api/admin/create-admin", "/api/admin/check-admin-exists", "/api/test/**", "/api/database/**", "/api/test-resource/**", "/api/cleanup/**").permitAll()
@@ -1,20 +1,46 @@
 package com.bookfast.backend.common.config;
 
+import com.sendgrid.Client;
 import com.sendgrid.SendGrid;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class SendGridConfig {
 
     @Value("${sendgrid.api-key:}")
     private String sendGridApiKey;
 
+    // Kept-alive connections to api.sendgrid.com, shared by all EmailDispatcher workers
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient sendGridHttpClient(@Value("${email.dispatcher.max-connections:20}") int maxConnections,
+                                                  @Value("${email.dispatcher.timeout-ms:10000}") int timeoutMs) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(60, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        RequestConfig requestConfig = RequestConfig.custom()
+            .setConnectTimeout(timeoutMs)
+            .setConnectionRequestTimeout(timeoutMs)
+            .setSocketTimeout(timeoutMs)
+            .build();
+        return HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultRequestConfig(requestConfig)
+            .build();
+    }
+
     @Bean
-    public SendGrid sendGrid() {
+    public SendGrid sendGrid(CloseableHttpClient sendGridHttpClient) {
         // Handle empty API key gracefully - SendGrid will still be created
-        // EmailService handles missing key by checking before sending
-        return new SendGrid(sendGridApiKey != null && !sendGridApiKey.isEmpty() ? sendGridApiKey : "dummy-key-for-local-dev");
+        // EmailDispatcher handles missing key by checking before sending
+        return new SendGrid(sendGridApiKey != null && !sendGridApiKey.isEmpty() ? sendGridApiKey : "dummy-key-for-local-dev",
+            new Client(sendGridHttpClient));
     }
-}
\ No newline at end of file
+}
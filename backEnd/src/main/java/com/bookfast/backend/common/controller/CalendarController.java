@@ -2,6 +2,7 @@ package com.bookfast.backend.common.controller;
 
 import com.bookfast.backend.common.auth.service.AuthService;
 import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.provider.service.CalendarBusyTimeSync;
 import com.bookfast.backend.provider.service.GoogleCalendarService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -17,10 +18,13 @@ import java.util.Map;
 public class CalendarController {
     
     private final GoogleCalendarService googleCalendarService;
+    private final CalendarBusyTimeSync busyTimeSync;
     private final AuthService authService;
 
-    public CalendarController(GoogleCalendarService googleCalendarService, AuthService authService) {
+    public CalendarController(GoogleCalendarService googleCalendarService, CalendarBusyTimeSync busyTimeSync,
+                              AuthService authService) {
         this.googleCalendarService = googleCalendarService;
+        this.busyTimeSync = busyTimeSync;
         this.authService = authService;
     }
 
@@ -173,6 +177,7 @@ public class CalendarController {
             }
 
             googleCalendarService.disconnectCalendar(user.getId());
+            busyTimeSync.clearBusyTime(user.getId());
             
             return ResponseEntity.ok(Map.of(
                 "message", "Google Calendar disconnected successfully",
@@ -1,12 +1,18 @@
 package com.bookfast.backend.common.exception;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<String> handleAll(Exception ex) {
+    public ResponseEntity<String> handleAll(Exception ex, HttpServletResponse response) throws Exception {
+        // A streamed response (CSV export) that failed midway: a 400 can no longer be sent and its body would be
+        // appended to the partial download, so let the container abort the connection instead
+        if (response.isCommitted()) {
+            throw ex;
+        }
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
     }
     // Add more specific handlers as needed
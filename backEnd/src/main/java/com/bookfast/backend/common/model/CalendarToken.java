@@ -44,6 +44,35 @@ public class CalendarToken {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt = LocalDateTime.now();
 
+    // Background access-token refresh: consecutive failures and when to try again
+    @Column(name = "refresh_failures")
+    private Integer refreshFailures;
+
+    @Column(name = "next_refresh_at")
+    private LocalDateTime nextRefreshAt;
+
+    @Column(name = "last_refresh_error", columnDefinition = "TEXT")
+    private String lastRefreshError;
+
+    // Inbound busy-time sync: Google's nextSyncToken from the last pull, and when to pull next
+    @Column(name = "sync_token", columnDefinition = "TEXT")
+    private String syncToken;
+
+    @Column(name = "next_pull_at")
+    private LocalDateTime nextPullAt;
+
+    @Column(name = "last_pulled_at")
+    private LocalDateTime lastPulledAt;
+
+    @Column(name = "last_full_sync_at")
+    private LocalDateTime lastFullSyncAt;
+
+    @Column(name = "pull_attempts")
+    private Integer pullAttempts;
+
+    @Column(name = "last_pull_error", columnDefinition = "TEXT")
+    private String lastPullError;
+
     // Getters and setters
     public Long getId() {
         return id;
@@ -141,7 +170,83 @@ public class CalendarToken {
         this.updatedAt = updatedAt;
     }
 
+    public Integer getRefreshFailures() {
+        return refreshFailures;
+    }
+
+    public void setRefreshFailures(Integer refreshFailures) {
+        this.refreshFailures = refreshFailures;
+    }
+
+    public LocalDateTime getNextRefreshAt() {
+        return nextRefreshAt;
+    }
+
+    public void setNextRefreshAt(LocalDateTime nextRefreshAt) {
+        this.nextRefreshAt = nextRefreshAt;
+    }
+
+    public String getLastRefreshError() {
+        return lastRefreshError;
+    }
+
+    public void setLastRefreshError(String lastRefreshError) {
+        this.lastRefreshError = lastRefreshError;
+    }
+
+    public String getSyncToken() {
+        return syncToken;
+    }
+
+    public void setSyncToken(String syncToken) {
+        this.syncToken = syncToken;
+    }
+
+    public LocalDateTime getNextPullAt() {
+        return nextPullAt;
+    }
+
+    public void setNextPullAt(LocalDateTime nextPullAt) {
+        this.nextPullAt = nextPullAt;
+    }
+
+    public LocalDateTime getLastPulledAt() {
+        return lastPulledAt;
+    }
+
+    public void setLastPulledAt(LocalDateTime lastPulledAt) {
+        this.lastPulledAt = lastPulledAt;
+    }
+
+    public LocalDateTime getLastFullSyncAt() {
+        return lastFullSyncAt;
+    }
+
+    public void setLastFullSyncAt(LocalDateTime lastFullSyncAt) {
+        this.lastFullSyncAt = lastFullSyncAt;
+    }
+
+    public Integer getPullAttempts() {
+        return pullAttempts;
+    }
+
+    public void setPullAttempts(Integer pullAttempts) {
+        this.pullAttempts = pullAttempts;
+    }
+
+    public String getLastPullError() {
+        return lastPullError;
+    }
+
+    public void setLastPullError(String lastPullError) {
+        this.lastPullError = lastPullError;
+    }
+
     public boolean isExpired() {
         return expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
     }
+
+    public boolean expiresWithin(long seconds) {
+        return expiresAt != null && LocalDateTime.now().plusSeconds(seconds).isAfter(expiresAt);
+    }
 }
@@ -0,0 +1,32 @@
+package com.bookfast.backend.common.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Send pace of one SMS sending number, shared by all instances. nextSendAt is the theoretical
+ * time of the next send at the configured rate; a send is allowed while it is no further ahead of
+ * now than the burst allows, and moves it on by one interval (see SharedSmsRateLimiter).
+ */
+@Entity
+@Table(name = "sms_sender_pace")
+public class SmsSenderPace {
+    @Id
+    @Column(name = "sender_number")
+    private String senderNumber;
+
+    @Column(name = "next_send_at", nullable = false)
+    private LocalDateTime nextSendAt;
+
+    @Column(name = "throttles", nullable = false)
+    private long throttles;
+
+    public String getSenderNumber() { return senderNumber; }
+    public void setSenderNumber(String senderNumber) { this.senderNumber = senderNumber; }
+
+    public LocalDateTime getNextSendAt() { return nextSendAt; }
+    public void setNextSendAt(LocalDateTime nextSendAt) { this.nextSendAt = nextSendAt; }
+
+    public long getThrottles() { return throttles; }
+    public void setThrottles(long throttles) { this.throttles = throttles; }
+}
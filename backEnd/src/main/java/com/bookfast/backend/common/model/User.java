@@ -4,6 +4,16 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = {
+    // Registration reports filter and bucket by creation date
+    @Index(name = "idx_user_created_date", columnList = "created_date"),
+    // Paged user/provider listings filter by role and seek on id
+    @Index(name = "idx_user_role_id", columnList = "role_id, id"),
+    // Paged listings sorted by these columns order and seek on (column, id)
+    @Index(name = "idx_user_email_id", columnList = "email, id"),
+    @Index(name = "idx_user_last_name_id", columnList = "last_name, id"),
+    @Index(name = "idx_user_created_date_id", columnList = "created_date, id")
+})
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,297 @@
+package com.bookfast.backend.common.notification;
+
+import com.sendgrid.Method;
+import com.sendgrid.Request;
+import com.sendgrid.Response;
+import com.sendgrid.SendGrid;
+import com.sendgrid.helpers.mail.Mail;
+import com.sendgrid.helpers.mail.objects.Content;
+import com.sendgrid.helpers.mail.objects.Email;
+import com.sendgrid.helpers.mail.objects.Personalization;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends email through SendGrid from a bounded in-memory queue.
+ *
+ * Callers get a future instead of waiting for SendGrid. When the queue is full, submit waits up to
+ * offer-timeout-ms for room and then fails the message, so a SendGrid outage pushes back on callers
+ * instead of growing the heap. Workers drain the queue in batches; queued messages of the same
+ * template go out in one mail/send request with a personalization (recipient, subject and
+ * substitution values) each. A rejected batch is retried message by message so one bad address
+ * does not fail the others. All requests share the pooled SendGrid client from SendGridConfig.
+ */
+@Component
+public class EmailDispatcher {
+    private static final String NO_TEMPLATE = "(none)";
+
+    private final SendGrid sendGrid;
+    private final EmailTemplates templates;
+    private final String apiKey;
+    private final String senderEmail;
+    private final BlockingQueue<Pending> queue;
+    private final int workerCount;
+    private final int maxBatch;
+    private final long offerTimeoutMs;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Map<String, TemplateStats> stats = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean running = true;
+
+    public EmailDispatcher(SendGrid sendGrid, EmailTemplates templates,
+                           @Value("${sendgrid.api-key:#{null}}") String apiKey,
+                           @Value("${sendgrid.sender.email:noreply@bookfast.com}") String senderEmail,
+                           @Value("${email.dispatcher.queue-capacity:1000}") int queueCapacity,
+                           @Value("${email.dispatcher.workers:4}") int workerCount,
+                           @Value("${email.dispatcher.max-batch:100}") int maxBatch,
+                           @Value("${email.dispatcher.offer-timeout-ms:2000}") long offerTimeoutMs) {
+        this.sendGrid = sendGrid;
+        this.templates = templates;
+        this.apiKey = apiKey;
+        this.senderEmail = senderEmail != null && !senderEmail.isEmpty() ? senderEmail : "noreply@bookfast.com";
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workerCount = workerCount;
+        this.maxBatch = maxBatch;
+        this.offerTimeoutMs = offerTimeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isConfigured()) {
+            System.err.println("[EmailDispatcher] WARNING: SendGrid API key is not configured! Emails will not be sent.");
+        }
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("email-dispatcher-" + i).start(this::drain));
+        }
+    }
+
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.trim().isEmpty();
+    }
+
+    /**
+     * Queue the message. The future completes with true once SendGrid accepted it, false if it was
+     * not sent (not configured, queue full, rejected); it never completes exceptionally.
+     */
+    public CompletableFuture<Boolean> submit(EmailMessage message) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        if (!isConfigured()) {
+            System.err.println("[EmailDispatcher] SendGrid not configured. Not sending \"" + message.subject() + "\" to " + message.to());
+            result.complete(false);
+            return result;
+        }
+        try {
+            if (!queue.offer(new Pending(message, result, System.nanoTime()), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                System.err.println("[EmailDispatcher] Queue full, dropping \"" + message.subject() + "\" to " + message.to());
+                result.complete(false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.complete(false);
+        }
+        return result;
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Pending> drained = new ArrayList<>();
+                drained.add(first);
+                queue.drainTo(drained, maxBatch - 1);
+                Map<String, List<Pending>> byTemplate = new LinkedHashMap<>();
+                for (Pending pending : drained) {
+                    String template = pending.message().template();
+                    if (template == null) {
+                        sendOne(pending);
+                    } else {
+                        byTemplate.computeIfAbsent(template, key -> new ArrayList<>()).add(pending);
+                    }
+                }
+                byTemplate.forEach((template, group) -> {
+                    if (group.size() == 1) {
+                        sendOne(group.get(0));
+                    } else {
+                        sendBatch(template, group);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("[EmailDispatcher] Worker error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void sendOne(Pending pending) {
+        EmailMessage message = pending.message();
+        String statsKey = message.template() != null ? message.template() : NO_TEMPLATE;
+        boolean accepted = false;
+        try {
+            String content = message.template() != null
+                ? templates.render(message.template(), message.values())
+                : message.content();
+            Mail mail = new Mail(new Email(senderEmail), message.subject(), new Email(message.to()),
+                new Content(message.contentType(), content));
+            int status = post(mail);
+            accepted = status >= 200 && status < 300;
+            if (!accepted) {
+                System.err.println("[EmailDispatcher] SendGrid returned " + status + " for \"" + message.subject() + "\" to " + message.to());
+            }
+        } catch (Exception e) {
+            System.err.println("[EmailDispatcher] Failed to send \"" + message.subject() + "\" to " + message.to() + ": " + e.getMessage());
+        }
+        statsFor(statsKey).requests.increment();
+        complete(statsKey, pending, accepted);
+    }
+
+    private void sendBatch(String templateName, List<Pending> group) {
+        TemplateStats templateStats = statsFor(templateName);
+        List<Pending> batched = new ArrayList<>();
+        Mail mail = new Mail();
+        mail.setFrom(new Email(senderEmail));
+        mail.setSubject(group.get(0).message().subject());
+        try {
+            EmailTemplate template = templates.get(templateName);
+            mail.addContent(new Content("text/html", template.getSubstitutionContent()));
+            for (Pending pending : group) {
+                Map<String, String> values;
+                try {
+                    values = template.valuesFor(pending.message().values());
+                } catch (IllegalArgumentException e) {
+                    System.err.println("[EmailDispatcher] " + e.getMessage());
+                    complete(templateName, pending, false);
+                    continue;
+                }
+                Personalization personalization = new Personalization();
+                personalization.addTo(new Email(pending.message().to()));
+                personalization.setSubject(pending.message().subject());
+                values.forEach((placeholder, value) -> personalization.addSubstitution(EmailTemplate.tag(placeholder), value));
+                mail.addPersonalization(personalization);
+                batched.add(pending);
+            }
+        } catch (Exception e) {
+            System.err.println("[EmailDispatcher] Failed to build batch for template " + templateName + ": " + e.getMessage());
+            group.stream().filter(pending -> !pending.result().isDone()).forEach(pending -> complete(templateName, pending, false));
+            return;
+        }
+        if (batched.isEmpty()) {
+            return;
+        }
+
+        int status;
+        try {
+            status = post(mail);
+        } catch (Exception e) {
+            status = -1;
+            System.err.println("[EmailDispatcher] Batch of " + batched.size() + " " + templateName + " emails failed: " + e.getMessage());
+        }
+        templateStats.requests.increment();
+        if (status >= 200 && status < 300) {
+            templateStats.batchedMessages.add(batched.size());
+            batched.forEach(pending -> complete(templateName, pending, true));
+        } else if (status >= 400 && status < 500) {
+            // Usually one invalid address or value; find out which by sending them one at a time
+            System.err.println("[EmailDispatcher] SendGrid returned " + status + " for a batch of " + batched.size()
+                + " " + templateName + " emails, retrying individually");
+            batched.forEach(this::sendOne);
+        } else {
+            System.err.println("[EmailDispatcher] SendGrid returned " + status + " for a batch of " + batched.size()
+                + " " + templateName + " emails");
+            batched.forEach(pending -> complete(templateName, pending, false));
+        }
+    }
+
+    private int post(Mail mail) throws Exception {
+        Request request = new Request();
+        request.setMethod(Method.POST);
+        request.setEndpoint("mail/send");
+        request.setBody(mail.build());
+        Response response = sendGrid.api(request);
+        return response.getStatusCode();
+    }
+
+    private void complete(String statsKey, Pending pending, boolean accepted) {
+        TemplateStats templateStats = statsFor(statsKey);
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pending.enqueuedNanos());
+        (accepted ? templateStats.sent : templateStats.failed).increment();
+        templateStats.latencyTotalMs.add(latencyMs);
+        templateStats.latencyMaxMs.accumulateAndGet(latencyMs, Math::max);
+        pending.result().complete(accepted);
+    }
+
+    private TemplateStats statsFor(String key) {
+        return stats.computeIfAbsent(key, k -> new TemplateStats());
+    }
+
+    /**
+     * Queue depth and, per template, throughput (sent, failed, SendGrid requests, messages sent in
+     * batches) and latency from submit to completion.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("configured", isConfigured());
+        result.put("queued", queue.size());
+        result.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        result.put("rejected", rejected.sum());
+        Map<String, Object> perTemplate = new TreeMap<>();
+        stats.forEach((template, templateStats) -> {
+            long completed = templateStats.sent.sum() + templateStats.failed.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("sent", templateStats.sent.sum());
+            row.put("failed", templateStats.failed.sum());
+            row.put("requests", templateStats.requests.sum());
+            row.put("batchedMessages", templateStats.batchedMessages.sum());
+            row.put("averageLatencyMs", completed > 0 ? (double) templateStats.latencyTotalMs.sum() / completed : 0.0);
+            row.put("maxLatencyMs", templateStats.latencyMaxMs.get());
+            perTemplate.put(template, row);
+        });
+        result.put("templates", perTemplate);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Workers finish what is queued, within the wait below
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().complete(false);
+        }
+    }
+
+    private record Pending(EmailMessage message, CompletableFuture<Boolean> result, long enqueuedNanos) {}
+
+    private static final class TemplateStats {
+        final LongAdder sent = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder requests = new LongAdder();
+        final LongAdder batchedMessages = new LongAdder();
+        final LongAdder latencyTotalMs = new LongAdder();
+        final AtomicLong latencyMaxMs = new AtomicLong();
+    }
+}
@@ -0,0 +1,22 @@
+package com.bookfast.backend.common.notification;
+
+import java.util.Map;
+
+/**
+ * One email for EmailDispatcher: either a template with its values, or ready-made content.
+ */
+public record EmailMessage(String to, String subject, String template, Map<String, ?> values,
+                           String content, String contentType) {
+
+    public static EmailMessage template(String to, String subject, String template, Map<String, ?> values) {
+        return new EmailMessage(to, subject, template, values, null, "text/html");
+    }
+
+    public static EmailMessage html(String to, String subject, String html) {
+        return new EmailMessage(to, subject, null, null, html, "text/html");
+    }
+
+    public static EmailMessage text(String to, String subject, String text) {
+        return new EmailMessage(to, subject, null, null, text, "text/plain");
+    }
+}
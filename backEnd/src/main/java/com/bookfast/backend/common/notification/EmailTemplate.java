@@ -0,0 +1,102 @@
+package com.bookfast.backend.common.notification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An email body with {{name}} placeholders, split into literal and placeholder segments once when
+ * it is loaded. Rendering only appends the segments, instead of formatting kilobytes of HTML on
+ * every send. Values are inserted as they are, like the String.format templates did.
+ */
+public final class EmailTemplate {
+    private final String name;
+    private final String[] literals;      // placeholders.length + 1 segments
+    private final String[] placeholders;
+    private final int literalLength;
+    private final List<String> placeholderNames;
+    private final String substitutionContent;
+
+    private EmailTemplate(String name, List<String> literals, List<String> placeholders) {
+        this.name = name;
+        this.literals = literals.toArray(String[]::new);
+        this.placeholders = placeholders.toArray(String[]::new);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+        this.placeholderNames = List.copyOf(new LinkedHashSet<>(placeholders));
+        StringBuilder tagged = new StringBuilder(literalLength + placeholders.size() * 16);
+        for (int i = 0; i < this.placeholders.length; i++) {
+            tagged.append(this.literals[i]).append(tag(this.placeholders[i]));
+        }
+        this.substitutionContent = tagged.append(this.literals[this.placeholders.length]).toString();
+    }
+
+    public static EmailTemplate compile(String name, String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                break;
+            }
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in email template " + name + " at offset " + open);
+            }
+            literals.add(source.substring(position, open));
+            placeholders.add(source.substring(open + 2, close).trim());
+            position = close + 2;
+        }
+        literals.add(source.substring(position));
+        return new EmailTemplate(name, literals, placeholders);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Distinct placeholder names, in order of first use.
+     */
+    public List<String> getPlaceholders() {
+        return placeholderNames;
+    }
+
+    public String render(Map<String, ?> values) {
+        Map<String, String> strings = valuesFor(values);
+        StringBuilder out = new StringBuilder(literalLength + placeholders.length * 32);
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]).append(strings.get(placeholders[i]));
+        }
+        return out.append(literals[placeholders.length]).toString();
+    }
+
+    /**
+     * The value of every placeholder as a string (null becomes empty). Throws if one is missing.
+     */
+    public Map<String, String> valuesFor(Map<String, ?> values) {
+        Map<String, String> strings = new LinkedHashMap<>();
+        for (String placeholder : placeholderNames) {
+            if (!values.containsKey(placeholder)) {
+                throw new IllegalArgumentException("No value for {{" + placeholder + "}} in email template " + name);
+            }
+            Object value = values.get(placeholder);
+            strings.put(placeholder, value != null ? value.toString() : "");
+        }
+        return strings;
+    }
+
+    /**
+     * The body with every placeholder replaced by its SendGrid substitution tag, so one request can
+     * carry many recipients with their values as per-personalization substitutions.
+     */
+    public String getSubstitutionContent() {
+        return substitutionContent;
+    }
+
+    public static String tag(String placeholder) {
+        return "-" + placeholder + "-";
+    }
+}
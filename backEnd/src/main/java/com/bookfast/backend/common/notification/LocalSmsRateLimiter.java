@@ -0,0 +1,151 @@
+package com.bookfast.backend.common.notification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket per sending number. Twilio limits each number to a number of messages per second
+ * and answers 429 beyond it; pacing sends here keeps them under the limit instead of bouncing off
+ * it. A 429 still pauses the number that got it, in case another instance shares the number.
+ *
+ * The buckets live in this JVM, so this is for a single instance (sms.rate.mode=local); several
+ * instances sharing the numbers need SharedSmsRateLimiter.
+ */
+public class LocalSmsRateLimiter implements SmsRateLimiter {
+    private final List<String> numbers;
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>();
+    private final double permitsPerNano;
+    private final double burst;
+    private final LongSupplier nanoClock;
+    private int next; // round-robin start, so traffic spreads over all numbers
+
+    public LocalSmsRateLimiter(List<String> numbers, double perSecond, int burst) {
+        this(numbers, perSecond, burst, System::nanoTime);
+    }
+
+    LocalSmsRateLimiter(List<String> numbers, double perSecond, int burst, LongSupplier nanoClock) {
+        if (perSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("SMS rate must be positive and burst at least 1");
+        }
+        this.numbers = new ArrayList<>(numbers);
+        this.permitsPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        long now = nanoClock.getAsLong();
+        for (String number : numbers) {
+            buckets.put(number, new Bucket(burst, now));
+        }
+    }
+
+    @Override
+    public String acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                String number = tryAcquire();
+                if (number != null) {
+                    return number;
+                }
+                waitNanos = nanosUntilAvailable();
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    /**
+     * @return a number whose token was taken, or null if none has one right now
+     */
+    synchronized String tryAcquire() {
+        long now = nanoClock.getAsLong();
+        for (int i = 0; i < numbers.size(); i++) {
+            int index = (next + i) % numbers.size();
+            Bucket bucket = buckets.get(numbers.get(index));
+            if (bucket.tryTake(now)) {
+                next = index + 1;
+                return numbers.get(index);
+            }
+        }
+        return null;
+    }
+
+    synchronized long nanosUntilAvailable() {
+        long now = nanoClock.getAsLong();
+        long wait = Long.MAX_VALUE;
+        for (Bucket bucket : buckets.values()) {
+            wait = Math.min(wait, bucket.nanosUntilToken(now));
+        }
+        return wait;
+    }
+
+    @Override
+    public synchronized void throttled(String number, long pauseMs) {
+        Bucket bucket = buckets.get(number);
+        if (bucket != null) {
+            long now = nanoClock.getAsLong();
+            bucket.pausedUntil = Math.max(bucket.pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(pauseMs));
+            // Refill from the end of the pause, so the number does not resume with a full burst
+            bucket.tokens = 0;
+            bucket.lastRefill = bucket.pausedUntil;
+            bucket.throttles++;
+        }
+    }
+
+    @Override
+    public synchronized Map<String, Object> stats() {
+        long now = nanoClock.getAsLong();
+        Map<String, Object> result = new LinkedHashMap<>();
+        buckets.forEach((number, bucket) -> {
+            bucket.refill(now);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("tokens", Math.floor(bucket.tokens * 100) / 100);
+            row.put("pausedForMs", Math.max(0, TimeUnit.NANOSECONDS.toMillis(bucket.pausedUntil - now)));
+            row.put("throttles", bucket.throttles);
+            result.put(number, row);
+        });
+        return result;
+    }
+
+    private final class Bucket {
+        double tokens;
+        long lastRefill;
+        long pausedUntil;
+        long throttles;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+            this.pausedUntil = now;
+        }
+
+        void refill(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+                lastRefill = now;
+            }
+        }
+
+        boolean tryTake(long now) {
+            if (now - pausedUntil < 0) {
+                return false;
+            }
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        long nanosUntilToken(long now) {
+            if (now - pausedUntil < 0) {
+                return pausedUntil - now;
+            }
+            refill(now);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+        }
+    }
+}
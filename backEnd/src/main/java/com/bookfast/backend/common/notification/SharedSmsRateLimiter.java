@@ -0,0 +1,80 @@
+package com.bookfast.backend.common.notification;
+
+import com.bookfast.backend.common.model.SmsSenderPace;
+import com.bookfast.backend.common.repository.SmsSenderPaceRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces each sending number through its row in sms_sender_pace, so the configured rate holds for
+ * the whole cluster however many instances run the dispatcher. This is a token bucket kept as a
+ * single timestamp (GCRA): every send moves the number's pace one interval ahead, and a send is
+ * refused while the pace is more than burst-1 intervals ahead of the database clock.
+ */
+public class SharedSmsRateLimiter implements SmsRateLimiter {
+    // Upper bound on one sleep, so a wait computed before another instance's throttle is re-checked
+    private static final long MAX_WAIT_MS = 1000;
+
+    private final SmsSenderPaceRepository paceRepository;
+    private final List<String> numbers;
+    private final long intervalUs;
+    private final long burstWindowUs;
+    private int next; // round-robin start, so traffic spreads over all numbers
+
+    public SharedSmsRateLimiter(SmsSenderPaceRepository paceRepository, List<String> numbers, double perSecond, int burst) {
+        if (perSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("SMS rate must be positive and burst at least 1");
+        }
+        this.paceRepository = paceRepository;
+        this.numbers = new ArrayList<>(numbers);
+        this.intervalUs = Math.max(1, (long) (TimeUnit.SECONDS.toMicros(1) / perSecond));
+        this.burstWindowUs = (burst - 1) * intervalUs;
+    }
+
+    @Override
+    public String acquire() throws InterruptedException {
+        while (true) {
+            int start;
+            synchronized (this) {
+                start = next;
+            }
+            for (int i = 0; i < numbers.size(); i++) {
+                int index = (start + i) % numbers.size();
+                if (!paceRepository.tryTake(numbers.get(index), intervalUs, burstWindowUs).isEmpty()) {
+                    synchronized (this) {
+                        next = index + 1;
+                    }
+                    return numbers.get(index);
+                }
+            }
+            Double untilEarliest = paceRepository.millisUntilEarliest(numbers);
+            long waitMs = untilEarliest == null ? 1 : (long) Math.ceil(untilEarliest - burstWindowUs / 1000.0);
+            TimeUnit.MILLISECONDS.sleep(Math.min(MAX_WAIT_MS, Math.max(waitMs, 1)));
+        }
+    }
+
+    @Override
+    public void throttled(String number, long pauseMs) {
+        paceRepository.pause(number, pauseMs, intervalUs, burstWindowUs);
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (SmsSenderPace pace : paceRepository.findAllById(numbers)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("nextSendAt", pace.getNextSendAt());
+            row.put("aheadByMs", Math.max(0, now.until(pace.getNextSendAt(), ChronoUnit.MILLIS)));
+            row.put("throttles", pace.getThrottles());
+            result.put(pace.getSenderNumber(), row);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,215 @@
+package com.bookfast.backend.common.notification;
+
+import com.bookfast.backend.common.model.SmsMessage;
+import com.bookfast.backend.common.repository.SmsMessageRepository;
+import com.bookfast.backend.common.repository.SmsSenderPaceRepository;
+import com.bookfast.backend.common.service.SchedulerLeaseService;
+import com.bookfast.backend.common.util.ClaimedWork;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the SMS queued in sms_message. Due messages are claimed with FOR UPDATE SKIP LOCKED (so
+ * several instances can poll the same table), at most as many as there are free workers, and each
+ * worker waits for its turn from SmsRateLimiter before calling the transport. A burst of bookings
+ * therefore drains at the rate Twilio allows instead of running into 429s, and the requests that
+ * queued the messages never wait on Twilio. The pace is kept in the database (sms.rate.mode=shared),
+ * so the rate holds across instances; "local" keeps it in memory for a single instance.
+ *
+ * Transient failures and throttling are retried with exponential backoff; permanent ones (invalid
+ * number) and messages out of attempts end as FAILED, with the error kept on the row.
+ */
+@Component
+public class SmsDispatcher {
+    private final SmsMessageRepository smsMessageRepository;
+    private final SmsTransport transport;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeaseService leaseService;
+    private final SmsRateLimiter rateLimiter;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder rateLimitWaitMs = new LongAdder();
+
+    @Value("${sms.dispatcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sms.dispatcher.workers:4}")
+    private int workers;
+
+    @Value("${sms.dispatcher.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${sms.dispatcher.backoff-base-ms:5000}")
+    private long backoffBaseMs;
+
+    @Value("${sms.dispatcher.backoff-max-ms:900000}")
+    private long backoffMaxMs;
+
+    @Value("${sms.dispatcher.throttle-pause-ms:2000}")
+    private long throttlePauseMs;
+
+    @Value("${sms.dispatcher.stale-after-ms:300000}")
+    private long staleAfterMs;
+
+    @Value("${sms.dispatcher.retention-days:30}")
+    private int retentionDays;
+
+    public SmsDispatcher(SmsMessageRepository smsMessageRepository, SmsTransport transport,
+                         TransactionTemplate transactionTemplate, SchedulerLeaseService leaseService,
+                         SmsSenderPaceRepository paceRepository,
+                         @Value("${sms.rate.mode:shared}") String rateMode,
+                         @Value("${sms.rate.per-second:1.0}") double perSecond,
+                         @Value("${sms.rate.burst:1}") int burst) {
+        this.smsMessageRepository = smsMessageRepository;
+        this.transport = transport;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseService = leaseService;
+        this.rateLimiter = "local".equalsIgnoreCase(rateMode)
+            ? new LocalSmsRateLimiter(transport.getSenderNumbers(), perSecond, burst)
+            : new SharedSmsRateLimiter(paceRepository, transport.getSenderNumbers(), perSecond, burst);
+    }
+
+    @Scheduled(fixedDelayString = "${sms.dispatcher.poll-interval-ms:500}")
+    public void poll() {
+        if (!enabled || !transport.isConfigured() || transport.getSenderNumbers().isEmpty()) {
+            return;
+        }
+        int capacity = workers - inFlight.get();
+        if (capacity <= 0) {
+            return;
+        }
+        List<SmsMessage> claimed;
+        try {
+            claimed = claim(capacity);
+        } catch (Exception e) {
+            System.err.println("[SmsDispatcher] Failed to claim queued SMS: " + e.getMessage());
+            return;
+        }
+        for (SmsMessage message : claimed) {
+            inFlight.incrementAndGet();
+            executor.submit(() -> dispatch(message));
+        }
+    }
+
+    private List<SmsMessage> claim(int limit) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = ClaimedWork.claimTimestamp();
+            List<SmsMessage> messages = smsMessageRepository.lockDueMessages(now, limit);
+            for (SmsMessage message : messages) {
+                message.setStatus(SmsMessage.STATUS_SENDING);
+                message.setClaimedAt(now);
+                message.setUpdatedAt(now);
+            }
+            return smsMessageRepository.saveAll(messages);
+        });
+    }
+
+    private void dispatch(SmsMessage message) {
+        String from = null;
+        try {
+            long waitStart = System.nanoTime();
+            from = rateLimiter.acquire();
+            rateLimitWaitMs.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart));
+            String providerId = transport.send(from, message.getToNumber(), message.getBody());
+            smsMessageRepository.markSent(message.getId(), message.getClaimedAt(), from, providerId, LocalDateTime.now());
+            sent.increment();
+            System.out.println("[SmsDispatcher] SMS " + message.getId() + " sent to " + message.getToNumber() + " (SID: " + providerId + ")");
+        } catch (InterruptedException e) {
+            // Left SENDING; released as stale and sent by a later poll
+            Thread.currentThread().interrupt();
+        } catch (SmsSendException e) {
+            if (e.isThrottled() && from != null) {
+                throttled.increment();
+                rateLimiter.throttled(from, throttlePauseMs);
+            }
+            recordFailure(message, e.getMessage(), e.isRetryable());
+        } catch (Exception e) {
+            recordFailure(message, e.getClass().getSimpleName() + ": " + e.getMessage(), true);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void recordFailure(SmsMessage message, String error, boolean retryable) {
+        int attempts = message.getAttempts() + 1;
+        boolean permanent = !retryable || attempts >= maxAttempts;
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(ClaimedWork.backoff(backoffBaseMs, backoffMaxMs, attempts), ChronoUnit.MILLIS);
+        try {
+            smsMessageRepository.markFailed(message.getId(), message.getClaimedAt(),
+                permanent ? SmsMessage.STATUS_FAILED : SmsMessage.STATUS_QUEUED,
+                attempts, nextAttemptAt, error, LocalDateTime.now());
+        } catch (Exception e) {
+            // The claim goes stale and the message is retried later
+            System.err.println("[SmsDispatcher] Failed to record failure of SMS " + message.getId() + ": " + e.getMessage());
+        }
+        if (permanent) {
+            failed.increment();
+            System.err.println("[SmsDispatcher] SMS " + message.getId() + " to " + message.getToNumber()
+                + " failed after " + attempts + " attempt(s): " + error);
+        } else {
+            retried.increment();
+            System.err.println("[SmsDispatcher] SMS " + message.getId() + " failed, attempt " + attempts
+                + ", retrying at " + nextAttemptAt + ": " + error);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sms.dispatcher.maintenance-interval-ms:60000}")
+    public void maintenance() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            leaseService.runExclusive("sms-maintenance", lease -> {
+                LocalDateTime now = LocalDateTime.now();
+                int released = smsMessageRepository.releaseStaleClaims(now.minus(staleAfterMs, ChronoUnit.MILLIS), now);
+                if (released > 0) {
+                    System.out.println("[SmsDispatcher] Released " + released + " stale SMS claims");
+                }
+                smsMessageRepository.purgeFinished(now.minusDays(retentionDays));
+            });
+        } catch (Exception e) {
+            System.err.println("[SmsDispatcher] SMS maintenance failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("transport", transport.getClass().getSimpleName());
+        result.put("configured", transport.isConfigured());
+        result.put("inFlight", inFlight.get());
+        result.put("workers", workers);
+        result.put("sent", sent.sum());
+        result.put("retried", retried.sum());
+        result.put("failed", failed.sum());
+        result.put("throttled", throttled.sum());
+        long attempts = sent.sum() + retried.sum() + failed.sum();
+        result.put("averageRateLimitWaitMs", attempts > 0 ? (double) rateLimitWaitMs.sum() / attempts : 0.0);
+        result.put("queued", smsMessageRepository.countByStatus(SmsMessage.STATUS_QUEUED));
+        result.put("failedTotal", smsMessageRepository.countByStatus(SmsMessage.STATUS_FAILED));
+        result.put("senders", rateLimiter.stats());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ClaimedWork.shutdown(executor);
+    }
+}
@@ -0,0 +1,25 @@
+package com.bookfast.backend.common.notification;
+
+import java.util.Map;
+
+/**
+ * Paces SMS per sending number so Twilio's per-number limit is not exceeded. sms.rate.mode picks
+ * the implementation: "shared" (default) keeps the pace in the database for all instances,
+ * "local" keeps it in this JVM for single-instance deployments.
+ */
+public interface SmsRateLimiter {
+
+    /**
+     * Take a send from whichever number can send first, waiting as long as needed.
+     * @return the number to send from
+     */
+    String acquire() throws InterruptedException;
+
+    /**
+     * The provider throttled this number: send nothing from it for pauseMs, then resume at the
+     * configured rate without a burst.
+     */
+    void throttled(String number, long pauseMs);
+
+    Map<String, Object> stats();
+}
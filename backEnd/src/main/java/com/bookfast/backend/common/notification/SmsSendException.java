@@ -0,0 +1,24 @@
+package com.bookfast.backend.common.notification;
+
+/**
+ * A failed SMS send. Throttled failures (HTTP 429) also slow down the sending number; permanent
+ * ones (e.g. an invalid recipient) are not retried.
+ */
+public class SmsSendException extends Exception {
+    private final boolean retryable;
+    private final boolean throttled;
+
+    public SmsSendException(String message, boolean retryable, boolean throttled, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+        this.throttled = throttled;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    public boolean isThrottled() {
+        return throttled;
+    }
+}
@@ -1,84 +1,56 @@
 package com.bookfast.backend.common.notification;
 
-import com.twilio.Twilio;
-import com.twilio.rest.api.v2010.account.Message;
-import com.twilio.type.PhoneNumber;
-import org.springframework.beans.factory.annotation.Value;
+import com.bookfast.backend.common.model.SmsMessage;
+import com.bookfast.backend.common.repository.SmsMessageRepository;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+
+/**
+ * Queues SMS for SmsDispatcher, which sends them at the rate the sending numbers allow. Callers
+ * only pay for one insert; delivery status is kept on the sms_message row.
+ */
 @Service
 public class SmsService {
-    
-    @Value("${twilio.account.sid:}")
-    private String accountSid;
-    
-    @Value("${twilio.auth.token:}")
-    private String authToken;
-    
-    @Value("${twilio.phone.number:}")
-    private String fromPhoneNumber;
-    
-    private boolean twilioInitialized = false;
-    
-    /**
-     * Initialize Twilio with credentials
-     */
-    private void initTwilio() {
-        if (!twilioInitialized && accountSid != null && !accountSid.isEmpty() 
-            && authToken != null && !authToken.isEmpty()) {
-            try {
-                Twilio.init(accountSid, authToken);
-                twilioInitialized = true;
-                System.out.println("[SmsService] Twilio initialized successfully");
-            } catch (Exception e) {
-                System.err.println("[SmsService] Failed to initialize Twilio: " + e.getMessage());
-            }
-        }
+    private final SmsMessageRepository smsMessageRepository;
+    private final SmsTransport transport;
+
+    public SmsService(SmsMessageRepository smsMessageRepository, SmsTransport transport) {
+        this.smsMessageRepository = smsMessageRepository;
+        this.transport = transport;
     }
     
     /**
-     * Send SMS message
+     * Queue an SMS message
      * @param toPhoneNumber Recipient phone number in E.164 format (e.g., +12345678900)
      * @param messageBody SMS message content
-     * @return true if SMS sent successfully, false otherwise
+     * @return true if the SMS was queued for sending, false if it was skipped
      */
     public boolean sendSms(String toPhoneNumber, String messageBody) {
-        // Check if Twilio is configured
-        if (accountSid == null || accountSid.isEmpty() || 
-            authToken == null || authToken.isEmpty() ||
-            fromPhoneNumber == null || fromPhoneNumber.isEmpty()) {
-            System.out.println("[SmsService] Twilio not configured. Skipping SMS.");
+        // Check if SMS is configured
+        if (!isConfigured()) {
+            System.out.println("[SmsService] SMS not configured. Skipping SMS.");
             return false;
         }
         
-        // Initialize Twilio if not already done
-        if (!twilioInitialized) {
-            initTwilio();
-        }
-        
         // Skip if phone number is not provided
         if (toPhoneNumber == null || toPhoneNumber.trim().isEmpty()) {
             System.out.println("[SmsService] No phone number provided. Skipping SMS.");
             return false;
         }
         
-        try {
-            // Ensure phone number is in E.164 format
-            String formattedNumber = formatPhoneNumber(toPhoneNumber);
-            
-            Message message = Message.creator(
-                new PhoneNumber(formattedNumber),  // To number
-                new PhoneNumber(fromPhoneNumber),  // From number (your Twilio number)
-                messageBody                         // SMS body
-            ).create();
-            
-            System.out.println("[SmsService] SMS sent successfully to " + toPhoneNumber + " (SID: " + message.getSid() + ")");
-            return true;
-            
-        } catch (Exception e) {
-            System.err.println("[SmsService] Failed to send SMS to " + toPhoneNumber + ": " + e.getMessage());
-            return false;
-        }
+        LocalDateTime now = LocalDateTime.now();
+        SmsMessage message = new SmsMessage();
+        // Ensure phone number is in E.164 format
+        message.setToNumber(formatPhoneNumber(toPhoneNumber));
+        message.setBody(messageBody);
+        message.setStatus(SmsMessage.STATUS_QUEUED);
+        message.setNextAttemptAt(now);
+        message.setCreatedAt(now);
+        message.setUpdatedAt(now);
+        smsMessageRepository.save(message);
+        System.out.println("[SmsService] SMS " + message.getId() + " to " + toPhoneNumber + " queued");
+        return true;
     }
     
     /**
@@ -112,9 +84,7 @@ public class SmsService {
      * Check if SMS service is configured and available
      */
     public boolean isConfigured() {
-        return accountSid != null && !accountSid.isEmpty() && 
-               authToken != null && !authToken.isEmpty() &&
-               fromPhoneNumber != null && !fromPhoneNumber.isEmpty();
+        return transport.isConfigured() && !transport.getSenderNumbers().isEmpty();
     }
 }
 
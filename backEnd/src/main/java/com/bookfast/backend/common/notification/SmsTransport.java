@@ -0,0 +1,22 @@
+package com.bookfast.backend.common.notification;
+
+import java.util.List;
+
+/**
+ * Delivers one SMS. TwilioSmsTransport is the default; sms.transport=stub selects StubSmsTransport,
+ * which only simulates latency and failures, for load tests.
+ */
+public interface SmsTransport {
+
+    boolean isConfigured();
+
+    /**
+     * Numbers messages may be sent from; SmsDispatcher rate-limits each of them separately.
+     */
+    List<String> getSenderNumbers();
+
+    /**
+     * @return the provider's id for the accepted message
+     */
+    String send(String from, String to, String body) throws SmsSendException;
+}
@@ -0,0 +1,62 @@
+package com.bookfast.backend.common.notification;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-in for Twilio (sms.transport=stub). Nothing leaves the machine: each send sleeps for
+ * the configured latency and fails or is throttled at the configured rates, so load tests exercise
+ * the queue, rate limiting and retries without real messages.
+ */
+@Component
+@ConditionalOnProperty(name = "sms.transport", havingValue = "stub")
+public class StubSmsTransport implements SmsTransport {
+    private final List<String> senderNumbers;
+    private final long latencyMs;
+    private final double failureRate;
+    private final double throttleRate;
+
+    public StubSmsTransport(@Value("${sms.stub.sender-numbers:+15005550006}") List<String> senderNumbers,
+                            @Value("${sms.stub.latency-ms:50}") long latencyMs,
+                            @Value("${sms.stub.failure-rate:0.0}") double failureRate,
+                            @Value("${sms.stub.throttle-rate:0.0}") double throttleRate) {
+        this.senderNumbers = List.copyOf(senderNumbers);
+        this.latencyMs = latencyMs;
+        this.failureRate = failureRate;
+        this.throttleRate = throttleRate;
+        System.out.println("[StubSmsTransport] Using the stub SMS transport; no SMS will be delivered");
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    @Override
+    public List<String> getSenderNumbers() {
+        return senderNumbers;
+    }
+
+    @Override
+    public String send(String from, String to, String body) throws SmsSendException {
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SmsSendException("Interrupted", true, false, e);
+        }
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < throttleRate) {
+            throw new SmsSendException("Stub 429: too many requests from " + from, true, true, null);
+        }
+        if (roll < throttleRate + failureRate) {
+            throw new SmsSendException("Stub 503: simulated failure", true, false, null);
+        }
+        return "SMstub" + UUID.randomUUID().toString().replace("-", "");
+    }
+}
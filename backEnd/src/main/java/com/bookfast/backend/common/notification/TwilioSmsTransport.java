@@ -0,0 +1,70 @@
+package com.bookfast.backend.common.notification;
+
+import com.twilio.exception.ApiException;
+import com.twilio.http.TwilioRestClient;
+import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.type.PhoneNumber;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sends SMS through the Twilio REST API. The client is built once from the configured credentials
+ * and shared by all dispatcher workers, instead of initializing the global Twilio singleton on the
+ * first send.
+ */
+@Component
+@ConditionalOnProperty(name = "sms.transport", havingValue = "twilio", matchIfMissing = true)
+public class TwilioSmsTransport implements SmsTransport {
+    private final TwilioRestClient client;
+    private final List<String> senderNumbers;
+
+    public TwilioSmsTransport(@Value("${twilio.account.sid:}") String accountSid,
+                              @Value("${twilio.auth.token:}") String authToken,
+                              @Value("${twilio.phone.number:}") String phoneNumbers) {
+        // Several numbers may be configured, comma-separated; each has its own send rate at Twilio
+        this.senderNumbers = Arrays.stream(phoneNumbers.split(","))
+            .map(String::trim)
+            .filter(number -> !number.isEmpty())
+            .toList();
+        if (accountSid.isEmpty() || authToken.isEmpty() || senderNumbers.isEmpty()) {
+            System.out.println("[TwilioSmsTransport] Twilio not configured. SMS will be skipped.");
+            this.client = null;
+        } else {
+            this.client = new TwilioRestClient.Builder(accountSid, authToken).build();
+            System.out.println("[TwilioSmsTransport] Twilio initialized with " + senderNumbers.size() + " sender number(s)");
+        }
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return client != null;
+    }
+
+    @Override
+    public List<String> getSenderNumbers() {
+        return senderNumbers;
+    }
+
+    @Override
+    public String send(String from, String to, String body) throws SmsSendException {
+        if (client == null) {
+            throw new SmsSendException("Twilio not configured", false, false, null);
+        }
+        try {
+            return Message.creator(new PhoneNumber(to), new PhoneNumber(from), body).create(client).getSid();
+        } catch (ApiException e) {
+            Integer status = e.getStatusCode();
+            boolean throttled = status != null && status == 429;
+            // No status means the request never got an answer (connection or timeout)
+            boolean retryable = status == null || throttled || status >= 500;
+            throw new SmsSendException("Twilio " + (status != null ? status : "request failed")
+                + (e.getCode() != null ? " (error " + e.getCode() + ")" : "") + ": " + e.getMessage(), retryable, throttled, e);
+        } catch (Exception e) {
+            throw new SmsSendException("Twilio request failed: " + e.getMessage(), true, false, e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.bookfast.backend.common.pagination;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * What a paginated listing of one entity allows: its sort keys, the default sort, and the to-one
+ * associations fetched with each page. Built once per listing and shared.
+ */
+public final class KeysetListing<T> {
+    private final Class<T> type;
+    private final SortKey<T> idKey;
+    private final Map<String, SortKey<T>> sortKeys = new LinkedHashMap<>();
+    private final List<String> fetches = new ArrayList<>();
+    private String defaultSort;
+    private boolean defaultDescending;
+
+    private KeysetListing(Class<T> type, Function<T, Long> id) {
+        this.type = type;
+        this.idKey = SortKey.ofLong("id", "id", id);
+        this.sortKeys.put("id", idKey);
+        this.defaultSort = "id";
+    }
+
+    public static <T> KeysetListing<T> of(Class<T> type, Function<T, Long> id) {
+        return new KeysetListing<>(type, id);
+    }
+
+    public KeysetListing<T> sortKey(SortKey<T> key) {
+        sortKeys.put(key.getName(), key);
+        return this;
+    }
+
+    public KeysetListing<T> defaultSort(String name, boolean descending) {
+        if (!sortKeys.containsKey(name)) {
+            throw new IllegalArgumentException("Unknown sort key: " + name);
+        }
+        this.defaultSort = name;
+        this.defaultDescending = descending;
+        return this;
+    }
+
+    /**
+     * Fetch this to-one association in the page query instead of loading it per row.
+     */
+    public KeysetListing<T> fetch(String association) {
+        fetches.add(association);
+        return this;
+    }
+
+    Class<T> getType() {
+        return type;
+    }
+
+    SortKey<T> getIdKey() {
+        return idKey;
+    }
+
+    SortKey<T> sortKey(String name) {
+        SortKey<T> key = sortKeys.get(name != null && !name.isBlank() ? name : defaultSort);
+        if (key == null) {
+            throw new IllegalArgumentException("Cannot sort by '" + name + "'; use one of " + sortKeys.keySet());
+        }
+        return key;
+    }
+
+    boolean isDescending(String direction) {
+        if (direction == null || direction.isBlank()) {
+            return defaultDescending;
+        }
+        if (direction.equalsIgnoreCase("desc")) {
+            return true;
+        }
+        if (direction.equalsIgnoreCase("asc")) {
+            return false;
+        }
+        throw new IllegalArgumentException("Sort direction must be 'asc' or 'desc'");
+    }
+
+    List<String> getFetches() {
+        return fetches;
+    }
+}
@@ -0,0 +1,15 @@
+package com.bookfast.backend.common.pagination;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. Pass nextCursor back as the cursor parameter (with the
+ * same sort) to get the page after this one; it is null on the last page.
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor, boolean hasMore, int limit) {
+
+    public <R> KeysetPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new KeysetPage<>(items.stream().<R>map(mapper).toList(), nextCursor, hasMore, limit);
+    }
+}
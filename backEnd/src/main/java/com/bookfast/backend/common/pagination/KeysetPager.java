@@ -0,0 +1,183 @@
+package com.bookfast.backend.common.pagination;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Fetch;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Keyset (seek) pagination over JPA entities. Instead of OFFSET, which makes the database read and
+ * discard every earlier row, each page continues after the (sort value, id) of the previous page's
+ * last row, so page 1000 costs the same as page 1 and rows inserted meanwhile do not shift pages.
+ *
+ * The cursor is opaque to clients: base64url of the sort, direction, last id and last sort value
+ * (left out when it is null). A cursor is only valid with the sort it was issued for.
+ */
+@Component
+public class KeysetPager {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${pagination.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${pagination.max-limit:200}")
+    private int maxLimit;
+
+    /**
+     * Adds the listing's filter predicates to where.
+     */
+    @FunctionalInterface
+    public interface Filter<T> {
+        void apply(CriteriaBuilder cb, Root<T> root, List<Predicate> where);
+    }
+
+    @Transactional(readOnly = true)
+    public <T> KeysetPage<T> fetch(KeysetListing<T> listing, KeysetRequest request, Filter<T> filter) {
+        SortKey<T> sortKey = listing.sortKey(request.sort());
+        SortKey<T> idKey = listing.getIdKey();
+        boolean descending = listing.isDescending(request.direction());
+        int limit = limit(request.limit());
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(listing.getType());
+        Root<T> root = query.from(listing.getType());
+        for (String association : listing.getFetches()) {
+            root.fetch(association, JoinType.LEFT);
+        }
+        List<Predicate> where = new ArrayList<>();
+        if (filter != null) {
+            filter.apply(cb, root, where);
+        }
+        if (request.cursor() != null && !request.cursor().isBlank()) {
+            where.add(seek(cb, root, sortKey, idKey, descending, request.cursor()));
+        }
+        query.select(root).where(where.toArray(Predicate[]::new));
+        if (sortKey == idKey) {
+            query.orderBy(order(cb, idKey.path(root), descending));
+        } else {
+            query.orderBy(order(cb, sortKey.path(root), descending), order(cb, idKey.path(root), descending));
+        }
+
+        // One extra row tells whether another page follows without a count query
+        List<T> rows = entityManager.createQuery(query).setMaxResults(limit + 1).getResultList();
+        boolean hasMore = rows.size() > limit;
+        List<T> items = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        String nextCursor = hasMore ? encode(sortKey, idKey, descending, items.get(items.size() - 1)) : null;
+        return new KeysetPage<>(items, nextCursor, hasMore, limit);
+    }
+
+    /**
+     * The join of an association the listing fetches, so filters on it reuse the fetch join
+     * instead of adding a second join.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, Y> Join<T, Y> fetched(From<?, T> from, String association) {
+        for (Fetch<T, ?> fetch : from.getFetches()) {
+            if (fetch.getAttribute().getName().equals(association)) {
+                return (Join<T, Y>) fetch;
+            }
+        }
+        return from.join(association, JoinType.LEFT);
+    }
+
+    /**
+     * Case-insensitive substring match on any of the attributes.
+     */
+    public static Predicate containsIgnoreCase(CriteriaBuilder cb, String search, List<Expression<String>> attributes) {
+        String pattern = "%" + search.trim().toLowerCase()
+            .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return cb.or(attributes.stream()
+            .map(attribute -> cb.like(cb.lower(attribute), pattern, '\\'))
+            .toArray(Predicate[]::new));
+    }
+
+    private int limit(Integer requested) {
+        if (requested == null) {
+            return defaultLimit;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(requested, maxLimit);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> Predicate seek(CriteriaBuilder cb, Root<T> root, SortKey<T> sortKey, SortKey<T> idKey,
+                               boolean descending, String cursor) {
+        String[] parts = decode(cursor);
+        if (!parts[0].equals(sortKey.getName()) || descending != "d".equals(parts[1])) {
+            throw new IllegalArgumentException("Cursor was issued for a different sort");
+        }
+        Expression<Comparable> id = (Expression) idKey.path(root);
+        Comparable lastId;
+        Comparable lastValue;
+        try {
+            lastId = idKey.parse(parts[2]);
+            lastValue = sortKey == idKey ? lastId : parts.length == 4 ? sortKey.parse(parts[3]) : null;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        Predicate afterId = descending ? cb.lessThan(id, lastId) : cb.greaterThan(id, lastId);
+        if (sortKey == idKey) {
+            return afterId;
+        }
+        // Nulls sort last ascending and first descending; spelled out since NULL fails any comparison
+        Expression<Comparable> value = (Expression) sortKey.path(root);
+        if (lastValue == null) {
+            Predicate afterInNulls = cb.and(cb.isNull(value), afterId);
+            return descending ? cb.or(afterInNulls, cb.isNotNull(value)) : afterInNulls;
+        }
+        Predicate afterValue = descending ? cb.lessThan(value, lastValue) : cb.greaterThan(value, lastValue);
+        Predicate next = cb.or(afterValue, cb.and(cb.equal(value, lastValue), afterId));
+        return descending ? next : cb.or(next, cb.isNull(value));
+    }
+
+    /**
+     * Null precedence is explicit so the ORDER BY matches an (attribute, id) index read forwards or
+     * backwards, whatever the database's default.
+     */
+    private static jakarta.persistence.criteria.Order order(CriteriaBuilder cb, Expression<?> expression, boolean descending) {
+        HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+        return descending ? hcb.desc(expression, true) : hcb.asc(expression, false);
+    }
+
+    private static <T> String encode(SortKey<T> sortKey, SortKey<T> idKey, boolean descending, T last) {
+        String raw = sortKey.getName() + "|" + (descending ? "d" : "a") + "|" + idKey.valueOf(last);
+        Object value = sortKey.valueOf(last);
+        if (value != null) {
+            raw += "|" + value;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String cursor) {
+        try {
+            // The value comes last since it may itself contain '|'; no value means it was null
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 4);
+            if (parts.length >= 3) {
+                return parts;
+            }
+        } catch (IllegalArgumentException e) {
+            // falls through
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+}
@@ -0,0 +1,12 @@
+package com.bookfast.backend.common.pagination;
+
+/**
+ * Paging parameters as they come from the query string; any of them may be null.
+ *
+ * @param sort      name of one of the listing's sort keys
+ * @param direction "asc" or "desc"
+ * @param cursor    nextCursor of the previous page
+ * @param limit     page size, capped by KeysetPager
+ */
+public record KeysetRequest(String sort, String direction, String cursor, Integer limit) {
+}
@@ -0,0 +1,70 @@
+package com.bookfast.backend.common.pagination;
+
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * An attribute a listing can be sorted by. Pages are cut at (value, id), so the id breaks ties
+ * between equal values. Nulls sort after every value (NULLS LAST ascending, NULLS FIRST descending),
+ * which is PostgreSQL's b-tree order: an index on (attribute, id) serves the ORDER BY and the seek
+ * in both directions. KeysetPager handles null values in the cursor.
+ */
+public final class SortKey<T> {
+    private final String name;
+    private final String attribute;
+    private final Function<T, ?> getter;
+    private final Function<String, ?> parser;
+
+    private SortKey(String name, String attribute, Function<T, ?> getter, Function<String, ?> parser) {
+        this.name = name;
+        this.attribute = attribute;
+        this.getter = getter;
+        this.parser = parser;
+    }
+
+    /**
+     * A key on a column that is never null (the primary key).
+     */
+    public static <T> SortKey<T> ofLong(String name, String attribute, Function<T, Long> getter) {
+        return new SortKey<>(name, attribute, getter, Long::valueOf);
+    }
+
+    public static <T> SortKey<T> ofString(String name, String attribute, Function<T, String> getter) {
+        return new SortKey<>(name, attribute, getter, Function.identity());
+    }
+
+    public static <T> SortKey<T> ofDouble(String name, String attribute, Function<T, Double> getter) {
+        return new SortKey<>(name, attribute, getter, Double::valueOf);
+    }
+
+    public static <T> SortKey<T> ofDate(String name, String attribute, Function<T, LocalDate> getter) {
+        return new SortKey<>(name, attribute, getter, LocalDate::parse);
+    }
+
+    public static <T> SortKey<T> ofDateTime(String name, String attribute, Function<T, LocalDateTime> getter) {
+        return new SortKey<>(name, attribute, getter, LocalDateTime::parse);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    Path<Comparable<?>> path(Root<T> root) {
+        return root.get(attribute);
+    }
+
+    /**
+     * The raw value, null included.
+     */
+    Object valueOf(T item) {
+        return getter.apply(item);
+    }
+
+    Comparable<?> parse(String value) {
+        return (Comparable<?>) parser.apply(value);
+    }
+}
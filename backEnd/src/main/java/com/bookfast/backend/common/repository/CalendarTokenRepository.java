@@ -3,10 +3,13 @@ package com.bookfast.backend.common.repository;
 import com.bookfast.backend.common.model.CalendarToken;
 import com.bookfast.backend.common.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,6 +28,65 @@ public interface CalendarTokenRepository extends JpaRepository<CalendarToken, Lo
     @Query("SELECT ct FROM CalendarToken ct WHERE ct.isActive = true AND ct.expiresAt < CURRENT_TIMESTAMP")
     List<CalendarToken> findExpiredTokens();
     
+    /**
+     * Active tokens of users that own resources and are due for a busy-time pull, locked for the
+     * surrounding transaction. Rows already locked by another instance are skipped.
+     */
+    @Query(value = "SELECT t.* FROM calendar_tokens t WHERE t.is_active = true "
+            + "AND (t.next_pull_at IS NULL OR t.next_pull_at <= :now) "
+            + "AND EXISTS (SELECT 1 FROM resource r WHERE r.provider_id = t.user_id) "
+            + "ORDER BY t.next_pull_at NULLS FIRST, t.id LIMIT :limit FOR UPDATE OF t SKIP LOCKED", nativeQuery = true)
+    List<CalendarToken> lockDueForPull(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Active tokens with a refresh token whose access token expires before :before and that are not
+     * backing off, locked for the surrounding transaction. Rows already locked elsewhere are skipped.
+     */
+    @Query(value = "SELECT * FROM calendar_tokens WHERE is_active = true AND refresh_token IS NOT NULL "
+            + "AND expires_at < :before AND (next_refresh_at IS NULL OR next_refresh_at <= :now) "
+            + "ORDER BY expires_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<CalendarToken> lockDueForRefresh(@Param("before") LocalDateTime before, @Param("now") LocalDateTime now,
+                                          @Param("limit") int limit);
+
+    // Google only sometimes rotates the refresh token; keep the old one otherwise
+    @Transactional
+    @Modifying
+    @Query("UPDATE CalendarToken t SET t.accessToken = :accessToken, t.refreshToken = COALESCE(:refreshToken, t.refreshToken), "
+            + "t.expiresIn = :expiresIn, t.expiresAt = :expiresAt, t.refreshFailures = 0, t.nextRefreshAt = null, "
+            + "t.lastRefreshError = null, t.updatedAt = :now WHERE t.id = :id")
+    int recordRefresh(@Param("id") Long id, @Param("accessToken") String accessToken, @Param("refreshToken") String refreshToken,
+                      @Param("expiresIn") Long expiresIn, @Param("expiresAt") LocalDateTime expiresAt,
+                      @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE CalendarToken t SET t.refreshFailures = :failures, t.nextRefreshAt = :nextRefreshAt, "
+            + "t.lastRefreshError = :error WHERE t.id = :id")
+    int recordRefreshFailure(@Param("id") Long id, @Param("failures") int failures,
+                             @Param("nextRefreshAt") LocalDateTime nextRefreshAt, @Param("error") String error);
+
+    // The user revoked access: the token can never be refreshed again
+    @Transactional
+    @Modifying
+    @Query("UPDATE CalendarToken t SET t.isActive = false, t.lastRefreshError = :error, t.updatedAt = :now WHERE t.id = :id")
+    int deactivate(@Param("id") Long id, @Param("error") String error, @Param("now") LocalDateTime now);
+
+    // fullSyncAt is null for an incremental pull
+    @Transactional
+    @Modifying
+    @Query("UPDATE CalendarToken t SET t.syncToken = :syncToken, t.lastPulledAt = :now, t.nextPullAt = :nextPullAt, "
+            + "t.lastFullSyncAt = COALESCE(:fullSyncAt, t.lastFullSyncAt), t.pullAttempts = 0, t.lastPullError = null "
+            + "WHERE t.id = :id")
+    int recordPullSuccess(@Param("id") Long id, @Param("syncToken") String syncToken, @Param("now") LocalDateTime now,
+                          @Param("nextPullAt") LocalDateTime nextPullAt, @Param("fullSyncAt") LocalDateTime fullSyncAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE CalendarToken t SET t.pullAttempts = :attempts, t.nextPullAt = :nextPullAt, t.lastPullError = :error "
+            + "WHERE t.id = :id")
+    int recordPullFailure(@Param("id") Long id, @Param("attempts") int attempts,
+                          @Param("nextPullAt") LocalDateTime nextPullAt, @Param("error") String error);
+
     void deleteByUser(User user);
     
     @Query("SELECT COUNT(ct) FROM CalendarToken ct WHERE ct.user = :user AND ct.isActive = true")
@@ -0,0 +1,54 @@
+package com.bookfast.backend.common.repository;
+
+import com.bookfast.backend.common.model.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Expiry is computed from the database clock (LOCALTIMESTAMP), so clock skew between instances
+ * cannot make two of them think they hold the same lease.
+ */
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    /**
+     * Take the lease if it does not exist or has expired; returns the new fencing token, or nothing
+     * if another instance holds it.
+     */
+    @Transactional
+    @Query(value = "INSERT INTO scheduler_lease (name, owner, fencing_token, acquired_at, heartbeat_at, expires_at) "
+            + "VALUES (:name, :owner, 1, LOCALTIMESTAMP, LOCALTIMESTAMP, LOCALTIMESTAMP + :ttlMs * INTERVAL '1 millisecond') "
+            + "ON CONFLICT (name) DO UPDATE SET owner = EXCLUDED.owner, fencing_token = scheduler_lease.fencing_token + 1, "
+            + "acquired_at = EXCLUDED.acquired_at, heartbeat_at = EXCLUDED.heartbeat_at, expires_at = EXCLUDED.expires_at "
+            + "WHERE scheduler_lease.expires_at < LOCALTIMESTAMP "
+            + "RETURNING fencing_token", nativeQuery = true)
+    List<Long> tryAcquire(@Param("name") String name, @Param("owner") String owner, @Param("ttlMs") long ttlMs);
+
+    // 0 when the lease was taken over meanwhile
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_lease SET heartbeat_at = LOCALTIMESTAMP, "
+            + "expires_at = LOCALTIMESTAMP + :ttlMs * INTERVAL '1 millisecond' "
+            + "WHERE name = :name AND fencing_token = :token AND expires_at >= LOCALTIMESTAMP", nativeQuery = true)
+    int heartbeat(@Param("name") String name, @Param("token") long token, @Param("ttlMs") long ttlMs);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_lease SET expires_at = LOCALTIMESTAMP WHERE name = :name AND fencing_token = :token",
+            nativeQuery = true)
+    int release(@Param("name") String name, @Param("token") long token);
+
+    /**
+     * Current token and expiry check, share-locked until the surrounding transaction ends: a takeover
+     * has to wait for that transaction, so it cannot slip in between the check and the commit.
+     * clock_timestamp() rather than the transaction start, which may be long ago.
+     */
+    @Query(value = "SELECT fencing_token FROM scheduler_lease WHERE name = :name "
+            + "AND expires_at >= CAST(clock_timestamp() AS timestamp) FOR SHARE",
+            nativeQuery = true)
+    List<Long> lockCurrentToken(@Param("name") String name);
+}
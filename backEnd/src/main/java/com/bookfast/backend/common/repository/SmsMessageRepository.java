@@ -0,0 +1,56 @@
+package com.bookfast.backend.common.repository;
+
+import com.bookfast.backend.common.model.SmsMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface SmsMessageRepository extends JpaRepository<SmsMessage, Long> {
+
+    /**
+     * Due messages, locked for the surrounding transaction. Rows already locked by another
+     * instance are skipped instead of waited on.
+     */
+    @Query(value = "SELECT * FROM sms_message WHERE status = 'QUEUED' AND next_attempt_at <= :now "
+            + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<SmsMessage> lockDueMessages(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // The claimedAt condition fences out a worker whose claim was reset as stale and taken over
+    @Transactional
+    @Modifying
+    @Query("UPDATE SmsMessage m SET m.status = 'SENT', m.attempts = m.attempts + 1, m.fromNumber = :fromNumber, "
+            + "m.providerId = :providerId, m.lastError = null, m.sentAt = :now, m.updatedAt = :now "
+            + "WHERE m.id = :id AND m.status = 'SENDING' AND m.claimedAt = :claimedAt")
+    int markSent(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("fromNumber") String fromNumber,
+                 @Param("providerId") String providerId, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE SmsMessage m SET m.status = :status, m.attempts = :attempts, m.nextAttemptAt = :nextAttemptAt, "
+            + "m.lastError = :error, m.claimedAt = null, m.updatedAt = :now "
+            + "WHERE m.id = :id AND m.status = 'SENDING' AND m.claimedAt = :claimedAt")
+    int markFailed(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("status") String status,
+                   @Param("attempts") int attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error, @Param("now") LocalDateTime now);
+
+    /**
+     * Hand messages back whose worker died before recording the outcome.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE SmsMessage m SET m.status = 'QUEUED', m.claimedAt = null, m.updatedAt = :now "
+            + "WHERE m.status = 'SENDING' AND m.claimedAt < :cutoff")
+    int releaseStaleClaims(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SmsMessage m WHERE m.status IN ('SENT', 'FAILED') AND m.updatedAt < :cutoff")
+    int purgeFinished(@Param("cutoff") LocalDateTime cutoff);
+
+    long countByStatus(String status);
+}
@@ -0,0 +1,48 @@
+package com.bookfast.backend.common.repository;
+
+import com.bookfast.backend.common.model.SmsSenderPace;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Each statement reads and moves the pace in one step on the database clock, so instances never
+ * hand out the same send and their clock skew does not matter.
+ */
+public interface SmsSenderPaceRepository extends JpaRepository<SmsSenderPace, String> {
+
+    /**
+     * Take one send from the number if its pace allows it (creating the row on first use); returns
+     * the number, or nothing if it has to wait.
+     */
+    @Transactional
+    @Query(value = "INSERT INTO sms_sender_pace (sender_number, next_send_at, throttles) "
+            + "VALUES (:number, CAST(clock_timestamp() AS timestamp) + :intervalUs * INTERVAL '1 microsecond', 0) "
+            + "ON CONFLICT (sender_number) DO UPDATE SET next_send_at = GREATEST(sms_sender_pace.next_send_at "
+            + "+ :intervalUs * INTERVAL '1 microsecond', EXCLUDED.next_send_at) "
+            + "WHERE sms_sender_pace.next_send_at <= CAST(clock_timestamp() AS timestamp) + :burstWindowUs * INTERVAL '1 microsecond' "
+            + "RETURNING sender_number", nativeQuery = true)
+    List<String> tryTake(@Param("number") String number, @Param("intervalUs") long intervalUs,
+                         @Param("burstWindowUs") long burstWindowUs);
+
+    // Milliseconds from now until the earliest pace among the numbers; negative when it is behind now
+    @Query(value = "SELECT CAST(EXTRACT(EPOCH FROM MIN(next_send_at) - CAST(clock_timestamp() AS timestamp)) * 1000 AS double precision) "
+            + "FROM sms_sender_pace WHERE sender_number IN (:numbers)", nativeQuery = true)
+    Double millisUntilEarliest(@Param("numbers") Collection<String> numbers);
+
+    /**
+     * Push the pace past the pause, leaving no burst: the first send after it waits one interval.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE sms_sender_pace SET throttles = throttles + 1, next_send_at = GREATEST(next_send_at, "
+            + "CAST(clock_timestamp() AS timestamp) + :pauseMs * INTERVAL '1 millisecond' + :burstWindowUs * INTERVAL '1 microsecond' "
+            + "+ :intervalUs * INTERVAL '1 microsecond') WHERE sender_number = :number", nativeQuery = true)
+    int pause(@Param("number") String number, @Param("pauseMs") long pauseMs, @Param("intervalUs") long intervalUs,
+              @Param("burstWindowUs") long burstWindowUs);
+}
@@ -3,13 +3,17 @@ package com.bookfast.backend.common.repository;
 import com.bookfast.backend.common.model.Role;
 import com.bookfast.backend.common.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByEmail(String email);
@@ -47,4 +51,22 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Count users by role created after a certain date
     @Query("SELECT COUNT(u) FROM User u WHERE LOWER(u.role.name) = LOWER(:roleName) AND u.createdDate > :date")
     long countByRoleNameIgnoreCaseAndCreatedDateAfter(@Param("roleName") String roleName, @Param("date") LocalDate date);
+
+    // Latest registrations, for the admin recent-activity feed
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.role WHERE u.createdDate IS NOT NULL ORDER BY u.createdDate DESC, u.id DESC")
+    List<User> findRecentlyRegistered(org.springframework.data.domain.Pageable pageable);
+
+    // Export cursors: rows arrive in fetch-size chunks instead of one list; consume inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT u FROM User u LEFT JOIN FETCH u.role ORDER BY u.id")
+    Stream<User> streamAllForExport();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT u FROM User u JOIN FETCH u.role r WHERE LOWER(r.name) = LOWER(:roleName) ORDER BY u.id")
+    Stream<User> streamByRoleNameForExport(@Param("roleName") String roleName);
+
+    // Registrations per day/week/month bucket since :from, as rows of (bucket start date, count)
+    @Query(value = "SELECT CAST(date_trunc(CAST(:unit AS text), u.created_date) AS date), COUNT(*) FROM \"user\" u "
+            + "WHERE u.created_date >= :from GROUP BY 1 ORDER BY 1", nativeQuery = true)
+    List<Object[]> countRegistrationsByBucket(@Param("unit") String unit, @Param("from") LocalDate from);
 }
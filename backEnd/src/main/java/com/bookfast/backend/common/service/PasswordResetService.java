@@ -6,6 +6,7 @@ import com.bookfast.backend.common.repository.PasswordResetTokenRepository;
 import com.bookfast.backend.common.repository.UserRepository;
 import com.bookfast.backend.common.util.PasswordUtil;
 import com.bookfast.backend.common.notification.EmailService;
+import com.bookfast.backend.common.notification.EmailTemplates;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -84,13 +85,13 @@ public class PasswordResetService {
         // Send email with reset link
         try {
             String resetLink = urlToUse + "/reset-password?token=" + token;
-            String emailContent = createPasswordResetEmail(user, resetLink);
-            emailService.sendHtmlEmail(
+            emailService.send(
                 user.getEmail(),
                 "BookFast - Password Reset Request",
-                emailContent
+                "password-reset",
+                EmailTemplates.values("firstName", user.getFirstName(), "resetLink", resetLink)
             );
-            System.out.println("[PasswordReset] Reset email sent to: " + user.getEmail() + " with link: " + resetLink);
+            System.out.println("[PasswordReset] Reset email queued for: " + user.getEmail() + " with link: " + resetLink);
         } catch (Exception e) {
             System.err.println("[PasswordReset] Failed to send reset email: " + e.getMessage());
             throw new RuntimeException("Failed to send reset email");
@@ -105,70 +106,6 @@ public class PasswordResetService {
         requestPasswordReset(email, null);
     }
     
-    /**
-     * Create HTML email for password reset
-     */
-    private String createPasswordResetEmail(User user, String resetLink) {
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #6366f1; color: white; padding: 20px; text-align: center; border-radius: 8px 8px 0 0; }
-                    .content { background-color: #f9fafb; padding: 30px; border: 1px solid #e5e7eb; }
-                    .button { display: inline-block; background-color: #6366f1; color: white; padding: 15px 40px; text-decoration: none; border-radius: 6px; margin: 20px 0; font-weight: bold; }
-                    .button:hover { background-color: #4f46e5; }
-                    .footer { text-align: center; padding: 20px; color: #6b7280; font-size: 0.875rem; }
-                    .warning { background-color: #fef3c7; padding: 15px; border-radius: 6px; margin: 20px 0; border-left: 4px solid #f59e0b; }
-                    .code-box { background-color: #f3f4f6; padding: 15px; border-radius: 6px; font-family: monospace; word-break: break-all; margin: 15px 0; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>🔐 Password Reset Request</h1>
-                    </div>
-                    <div class="content">
-                        <h2>Hello %s,</h2>
-                        <p>We received a request to reset your BookFast password.</p>
-                        
-                        <p>Click the button below to reset your password:</p>
-                        
-                        <div style="text-align: center;">
-                            <a href="%s" class="button">Reset Password</a>
-                        </div>
-                        
-                        <p><small>Or copy and paste this link into your browser:</small></p>
-                        <div class="code-box">%s</div>
-                        
-                        <div class="warning">
-                            <strong>⚠️ Important Security Information:</strong>
-                            <ul style="margin: 10px 0;">
-                                <li>This link will expire in <strong>1 hour</strong></li>
-                                <li>This link can only be used once</li>
-                                <li>If you didn't request this reset, please ignore this email</li>
-                                <li>Your password will not change unless you click the link above</li>
-                            </ul>
-                        </div>
-                        
-                        <p>If you didn't request a password reset, someone may have entered your email address by mistake. Your account is secure and no action is needed.</p>
-                    </div>
-                    <div class="footer">
-                        <p>© 2025 BookFast. All rights reserved.</p>
-                        <p>This is an automated message. Please do not reply to this email.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            user.getFirstName(),
-            resetLink,
-            resetLink
-        );
-    }
-    
     /**
      * Validate reset token
      */
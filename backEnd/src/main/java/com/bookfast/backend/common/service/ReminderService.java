@@ -1,123 +1,269 @@
 package com.bookfast.backend.common.service;
 
 import com.bookfast.backend.common.notification.EmailService;
+import com.bookfast.backend.common.notification.EmailTemplates;
+import com.bookfast.backend.common.notification.SmsService;
+import com.bookfast.backend.common.util.ClaimedWork;
 import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.BookingReminder;
+import com.bookfast.backend.resource.repository.BookingReminderRepository;
 import com.bookfast.backend.resource.repository.BookingRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Sends booking reminders by email and SMS at configured offsets before the start (24h and 2h by
+ * default).
+ *
+ * Every run claims, per channel and offset, the confirmed bookings starting between offset - window
+ * and offset from now that have not had that reminder; the claim is a row in booking_reminder, so a
+ * reminder goes out once however runs overlap. A booking made later than the window (e.g. 3 hours
+ * ahead) skips the reminders it is too late for. Claimed reminders are sent in parallel through a
+ * bounded executor; a failed send drops the claim and is retried on the next run.
+ */
 @Service
 public class ReminderService {
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a");
+
     private final BookingRepository bookingRepository;
+    private final BookingReminderRepository reminderRepository;
     private final EmailService emailService;
+    private final SmsService smsService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore concurrency;
+    private final List<Duration> emailOffsets;
+    private final List<Duration> smsOffsets;
+
+    @Value("${reminders.enabled:true}")
+    private boolean enabled;
+
+    // How late a reminder may still go out, and how far back the range scan looks
+    @Value("${reminders.window:1h}")
+    private Duration window;
 
-    public ReminderService(BookingRepository bookingRepository, EmailService emailService) {
+    @Value("${reminders.batch-size:200}")
+    private int batchSize;
+
+    // A claim that was never marked sent (instance died mid-send) is taken over after this long
+    @Value("${reminders.claim-timeout:15m}")
+    private Duration claimTimeout;
+
+    public ReminderService(BookingRepository bookingRepository, BookingReminderRepository reminderRepository,
+                           EmailService emailService, SmsService smsService,
+                           @Value("${reminders.email.offsets:24h,2h}") String emailOffsets,
+                           @Value("${reminders.sms.offsets:2h}") String smsOffsets,
+                           @Value("${reminders.concurrency:8}") int concurrency) {
         this.bookingRepository = bookingRepository;
+        this.reminderRepository = reminderRepository;
         this.emailService = emailService;
+        this.smsService = smsService;
+        this.emailOffsets = parseOffsets(emailOffsets);
+        this.smsOffsets = parseOffsets(smsOffsets);
+        this.concurrency = new Semaphore(concurrency);
     }
 
-    /**
-     * Scheduled task to send reminders 24 hours before appointments
-     * Runs every hour
-     */
-    @Scheduled(cron = "0 0 * * * *") // Run at the start of every hour
-    public void send24HourReminders() {
+    static List<Duration> parseOffsets(String offsets) {
+        if (offsets == null || offsets.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(offsets.split(","))
+            .map(String::trim)
+            .filter(offset -> !offset.isEmpty())
+            .map(DurationStyle::detectAndParse)
+            .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${reminders.poll-interval-ms:300000}")
+    public void sendDueReminders() {
+        if (!enabled) {
+            return;
+        }
+        for (Duration offset : emailOffsets) {
+            sendDue(BookingReminder.CHANNEL_EMAIL, offset);
+        }
+        for (Duration offset : smsOffsets) {
+            sendDue(BookingReminder.CHANNEL_SMS, offset);
+        }
+    }
+
+    private void sendDue(String channel, Duration offset) {
+        int offsetMinutes = (int) offset.toMinutes();
+        int sent = 0;
         try {
-            System.out.println("🔔 [ReminderService] Running 24-hour reminder check at: " + LocalDateTime.now());
-            
-            // Calculate time window: 24 hours from now (+/- 1 hour for flexibility)
-            LocalDateTime now = LocalDateTime.now();
-            LocalDateTime reminderStart = now.plusHours(23);
-            LocalDateTime reminderEnd = now.plusHours(25);
-            
-            // Find bookings in the 24-hour window
-            List<Booking> upcomingBookings = bookingRepository.findAll().stream()
-                .filter(booking -> {
-                    LocalDateTime startTime = booking.getStartTime();
-                    return "confirmed".equalsIgnoreCase(booking.getStatus()) &&
-                           startTime != null &&
-                           startTime.isAfter(reminderStart) && startTime.isBefore(reminderEnd);
-                })
-                .toList();
-            
-            if (upcomingBookings.isEmpty()) {
-                System.out.println("ℹ️  [ReminderService] No bookings found for 24-hour reminders");
-                return;
-            }
-            
-            System.out.println("📧 [ReminderService] Found " + upcomingBookings.size() + " bookings for reminders");
-            
-            // Send reminders
-            for (Booking booking : upcomingBookings) {
-                sendReminderEmail(booking);
+            while (true) {
+                LocalDateTime now = ClaimedWork.claimTimestamp();
+                List<Long> bookingIds = reminderRepository.claimDue(channel, offsetMinutes,
+                    now.plus(offset).minus(window), now.plus(offset), now, now.minus(claimTimeout), batchSize);
+                if (bookingIds.isEmpty()) {
+                    break;
+                }
+                int batchSent = sendAll(channel, offset, bookingIds, now);
+                sent += batchSent;
+                // A batch that delivered nothing would only reclaim its own released claims
+                if (bookingIds.size() < batchSize || batchSent == 0) {
+                    break;
+                }
             }
-            
-            System.out.println("✅ [ReminderService] Sent " + upcomingBookings.size() + " reminder(s)");
-            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            System.err.println("❌ [ReminderService] Error sending reminders: " + e.getMessage());
-            e.printStackTrace();
+            System.err.println("❌ [ReminderService] Error sending " + channel + " reminders " + describe(offset)
+                + " ahead: " + e.getMessage());
+        }
+        if (sent > 0) {
+            System.out.println("✅ [ReminderService] Sent " + sent + " " + channel + " reminder(s) " + describe(offset) + " ahead");
+        }
+    }
+
+    private int sendAll(String channel, Duration offset, List<Long> bookingIds, LocalDateTime claimedAt)
+            throws InterruptedException {
+        int offsetMinutes = (int) offset.toMinutes();
+        List<Booking> bookings = bookingRepository.findAllWithResourceByIdIn(bookingIds);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (Booking booking : bookings) {
+            tasks.add(() -> {
+                concurrency.acquire();
+                try {
+                    return send(channel, offset, booking, claimedAt);
+                } finally {
+                    concurrency.release();
+                }
+            });
+        }
+        int sent = 0;
+        for (var future : executor.invokeAll(tasks)) {
+            try {
+                if (future.get()) {
+                    sent++;
+                }
+            } catch (Exception e) {
+                // send() handles its own failures
+            }
         }
+        // Bookings deleted since the claim never get this reminder
+        if (bookings.size() < bookingIds.size()) {
+            List<Long> found = bookings.stream().map(Booking::getId).toList();
+            for (Long bookingId : bookingIds) {
+                if (!found.contains(bookingId)) {
+                    reminderRepository.markSent(bookingId, channel, offsetMinutes, claimedAt,
+                        BookingReminder.OUTCOME_SKIPPED, LocalDateTime.now());
+                }
+            }
+        }
+        return sent;
     }
 
-    private void sendReminderEmail(Booking booking) {
+    /**
+     * Send one claimed reminder and record the outcome. Returns true if it was delivered.
+     */
+    private boolean send(String channel, Duration offset, Booking booking, LocalDateTime claimedAt) {
+        int offsetMinutes = (int) offset.toMinutes();
+        boolean delivered;
+        String outcome;
         try {
-            if (booking.getCustomerEmail() == null || booking.getCustomerEmail().trim().isEmpty()) {
-                System.err.println("⚠️  [ReminderService] No email for booking #" + booking.getId());
-                return;
+            if (!"confirmed".equalsIgnoreCase(booking.getStatus())) {
+                // Cancelled since the claim
+                delivered = false;
+                outcome = BookingReminder.OUTCOME_SKIPPED;
+            } else if (BookingReminder.CHANNEL_SMS.equals(channel)) {
+                if (!smsService.isConfigured() || isBlank(booking.getCustomerPhone())) {
+                    delivered = false;
+                    outcome = BookingReminder.OUTCOME_SKIPPED;
+                } else {
+                    // Queued; SmsDispatcher sends it within the sending numbers' rate
+                    delivered = smsService.sendSms(booking.getCustomerPhone(), buildReminderSms(booking, offset));
+                    outcome = BookingReminder.OUTCOME_SENT;
+                }
+            } else {
+                if (!emailService.isConfigured() || isBlank(booking.getCustomerEmail())) {
+                    delivered = false;
+                    outcome = BookingReminder.OUTCOME_SKIPPED;
+                } else {
+                    // Reminders of one batch are queued together and leave in few SendGrid requests
+                    delivered = emailService.send(booking.getCustomerEmail(),
+                        "🔔 Reminder: Your appointment is " + describe(offset) + "!", "booking-reminder",
+                        reminderEmailValues(booking, offset)).join();
+                    outcome = BookingReminder.OUTCOME_SENT;
+                }
             }
+        } catch (Exception e) {
+            delivered = false;
+            outcome = null;
+            System.err.println("❌ [ReminderService] Failed to send " + channel + " reminder for booking #"
+                + booking.getId() + ": " + e.getMessage());
+        }
 
-            String customerName = booking.getCustomerName() != null ? booking.getCustomerName() : "Valued Customer";
-            String resourceName = booking.getResource() != null ? booking.getResource().getName() : "your service";
-            String startTime = booking.getStartTime() != null ? 
-                booking.getStartTime().format(DateTimeFormatter.ofPattern("MMM dd, yyyy hh:mm a")) : "N/A";
-            
-            String subject = "🔔 Reminder: Your appointment is tomorrow!";
-            String htmlContent = buildReminderEmailHtml(customerName, resourceName, startTime, booking.getId().toString());
-            
-            emailService.sendHtmlEmail(booking.getCustomerEmail(), subject, htmlContent);
-            
-            System.out.println("✅ [ReminderService] Sent email reminder for booking #" + booking.getId() + 
-                             " to " + booking.getCustomerEmail());
-            
+        if (BookingReminder.OUTCOME_SENT.equals(outcome) && !delivered) {
+            outcome = null;
+        }
+        try {
+            if (outcome == null) {
+                reminderRepository.release(booking.getId(), channel, offsetMinutes, claimedAt);
+            } else {
+                reminderRepository.markSent(booking.getId(), channel, offsetMinutes, claimedAt, outcome, LocalDateTime.now());
+            }
         } catch (Exception e) {
-            System.err.println("❌ [ReminderService] Failed to send email for booking #" + 
-                             booking.getId() + ": " + e.getMessage());
+            // The claim times out; a reminder that went out may then be sent a second time
+            System.err.println("❌ [ReminderService] Failed to record " + channel + " reminder for booking #"
+                + booking.getId() + ": " + e.getMessage());
         }
+        return delivered;
     }
 
-    private String buildReminderEmailHtml(String customerName, String resourceName, String startTime, String bookingId) {
-        return "<!DOCTYPE html>" +
-                "<html><head><style>" +
-                "body { font-family: Arial, sans-serif; background-color: #f4f7f6; margin: 0; padding: 0; }" +
-                ".container { max-width: 600px; margin: 20px auto; background: #fff; border-radius: 8px; box-shadow: 0 4px 12px rgba(0,0,0,0.1); }" +
-                ".header { background: linear-gradient(135deg, #26a69a 0%, #00897b 100%); color: #fff; padding: 30px; text-align: center; border-radius: 8px 8px 0 0; }" +
-                ".content { padding: 30px; color: #555; }" +
-                ".reminder-box { background: #fff9c4; border-left: 4px solid #fbc02d; padding: 15px; margin: 20px 0; border-radius: 4px; }" +
-                ".booking-details { background: #f5f5f5; padding: 20px; border-radius: 8px; margin: 20px 0; }" +
-                ".booking-details h3 { color: #00897b; margin-top: 0; }" +
-                ".button { display: inline-block; background-color: #26a69a; color: #fff; padding: 12px 25px; border-radius: 5px; text-decoration: none; margin-top: 20px; }" +
-                ".footer { background: #f0f0f0; padding: 20px; text-align: center; font-size: 12px; color: #777; }" +
-                "</style></head><body>" +
-                "<div class='container'>" +
-                "<div class='header'><h1>🔔 Appointment Reminder</h1></div>" +
-                "<div class='content'>" +
-                "<p>Hi " + customerName + ",</p>" +
-                "<div class='reminder-box'><strong>⏰ Reminder:</strong> Your appointment is in approximately 24 hours!</div>" +
-                "<div class='booking-details'>" +
-                "<h3>📋 Appointment Details</h3>" +
-                "<p><strong>Booking ID:</strong> #" + bookingId + "</p>" +
-                "<p><strong>Service:</strong> " + resourceName + "</p>" +
-                "<p><strong>Date & Time:</strong> " + startTime + "</p>" +
-                "</div>" +
-                "<p>We look forward to seeing you!<br>The BookFast Team</p>" +
-                "</div>" +
-                "<div class='footer'><p>© 2025 BookFast. All rights reserved.</p></div>" +
-                "</div></body></html>";
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * "tomorrow" for 24 hours, otherwise "in 2 hours" / "in 30 minutes".
+     */
+    static String describe(Duration offset) {
+        long minutes = offset.toMinutes();
+        if (minutes == 24 * 60) {
+            return "tomorrow";
+        }
+        if (minutes % 60 == 0) {
+            long hours = minutes / 60;
+            return "in " + hours + (hours == 1 ? " hour" : " hours");
+        }
+        return "in " + minutes + (minutes == 1 ? " minute" : " minutes");
     }
-}
 
+    private Map<String, Object> reminderEmailValues(Booking booking, Duration offset) {
+        return EmailTemplates.values(
+            "customerName", booking.getCustomerName() != null ? booking.getCustomerName() : "Valued Customer",
+            "when", describe(offset),
+            "bookingId", booking.getId(),
+            "serviceName", booking.getResource() != null ? booking.getResource().getName() : "your service",
+            "startTime", booking.getStartTime() != null ? booking.getStartTime().format(DISPLAY_FORMAT) : "N/A");
+    }
+
+    private String buildReminderSms(Booking booking, Duration offset) {
+        String resourceName = booking.getResource() != null ? booking.getResource().getName() : "your service";
+        String startTime = booking.getStartTime() != null ? booking.getStartTime().format(DISPLAY_FORMAT) : "N/A";
+        return "🔔 BookFast Reminder\n\n"
+            + "Your appointment for " + resourceName + " is " + describe(offset) + ".\n"
+            + "Date & Time: " + startTime + "\n"
+            + "Booking ID: #" + booking.getId();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ClaimedWork.shutdown(executor);
+    }
+}
@@ -0,0 +1,161 @@
+package com.bookfast.backend.common.service;
+
+import com.bookfast.backend.common.model.SchedulerLease;
+import com.bookfast.backend.common.repository.SchedulerLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs a scheduled job on one instance of the cluster at a time.
+ *
+ * A job that works on the whole data set (rebuilds, reconciles, cleanups) takes a named lease in
+ * scheduler_lease before it runs and keeps it alive with heartbeats every ttl/3; other instances
+ * skip their run while it is held. A job whose work can be lost to a takeover mid-run calls
+ * {@link #checkFence} as the last statement of its write transaction. Jobs that claim rows with
+ * SKIP LOCKED (outbox, calendar sync, reminders) already split their work across instances and do
+ * not need a lease.
+ */
+@Service
+public class SchedulerLeaseService {
+    private final SchedulerLeaseRepository leaseRepository;
+    private final String owner;
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "scheduler-lease-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${scheduler.lease.enabled:true}")
+    private boolean enabled;
+
+    @Value("${scheduler.lease.ttl:2m}")
+    private Duration ttl;
+
+    public SchedulerLeaseService(SchedulerLeaseRepository leaseRepository) {
+        this.leaseRepository = leaseRepository;
+        this.owner = hostName() + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
+    /**
+     * Run the job if this instance can take the named lease; returns false if another instance holds
+     * it. With scheduler.lease.enabled=false (single instance) the job always runs, without a lease.
+     */
+    public boolean runExclusive(String name, Consumer<Lease> job) {
+        if (!enabled) {
+            job.accept(null);
+            return true;
+        }
+        long ttlMs = ttl.toMillis();
+        List<Long> acquired = leaseRepository.tryAcquire(name, owner, ttlMs);
+        if (acquired.isEmpty()) {
+            return false;
+        }
+        Lease lease = new Lease(name, acquired.get(0));
+        long period = Math.max(1, ttlMs / 3);
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(() -> extend(lease, ttlMs), period, period, TimeUnit.MILLISECONDS);
+        try {
+            job.accept(lease);
+            return true;
+        } finally {
+            heartbeat.cancel(false);
+            try {
+                leaseRepository.release(name, lease.getToken());
+            } catch (Exception e) {
+                // Expires on its own after ttl
+                System.err.println("[SchedulerLeaseService] Failed to release lease " + name + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void extend(Lease lease, long ttlMs) {
+        if (lease.isLost()) {
+            return;
+        }
+        try {
+            if (leaseRepository.heartbeat(lease.getName(), lease.getToken(), ttlMs) == 0) {
+                lease.lost = true;
+                System.err.println("[SchedulerLeaseService] Lost lease " + lease.getName() + " (token " + lease.getToken() + ")");
+            }
+        } catch (Exception e) {
+            // Retried on the next beat; the lease survives while it has not expired
+            System.err.println("[SchedulerLeaseService] Heartbeat for lease " + lease.getName() + " failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fencing check: must run inside the job's write transaction, as its last statement. Throws, and
+     * so rolls the transaction back, if the lease expired or was taken over; otherwise holds a share
+     * lock on the lease row until commit so no takeover can happen before the writes are visible.
+     */
+    public void checkFence(Lease lease) {
+        if (lease == null) {
+            return;
+        }
+        List<Long> current = leaseRepository.lockCurrentToken(lease.getName());
+        if (current.isEmpty() || current.get(0) != lease.getToken()) {
+            lease.lost = true;
+            throw new IllegalStateException("Lease " + lease.getName() + " with token " + lease.getToken() + " is no longer held");
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("instance", owner);
+        Map<String, Object> leases = new LinkedHashMap<>();
+        for (SchedulerLease lease : leaseRepository.findAll()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("owner", lease.getOwner());
+            row.put("fencingToken", lease.getFencingToken());
+            row.put("heartbeatAt", lease.getHeartbeatAt());
+            row.put("expiresAt", lease.getExpiresAt());
+            leases.put(lease.getName(), row);
+        }
+        stats.put("leases", leases);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+    }
+
+    /**
+     * A held lease. Long-running jobs can poll {@link #isLost()} between steps and stop early.
+     */
+    public static final class Lease {
+        private final String name;
+        private final long token;
+        private volatile boolean lost;
+
+        Lease(String name, long token) {
+            this.name = name;
+            this.token = token;
+        }
+
+        public String getName() { return name; }
+        public long getToken() { return token; }
+        public boolean isLost() { return lost; }
+    }
+}
@@ -0,0 +1,47 @@
+package com.bookfast.backend.common.util;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared pieces of the background workers that claim rows (outbox events, SMS, calendar sync
+ * entries, reminders, tokens), work on them and record a retry time when they fail.
+ */
+public final class ClaimedWork {
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    private ClaimedWork() {
+    }
+
+    /**
+     * Timestamp to stamp on claimed rows. Millisecond precision so the value round-trips through
+     * the database exactly and later updates can fence on it (WHERE claimed_at = :claimedAt).
+     */
+    public static LocalDateTime claimTimestamp() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    /**
+     * base * 2^(attempts-1), capped at max, with +/-20% jitter so rows that failed together do
+     * not retry in lockstep. Any unit works as long as base and max share it.
+     */
+    public static long backoff(long base, long max, int attempts) {
+        long delay = base << Math.min(Math.max(attempts - 1, 0), 30);
+        if (delay <= 0 || delay > max) {
+            delay = max;
+        }
+        return (long) (delay * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+    }
+
+    /**
+     * Stop taking work and give running tasks a few seconds. Whatever is still running keeps its
+     * claim, which goes stale and is picked up again by the next poll on any instance.
+     */
+    public static void shutdown(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+}
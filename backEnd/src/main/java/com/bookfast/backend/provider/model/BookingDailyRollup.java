@@ -0,0 +1,101 @@
+package com.bookfast.backend.provider.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Booking and review counters of one resource on one day (booking start date / review date).
+ * Maintained incrementally by BookingRollupService and rebuilt from the source tables nightly.
+ */
+@Entity
+@IdClass(BookingDailyRollup.Key.class)
+@Table(indexes = {
+    @Index(name = "idx_booking_rollup_provider_day", columnList = "provider_id, day")
+})
+public class BookingDailyRollup {
+    @Id
+    private Long resourceId;
+
+    @Id
+    private LocalDate day;
+
+    private Long providerId;
+
+    private long totalCount;
+    private long confirmedCount;
+    private long cancelledCount;
+    private long pendingCount;
+
+    // Bookings with a positive finalAmount that are not cancelled, and the sum of those amounts
+    private long revenueCount;
+    private double revenueSum;
+
+    private long reviewCount;
+    private double ratingSum;
+
+    private LocalDateTime updatedAt;
+
+    public Long getResourceId() { return resourceId; }
+    public void setResourceId(Long resourceId) { this.resourceId = resourceId; }
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public Long getProviderId() { return providerId; }
+    public void setProviderId(Long providerId) { this.providerId = providerId; }
+
+    public long getTotalCount() { return totalCount; }
+    public void setTotalCount(long totalCount) { this.totalCount = totalCount; }
+
+    public long getConfirmedCount() { return confirmedCount; }
+    public void setConfirmedCount(long confirmedCount) { this.confirmedCount = confirmedCount; }
+
+    public long getCancelledCount() { return cancelledCount; }
+    public void setCancelledCount(long cancelledCount) { this.cancelledCount = cancelledCount; }
+
+    public long getPendingCount() { return pendingCount; }
+    public void setPendingCount(long pendingCount) { this.pendingCount = pendingCount; }
+
+    public long getRevenueCount() { return revenueCount; }
+    public void setRevenueCount(long revenueCount) { this.revenueCount = revenueCount; }
+
+    public double getRevenueSum() { return revenueSum; }
+    public void setRevenueSum(double revenueSum) { this.revenueSum = revenueSum; }
+
+    public long getReviewCount() { return reviewCount; }
+    public void setReviewCount(long reviewCount) { this.reviewCount = reviewCount; }
+
+    public double getRatingSum() { return ratingSum; }
+    public void setRatingSum(double ratingSum) { this.ratingSum = ratingSum; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public static class Key implements Serializable {
+        private Long resourceId;
+        private LocalDate day;
+
+        public Key() {
+        }
+
+        public Key(Long resourceId, LocalDate day) {
+            this.resourceId = resourceId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(resourceId, other.resourceId) && Objects.equals(day, other.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resourceId, day);
+        }
+    }
+}
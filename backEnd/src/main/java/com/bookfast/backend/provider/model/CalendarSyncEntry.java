@@ -0,0 +1,94 @@
+package com.bookfast.backend.provider.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Google Calendar state of one booking in one user's calendar (provider or customer): the real
+ * event id returned by Google, and whether the booking changed since the last sync.
+ *
+ * Booking writes only mark the row dirty and bump its version; CalendarSyncService later reads the
+ * current booking and issues the single insert, patch or delete that brings the calendar in line,
+ * so any number of changes between two flushes cost one API call.
+ */
+@Entity
+@Table(
+    uniqueConstraints = @UniqueConstraint(name = "uk_calendar_sync_booking_user", columnNames = {"booking_id", "user_id"}),
+    indexes = {
+        // Supports the claim query (dirty AND next_attempt_at <= now)
+        @Index(name = "idx_calendar_sync_dirty_next_attempt", columnList = "dirty, next_attempt_at")
+    }
+)
+public class CalendarSyncEntry {
+    public static final String ROLE_PROVIDER = "provider";
+    public static final String ROLE_CUSTOMER = "customer";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    private String role;
+
+    // Null until the event exists in Google Calendar
+    private String googleEventId;
+
+    private boolean dirty;
+
+    // Bumped by every markDirty; a flush only clears dirty if no change arrived meanwhile
+    private long version;
+
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime claimedAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    private LocalDateTime syncedAt;
+    private LocalDateTime updatedAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getBookingId() { return bookingId; }
+    public void setBookingId(Long bookingId) { this.bookingId = bookingId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getRole() { return role; }
+    public void setRole(String role) { this.role = role; }
+
+    public String getGoogleEventId() { return googleEventId; }
+    public void setGoogleEventId(String googleEventId) { this.googleEventId = googleEventId; }
+
+    public boolean isDirty() { return dirty; }
+    public void setDirty(boolean dirty) { this.dirty = dirty; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public LocalDateTime getClaimedAt() { return claimedAt; }
+    public void setClaimedAt(LocalDateTime claimedAt) { this.claimedAt = claimedAt; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getSyncedAt() { return syncedAt; }
+    public void setSyncedAt(LocalDateTime syncedAt) { this.syncedAt = syncedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,106 @@
+package com.bookfast.backend.provider.repository;
+
+import com.bookfast.backend.provider.model.BookingDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface BookingDailyRollupRepository extends JpaRepository<BookingDailyRollup, BookingDailyRollup.Key> {
+
+    /**
+     * Atomically add a delta to the (resource, day) row, creating it on first use. The provider is
+     * taken from the resource; nothing is written if the resource no longer exists.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO booking_daily_rollup (resource_id, day, provider_id, total_count, confirmed_count, "
+            + "cancelled_count, pending_count, revenue_count, revenue_sum, review_count, rating_sum, updated_at) "
+            + "SELECT r.id, :day, r.provider_id, :total, :confirmed, :cancelled, :pending, :revenueCount, :revenueSum, "
+            + ":reviewCount, :ratingSum, CURRENT_TIMESTAMP FROM resource r WHERE r.id = :resourceId "
+            + "ON CONFLICT (resource_id, day) DO UPDATE SET "
+            + "total_count = booking_daily_rollup.total_count + EXCLUDED.total_count, "
+            + "confirmed_count = booking_daily_rollup.confirmed_count + EXCLUDED.confirmed_count, "
+            + "cancelled_count = booking_daily_rollup.cancelled_count + EXCLUDED.cancelled_count, "
+            + "pending_count = booking_daily_rollup.pending_count + EXCLUDED.pending_count, "
+            + "revenue_count = booking_daily_rollup.revenue_count + EXCLUDED.revenue_count, "
+            + "revenue_sum = booking_daily_rollup.revenue_sum + EXCLUDED.revenue_sum, "
+            + "review_count = booking_daily_rollup.review_count + EXCLUDED.review_count, "
+            + "rating_sum = booking_daily_rollup.rating_sum + EXCLUDED.rating_sum, "
+            + "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int applyDelta(@Param("resourceId") Long resourceId, @Param("day") LocalDate day,
+                   @Param("total") long total, @Param("confirmed") long confirmed,
+                   @Param("cancelled") long cancelled, @Param("pending") long pending,
+                   @Param("revenueCount") long revenueCount, @Param("revenueSum") double revenueSum,
+                   @Param("reviewCount") long reviewCount, @Param("ratingSum") double ratingSum);
+
+    /**
+     * Per-resource totals of one provider: all-time booking count and revenue, plus the status
+     * breakdown and revenue of days on or after :from. One row per resource that has any rollup.
+     */
+    @Query("SELECT r.resourceId, SUM(r.totalCount), SUM(r.revenueCount), SUM(r.revenueSum), "
+            + "SUM(CASE WHEN r.day >= :from THEN r.totalCount ELSE 0 END), "
+            + "SUM(CASE WHEN r.day >= :from THEN r.confirmedCount ELSE 0 END), "
+            + "SUM(CASE WHEN r.day >= :from THEN r.cancelledCount ELSE 0 END), "
+            + "SUM(CASE WHEN r.day >= :from THEN r.pendingCount ELSE 0 END), "
+            + "SUM(CASE WHEN r.day >= :from THEN r.revenueCount ELSE 0 END), "
+            + "SUM(CASE WHEN r.day >= :from THEN r.revenueSum ELSE 0 END) "
+            + "FROM BookingDailyRollup r WHERE r.providerId = :providerId GROUP BY r.resourceId")
+    List<Object[]> summarizeByResource(@Param("providerId") Long providerId, @Param("from") LocalDate from);
+
+    // Bookings per day/week/month bucket (by start date) since :from, as rows of (bucket start date, count)
+    @Query(value = "SELECT CAST(date_trunc(CAST(:unit AS text), r.day) AS date), SUM(r.total_count) FROM booking_daily_rollup r "
+            + "WHERE r.day >= :from GROUP BY 1 ORDER BY 1", nativeQuery = true)
+    List<Object[]> countBookingsByBucket(@Param("unit") String unit, @Param("from") LocalDate from);
+
+    // Providers ranked by bookings since :from, as rows of (providerId, bookings, revenue)
+    @Query(value = "SELECT r.provider_id, SUM(r.total_count), SUM(r.revenue_sum) FROM booking_daily_rollup r "
+            + "WHERE r.day >= :from AND r.provider_id IS NOT NULL GROUP BY r.provider_id "
+            + "HAVING SUM(r.total_count) > 0 ORDER BY 2 DESC, 3 DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findTopProviders(@Param("from") LocalDate from, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM booking_daily_rollup WHERE resource_id = :resourceId", nativeQuery = true)
+    int deleteByResourceId(@Param("resourceId") Long resourceId);
+
+    /**
+     * Blocks delta writers (but not readers) until the rebuilding transaction ends, and waits for
+     * writers that already applied a delta to commit, so the rebuild sees exactly their bookings.
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE booking_daily_rollup IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying
+    @Query(value = "DELETE FROM booking_daily_rollup", nativeQuery = true)
+    int deleteAllRows();
+
+    /**
+     * Recompute every row from the booking and review tables in one grouped statement.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO booking_daily_rollup (resource_id, day, provider_id, total_count, confirmed_count, "
+            + "cancelled_count, pending_count, revenue_count, revenue_sum, review_count, rating_sum, updated_at) "
+            + "SELECT k.resource_id, k.day, res.provider_id, SUM(k.total_count), SUM(k.confirmed_count), "
+            + "SUM(k.cancelled_count), SUM(k.pending_count), SUM(k.revenue_count), SUM(k.revenue_sum), "
+            + "SUM(k.review_count), SUM(k.rating_sum), CURRENT_TIMESTAMP FROM ("
+            + "SELECT b.resource_id, CAST(b.start_time AS date) AS day, 1 AS total_count, "
+            + "CASE WHEN LOWER(b.status) = 'confirmed' THEN 1 ELSE 0 END AS confirmed_count, "
+            + "CASE WHEN LOWER(b.status) = 'cancelled' THEN 1 ELSE 0 END AS cancelled_count, "
+            + "CASE WHEN LOWER(b.status) = 'pending' THEN 1 ELSE 0 END AS pending_count, "
+            + "CASE WHEN b.final_amount > 0 AND LOWER(COALESCE(b.status, '')) <> 'cancelled' THEN 1 ELSE 0 END AS revenue_count, "
+            + "CASE WHEN b.final_amount > 0 AND LOWER(COALESCE(b.status, '')) <> 'cancelled' THEN b.final_amount ELSE 0 END AS revenue_sum, "
+            + "0 AS review_count, 0 AS rating_sum "
+            + "FROM booking b WHERE b.resource_id IS NOT NULL AND b.start_time IS NOT NULL "
+            + "UNION ALL "
+            + "SELECT v.resource_id, v.date, 0, 0, 0, 0, 0, 0, 1, v.rating "
+            + "FROM review v WHERE v.resource_id IS NOT NULL AND v.date IS NOT NULL AND v.rating IS NOT NULL"
+            + ") k JOIN resource res ON res.id = k.resource_id "
+            + "GROUP BY k.resource_id, k.day, res.provider_id", nativeQuery = true)
+    int insertFromSource();
+}
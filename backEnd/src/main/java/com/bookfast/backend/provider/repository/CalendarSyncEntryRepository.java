@@ -0,0 +1,97 @@
+package com.bookfast.backend.provider.repository;
+
+import com.bookfast.backend.provider.model.CalendarSyncEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface CalendarSyncEntryRepository extends JpaRepository<CalendarSyncEntry, Long> {
+
+    /**
+     * Record that the booking changed for this user's calendar, creating the row on first use.
+     * A row that is already dirty keeps its retry schedule, so a failing calendar is not hammered.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO calendar_sync_entry (booking_id, user_id, role, dirty, version, attempts, next_attempt_at, updated_at) "
+            + "VALUES (:bookingId, :userId, :role, true, 1, 0, :now, :now) "
+            + "ON CONFLICT (booking_id, user_id) DO UPDATE SET "
+            + "dirty = true, version = calendar_sync_entry.version + 1, role = EXCLUDED.role, "
+            + "attempts = CASE WHEN calendar_sync_entry.dirty THEN calendar_sync_entry.attempts ELSE 0 END, "
+            + "next_attempt_at = CASE WHEN calendar_sync_entry.dirty THEN calendar_sync_entry.next_attempt_at "
+            + "ELSE EXCLUDED.next_attempt_at END, "
+            + "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int markDirty(@Param("bookingId") Long bookingId, @Param("userId") Long userId, @Param("role") String role,
+                  @Param("now") LocalDateTime now);
+
+    /**
+     * Due entries that nobody is flushing (or whose claim went stale), locked for the surrounding
+     * transaction. Rows already locked by another instance are skipped instead of waited on.
+     */
+    @Query(value = "SELECT * FROM calendar_sync_entry WHERE dirty = true AND next_attempt_at <= :now "
+            + "AND (claimed_at IS NULL OR claimed_at < :staleBefore) "
+            + "ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<CalendarSyncEntry> lockDueEntries(@Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore,
+                                           @Param("limit") int limit);
+
+    // The claimedAt condition fences out a flush whose claim went stale and was taken over
+    @Transactional
+    @Modifying
+    @Query("UPDATE CalendarSyncEntry e SET e.googleEventId = :eventId, "
+            + "e.dirty = CASE WHEN e.version = :version THEN false ELSE true END, e.attempts = 0, e.lastError = null, "
+            + "e.claimedAt = null, e.nextAttemptAt = :now, e.syncedAt = :now, e.updatedAt = :now "
+            + "WHERE e.id = :id AND e.claimedAt = :claimedAt")
+    int markSynced(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("version") long version,
+                   @Param("eventId") String eventId, @Param("now") LocalDateTime now);
+
+    /**
+     * Drop the row of a booking whose event is gone, unless the booking changed again meanwhile.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CalendarSyncEntry e WHERE e.id = :id AND e.claimedAt = :claimedAt AND e.version = :version")
+    int deleteSynced(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("version") long version);
+
+    /**
+     * The event no longer exists in Google Calendar; the entry stays dirty and is re-planned from scratch.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CalendarSyncEntry e SET e.googleEventId = null, e.claimedAt = null, e.nextAttemptAt = :now, e.updatedAt = :now "
+            + "WHERE e.id = :id AND e.claimedAt = :claimedAt")
+    int forgetEvent(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE CalendarSyncEntry e SET e.dirty = :dirty, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, "
+            + "e.lastError = :error, e.claimedAt = null, e.updatedAt = :now "
+            + "WHERE e.id = :id AND e.claimedAt = :claimedAt")
+    int markFailed(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("dirty") boolean dirty,
+                   @Param("attempts") int attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error, @Param("now") LocalDateTime now);
+
+    /**
+     * Give claimed entries back untouched (e.g. the user's rate limit is used up for now).
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE CalendarSyncEntry e SET e.claimedAt = null, e.nextAttemptAt = :nextAttemptAt "
+            + "WHERE e.id IN :ids AND e.claimedAt = :claimedAt")
+    int release(@Param("ids") Collection<Long> ids, @Param("claimedAt") LocalDateTime claimedAt,
+                @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    // Which of these Google events BookFast created itself for the user's bookings
+    @Query("SELECT e.googleEventId FROM CalendarSyncEntry e WHERE e.userId = :userId AND e.googleEventId IN :eventIds")
+    List<String> findOwnEventIds(@Param("userId") Long userId, @Param("eventIds") Collection<String> eventIds);
+
+    Optional<CalendarSyncEntry> findByBookingIdAndUserId(Long bookingId, Long userId);
+
+    long countByDirtyTrue();
+}
@@ -0,0 +1,203 @@
+package com.bookfast.backend.provider.service;
+
+import com.bookfast.backend.common.service.SchedulerLeaseService;
+import com.bookfast.backend.common.service.SchedulerLeaseService.Lease;
+import com.bookfast.backend.provider.repository.BookingDailyRollupRepository;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.model.Review;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps booking_daily_rollup in step with booking and review writes so dashboards read a few
+ * rows per resource and day instead of scanning every booking.
+ *
+ * Each mutation applies the difference between the row's persisted state and its new state
+ * with an atomic upsert in the caller's transaction. rebuild() recomputes the whole table from
+ * the source tables on startup and nightly, which also covers writes made outside the services.
+ */
+@Service
+public class BookingRollupService {
+    private final BookingDailyRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeaseService leaseService;
+
+    public BookingRollupService(BookingDailyRollupRepository rollupRepository, TransactionTemplate transactionTemplate,
+                                SchedulerLeaseService leaseService) {
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseService = leaseService;
+    }
+
+    public void bookingsCreated(Collection<Booking> bookings) {
+        Map<Key, Delta> deltas = new LinkedHashMap<>();
+        for (Booking booking : bookings) {
+            addBooking(deltas, resourceIdOf(booking.getResource()), booking.getStartTime(),
+                booking.getStatus(), booking.getFinalAmount(), 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * The booking's current fields replace what was last read from the database. Call before the
+     * change is flushed.
+     */
+    public void bookingChanged(Booking booking) {
+        Map<Key, Delta> deltas = new LinkedHashMap<>();
+        if (booking.isPersisted()) {
+            addBooking(deltas, booking.getPersistedResourceId(), booking.getPersistedStartTime(),
+                booking.getPersistedStatus(), booking.getPersistedFinalAmount(), -1);
+        }
+        addBooking(deltas, resourceIdOf(booking.getResource()), booking.getStartTime(),
+            booking.getStatus(), booking.getFinalAmount(), 1);
+        apply(deltas);
+    }
+
+    public void bookingDeleted(Booking booking) {
+        if (!booking.isPersisted()) {
+            return;
+        }
+        Map<Key, Delta> deltas = new LinkedHashMap<>();
+        addBooking(deltas, booking.getPersistedResourceId(), booking.getPersistedStartTime(),
+            booking.getPersistedStatus(), booking.getPersistedFinalAmount(), -1);
+        apply(deltas);
+    }
+
+    public void reviewAdded(Review review) {
+        Map<Key, Delta> deltas = new LinkedHashMap<>();
+        addReview(deltas, resourceIdOf(review.getResource()), review.getDate(), review.getRating(), 1);
+        apply(deltas);
+    }
+
+    /**
+     * Move a review from its previously persisted (resource, date, rating) to its current state.
+     */
+    public void reviewChanged(Resource previousResource, LocalDate previousDate, Double previousRating, Review review) {
+        Map<Key, Delta> deltas = new LinkedHashMap<>();
+        addReview(deltas, resourceIdOf(previousResource), previousDate, previousRating, -1);
+        addReview(deltas, resourceIdOf(review.getResource()), review.getDate(), review.getRating(), 1);
+        apply(deltas);
+    }
+
+    public void reviewRemoved(Resource resource, LocalDate date, Double rating) {
+        Map<Key, Delta> deltas = new LinkedHashMap<>();
+        addReview(deltas, resourceIdOf(resource), date, rating, -1);
+        apply(deltas);
+    }
+
+    public void resourceRemoved(Long resourceId) {
+        rollupRepository.deleteByResourceId(resourceId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        scheduledRebuild();
+    }
+
+    @Scheduled(cron = "${analytics.rollup-rebuild.cron:0 0 3 * * *}")
+    public void scheduledRebuild() {
+        try {
+            // One instance rebuilds; the others would only repeat the same work
+            leaseService.runExclusive("analytics-rollup-rebuild", lease -> {
+                long started = System.currentTimeMillis();
+                int rows = rebuild(lease);
+                System.out.println("[BookingRollupService] Rebuilt " + rows + " daily rollup rows in "
+                    + (System.currentTimeMillis() - started) + " ms");
+            });
+        } catch (Exception e) {
+            System.err.println("[BookingRollupService] Daily rollup rebuild failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replace all rollups with values recomputed from bookings and reviews. Runs in one transaction
+     * under an exclusive table lock, so deltas committed meanwhile are neither lost nor double counted;
+     * dashboards keep reading the previous rows until it commits.
+     */
+    public int rebuild() {
+        return rebuild(null);
+    }
+
+    private int rebuild(Lease lease) {
+        Integer rows = transactionTemplate.execute(status -> {
+            rollupRepository.lockForRebuild();
+            rollupRepository.deleteAllRows();
+            int inserted = rollupRepository.insertFromSource();
+            leaseService.checkFence(lease);
+            return inserted;
+        });
+        return rows != null ? rows : 0;
+    }
+
+    private static void addBooking(Map<Key, Delta> deltas, Long resourceId, LocalDateTime startTime,
+                                   String status, Double finalAmount, int sign) {
+        if (resourceId == null || startTime == null) {
+            return;
+        }
+        Delta delta = deltas.computeIfAbsent(new Key(resourceId, startTime.toLocalDate()), key -> new Delta());
+        delta.total += sign;
+        if ("confirmed".equalsIgnoreCase(status)) {
+            delta.confirmed += sign;
+        } else if ("cancelled".equalsIgnoreCase(status)) {
+            delta.cancelled += sign;
+        } else if ("pending".equalsIgnoreCase(status)) {
+            delta.pending += sign;
+        }
+        // Same revenue rule the dashboard has always used: a positive amount on a booking that is not cancelled
+        if (finalAmount != null && finalAmount > 0 && !"cancelled".equalsIgnoreCase(status)) {
+            delta.revenueCount += sign;
+            delta.revenueSum += sign * finalAmount;
+        }
+    }
+
+    private static void addReview(Map<Key, Delta> deltas, Long resourceId, LocalDate date, Double rating, int sign) {
+        if (resourceId == null || date == null || rating == null) {
+            return;
+        }
+        Delta delta = deltas.computeIfAbsent(new Key(resourceId, date), key -> new Delta());
+        delta.reviewCount += sign;
+        delta.ratingSum += sign * rating;
+    }
+
+    private void apply(Map<Key, Delta> deltas) {
+        deltas.forEach((key, delta) -> {
+            if (!delta.isZero()) {
+                rollupRepository.applyDelta(key.resourceId(), key.day(), delta.total, delta.confirmed, delta.cancelled,
+                    delta.pending, delta.revenueCount, delta.revenueSum, delta.reviewCount, delta.ratingSum);
+            }
+        });
+    }
+
+    private static Long resourceIdOf(Resource resource) {
+        return resource != null ? resource.getId() : null;
+    }
+
+    private record Key(Long resourceId, LocalDate day) {
+    }
+
+    private static final class Delta {
+        long total;
+        long confirmed;
+        long cancelled;
+        long pending;
+        long revenueCount;
+        double revenueSum;
+        long reviewCount;
+        double ratingSum;
+
+        boolean isZero() {
+            return total == 0 && confirmed == 0 && cancelled == 0 && pending == 0 && revenueCount == 0
+                && revenueSum == 0 && reviewCount == 0 && ratingSum == 0;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.bookfast.backend.provider.service;
+
+import com.bookfast.backend.common.model.CalendarToken;
+import com.bookfast.backend.common.repository.CalendarTokenRepository;
+import com.bookfast.backend.common.util.ClaimedWork;
+import com.bookfast.backend.provider.repository.CalendarSyncEntryRepository;
+import com.bookfast.backend.provider.service.GoogleCalendarService.EventChanges;
+import com.bookfast.backend.resource.model.AvailabilitySlot;
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import com.bookfast.backend.resource.service.AvailabilityBitmapService;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pulls busy time from providers' Google Calendars into "unavailable" AvailabilitySlot rows.
+ *
+ * Each active CalendarToken of a user with resources is polled every interval-seconds with the
+ * syncToken of its previous pull, so Google returns only the events changed since then. Slots of a
+ * changed event are replaced on all of the provider's resources; cancelled and free (transparent)
+ * events and BookFast's own booking events only remove slots. Tokens are claimed with SKIP LOCKED,
+ * pulled in parallel on virtual threads and backed off exponentially when a pull fails.
+ */
+@Service
+public class CalendarBusyTimeSync {
+    static final String BUSY_REASON = "Busy in Google Calendar";
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    private final CalendarTokenRepository tokenRepository;
+    private final ResourceRepository resourceRepository;
+    private final AvailabilitySlotRepository slotRepository;
+    private final CalendarSyncEntryRepository syncEntryRepository;
+    private final GoogleCalendarService googleCalendarService;
+    private final AvailabilityBitmapService availabilityBitmaps;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore concurrency;
+
+    @Value("${google.calendar.pull.enabled:true}")
+    private boolean enabled;
+
+    @Value("${google.calendar.pull.batch-size:50}")
+    private int batchSize;
+
+    @Value("${google.calendar.pull.interval-seconds:300}")
+    private long intervalSeconds;
+
+    // Busy time further out is not mirrored; a periodic full sync picks it up as it comes closer
+    @Value("${google.calendar.pull.horizon-days:180}")
+    private int horizonDays;
+
+    @Value("${google.calendar.pull.full-sync-days:7}")
+    private int fullSyncDays;
+
+    @Value("${google.calendar.pull.backoff-base-seconds:60}")
+    private long backoffBaseSeconds;
+
+    @Value("${google.calendar.pull.backoff-max-seconds:21600}")
+    private long backoffMaxSeconds;
+
+    // How long a claimed token is reserved for the instance pulling it
+    @Value("${google.calendar.pull.lease-seconds:600}")
+    private long leaseSeconds;
+
+    public CalendarBusyTimeSync(CalendarTokenRepository tokenRepository, ResourceRepository resourceRepository,
+                                AvailabilitySlotRepository slotRepository, CalendarSyncEntryRepository syncEntryRepository,
+                                GoogleCalendarService googleCalendarService, AvailabilityBitmapService availabilityBitmaps,
+                                TransactionTemplate transactionTemplate, @Value("${google.calendar.pull.concurrency:8}") int concurrency) {
+        this.tokenRepository = tokenRepository;
+        this.resourceRepository = resourceRepository;
+        this.slotRepository = slotRepository;
+        this.syncEntryRepository = syncEntryRepository;
+        this.googleCalendarService = googleCalendarService;
+        this.availabilityBitmaps = availabilityBitmaps;
+        this.transactionTemplate = transactionTemplate;
+        this.concurrency = new Semaphore(concurrency);
+    }
+
+    @Scheduled(fixedDelayString = "${google.calendar.pull.poll-interval-ms:30000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        List<PullTask> claimed;
+        try {
+            claimed = claim();
+        } catch (Exception e) {
+            System.err.println("[CalendarBusyTimeSync] Failed to claim calendar tokens: " + e.getMessage());
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (PullTask task : claimed) {
+            tasks.add(() -> {
+                concurrency.acquire();
+                try {
+                    pull(task);
+                } finally {
+                    concurrency.release();
+                }
+                return null;
+            });
+        }
+        try {
+            executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<PullTask> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<PullTask> tasks = new ArrayList<>();
+            for (CalendarToken token : tokenRepository.lockDueForPull(now, batchSize)) {
+                token.setNextPullAt(now.plusSeconds(leaseSeconds));
+                boolean fullSyncDue = token.getLastFullSyncAt() == null
+                    || token.getLastFullSyncAt().isBefore(now.minusDays(fullSyncDays));
+                tasks.add(new PullTask(token.getId(), token.getUser().getId(), fullSyncDue ? null : token.getSyncToken(),
+                    token.getPullAttempts() != null ? token.getPullAttempts() : 0));
+            }
+            return tasks;
+        });
+    }
+
+    private void pull(PullTask task) {
+        try {
+            EventChanges changes = googleCalendarService.listChangedEvents(task.userId(), task.syncToken());
+            // The slots and the new sync token commit together, so no change is skipped or applied twice
+            int slots = transactionTemplate.execute(status -> {
+                int written = apply(task.userId(), changes);
+                LocalDateTime now = LocalDateTime.now();
+                tokenRepository.recordPullSuccess(task.tokenId(), changes.nextSyncToken(), now,
+                    now.plusSeconds(intervalSeconds), changes.fullSync() ? now : null);
+                return written;
+            });
+            if (!changes.events().isEmpty()) {
+                System.out.println("[CalendarBusyTimeSync] Pulled " + changes.events().size() + " changed events for user "
+                    + task.userId() + (changes.fullSync() ? " (full sync)" : "") + ", " + slots + " busy slots written");
+            }
+        } catch (Exception e) {
+            int attempts = task.attempts() + 1;
+            long delay = ClaimedWork.backoff(backoffBaseSeconds, backoffMaxSeconds, attempts);
+            String message = e.getClass().getSimpleName() + ": " + e.getMessage();
+            try {
+                tokenRepository.recordPullFailure(task.tokenId(), attempts, LocalDateTime.now().plusSeconds(delay), message);
+            } catch (Exception recordError) {
+                // The lease runs out and the token is pulled again
+                System.err.println("[CalendarBusyTimeSync] Failed to record pull failure: " + recordError.getMessage());
+            }
+            System.err.println("[CalendarBusyTimeSync] Pull for user " + task.userId() + " failed, attempt " + attempts
+                + ", retrying in " + delay + "s: " + message);
+        }
+    }
+
+    private int apply(Long providerId, EventChanges changes) {
+        List<Long> resourceIds = resourceRepository.findByProviderId(providerId).stream().map(Resource::getId).toList();
+        if (resourceIds.isEmpty()) {
+            return 0;
+        }
+        Set<String> eventIds = new LinkedHashSet<>();
+        for (Event event : changes.events()) {
+            eventIds.add(event.getId());
+        }
+        Set<String> ownEvents = new HashSet<>();
+        // Days whose busy slots are replaced, for the availability bitmaps
+        List<Object[]> changedDays = new ArrayList<>();
+        if (changes.fullSync()) {
+            changedDays.addAll(slotRepository.findAllGoogleSlotDays(resourceIds));
+            slotRepository.deleteAllGoogleSlots(resourceIds);
+        }
+        for (List<String> chunk : chunks(eventIds)) {
+            if (!changes.fullSync()) {
+                changedDays.addAll(slotRepository.findGoogleSlotDays(chunk, resourceIds));
+                slotRepository.deleteByGoogleEventIds(chunk, resourceIds);
+            }
+            ownEvents.addAll(syncEntryRepository.findOwnEventIds(providerId, chunk));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime horizon = now.toLocalDate().plusDays(horizonDays + 1L).atStartOfDay();
+        List<AvailabilitySlot> slots = new ArrayList<>();
+        for (Event event : changes.events()) {
+            if (ownEvents.contains(event.getId()) || GoogleCalendarService.isBookFastEvent(event)) {
+                continue;
+            }
+            for (BusyPiece piece : busyPieces(event, now, horizon)) {
+                for (Long resourceId : resourceIds) {
+                    Resource resource = new Resource();
+                    resource.setId(resourceId);
+                    AvailabilitySlot slot = new AvailabilitySlot();
+                    slot.setResource(resource);
+                    slot.setDate(piece.date());
+                    slot.setStartTime(piece.startTime());
+                    slot.setEndTime(piece.endTime());
+                    slot.setStatus("unavailable");
+                    slot.setReason(BUSY_REASON);
+                    slot.setGoogleEventId(event.getId());
+                    slots.add(slot);
+                    changedDays.add(new Object[] {resourceId, piece.date()});
+                }
+            }
+        }
+        slotRepository.saveAll(slots);
+        availabilityBitmaps.slotDaysChanged(changedDays);
+        return slots.size();
+    }
+
+    /**
+     * Remove all busy slots mirrored from the provider's calendar (e.g. after disconnecting it).
+     */
+    public void clearBusyTime(Long providerId) {
+        List<Long> resourceIds = resourceRepository.findByProviderId(providerId).stream().map(Resource::getId).toList();
+        if (!resourceIds.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                availabilityBitmaps.slotDaysChanged(slotRepository.findAllGoogleSlotDays(resourceIds));
+                slotRepository.deleteAllGoogleSlots(resourceIds);
+            });
+        }
+    }
+
+    /**
+     * The busy time of an event as per-day pieces (slots hold a date and times of day), limited to
+     * [now, horizon). A piece running to midnight ends at LocalTime.MAX. Cancelled and free events
+     * have none.
+     */
+    static List<BusyPiece> busyPieces(Event event, LocalDateTime now, LocalDateTime horizon) {
+        List<BusyPiece> pieces = new ArrayList<>();
+        if ("cancelled".equals(event.getStatus()) || "transparent".equals(event.getTransparency())) {
+            return pieces;
+        }
+        LocalDateTime start = toLocalDateTime(event.getStart());
+        LocalDateTime end = toLocalDateTime(event.getEnd());
+        if (start == null || end == null) {
+            return pieces;
+        }
+        if (end.isAfter(horizon)) {
+            end = horizon;
+        }
+        while (start.isBefore(end)) {
+            LocalDateTime nextDay = start.toLocalDate().plusDays(1).atStartOfDay();
+            LocalDateTime pieceEnd = end.isBefore(nextDay) ? end : nextDay;
+            if (pieceEnd.isAfter(now)) {
+                pieces.add(new BusyPiece(start.toLocalDate(), start.toLocalTime(),
+                    pieceEnd.equals(nextDay) ? LocalTime.MAX : pieceEnd.toLocalTime()));
+            }
+            start = pieceEnd;
+        }
+        return pieces;
+    }
+
+    // All-day events carry a date only, and their end date is exclusive
+    private static LocalDateTime toLocalDateTime(EventDateTime time) {
+        if (time == null) {
+            return null;
+        }
+        if (time.getDateTime() != null) {
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(time.getDateTime().getValue()), ZoneId.systemDefault());
+        }
+        DateTime date = time.getDate();
+        return date != null ? LocalDate.parse(date.toStringRfc3339()).atStartOfDay() : null;
+    }
+
+    private static List<List<String>> chunks(Set<String> ids) {
+        List<String> all = new ArrayList<>(ids);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            chunks.add(all.subList(from, Math.min(from + IN_CHUNK_SIZE, all.size())));
+        }
+        return chunks;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ClaimedWork.shutdown(executor);
+    }
+
+    record BusyPiece(LocalDate date, LocalTime startTime, LocalTime endTime) {
+    }
+
+    private record PullTask(Long tokenId, Long userId, String syncToken, int attempts) {
+    }
+}
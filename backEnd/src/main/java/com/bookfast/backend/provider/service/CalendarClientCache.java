@@ -0,0 +1,51 @@
+package com.bookfast.backend.provider.service;
+
+import com.google.api.services.calendar.Calendar;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user Calendar clients, reused until the access token is about to expire, the entry is older
+ * than client-cache.ttl-seconds, or the token changes. Whatever writes a user's token (connect,
+ * refresh, revoke, disconnect) evicts here; the cache never decides whether a user is connected.
+ */
+@Component
+public class CalendarClientCache {
+    // Stop using a cached client shortly before its access token runs out
+    private static final long TOKEN_EXPIRY_MARGIN_SECONDS = 60;
+
+    private final Map<Long, CachedClient> clients = new ConcurrentHashMap<>();
+
+    @Value("${google.calendar.client-cache.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    public Calendar get(Long userId) {
+        CachedClient cached = clients.get(userId);
+        if (cached == null) {
+            return null;
+        }
+        boolean tokenValid = cached.tokenExpiresAt() == null
+                || LocalDateTime.now().plusSeconds(TOKEN_EXPIRY_MARGIN_SECONDS).isBefore(cached.tokenExpiresAt());
+        boolean fresh = System.currentTimeMillis() - cached.cachedAtMillis() < ttlSeconds * 1000;
+        if (tokenValid && fresh) {
+            return cached.calendar();
+        }
+        clients.remove(userId, cached);
+        return null;
+    }
+
+    public void put(Long userId, Calendar calendar, LocalDateTime tokenExpiresAt) {
+        clients.put(userId, new CachedClient(calendar, tokenExpiresAt, System.currentTimeMillis()));
+    }
+
+    public void evict(Long userId) {
+        clients.remove(userId);
+    }
+
+    private record CachedClient(Calendar calendar, LocalDateTime tokenExpiresAt, long cachedAtMillis) {
+    }
+}
@@ -0,0 +1,300 @@
+package com.bookfast.backend.provider.service;
+
+import com.bookfast.backend.common.util.ClaimedWork;
+import com.bookfast.backend.provider.model.CalendarSyncEntry;
+import com.bookfast.backend.provider.repository.CalendarSyncEntryRepository;
+import com.bookfast.backend.provider.service.GoogleCalendarService.ChangeType;
+import com.bookfast.backend.provider.service.GoogleCalendarService.EventChange;
+import com.bookfast.backend.provider.service.GoogleCalendarService.EventChangeResult;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps provider and customer Google Calendars in line with their bookings.
+ *
+ * Booking writes only mark (booking, user) dirty in calendar_sync_entry. flush() claims dirty
+ * entries, compares each with the current booking and its stored event id, and sends the resulting
+ * insert/patch/delete operations per user through the Calendar batch endpoint. Changes made between
+ * two flushes coalesce into one operation (create + update is one insert, create + delete is none).
+ * Each user's calendar is rate-limited with a token bucket; entries over the limit wait for the
+ * next flush.
+ */
+@Service
+public class CalendarSyncService {
+    private final CalendarSyncEntryRepository entryRepository;
+    private final BookingRepository bookingRepository;
+    private final GoogleCalendarService googleCalendarService;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, RateBucket> buckets = new ConcurrentHashMap<>();
+
+    @Value("${google.calendar.sync.enabled:true}")
+    private boolean enabled;
+
+    @Value("${google.calendar.sync.batch-size:200}")
+    private int batchSize;
+
+    @Value("${google.calendar.sync.user-ops-per-second:5}")
+    private double userOpsPerSecond;
+
+    @Value("${google.calendar.sync.user-burst:50}")
+    private int userBurst;
+
+    @Value("${google.calendar.sync.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${google.calendar.sync.backoff-base-ms:5000}")
+    private long backoffBaseMs;
+
+    @Value("${google.calendar.sync.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${google.calendar.sync.stale-after-ms:300000}")
+    private long staleAfterMs;
+
+    public CalendarSyncService(CalendarSyncEntryRepository entryRepository, BookingRepository bookingRepository,
+                               GoogleCalendarService googleCalendarService, TransactionTemplate transactionTemplate) {
+        this.entryRepository = entryRepository;
+        this.bookingRepository = bookingRepository;
+        this.googleCalendarService = googleCalendarService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Queue a calendar sync of the booking for its provider and its customer. Must be called inside
+     * the transaction that changes (or deletes) the booking.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingChanged(Booking booking) {
+        if (booking.getId() == null) {
+            return;
+        }
+        if (booking.getResource() != null && booking.getResource().getProviderId() != null) {
+            markDirty(booking.getId(), booking.getResource().getProviderId(), CalendarSyncEntry.ROLE_PROVIDER);
+        }
+        if (booking.getCustomerId() != null) {
+            markDirty(booking.getId(), booking.getCustomerId(), CalendarSyncEntry.ROLE_CUSTOMER);
+        }
+    }
+
+    public void markDirty(Long bookingId, Long userId, String role) {
+        entryRepository.markDirty(bookingId, userId, role, LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelayString = "${google.calendar.sync.flush-interval-ms:2000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime claimedAt = ClaimedWork.claimTimestamp();
+        List<CalendarSyncEntry> claimed;
+        try {
+            claimed = claim(claimedAt);
+        } catch (Exception e) {
+            System.err.println("[CalendarSyncService] Failed to claim calendar sync entries: " + e.getMessage());
+            return;
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+        Map<Long, List<CalendarSyncEntry>> byUser = new LinkedHashMap<>();
+        for (CalendarSyncEntry entry : claimed) {
+            byUser.computeIfAbsent(entry.getUserId(), id -> new ArrayList<>()).add(entry);
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        byUser.forEach((userId, entries) -> tasks.add(() -> {
+            flushUser(userId, entries, claimedAt);
+            return null;
+        }));
+        try {
+            // Users are independent; one slow calendar does not hold up the others
+            executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<CalendarSyncEntry> claim(LocalDateTime claimedAt) {
+        return transactionTemplate.execute(status -> {
+            List<CalendarSyncEntry> entries = entryRepository.lockDueEntries(claimedAt,
+                claimedAt.minus(staleAfterMs, ChronoUnit.MILLIS), batchSize);
+            for (CalendarSyncEntry entry : entries) {
+                entry.setClaimedAt(claimedAt);
+            }
+            return entryRepository.saveAll(entries);
+        });
+    }
+
+    private void flushUser(Long userId, List<CalendarSyncEntry> entries, LocalDateTime claimedAt) {
+        int allowed = buckets.computeIfAbsent(userId, id -> new RateBucket(userBurst)).take(entries.size(), userOpsPerSecond, userBurst);
+        if (allowed < entries.size()) {
+            List<Long> deferred = entries.subList(allowed, entries.size()).stream().map(CalendarSyncEntry::getId).toList();
+            entryRepository.release(deferred, claimedAt, LocalDateTime.now().plusSeconds(1));
+            entries = entries.subList(0, allowed);
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            if (!isCalendarConnected(userId)) {
+                // Nothing to sync into; keep the stored event ids in case the calendar is reconnected
+                for (CalendarSyncEntry entry : entries) {
+                    entryRepository.markSynced(entry.getId(), claimedAt, entry.getVersion(), entry.getGoogleEventId(), LocalDateTime.now());
+                }
+                return;
+            }
+            Map<Long, Booking> bookings = new HashMap<>();
+            for (Booking booking : bookingRepository.findAllById(entries.stream().map(CalendarSyncEntry::getBookingId).toList())) {
+                bookings.put(booking.getId(), booking);
+            }
+
+            List<CalendarSyncEntry> pending = new ArrayList<>();
+            List<EventChange> changes = new ArrayList<>();
+            for (CalendarSyncEntry entry : entries) {
+                EventChange change = planChange(entry, bookings.get(entry.getBookingId()));
+                if (change == null) {
+                    // Booking gone before its event was ever created
+                    completeDeleted(entry, claimedAt);
+                } else {
+                    pending.add(entry);
+                    changes.add(change);
+                }
+            }
+            if (changes.isEmpty()) {
+                return;
+            }
+            List<EventChangeResult> results = googleCalendarService.applyChanges(userId, changes);
+            for (int i = 0; i < pending.size(); i++) {
+                complete(pending.get(i), changes.get(i), results.get(i), claimedAt);
+            }
+            System.out.println("[CalendarSyncService] Synced " + changes.size() + " calendar changes for user " + userId);
+        } catch (Exception e) {
+            for (CalendarSyncEntry entry : entries) {
+                recordFailure(entry, claimedAt, e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean isCalendarConnected(Long userId) {
+        try {
+            return googleCalendarService.isCalendarConnected(userId);
+        } catch (RuntimeException e) {
+            // User deleted
+            return false;
+        }
+    }
+
+    /**
+     * The single operation that brings the calendar in line with the booking, or null if there is
+     * nothing to do. A booking that is deleted or cancelled should have no event.
+     */
+    static EventChange planChange(CalendarSyncEntry entry, Booking booking) {
+        boolean wanted = booking != null && !"cancelled".equalsIgnoreCase(booking.getStatus())
+            && booking.getStartTime() != null && booking.getEndTime() != null;
+        if (wanted) {
+            String title = calendarTitle(booking, entry.getRole());
+            return entry.getGoogleEventId() == null
+                ? new EventChange(ChangeType.INSERT, null, title, booking.getStartTime(), booking.getEndTime())
+                : new EventChange(ChangeType.PATCH, entry.getGoogleEventId(), title, booking.getStartTime(), booking.getEndTime());
+        }
+        return entry.getGoogleEventId() == null ? null
+            : new EventChange(ChangeType.DELETE, entry.getGoogleEventId(), null, null, null);
+    }
+
+    static String calendarTitle(Booking booking, String role) {
+        String resourceName = booking.getResource() != null ? booking.getResource().getName() : "Service";
+        return CalendarSyncEntry.ROLE_PROVIDER.equals(role)
+            ? String.format("BookFast: %s - %s", resourceName, booking.getCustomerName())
+            : String.format("BookFast Booking: %s", resourceName);
+    }
+
+    private void complete(CalendarSyncEntry entry, EventChange change, EventChangeResult result, LocalDateTime claimedAt) {
+        LocalDateTime now = LocalDateTime.now();
+        if (result.success()) {
+            if (change.type() == ChangeType.DELETE) {
+                completeDeleted(entry, claimedAt);
+            } else {
+                entryRepository.markSynced(entry.getId(), claimedAt, entry.getVersion(), result.eventId(), now);
+            }
+        } else if (change.type() == ChangeType.PATCH && GoogleCalendarService.isGone(result.statusCode())) {
+            // The user deleted the event in Google Calendar; forget it so the next flush re-creates it
+            entryRepository.forgetEvent(entry.getId(), claimedAt, now);
+        } else {
+            recordFailure(entry, claimedAt, result.statusCode() + ": " + result.error());
+        }
+    }
+
+    private void completeDeleted(CalendarSyncEntry entry, LocalDateTime claimedAt) {
+        if (entryRepository.deleteSynced(entry.getId(), claimedAt, entry.getVersion()) == 0) {
+            // Changed again meanwhile: the event is gone, the next flush decides from the new state
+            entryRepository.forgetEvent(entry.getId(), claimedAt, LocalDateTime.now());
+        }
+    }
+
+    private void recordFailure(CalendarSyncEntry entry, LocalDateTime claimedAt, String message) {
+        int attempts = entry.getAttempts() + 1;
+        boolean dead = attempts >= maxAttempts;
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(ClaimedWork.backoff(backoffBaseMs, backoffMaxMs, attempts), ChronoUnit.MILLIS);
+        try {
+            // Giving up clears dirty; the next change of the booking starts over
+            entryRepository.markFailed(entry.getId(), claimedAt, !dead, attempts, nextAttemptAt, message, LocalDateTime.now());
+        } catch (Exception e) {
+            // The claim goes stale and the entry is retried later
+            System.err.println("[CalendarSyncService] Failed to record failure of entry " + entry.getId() + ": " + e.getMessage());
+        }
+        System.err.println("[CalendarSyncService] Calendar sync of booking " + entry.getBookingId() + " for user " + entry.getUserId()
+            + (dead ? " gave up after " + attempts + " attempts: " : " failed, attempt " + attempts + ": ") + message);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("dirtyEntries", entryRepository.countByDirtyTrue());
+        stats.put("rateLimitedUsers", buckets.size());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ClaimedWork.shutdown(executor);
+    }
+
+    /**
+     * Token bucket: refills at ratePerSecond up to burst, each operation takes one token.
+     */
+    private static final class RateBucket {
+        private double tokens;
+        private long refilledAtNanos = System.nanoTime();
+
+        RateBucket(int burst) {
+            this.tokens = burst;
+        }
+
+        synchronized int take(int wanted, double ratePerSecond, int burst) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAtNanos) / 1e9 * ratePerSecond);
+            refilledAtNanos = now;
+            int granted = (int) Math.min(wanted, Math.floor(tokens));
+            tokens -= granted;
+            return granted;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.bookfast.backend.provider.service;
+
+import com.bookfast.backend.common.config.GoogleCalendarConfig;
+import com.bookfast.backend.common.model.CalendarToken;
+import com.bookfast.backend.common.repository.CalendarTokenRepository;
+import com.bookfast.backend.common.repository.UserRepository;
+import com.bookfast.backend.common.util.ClaimedWork;
+import com.google.api.client.auth.oauth2.TokenResponse;
+import com.google.api.client.auth.oauth2.TokenResponseException;
+import com.google.api.client.googleapis.auth.oauth2.GoogleRefreshTokenRequest;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Renews Google access tokens in the background, shortly before they expire.
+ *
+ * The scheduler claims tokens expiring within refresh-ahead-seconds (SKIP LOCKED plus a lease, so
+ * instances do not refresh the same token). Calendar calls that find a token about to expire only
+ * request a refresh and never wait for it. Refreshes are single-flight per token: a scheduler run
+ * and a request racing for the same token share one call to Google. A refresh token the user has
+ * revoked deactivates the token and marks the calendar disconnected.
+ */
+@Service
+public class CalendarTokenRefresher {
+    private final CalendarTokenRepository tokenRepository;
+    private final UserRepository userRepository;
+    private final GoogleCalendarConfig config;
+    private final HttpTransport httpTransport;
+    private final TransactionTemplate transactionTemplate;
+    private final CalendarClientCache clientCache;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore concurrency;
+    private final Map<Long, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder refreshed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder revoked = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder latencyTotalMs = new LongAdder();
+    private final AtomicLong latencyMaxMs = new AtomicLong();
+
+    @Value("${google.calendar.token-refresh.enabled:true}")
+    private boolean enabled;
+
+    @Value("${google.calendar.token-refresh.ahead-seconds:600}")
+    private long refreshAheadSeconds;
+
+    @Value("${google.calendar.token-refresh.batch-size:100}")
+    private int batchSize;
+
+    @Value("${google.calendar.token-refresh.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${google.calendar.token-refresh.backoff-base-seconds:30}")
+    private long backoffBaseSeconds;
+
+    @Value("${google.calendar.token-refresh.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    public CalendarTokenRefresher(CalendarTokenRepository tokenRepository, UserRepository userRepository,
+                                  GoogleCalendarConfig config, HttpTransport httpTransport,
+                                  TransactionTemplate transactionTemplate, CalendarClientCache clientCache,
+                                  @Value("${google.calendar.token-refresh.concurrency:4}") int concurrency) {
+        this.tokenRepository = tokenRepository;
+        this.userRepository = userRepository;
+        this.config = config;
+        this.httpTransport = httpTransport;
+        this.transactionTemplate = transactionTemplate;
+        this.clientCache = clientCache;
+        this.concurrency = new Semaphore(concurrency);
+    }
+
+    public long getRefreshAheadSeconds() {
+        return refreshAheadSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${google.calendar.token-refresh.poll-interval-ms:60000}")
+    public void refreshExpiring() {
+        if (!enabled) {
+            return;
+        }
+        List<RefreshTarget> due;
+        try {
+            due = claim();
+        } catch (Exception e) {
+            System.err.println("[CalendarTokenRefresher] Failed to claim expiring tokens: " + e.getMessage());
+            return;
+        }
+        for (RefreshTarget target : due) {
+            refreshAsync(target);
+        }
+    }
+
+    private List<RefreshTarget> claim() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<RefreshTarget> targets = new ArrayList<>();
+            for (CalendarToken token : tokenRepository.lockDueForRefresh(now.plusSeconds(refreshAheadSeconds), now, batchSize)) {
+                token.setNextRefreshAt(now.plusSeconds(leaseSeconds));
+                targets.add(RefreshTarget.of(token));
+            }
+            return targets;
+        });
+    }
+
+    /**
+     * Request a refresh of the token without waiting for it. Does nothing while the token is
+     * backing off after failed refreshes or has no refresh token.
+     */
+    public void refreshInBackground(CalendarToken token) {
+        if (!enabled || token.getRefreshToken() == null) {
+            return;
+        }
+        if (token.getNextRefreshAt() != null && token.getNextRefreshAt().isAfter(LocalDateTime.now())) {
+            return;
+        }
+        refreshAsync(RefreshTarget.of(token));
+    }
+
+    /**
+     * Single-flight: joins the refresh already running for the token, or starts one. Completes
+     * with whether the token was renewed.
+     */
+    CompletableFuture<Boolean> refreshAsync(RefreshTarget target) {
+        CompletableFuture<Boolean> created = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = inFlight.putIfAbsent(target.tokenId(), created);
+        if (running != null) {
+            deduplicated.increment();
+            return running;
+        }
+        executor.submit(() -> {
+            try {
+                created.complete(refresh(target));
+            } catch (Throwable t) {
+                created.complete(false);
+            } finally {
+                inFlight.remove(target.tokenId(), created);
+            }
+        });
+        return created;
+    }
+
+    private boolean refresh(RefreshTarget target) throws InterruptedException {
+        concurrency.acquire();
+        long started = System.nanoTime();
+        try {
+            GoogleRefreshTokenRequest request = new GoogleRefreshTokenRequest(httpTransport, GsonFactory.getDefaultInstance(),
+                target.refreshToken(), config.getClientId(), config.getClientSecret());
+            if (config.getTokenUri() != null && !config.getTokenUri().isBlank()) {
+                request.setTokenServerUrl(new GenericUrl(config.getTokenUri()));
+            }
+            TokenResponse response = request.execute();
+            LocalDateTime now = LocalDateTime.now();
+            long expiresIn = response.getExpiresInSeconds() != null ? response.getExpiresInSeconds() : 3600;
+            tokenRepository.recordRefresh(target.tokenId(), response.getAccessToken(), response.getRefreshToken(),
+                expiresIn, now.plusSeconds(expiresIn), now);
+            // The cached client still carries the old access token
+            clientCache.evict(target.userId());
+            refreshed.increment();
+            return true;
+        } catch (TokenResponseException e) {
+            if (e.getDetails() != null && "invalid_grant".equals(e.getDetails().getError())) {
+                revoke(target, e.getDetails().getError() + ": " + e.getDetails().getErrorDescription());
+            } else {
+                recordFailure(target, "TokenResponseException: " + e.getMessage());
+            }
+            return false;
+        } catch (Exception e) {
+            recordFailure(target, e.getClass().getSimpleName() + ": " + e.getMessage());
+            return false;
+        } finally {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+            latencyTotalMs.add(elapsedMs);
+            latencyMaxMs.accumulateAndGet(elapsedMs, Math::max);
+            concurrency.release();
+        }
+    }
+
+    private void revoke(RefreshTarget target, String error) {
+        revoked.increment();
+        System.err.println("[CalendarTokenRefresher] Refresh token of user " + target.userId() + " was revoked, disconnecting calendar");
+        tokenRepository.deactivate(target.tokenId(), error, LocalDateTime.now());
+        clientCache.evict(target.userId());
+        userRepository.findById(target.userId()).ifPresent(user -> {
+            user.setCalendarConnected(false);
+            userRepository.save(user);
+        });
+    }
+
+    private void recordFailure(RefreshTarget target, String message) {
+        failed.increment();
+        int failures = target.failures() + 1;
+        long delay = ClaimedWork.backoff(backoffBaseSeconds, backoffMaxSeconds, failures);
+        try {
+            tokenRepository.recordRefreshFailure(target.tokenId(), failures, LocalDateTime.now().plusSeconds(delay), message);
+        } catch (Exception e) {
+            // The lease runs out and the token is claimed again
+            System.err.println("[CalendarTokenRefresher] Failed to record refresh failure: " + e.getMessage());
+        }
+        System.err.println("[CalendarTokenRefresher] Refresh for user " + target.userId() + " failed, attempt " + failures
+            + ", retrying in " + delay + "s: " + message);
+    }
+
+    public Map<String, Object> stats() {
+        long attempts = refreshed.sum() + failed.sum() + revoked.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("refreshed", refreshed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("revoked", revoked.sum());
+        stats.put("deduplicated", deduplicated.sum());
+        stats.put("inFlight", inFlight.size());
+        stats.put("averageLatencyMs", attempts > 0 ? (double) latencyTotalMs.sum() / attempts : 0.0);
+        stats.put("maxLatencyMs", latencyMaxMs.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ClaimedWork.shutdown(executor);
+    }
+
+    record RefreshTarget(Long tokenId, Long userId, String refreshToken, int failures) {
+        static RefreshTarget of(CalendarToken token) {
+            return new RefreshTarget(token.getId(), token.getUser().getId(), token.getRefreshToken(),
+                token.getRefreshFailures() != null ? token.getRefreshFailures() : 0);
+        }
+    }
+}
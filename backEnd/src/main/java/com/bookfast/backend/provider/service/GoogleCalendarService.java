@@ -5,29 +5,38 @@ import com.bookfast.backend.common.model.CalendarToken;
 import com.bookfast.backend.common.model.User;
 import com.bookfast.backend.common.repository.CalendarTokenRepository;
 import com.bookfast.backend.common.repository.UserRepository;
+import com.google.api.client.auth.oauth2.BearerToken;
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.auth.oauth2.TokenResponse;
 import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
 import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
-import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
-import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.DateTime;
 import com.google.api.services.calendar.Calendar;
 import com.google.api.services.calendar.CalendarScopes;
 import com.google.api.services.calendar.model.Event;
 import com.google.api.services.calendar.model.EventDateTime;
+import com.google.api.services.calendar.model.Events;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
-import java.security.GeneralSecurityException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -35,6 +44,10 @@ public class GoogleCalendarService {
     private static final String APPLICATION_NAME = "BookFast Calendar Integration";
     private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
     private static final List<String> SCOPES = Collections.singletonList(CalendarScopes.CALENDAR);
+    // Google recommends at most 50 calls per Calendar batch request
+    static final int BATCH_LIMIT = 50;
+    private static final int LIST_PAGE_SIZE = 250;
+    private static final String BOOKFAST_EVENT_PROPERTY = "bookfast";
 
     @Autowired
     private GoogleCalendarConfig config;
@@ -48,6 +61,23 @@ public class GoogleCalendarService {
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private CalendarTokenRefresher tokenRefresher;
+
+    @Autowired
+    private CalendarClientCache clientCache;
+
+    // Shared, pooled transport from GoogleCalendarConfig
+    @Autowired
+    private HttpTransport httpTransport;
+
+    // Overrides the Google API root, e.g. to point at a local stub server
+    @Value("${google.calendar.api.root-url:}")
+    private String apiRootUrl;
+
+    // Built on first use; immutable and shared by all users
+    private volatile GoogleAuthorizationCodeFlow flow;
+
     /**
      * Validates if an email is a Gmail address
      */
@@ -68,21 +98,7 @@ public class GoogleCalendarService {
                 throw new IllegalArgumentException("Google Calendar integration requires a Gmail address");
             }
 
-            GoogleClientSecrets.Details details = new GoogleClientSecrets.Details();
-            details.setClientId(config.getClientId());
-            details.setClientSecret(config.getClientSecret());
-
-            GoogleClientSecrets clientSecrets = new GoogleClientSecrets();
-            clientSecrets.setWeb(details);
-
-            NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-            GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-                    httpTransport, JSON_FACTORY, clientSecrets, SCOPES)
-                    .setAccessType("offline")
-                    .setApprovalPrompt("force")
-                    .build();
-
-            return flow.newAuthorizationUrl()
+            return authorizationFlow().newAuthorizationUrl()
                     .setRedirectUri(config.getRedirectUri())
                     .setState(userId.toString())
                     .build();
@@ -96,21 +112,7 @@ public class GoogleCalendarService {
      */
     public String exchangeCodeForTokens(Long userId, String authCode) {
         try {
-            GoogleClientSecrets.Details details = new GoogleClientSecrets.Details();
-            details.setClientId(config.getClientId());
-            details.setClientSecret(config.getClientSecret());
-
-            GoogleClientSecrets clientSecrets = new GoogleClientSecrets();
-            clientSecrets.setWeb(details);
-
-            NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-            GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-                    httpTransport, JSON_FACTORY, clientSecrets, SCOPES)
-                    .setAccessType("offline")
-                    .setApprovalPrompt("force")
-                    .build();
-
-            TokenResponse tokenResponse = flow.newTokenRequest(authCode)
+            TokenResponse tokenResponse = authorizationFlow().newTokenRequest(authCode)
                     .setRedirectUri(config.getRedirectUri())
                     .execute();
 
@@ -132,6 +134,11 @@ public class GoogleCalendarService {
             token.setCalendarId("primary");
             token.setIsActive(true);
             token.setUpdatedAt(LocalDateTime.now());
+            // The connected account may have changed: pull its busy time from scratch, right away
+            token.setSyncToken(null);
+            token.setLastFullSyncAt(null);
+            token.setNextPullAt(null);
+            token.setPullAttempts(0);
 
             tokenRepository.save(token);
 
@@ -140,6 +147,8 @@ public class GoogleCalendarService {
             user.setCalendarEmail(user.getEmail());
             user.setGoogleCalendarId("primary");
             userRepository.save(user);
+            // A client built from an earlier connection must not be reused
+            clientCache.evict(userId);
 
             return "Google Calendar connected successfully! Your calendar is now synced with BookFast.";
         } catch (Exception e) {
@@ -152,23 +161,7 @@ public class GoogleCalendarService {
      */
     public String createCalendarEvent(Long userId, String title, LocalDateTime startTime, LocalDateTime endTime) {
         try {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            CalendarToken token = tokenRepository.findValidTokenByUser(user)
-                    .orElseThrow(() -> new RuntimeException("No valid calendar token found"));
-
-            // Refresh token if expired
-            if (token.isExpired()) {
-                refreshAccessToken(token);
-            }
-
-            NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-            Credential credential = createCredential(httpTransport, token);
-
-            Calendar service = new Calendar.Builder(httpTransport, JSON_FACTORY, credential)
-                    .setApplicationName(APPLICATION_NAME)
-                    .build();
+            Calendar service = calendarFor(userId);
 
             Event event = new Event()
                     .setSummary(title)
@@ -201,22 +194,7 @@ public class GoogleCalendarService {
      */
     public void updateCalendarEvent(Long userId, String eventId, String title, LocalDateTime startTime, LocalDateTime endTime) {
         try {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            CalendarToken token = tokenRepository.findValidTokenByUser(user)
-                    .orElseThrow(() -> new RuntimeException("No valid calendar token found"));
-
-            if (token.isExpired()) {
-                refreshAccessToken(token);
-            }
-
-            NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-            Credential credential = createCredential(httpTransport, token);
-
-            Calendar service = new Calendar.Builder(httpTransport, JSON_FACTORY, credential)
-                    .setApplicationName(APPLICATION_NAME)
-                    .build();
+            Calendar service = calendarFor(userId);
 
             Event event = service.events().get("primary", eventId).execute();
             event.setSummary(title);
@@ -242,22 +220,7 @@ public class GoogleCalendarService {
      */
     public void deleteCalendarEvent(Long userId, String eventId) {
         try {
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-
-            CalendarToken token = tokenRepository.findValidTokenByUser(user)
-                    .orElseThrow(() -> new RuntimeException("No valid calendar token found"));
-
-            if (token.isExpired()) {
-                refreshAccessToken(token);
-            }
-
-            NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-            Credential credential = createCredential(httpTransport, token);
-
-            Calendar service = new Calendar.Builder(httpTransport, JSON_FACTORY, credential)
-                    .setApplicationName(APPLICATION_NAME)
-                    .build();
+            Calendar service = calendarFor(userId);
 
             service.events().delete("primary", eventId).execute();
             
@@ -268,6 +231,133 @@ public class GoogleCalendarService {
         }
     }
 
+    /**
+     * Applies the changes to the user's primary calendar with the Calendar batch endpoint, up to
+     * BATCH_LIMIT operations per HTTP request. Results are returned in the order of the changes;
+     * a failure of the whole request (network, auth) is thrown.
+     */
+    public List<EventChangeResult> applyChanges(Long userId, List<EventChange> changes) throws IOException {
+        return executeBatch(calendarFor(userId), changes);
+    }
+
+    static List<EventChangeResult> executeBatch(Calendar service, List<EventChange> changes) throws IOException {
+        EventChangeResult[] results = new EventChangeResult[changes.size()];
+        for (int from = 0; from < changes.size(); from += BATCH_LIMIT) {
+            BatchRequest batch = service.batch();
+            for (int i = from; i < Math.min(from + BATCH_LIMIT, changes.size()); i++) {
+                queue(service, batch, changes.get(i), results, i);
+            }
+            batch.execute();
+        }
+        return List.of(results);
+    }
+
+    private static void queue(Calendar service, BatchRequest batch, EventChange change,
+                              EventChangeResult[] results, int index) throws IOException {
+        switch (change.type()) {
+            case INSERT -> service.events().insert("primary", toEvent(change))
+                    .queue(batch, callback(results, index, change));
+            // patch sends only the fields we own and needs no prior read of the event
+            case PATCH -> service.events().patch("primary", change.eventId(), toEvent(change))
+                    .queue(batch, callback(results, index, change));
+            case DELETE -> service.events().delete("primary", change.eventId())
+                    .queue(batch, new JsonBatchCallback<Void>() {
+                        @Override
+                        public void onSuccess(Void unused, HttpHeaders headers) {
+                            results[index] = EventChangeResult.ok(null);
+                        }
+
+                        @Override
+                        public void onFailure(GoogleJsonError error, HttpHeaders headers) {
+                            // Already gone is what we wanted
+                            results[index] = isGone(error.getCode())
+                                    ? EventChangeResult.ok(null) : EventChangeResult.failed(error.getCode(), error.getMessage());
+                        }
+                    });
+        }
+    }
+
+    private static JsonBatchCallback<Event> callback(EventChangeResult[] results, int index, EventChange change) {
+        return new JsonBatchCallback<>() {
+            @Override
+            public void onSuccess(Event event, HttpHeaders headers) {
+                results[index] = EventChangeResult.ok(event.getId() != null ? event.getId() : change.eventId());
+            }
+
+            @Override
+            public void onFailure(GoogleJsonError error, HttpHeaders headers) {
+                results[index] = EventChangeResult.failed(error.getCode(), error.getMessage());
+            }
+        };
+    }
+
+    private static Event toEvent(EventChange change) {
+        return new Event()
+                .setSummary(change.title())
+                .setDescription("BookFast Booking - " + change.title())
+                .setStart(new EventDateTime().setDateTime(toDateTime(change.startTime())))
+                .setEnd(new EventDateTime().setDateTime(toDateTime(change.endTime())))
+                // Lets the inbound busy-time sync recognize and skip our own booking events
+                .setExtendedProperties(new Event.ExtendedProperties().setPrivate(Map.of(BOOKFAST_EVENT_PROPERTY, "booking")));
+    }
+
+    public static boolean isBookFastEvent(Event event) {
+        return event.getExtendedProperties() != null && event.getExtendedProperties().getPrivate() != null
+                && event.getExtendedProperties().getPrivate().containsKey(BOOKFAST_EVENT_PROPERTY);
+    }
+
+    /**
+     * Events of the user's primary calendar that changed since syncToken, across all pages, plus the
+     * token for the next call. Without a token, or once Google has expired it (410 Gone), upcoming
+     * events are listed from scratch and the result is flagged as a full sync.
+     */
+    public EventChanges listChangedEvents(Long userId, String syncToken) throws IOException {
+        Calendar service = calendarFor(userId);
+        if (syncToken != null) {
+            try {
+                return listEvents(service, syncToken);
+            } catch (GoogleJsonResponseException e) {
+                if (e.getStatusCode() != 410) {
+                    throw e;
+                }
+                System.out.println("[GoogleCalendarService] Sync token expired for user " + userId + ", listing all events");
+            }
+        }
+        return listEvents(service, null);
+    }
+
+    static EventChanges listEvents(Calendar service, String syncToken) throws IOException {
+        List<Event> events = new ArrayList<>();
+        String pageToken = null;
+        Events page;
+        do {
+            Calendar.Events.List request = service.events().list("primary")
+                    .setSingleEvents(true)
+                    .setMaxResults(LIST_PAGE_SIZE)
+                    .setPageToken(pageToken);
+            if (syncToken != null) {
+                request.setSyncToken(syncToken);
+            } else {
+                // Past busy time never blocks a booking
+                request.setTimeMin(new DateTime(System.currentTimeMillis()));
+            }
+            page = request.execute();
+            if (page.getItems() != null) {
+                events.addAll(page.getItems());
+            }
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
+        return new EventChanges(events, page.getNextSyncToken(), syncToken == null);
+    }
+
+    private static DateTime toDateTime(LocalDateTime time) {
+        return new DateTime(time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    static boolean isGone(int statusCode) {
+        return statusCode == 404 || statusCode == 410;
+    }
+
     /**
      * Disconnects user's Google Calendar
      */
@@ -288,6 +378,8 @@ public class GoogleCalendarService {
         user.setCalendarEmail(null);
         user.setGoogleCalendarId(null);
         userRepository.save(user);
+        // After the tokens are inactive, so a concurrent call cannot cache a client from them again
+        clientCache.evict(userId);
     }
 
     /**
@@ -299,30 +391,97 @@ public class GoogleCalendarService {
         return user.getCalendarConnected() != null && user.getCalendarConnected();
     }
 
-    private Credential createCredential(NetHttpTransport httpTransport, CalendarToken token) throws IOException {
-        GoogleClientSecrets.Details details = new GoogleClientSecrets.Details();
-        details.setClientId(config.getClientId());
-        details.setClientSecret(config.getClientSecret());
-
-        GoogleClientSecrets clientSecrets = new GoogleClientSecrets();
-        clientSecrets.setWeb(details);
-
-        GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-                httpTransport, JSON_FACTORY, clientSecrets, SCOPES)
-                .setAccessType("offline")
-                .build();
-
-        return flow.createAndStoreCredential(
-                new TokenResponse()
-                        .setAccessToken(token.getAccessToken())
-                        .setRefreshToken(token.getRefreshToken())
-                        .setExpiresInSeconds(token.getExpiresIn()),
-                token.getUser().getId().toString());
+    /**
+     * Calendar client of the user, built once and reused from CalendarClientCache until it expires
+     * or the token changes (reconnect, disconnect, refresh, revoke).
+     */
+    private Calendar calendarFor(Long userId) throws IOException {
+        Calendar cached = clientCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        CalendarToken token = tokenRepository.findByUserAndIsActiveTrue(user)
+                .orElseThrow(() -> new RuntimeException("No valid calendar token found"));
+
+        // Renewal happens in the background; this call never waits for it
+        if (token.expiresWithin(tokenRefresher.getRefreshAheadSeconds())) {
+            tokenRefresher.refreshInBackground(token);
+        }
+        if (token.isExpired()) {
+            throw new IllegalStateException("Calendar access token expired, a refresh has been requested");
+        }
+
+        Credential credential = createCredential(token);
+        Calendar.Builder builder = new Calendar.Builder(httpTransport, JSON_FACTORY, credential)
+                .setApplicationName(APPLICATION_NAME);
+        if (apiRootUrl != null && !apiRootUrl.isBlank()) {
+            builder.setRootUrl(apiRootUrl);
+        }
+        Calendar calendar = builder.build();
+        clientCache.put(userId, calendar, token.getExpiresAt());
+        return calendar;
     }
 
-    private void refreshAccessToken(CalendarToken token) {
-        // Implementation for token refresh would go here
-        // For now, we'll just log that refresh is needed
-        System.out.println("Token refresh needed for user: " + token.getUser().getEmail());
+    private GoogleAuthorizationCodeFlow authorizationFlow() {
+        GoogleAuthorizationCodeFlow current = flow;
+        if (current == null) {
+            GoogleClientSecrets.Details details = new GoogleClientSecrets.Details();
+            details.setClientId(config.getClientId());
+            details.setClientSecret(config.getClientSecret());
+
+            GoogleClientSecrets clientSecrets = new GoogleClientSecrets();
+            clientSecrets.setWeb(details);
+
+            current = new GoogleAuthorizationCodeFlow.Builder(
+                    httpTransport, JSON_FACTORY, clientSecrets, SCOPES)
+                    .setAccessType("offline")
+                    .setApprovalPrompt("force")
+                    .build();
+            flow = current;
+        }
+        return current;
+    }
+
+    /**
+     * Access token only: without a refresh token the credential can never refresh inline while
+     * serving a call. CalendarTokenRefresher renews tokens before they expire.
+     */
+    private Credential createCredential(CalendarToken token) {
+        Credential credential = new Credential(BearerToken.authorizationHeaderAccessMethod())
+                .setAccessToken(token.getAccessToken());
+        if (token.getExpiresAt() != null) {
+            credential.setExpirationTimeMilliseconds(token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        return credential;
+    }
+
+    public enum ChangeType { INSERT, PATCH, DELETE }
+
+    /**
+     * One change to a calendar event; eventId is null for INSERT, title and times are unused for DELETE.
+     */
+    public record EventChange(ChangeType type, String eventId, String title, LocalDateTime startTime, LocalDateTime endTime) {
+    }
+
+    /**
+     * Outcome of one EventChange: the event id on success, otherwise the HTTP status and message.
+     */
+    public record EventChangeResult(boolean success, String eventId, int statusCode, String error) {
+        static EventChangeResult ok(String eventId) {
+            return new EventChangeResult(true, eventId, 200, null);
+        }
+
+        static EventChangeResult failed(int statusCode, String error) {
+            return new EventChangeResult(false, null, statusCode, error);
+        }
+    }
+
+    /**
+     * Changed events and the sync token to pass next time; fullSync means events lists everything.
+     */
+    public record EventChanges(List<Event> events, String nextSyncToken, boolean fullSync) {
     }
 }
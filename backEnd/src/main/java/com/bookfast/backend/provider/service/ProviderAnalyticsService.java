@@ -1,15 +1,15 @@
 package com.bookfast.backend.provider.service;
 
-import com.bookfast.backend.resource.model.Booking;
-import com.bookfast.backend.resource.model.Payment;
+import com.bookfast.backend.provider.repository.BookingDailyRollupRepository;
 import com.bookfast.backend.resource.model.Resource;
-import com.bookfast.backend.resource.model.Review;
+import com.bookfast.backend.resource.model.RatingStats;
 import com.bookfast.backend.resource.repository.BookingRepository;
-import com.bookfast.backend.resource.repository.PaymentRepository;
 import com.bookfast.backend.resource.repository.ResourceRepository;
-import com.bookfast.backend.resource.repository.ReviewRepository;
+import com.bookfast.backend.resource.service.RatingAggregateService;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
@@ -21,17 +21,17 @@ public class ProviderAnalyticsService {
 
     private final ResourceRepository resourceRepository;
     private final BookingRepository bookingRepository;
-    private final PaymentRepository paymentRepository;
-    private final ReviewRepository reviewRepository;
+    private final BookingDailyRollupRepository rollupRepository;
+    private final RatingAggregateService ratingAggregates;
 
     public ProviderAnalyticsService(ResourceRepository resourceRepository,
                                    BookingRepository bookingRepository,
-                                   PaymentRepository paymentRepository,
-                                   ReviewRepository reviewRepository) {
+                                   BookingDailyRollupRepository rollupRepository,
+                                   RatingAggregateService ratingAggregates) {
         this.resourceRepository = resourceRepository;
         this.bookingRepository = bookingRepository;
-        this.paymentRepository = paymentRepository;
-        this.reviewRepository = reviewRepository;
+        this.rollupRepository = rollupRepository;
+        this.ratingAggregates = ratingAggregates;
     }
 
     public Map<String, Object> getProviderAnalytics(Long providerId, String period) {
@@ -40,90 +40,54 @@ public class ProviderAnalyticsService {
         LocalDateTime endDate = LocalDateTime.now();
         LocalDateTime startDate = endDate.minus(Integer.parseInt(period), ChronoUnit.DAYS);
 
-        // Get all resources for this provider
-        List<Resource> providerResources = resourceRepository.findByProviderId(providerId);
-        List<Long> resourceIds = providerResources.stream().map(Resource::getId).toList();
-
-        // Get all bookings for these resources
-        List<Booking> allBookings = bookingRepository.findAll().stream()
-                .filter(b -> b.getResource() != null && resourceIds.contains(b.getResource().getId()))
-                .toList();
-
-        // Filter bookings by period
-        List<Booking> periodBookings = allBookings.stream()
-                .filter(b -> b.getStartTime() != null && !b.getStartTime().isBefore(startDate))
-                .toList();
-
-        // Calculate booking statistics
-        analytics.put("totalBookings", allBookings.size());
-        analytics.put("periodBookings", periodBookings.size());
-        analytics.put("confirmedBookings", periodBookings.stream().filter(b -> "confirmed".equalsIgnoreCase(b.getStatus())).count());
-        analytics.put("cancelledBookings", periodBookings.stream().filter(b -> "cancelled".equalsIgnoreCase(b.getStatus())).count());
-        analytics.put("pendingBookings", periodBookings.stream().filter(b -> "pending".equalsIgnoreCase(b.getStatus())).count());
-
-        // Calculate revenue statistics using booking finalAmount (amount saved when booking is created)
-        // Include all bookings with finalAmount > 0 (regardless of status, as long as they have an amount)
-        // This ensures we capture all bookings that have payment amounts saved
-        List<Booking> bookingsWithAmount = allBookings.stream()
-                .filter(b -> b.getFinalAmount() != null && b.getFinalAmount() > 0)
-                .filter(b -> !"cancelled".equalsIgnoreCase(b.getStatus())) // Exclude cancelled bookings
-                .toList();
-        
-        List<Booking> periodBookingsWithAmount = periodBookings.stream()
-                .filter(b -> b.getFinalAmount() != null && b.getFinalAmount() > 0)
-                .filter(b -> !"cancelled".equalsIgnoreCase(b.getStatus())) // Exclude cancelled bookings
-                .toList();
-
-        // Debug logging
-        System.out.println("[ProviderAnalyticsService] Total bookings: " + allBookings.size());
-        System.out.println("[ProviderAnalyticsService] Bookings with amount: " + bookingsWithAmount.size());
-        System.out.println("[ProviderAnalyticsService] Period bookings: " + periodBookings.size());
-        System.out.println("[ProviderAnalyticsService] Period bookings with amount: " + periodBookingsWithAmount.size());
-        
-        // Log finalAmount for each booking with amount
-        bookingsWithAmount.forEach(b -> {
-            System.out.println("[ProviderAnalyticsService] Booking ID: " + b.getId() + 
-                ", Status: " + b.getStatus() + 
-                ", PaymentStatus: " + b.getPaymentStatus() + 
-                ", FinalAmount: " + b.getFinalAmount());
-        });
-
-        // Calculate total revenue from all bookings with amount (excluding cancelled)
-        double totalRevenue = bookingsWithAmount.stream()
-                .mapToDouble(b -> b.getFinalAmount())
-                .sum();
-        
-        // Calculate period revenue from bookings with amount in the period (excluding cancelled)
-        double periodRevenue = periodBookingsWithAmount.stream()
-                .mapToDouble(b -> b.getFinalAmount())
-                .sum();
-        
-        System.out.println("[ProviderAnalyticsService] Total Revenue: " + totalRevenue);
-        System.out.println("[ProviderAnalyticsService] Period Revenue: " + periodRevenue);
-
+        // Booking counts and revenue from the daily rollups: one row per resource, however many bookings
+        LocalDate fromDay = startDate.toLocalDate();
+        long totalBookings = 0, periodBookings = 0, confirmed = 0, cancelled = 0, pending = 0;
+        long periodBookingsWithAmount = 0;
+        double totalRevenue = 0, periodRevenue = 0;
+        Map<Long, Long> bookingsByResource = new HashMap<>();
+        for (Object[] row : rollupRepository.summarizeByResource(providerId, fromDay)) {
+            long resourceTotal = asLong(row[1]);
+            bookingsByResource.put((Long) row[0], resourceTotal);
+            totalBookings += resourceTotal;
+            totalRevenue += asDouble(row[3]);
+            periodBookings += asLong(row[4]);
+            confirmed += asLong(row[5]);
+            cancelled += asLong(row[6]);
+            pending += asLong(row[7]);
+            periodBookingsWithAmount += asLong(row[8]);
+            periodRevenue += asDouble(row[9]);
+        }
+
+        analytics.put("totalBookings", totalBookings);
+        analytics.put("periodBookings", periodBookings);
+        analytics.put("confirmedBookings", confirmed);
+        analytics.put("cancelledBookings", cancelled);
+        analytics.put("pendingBookings", pending);
+
+        System.out.println("[ProviderAnalyticsService] Provider " + providerId + ": total bookings " + totalBookings
+            + ", period bookings " + periodBookings + ", total revenue " + totalRevenue + ", period revenue " + periodRevenue);
+
+        // Revenue counts bookings with a positive finalAmount that are not cancelled
         analytics.put("totalRevenue", String.format("%.2f", totalRevenue));
         analytics.put("periodRevenue", String.format("%.2f", periodRevenue));
-        analytics.put("averageBookingValue", periodBookingsWithAmount.size() > 0 ? 
-            String.format("%.2f", periodRevenue / periodBookingsWithAmount.size()) : "0.00");
-
-        // Calculate review statistics
-        List<Review> allReviews = reviewRepository.findAll().stream()
-                .filter(r -> r.getResource() != null && resourceIds.contains(r.getResource().getId()))
-                .toList();
-        
-        double averageRating = allReviews.stream()
-                .filter(r -> r.getRating() != null)
-                .mapToDouble(Review::getRating)
-                .average()
-                .orElse(0.0);
+        analytics.put("averageBookingValue", periodBookingsWithAmount > 0 ? 
+            String.format("%.2f", periodRevenue / periodBookingsWithAmount) : "0.00");
 
-        analytics.put("averageRating", String.format("%.1f", averageRating));
-        analytics.put("totalReviews", allReviews.size());
+        // Review statistics from the materialized provider aggregate
+        RatingStats ratingStats = ratingAggregates.getProviderStats(providerId);
+        analytics.put("averageRating", String.format("%.1f", ratingStats.average()));
+        analytics.put("totalReviews", ratingStats.getRatingCount());
+        analytics.put("ratingHistogram", ratingStats.histogram());
 
         // Top 5 Resources by booking count
-        List<Map<String, Object>> topResources = allBookings.stream()
-                .filter(b -> b.getResource() != null)
-                .collect(Collectors.groupingBy(b -> b.getResource().getName(), Collectors.counting()))
+        Map<Long, String> resourceNames = new HashMap<>();
+        for (Resource resource : resourceRepository.findByProviderId(providerId)) {
+            resourceNames.put(resource.getId(), resource.getName());
+        }
+        List<Map<String, Object>> topResources = bookingsByResource.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0 && resourceNames.get(entry.getKey()) != null)
+                .collect(Collectors.groupingBy(entry -> resourceNames.get(entry.getKey()), Collectors.summingLong(Map.Entry::getValue)))
                 .entrySet().stream()
                 .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
                 .limit(5)
@@ -132,9 +96,7 @@ public class ProviderAnalyticsService {
         analytics.put("topResources", topResources);
 
         // Recent 5 Bookings
-        List<Map<String, Object>> recentBookings = allBookings.stream()
-                .sorted(Comparator.comparing(Booking::getStartTime, Comparator.nullsLast(Comparator.reverseOrder())))
-                .limit(5)
+        List<Map<String, Object>> recentBookings = bookingRepository.findRecentByProviderId(providerId, PageRequest.of(0, 5)).stream()
                 .map(b -> Map.of(
                         "id", (Object)b.getId(),
                         "customerName", (Object)b.getCustomerName(),
@@ -148,5 +110,13 @@ public class ProviderAnalyticsService {
 
         return analytics;
     }
+
+    private static long asLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static double asDouble(Object value) {
+        return value != null ? ((Number) value).doubleValue() : 0.0;
+    }
 }
 
@@ -0,0 +1,50 @@
+package com.bookfast.backend.resource.controller;
+
+import com.bookfast.backend.resource.dto.AvailabilityScheduleDTO;
+import com.bookfast.backend.resource.model.AvailabilityException;
+import com.bookfast.backend.resource.service.AvailabilityTemplateService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * A resource's recurring availability. The whole schedule (slot length, weekly hours, exceptions) is
+ * set with one PUT; single exceptions such as holidays can be added and removed on their own.
+ */
+@RestController
+@RequestMapping("/api/resources/{resourceId}/availability/schedule")
+public class AvailabilityScheduleController {
+    private final AvailabilityTemplateService templates;
+
+    public AvailabilityScheduleController(AvailabilityTemplateService templates) {
+        this.templates = templates;
+    }
+
+    @GetMapping
+    public ResponseEntity<AvailabilityScheduleDTO> getSchedule(@PathVariable Long resourceId) {
+        return ResponseEntity.ok(templates.getSchedule(resourceId));
+    }
+
+    @PutMapping
+    public ResponseEntity<AvailabilityScheduleDTO> replaceSchedule(@PathVariable Long resourceId,
+                                                                   @RequestBody AvailabilityScheduleDTO schedule) {
+        return ResponseEntity.ok(templates.replaceSchedule(resourceId, schedule));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> clearSchedule(@PathVariable Long resourceId) {
+        templates.clearSchedule(resourceId);
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/exceptions")
+    public ResponseEntity<AvailabilityException> addException(@PathVariable Long resourceId,
+                                                              @RequestBody AvailabilityException exception) {
+        return ResponseEntity.ok(templates.addException(resourceId, exception));
+    }
+
+    @DeleteMapping("/exceptions/{exceptionId}")
+    public ResponseEntity<?> deleteException(@PathVariable Long resourceId, @PathVariable Long exceptionId) {
+        templates.deleteException(resourceId, exceptionId);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -1,8 +1,16 @@
 package com.bookfast.backend.resource.controller;
 
+import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.common.repository.UserRepository;
+import com.bookfast.backend.resource.dto.AvailabilitySlotBulkRequest;
 import com.bookfast.backend.resource.model.AvailabilitySlot;
+import com.bookfast.backend.resource.service.AvailabilityBitmapService;
+import com.bookfast.backend.resource.service.AvailabilityBitmapService.FreeWindow;
 import com.bookfast.backend.resource.service.AvailabilitySlotService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -14,17 +22,72 @@ import java.util.Map;
 @RequestMapping("/api/resources/{resourceId}/availability")
 public class AvailabilitySlotController {
     private final AvailabilitySlotService availabilitySlotService;
+    private final AvailabilityBitmapService availabilityBitmaps;
+    private final UserRepository userRepository;
 
-    public AvailabilitySlotController(AvailabilitySlotService availabilitySlotService) {
+    public AvailabilitySlotController(AvailabilitySlotService availabilitySlotService,
+                                      AvailabilityBitmapService availabilityBitmaps, UserRepository userRepository) {
         this.availabilitySlotService = availabilitySlotService;
+        this.availabilityBitmaps = availabilityBitmaps;
+        this.userRepository = userRepository;
     }
 
+    /**
+     * Stored and virtual slots; the signed-in customer's own holds are not flagged as held.
+     */
     @GetMapping
     public ResponseEntity<List<AvailabilitySlot>> getAvailabilitySlots(@PathVariable Long resourceId) {
-        List<AvailabilitySlot> slots = availabilitySlotService.getAvailabilitySlotsForResource(resourceId);
+        List<AvailabilitySlot> slots = availabilitySlotService.getAvailabilitySlotsForResource(resourceId, currentCustomerId());
         return ResponseEntity.ok(slots);
     }
 
+    private Long currentCustomerId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication.getName() == null) {
+            return null;
+        }
+        return userRepository.findByEmail(authentication.getName()).map(User::getId).orElse(null);
+    }
+
+    /**
+     * Whether [startTime, endTime) on the date is free, answered from the availability bitmap.
+     */
+    @GetMapping("/free")
+    public ResponseEntity<Map<String, Object>> isFree(
+            @PathVariable Long resourceId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime endTime) {
+        boolean free = availabilityBitmaps.isFree(resourceId, date, startTime, endTime);
+        return ResponseEntity.ok(Map.of("free", free));
+    }
+
+    /**
+     * The earliest free window of the given length between from and to (inclusive), or 204 if none.
+     */
+    @GetMapping("/first-free")
+    public ResponseEntity<FreeWindow> findFirstFreeWindow(
+            @PathVariable Long resourceId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam int minutes,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime notBefore) {
+        return availabilityBitmaps.findFirstFreeWindow(resourceId, from, to, minutes, notBefore)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.noContent().build());
+    }
+
+    /**
+     * All free time between from and to (inclusive) as per-day windows.
+     */
+    @GetMapping("/free-windows")
+    public ResponseEntity<List<FreeWindow>> getFreeWindows(
+            @PathVariable Long resourceId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(availabilityBitmaps.getFreeWindows(resourceId, from, to));
+    }
+
     @GetMapping("/{slotId}")
     public ResponseEntity<AvailabilitySlot> getAvailabilitySlotById(@PathVariable Long slotId) {
         return availabilitySlotService.getAvailabilitySlotById(slotId)
@@ -50,6 +113,30 @@ public class AvailabilitySlotController {
         }
     }
 
+    /**
+     * Create many slots at once, listed or as a date range; all or none are stored.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<List<AvailabilitySlot>> createAvailabilitySlots(
+            @PathVariable Long resourceId,
+            @RequestBody AvailabilitySlotBulkRequest request) {
+        return ResponseEntity.ok(availabilitySlotService.createAvailabilitySlots(resourceId, request));
+    }
+
+    @PutMapping("/bulk")
+    public ResponseEntity<List<AvailabilitySlot>> updateAvailabilitySlots(
+            @PathVariable Long resourceId,
+            @RequestBody AvailabilitySlotBulkRequest request) {
+        return ResponseEntity.ok(availabilitySlotService.updateAvailabilitySlots(resourceId, request));
+    }
+
+    @DeleteMapping("/bulk")
+    public ResponseEntity<Map<String, Integer>> deleteAvailabilitySlots(
+            @PathVariable Long resourceId,
+            @RequestBody AvailabilitySlotBulkRequest request) {
+        return ResponseEntity.ok(availabilitySlotService.deleteAvailabilitySlots(resourceId, request));
+    }
+
     @PutMapping("/{slotId}")
     public ResponseEntity<AvailabilitySlot> updateAvailabilitySlot(
             @PathVariable Long slotId,
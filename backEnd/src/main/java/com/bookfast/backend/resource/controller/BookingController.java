@@ -3,14 +3,21 @@ package com.bookfast.backend.resource.controller;
 import org.springframework.web.bind.annotation.*;
 import com.bookfast.backend.resource.model.Booking;
 import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.model.SlotHold;
 import com.bookfast.backend.resource.repository.ResourceRepository;
 import com.bookfast.backend.resource.repository.BookingRepository;
 import com.bookfast.backend.resource.service.BookingService;
+import com.bookfast.backend.resource.service.SlotHoldService;
 import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.common.pagination.KeysetPage;
+import com.bookfast.backend.common.pagination.KeysetRequest;
 import com.bookfast.backend.common.repository.UserRepository;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.UUID;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -23,12 +30,15 @@ public class BookingController {
     private final ResourceRepository resourceRepository;
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
+    private final SlotHoldService slotHolds;
 
-    public BookingController(BookingService service, ResourceRepository resourceRepository, UserRepository userRepository, BookingRepository bookingRepository) {
+    public BookingController(BookingService service, ResourceRepository resourceRepository, UserRepository userRepository,
+                             BookingRepository bookingRepository, SlotHoldService slotHolds) {
         this.service = service;
         this.resourceRepository = resourceRepository;
         this.userRepository = userRepository;
         this.bookingRepository = bookingRepository;
+        this.slotHolds = slotHolds;
     }
 
     @PostMapping
@@ -99,41 +109,63 @@ public class BookingController {
         
         Long resourceId = Long.valueOf(payload.get("resourceId").toString());
         List<?> slotIdsRaw = (List<?>) payload.get("slotIds");
-        List<Integer> slotIds = new ArrayList<>();
+        List<Long> slotIds = new ArrayList<>();
         for (Object o : slotIdsRaw) {
-            slotIds.add(Integer.valueOf(o.toString()));
+            slotIds.add(Long.valueOf(o.toString()));
         }
-        String customerName = (String) payload.get("customerName");
-        String customerEmail = (String) payload.get("customerEmail");
-        String customerPhone = (String) payload.get("customerPhone");
-        String customerZip = (String) payload.getOrDefault("customerZip", "");
-        Double finalAmount = payload.get("finalAmount") != null ? Double.valueOf(payload.get("finalAmount").toString())
-                : null;
-        String status = (String) payload.get("status");
-        String paymentStatus = (String) payload.get("paymentStatus");
-        List<Booking> bookings = new ArrayList<>();
-        for (Integer slotId : slotIds) {
-            Booking booking = new Booking();
-            booking.setCustomerId(customerId); // Set customerId from authenticated user
-            booking.setCustomerName(customerName);
-            booking.setCustomerEmail(customerEmail);
-            booking.setCustomerPhone(customerPhone);
-            booking.setCustomerZip(customerZip);
-            booking.setStatus(status);
-            booking.setPaymentStatus(paymentStatus);
-            booking.setSlotId(slotId);
-            booking.setFinalAmount(finalAmount);
-            // Set resource
-            Resource resource = resourceRepository.findById(resourceId).orElse(null);
-            if (resource != null) {
-                booking.setResource(resource);
-            }
-            bookings.add(service.createBooking(booking));
+        Booking details = new Booking();
+        details.setCustomerId(customerId); // Set customerId from authenticated user
+        details.setCustomerName((String) payload.get("customerName"));
+        details.setCustomerEmail((String) payload.get("customerEmail"));
+        details.setCustomerPhone((String) payload.get("customerPhone"));
+        details.setCustomerZip((String) payload.getOrDefault("customerZip", ""));
+        details.setFinalAmount(payload.get("finalAmount") != null ? Double.valueOf(payload.get("finalAmount").toString())
+                : null);
+        details.setStatus((String) payload.get("status"));
+        details.setPaymentStatus((String) payload.get("paymentStatus"));
+        if (payload.get("holdToken") != null) {
+            details.setHoldToken(UUID.fromString(payload.get("holdToken").toString()));
         }
-        System.out.println("[BookingController] Created multi-slot bookings for customer ID: " + customerId + ", name: " + customerName);
+        List<Booking> bookings = service.createMultiSlotBooking(resourceId, slotIds, details);
+        System.out.println("[BookingController] Created multi-slot bookings for customer ID: " + customerId + ", name: " + details.getCustomerName());
         return bookings;
     }
 
+    /**
+     * Hold a slot while the customer checks out: {resourceId, slotId} for a stored slot, or
+     * {resourceId, startTime, endTime} (ISO date-times) matching one available or virtual slot. The
+     * returned token is passed as holdToken when booking.
+     */
+    @PostMapping("/holds")
+    public SlotHold placeHold(@RequestBody Map<String, Object> payload) {
+        Long customerId = currentCustomerId();
+        if (payload.get("resourceId") == null) {
+            throw new IllegalArgumentException("resourceId is required");
+        }
+        Long resourceId = Long.valueOf(payload.get("resourceId").toString());
+        if (payload.get("slotId") != null) {
+            return slotHolds.holdSlot(resourceId, Long.valueOf(payload.get("slotId").toString()), customerId);
+        }
+        if (payload.get("startTime") == null || payload.get("endTime") == null) {
+            throw new IllegalArgumentException("Either slotId or startTime and endTime are required");
+        }
+        return slotHolds.placeHold(resourceId, LocalDateTime.parse(payload.get("startTime").toString()),
+                LocalDateTime.parse(payload.get("endTime").toString()), customerId);
+    }
+
+    @DeleteMapping("/holds/{token}")
+    public void releaseHold(@PathVariable UUID token) {
+        slotHolds.releaseHold(token, currentCustomerId());
+    }
+
+    private Long currentCustomerId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication.getName() == null) {
+            return null;
+        }
+        return userRepository.findByEmail(authentication.getName()).map(User::getId).orElse(null);
+    }
+
     @GetMapping("/customer/{customerId}")
     public List<Booking> getBookingsByCustomer(@PathVariable Long customerId) {
         System.out.println("[BookingController] ===== getBookingsByCustomer called ======");
@@ -221,6 +253,24 @@ public class BookingController {
         }
     }
 
+    // The current provider's bookings one page at a time; pass nextCursor back as cursor
+    @GetMapping("/provider/me/page")
+    public KeysetPage<Booking> getBookingsPageByCurrentProvider(@RequestParam(required = false) String cursor,
+                                                                @RequestParam(required = false) Integer limit,
+                                                                @RequestParam(required = false) String sort,
+                                                                @RequestParam(required = false) String direction,
+                                                                @RequestParam(required = false) String status,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        User currentUser = authentication != null && authentication.getName() != null
+            ? userRepository.findByEmail(authentication.getName()).orElse(null) : null;
+        if (currentUser == null) {
+            throw new IllegalStateException("No authenticated provider found");
+        }
+        return service.getBookingsByProviderPage(currentUser.getId(), new KeysetRequest(sort, direction, cursor, limit), status, from, to);
+    }
+
     @DeleteMapping("/{bookingId}")
     public void deleteBooking(@PathVariable Long bookingId) {
         service.deleteBooking(bookingId);
@@ -238,10 +288,16 @@ public class BookingController {
         Booking booking = service.getBookingById(bookingId);
         if (booking != null && booking.getResource() != null
                 && booking.getResource().getProviderId().equals(providerId)) {
-            booking.setStatus(updated.getStatus());
-            booking.setStartTime(updated.getStartTime());
-            booking.setEndTime(updated.getEndTime());
-            return service.saveBooking(booking);
+            return service.changeBooking(bookingId, stored -> {
+                stored.setStatus(updated.getStatus());
+                // Keep the stored times when none are sent
+                if (updated.getStartTime() != null) {
+                    stored.setStartTime(updated.getStartTime());
+                }
+                if (updated.getEndTime() != null) {
+                    stored.setEndTime(updated.getEndTime());
+                }
+            });
         }
         return null;
     }
@@ -251,8 +307,7 @@ public class BookingController {
         Booking booking = service.getBookingById(bookingId);
         if (booking != null && booking.getResource() != null
                 && booking.getResource().getProviderId().equals(providerId)) {
-            booking.setStatus("cancelled");
-            return service.saveBooking(booking);
+            return service.changeBooking(bookingId, stored -> stored.setStatus("cancelled"));
         }
         return null;
     }
@@ -12,12 +12,18 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.format.annotation.DateTimeFormat;
 
+import com.bookfast.backend.common.pagination.KeysetPage;
+import com.bookfast.backend.common.pagination.KeysetRequest;
 import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.service.NextAvailableSearch;
+import com.bookfast.backend.resource.service.NextAvailableSearch.OpenWindow;
 import com.bookfast.backend.resource.service.ResourceService;
 import com.bookfast.backend.common.model.User;
 import com.bookfast.backend.common.repository.UserRepository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -26,10 +32,12 @@ import java.util.ArrayList;
 public class ResourceController {
     private final ResourceService service;
     private final UserRepository userRepository;
+    private final NextAvailableSearch nextAvailableSearch;
 
-    public ResourceController(ResourceService service, UserRepository userRepository) {
+    public ResourceController(ResourceService service, UserRepository userRepository, NextAvailableSearch nextAvailableSearch) {
         this.service = service;
         this.userRepository = userRepository;
+        this.nextAvailableSearch = nextAvailableSearch;
     }
 
     @DeleteMapping("/{id}")
@@ -59,6 +67,34 @@ public class ResourceController {
         return service.getAllActiveResourcesForCustomers();
     }
 
+    // Paged listing with server-side filters; pass nextCursor back as cursor for the next page
+    @GetMapping("/page")
+    public KeysetPage<Resource> getResourcesPage(@RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer limit,
+                                                 @RequestParam(required = false) String sort,
+                                                 @RequestParam(required = false) String direction,
+                                                 @RequestParam(required = false) String status,
+                                                 @RequestParam(required = false) Long providerId,
+                                                 @RequestParam(required = false) String specialization,
+                                                 @RequestParam(required = false) String q) {
+        return service.getResourcesPage(new KeysetRequest(sort, direction, cursor, limit), status, providerId, specialization, q);
+    }
+
+    // The earliest open windows of the given length across all active resources matching the filters
+    @GetMapping("/next-available")
+    public List<OpenWindow> findNextAvailable(@RequestParam(defaultValue = "60") int minutes,
+                                              @RequestParam(required = false) String specialization,
+                                              @RequestParam(required = false) String category,
+                                              @RequestParam(required = false) Double minPrice,
+                                              @RequestParam(required = false) Double maxPrice,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                              @RequestParam(defaultValue = "14") int days,
+                                              @RequestParam(defaultValue = "10") int limit,
+                                              @RequestParam(defaultValue = "3") int perResource) {
+        return nextAvailableSearch.search(new NextAvailableSearch.Criteria(specialization, category, minPrice, maxPrice,
+            minutes, from, days, limit, perResource));
+    }
+
     @GetMapping("/{id}")
     public Resource getResource(@PathVariable Long id) {
         return service.getResourceById(id);
@@ -1,6 +1,8 @@
 
 package com.bookfast.backend.resource.controller;
 
+import com.bookfast.backend.resource.dto.ReviewDetailsDTO;
+import com.bookfast.backend.resource.model.RatingStats;
 import com.bookfast.backend.resource.model.Resource;
 import com.bookfast.backend.resource.model.Review;
 import com.bookfast.backend.resource.repository.ResourceRepository;
@@ -10,6 +12,8 @@ import com.bookfast.backend.common.repository.UserRepository;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.springframework.http.ResponseEntity;
 import java.time.LocalDate;
 import org.springframework.security.core.Authentication;
@@ -63,7 +67,7 @@ public class ReviewController {
     }
 
     @GetMapping("/provider/me")
-    public List<ReviewService.ReviewDetailsDTO> getReviewsByProvider() {
+    public List<ReviewDetailsDTO> getReviewsByProvider() {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             if (authentication != null && authentication.getName() != null) {
@@ -135,6 +139,17 @@ public class ReviewController {
         return rating;
     }
 
+    @GetMapping(value = "/resource/{resourceId}/rating/summary", produces = "application/json")
+    public Map<String, Object> getRatingSummary(@PathVariable Long resourceId) {
+        Resource resource = resourceRepository.findById(resourceId).orElse(null);
+        RatingStats stats = resource != null ? reviewService.getRatingStats(resource) : new RatingStats();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("averageRating", stats.average());
+        summary.put("reviewCount", stats.getRatingCount());
+        summary.put("histogram", stats.histogram());
+        return summary;
+    }
+
     @PostMapping("/resource/{resourceId}")
     public Review addReview(@PathVariable Long resourceId, @RequestBody Review review) {
         Resource resource = resourceRepository.findById(resourceId).orElse(null);
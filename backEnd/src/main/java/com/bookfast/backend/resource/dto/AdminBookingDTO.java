@@ -0,0 +1,74 @@
+package com.bookfast.backend.resource.dto;
+
+import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.Resource;
+
+import java.time.LocalDateTime;
+
+/**
+ * A row of the admin bookings table: the booking with its resource and provider. Filled straight
+ * from BookingRepository.findAdminBookings (one query, no entities) or from a loaded page.
+ */
+public record AdminBookingDTO(
+    Long id,
+    Long customerId,
+    String customerName,
+    String customerEmail,
+    String customerPhone,
+    String customerZip,
+    String status,
+    String paymentStatus,
+    Double finalAmount,
+    LocalDateTime startTime,
+    LocalDateTime endTime,
+    String date,
+    String startTimeStr,
+    String endTimeStr,
+    Integer slotId,
+    Long resourceId,
+    String resourceName,
+    String resourceDescription,
+    Double resourcePrice,
+    Long providerId,
+    String providerName,
+    String providerEmail,
+    String providerOrganization
+) {
+    private static final String NOT_AVAILABLE = "N/A";
+
+    /**
+     * Constructor for the JPQL projection; resource and provider columns are null when the outer
+     * joins found nothing.
+     */
+    public AdminBookingDTO(Long id, Long customerId, String customerName, String customerEmail, String customerPhone,
+                           String customerZip, String status, String paymentStatus, Double finalAmount,
+                           LocalDateTime startTime, LocalDateTime endTime, String date, String startTimeStr,
+                           String endTimeStr, Integer slotId, Long resourceId, String resourceName,
+                           String resourceDescription, Double resourcePrice, Long providerId,
+                           String providerFirstName, String providerLastName, String providerEmail,
+                           String providerOrganization) {
+        this(id, customerId, customerName, customerEmail, customerPhone, customerZip, status, paymentStatus,
+            finalAmount, startTime, endTime, date, startTimeStr, endTimeStr, slotId,
+            resourceId, resourceId != null ? resourceName : NOT_AVAILABLE, resourceDescription, resourcePrice,
+            providerId, providerId != null ? providerFirstName + " " + providerLastName : NOT_AVAILABLE,
+            providerEmail, providerOrganization);
+    }
+
+    public static AdminBookingDTO of(Booking booking, User provider) {
+        Resource resource = booking.getResource();
+        return new AdminBookingDTO(booking.getId(), booking.getCustomerId(), booking.getCustomerName(),
+            booking.getCustomerEmail(), booking.getCustomerPhone(), booking.getCustomerZip(), booking.getStatus(),
+            booking.getPaymentStatus(), booking.getFinalAmount(), booking.getStartTime(), booking.getEndTime(),
+            booking.getDate(), booking.getStartTimeStr(), booking.getEndTimeStr(), booking.getSlotId(),
+            resource != null ? resource.getId() : null,
+            resource != null ? resource.getName() : null,
+            resource != null ? resource.getDescription() : null,
+            resource != null ? resource.getPrice() : null,
+            provider != null ? provider.getId() : null,
+            provider != null ? provider.getFirstName() : null,
+            provider != null ? provider.getLastName() : null,
+            provider != null ? provider.getEmail() : null,
+            provider != null ? provider.getOrganizationName() : null);
+    }
+}
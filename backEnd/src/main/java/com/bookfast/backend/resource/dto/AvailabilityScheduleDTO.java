@@ -0,0 +1,20 @@
+package com.bookfast.backend.resource.dto;
+
+import com.bookfast.backend.resource.model.AvailabilityException;
+import com.bookfast.backend.resource.model.AvailabilityRule;
+
+import java.util.List;
+
+/**
+ * A resource's recurring availability: the weekly hours and dated exceptions that are expanded into
+ * virtual slots, and the length of each slot. Used both to read the schedule and to replace it in
+ * one request (resourceId and version are ignored on input).
+ */
+public record AvailabilityScheduleDTO(
+    Long resourceId,
+    Integer slotMinutes,
+    Long version,
+    List<AvailabilityRule> weekly,
+    List<AvailabilityException> exceptions
+) {
+}
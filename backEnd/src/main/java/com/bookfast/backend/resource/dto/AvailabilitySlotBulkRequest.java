@@ -0,0 +1,29 @@
+package com.bookfast.backend.resource.dto;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Body of the bulk slot endpoints. Slots are given either one by one (slots; with ids when updating)
+ * or as a date range: every date in [from, to] on one of daysOfWeek (all days when empty), cut from
+ * startTime to endTime into slotMinutes-long slots (one slot when slotMinutes is absent). Deletes
+ * take ids or the date range, optionally limited to one status.
+ */
+public record AvailabilitySlotBulkRequest(
+    List<SlotSpec> slots,
+    List<Long> ids,
+    LocalDate from,
+    LocalDate to,
+    List<DayOfWeek> daysOfWeek,
+    LocalTime startTime,
+    LocalTime endTime,
+    Integer slotMinutes,
+    String status,
+    String reason
+) {
+
+    public record SlotSpec(Long id, LocalDate date, LocalTime startTime, LocalTime endTime, String status, String reason) {
+    }
+}
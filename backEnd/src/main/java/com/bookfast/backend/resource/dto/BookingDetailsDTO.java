@@ -2,113 +2,56 @@ package com.bookfast.backend.resource.dto;
 
 import java.time.LocalDateTime;
 
-public class BookingDetailsDTO {
-    private Long id;
-    private Long customerId;
-    private String customerName;
-    private String customerEmail;
-    private String customerPhone;
-    private String customerZip;
-    private String status;
-    private String paymentStatus;
-    private Double finalAmount;
-    private LocalDateTime startTime;
-    private LocalDateTime endTime;
-    private String date;
-    private String startTimeStr;
-    private String endTimeStr;
-    
-    // Resource details
-    private Long resourceId;
-    private String resourceName;
-    private String resourceDescription;
-    private Double resourcePrice;
-    private String resourceSpecialization;
-    
-    // Provider details
-    private Long providerId;
-    private String providerName;
-    private String providerEmail;
-    private String providerPhone;
-    private String providerOrganization;
-    private String providerServiceCategory;
-
-    // Constructors
-    public BookingDetailsDTO() {}
-
-    // Getters and setters
-    public Long getId() { return id; }
-    public void setId(Long id) { this.id = id; }
-
-    public Long getCustomerId() { return customerId; }
-    public void setCustomerId(Long customerId) { this.customerId = customerId; }
-
-    public String getCustomerName() { return customerName; }
-    public void setCustomerName(String customerName) { this.customerName = customerName; }
-
-    public String getCustomerEmail() { return customerEmail; }
-    public void setCustomerEmail(String customerEmail) { this.customerEmail = customerEmail; }
-
-    public String getCustomerPhone() { return customerPhone; }
-    public void setCustomerPhone(String customerPhone) { this.customerPhone = customerPhone; }
-
-    public String getCustomerZip() { return customerZip; }
-    public void setCustomerZip(String customerZip) { this.customerZip = customerZip; }
-
-    public String getStatus() { return status; }
-    public void setStatus(String status) { this.status = status; }
-
-    public String getPaymentStatus() { return paymentStatus; }
-    public void setPaymentStatus(String paymentStatus) { this.paymentStatus = paymentStatus; }
-
-    public Double getFinalAmount() { return finalAmount; }
-    public void setFinalAmount(Double finalAmount) { this.finalAmount = finalAmount; }
-
-    public LocalDateTime getStartTime() { return startTime; }
-    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
-
-    public LocalDateTime getEndTime() { return endTime; }
-    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+/**
+ * A booking with its resource and provider details, projected in one query by
+ * BookingRepository.findDetailsByProviderId.
+ */
+public record BookingDetailsDTO(
+    Long id,
+    Long customerId,
+    String customerName,
+    String customerEmail,
+    String customerPhone,
+    String customerZip,
+    String status,
+    String paymentStatus,
+    Double finalAmount,
+    LocalDateTime startTime,
+    LocalDateTime endTime,
+    String date,
+    String startTimeStr,
+    String endTimeStr,
 
-    public String getDate() { return date; }
-    public void setDate(String date) { this.date = date; }
-
-    public String getStartTimeStr() { return startTimeStr; }
-    public void setStartTimeStr(String startTimeStr) { this.startTimeStr = startTimeStr; }
-
-    public String getEndTimeStr() { return endTimeStr; }
-    public void setEndTimeStr(String endTimeStr) { this.endTimeStr = endTimeStr; }
-
-    public Long getResourceId() { return resourceId; }
-    public void setResourceId(Long resourceId) { this.resourceId = resourceId; }
-
-    public String getResourceName() { return resourceName; }
-    public void setResourceName(String resourceName) { this.resourceName = resourceName; }
-
-    public String getResourceDescription() { return resourceDescription; }
-    public void setResourceDescription(String resourceDescription) { this.resourceDescription = resourceDescription; }
-
-    public Double getResourcePrice() { return resourcePrice; }
-    public void setResourcePrice(Double resourcePrice) { this.resourcePrice = resourcePrice; }
-
-    public String getResourceSpecialization() { return resourceSpecialization; }
-    public void setResourceSpecialization(String resourceSpecialization) { this.resourceSpecialization = resourceSpecialization; }
-
-    public Long getProviderId() { return providerId; }
-    public void setProviderId(Long providerId) { this.providerId = providerId; }
-
-    public String getProviderName() { return providerName; }
-    public void setProviderName(String providerName) { this.providerName = providerName; }
-
-    public String getProviderEmail() { return providerEmail; }
-    public void setProviderEmail(String providerEmail) { this.providerEmail = providerEmail; }
-
-    public String getProviderPhone() { return providerPhone; }
-    public void setProviderPhone(String providerPhone) { this.providerPhone = providerPhone; }
-
-    public String getProviderOrganization() { return providerOrganization; }
-    public void setProviderOrganization(String providerOrganization) { this.providerOrganization = providerOrganization; }
+    // Resource details
+    Long resourceId,
+    String resourceName,
+    String resourceDescription,
+    Double resourcePrice,
+    String resourceSpecialization,
 
-    public String getProviderServiceCategory() { return providerServiceCategory; }
-    public void setProviderServiceCategory(String providerServiceCategory) { this.providerServiceCategory = providerServiceCategory; }
+    // Provider details
+    Long providerId,
+    String providerName,
+    String providerEmail,
+    String providerOrganization,
+    String providerServiceCategory
+) {
+
+    /**
+     * Constructor for the JPQL projection; providerUserId is null when the provider's user row
+     * is missing, in which case the provider details stay empty.
+     */
+    public BookingDetailsDTO(Long id, Long customerId, String customerName, String customerEmail, String customerPhone,
+                             String customerZip, String status, String paymentStatus, Double finalAmount,
+                             LocalDateTime startTime, LocalDateTime endTime, String date, String startTimeStr,
+                             String endTimeStr, Long resourceId, String resourceName, String resourceDescription,
+                             Double resourcePrice, String resourceSpecialization, Long providerId, Long providerUserId,
+                             String providerFirstName, String providerLastName, String providerEmail,
+                             String providerOrganization, String providerServiceCategory) {
+        this(id, customerId, customerName, customerEmail, customerPhone, customerZip, status, paymentStatus,
+            finalAmount, startTime, endTime, date, startTimeStr, endTimeStr,
+            resourceId, resourceName, resourceDescription, resourcePrice, resourceSpecialization,
+            providerId, providerUserId != null ? providerFirstName + " " + providerLastName : null,
+            providerEmail, providerOrganization, providerServiceCategory);
+    }
 }
@@ -0,0 +1,43 @@
+package com.bookfast.backend.resource.dto;
+
+import java.time.LocalDate;
+
+/**
+ * A review with its resource, customer email and provider details, projected in one query by
+ * ReviewRepository.findDetailsByProviderId.
+ */
+public record ReviewDetailsDTO(
+    Long id,
+    Long customerId,
+    String customerName,
+    String customerEmail,
+    Double rating,
+    String comment,
+    String date,
+    Long resourceId,
+    String resourceName,
+    String resourceDescription,
+    Double resourcePrice,
+    String resourceSpecialization,
+    Long providerId,
+    String providerName,
+    String providerEmail,
+    String providerOrganization,
+    String providerServiceCategory
+) {
+
+    /**
+     * Constructor for the JPQL projection; providerUserId is null when the provider's user row
+     * is missing, in which case the provider details stay empty.
+     */
+    public ReviewDetailsDTO(Long id, Long customerId, String customerName, String customerEmail, Double rating,
+                            String comment, LocalDate date, Long resourceId, String resourceName,
+                            String resourceDescription, Double resourcePrice, String resourceSpecialization,
+                            Long providerId, Long providerUserId, String providerFirstName, String providerLastName,
+                            String providerEmail, String providerOrganization, String providerServiceCategory) {
+        this(id, customerId, customerName, customerEmail, rating, comment, date != null ? date.toString() : null,
+            resourceId, resourceName, resourceDescription, resourcePrice, resourceSpecialization,
+            providerId, providerUserId != null ? providerFirstName + " " + providerLastName : null,
+            providerEmail, providerOrganization, providerServiceCategory);
+    }
+}
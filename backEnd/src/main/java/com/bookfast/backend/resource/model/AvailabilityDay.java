@@ -0,0 +1,91 @@
+package com.bookfast.backend.resource.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Packed free-time bitmap (see DayBitmap) of one resource on one day, derived from its availability
+ * slots, availability schedule and active bookings. Maintained by AvailabilityBitmapService: writers mark the row stale and
+ * bump its version in their own transaction, readers recompute stale rows and store them back only
+ * if the version has not moved meanwhile.
+ */
+@Entity
+@IdClass(AvailabilityDay.Key.class)
+public class AvailabilityDay {
+    @Id
+    private Long resourceId;
+
+    @Id
+    private LocalDate day;
+
+    private int granularityMinutes;
+
+    // Little-endian 64-bit words, bit i set when slot i is free; null until first computed
+    private byte[] bitmap;
+
+    private int freeSlots;
+
+    private boolean stale;
+
+    private long version;
+
+    // AvailabilitySchedule version the bitmap was expanded from; null on rows never computed with one
+    private Long scheduleVersion;
+
+    private LocalDateTime updatedAt;
+
+    public Long getResourceId() { return resourceId; }
+    public void setResourceId(Long resourceId) { this.resourceId = resourceId; }
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public int getGranularityMinutes() { return granularityMinutes; }
+    public void setGranularityMinutes(int granularityMinutes) { this.granularityMinutes = granularityMinutes; }
+
+    public byte[] getBitmap() { return bitmap; }
+    public void setBitmap(byte[] bitmap) { this.bitmap = bitmap; }
+
+    public int getFreeSlots() { return freeSlots; }
+    public void setFreeSlots(int freeSlots) { this.freeSlots = freeSlots; }
+
+    public boolean isStale() { return stale; }
+    public void setStale(boolean stale) { this.stale = stale; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public Long getScheduleVersion() { return scheduleVersion; }
+    public void setScheduleVersion(Long scheduleVersion) { this.scheduleVersion = scheduleVersion; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public static class Key implements Serializable {
+        private Long resourceId;
+        private LocalDate day;
+
+        public Key() {
+        }
+
+        public Key(Long resourceId, LocalDate day) {
+            this.resourceId = resourceId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(resourceId, other.resourceId) && Objects.equals(day, other.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(resourceId, day);
+        }
+    }
+}
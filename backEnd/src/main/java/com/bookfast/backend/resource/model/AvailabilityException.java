@@ -0,0 +1,54 @@
+package com.bookfast.backend.resource.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * A dated change to a resource's weekly hours: "closed" takes time off (the whole day when no times
+ * are given, e.g. a holiday), "open" adds hours. Closed exceptions apply before open ones.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_availability_exception_resource_date", columnList = "resource_id, date")
+})
+public class AvailabilityException {
+    public static final String CLOSED = "closed";
+    public static final String OPEN = "open";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long resourceId;
+
+    private LocalDate date;
+
+    // Both null on a whole-day closure
+    private LocalTime startTime;
+    private LocalTime endTime;
+
+    private String type;
+    private String reason;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getResourceId() { return resourceId; }
+    public void setResourceId(Long resourceId) { this.resourceId = resourceId; }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public LocalTime getStartTime() { return startTime; }
+    public void setStartTime(LocalTime startTime) { this.startTime = startTime; }
+
+    public LocalTime getEndTime() { return endTime; }
+    public void setEndTime(LocalTime endTime) { this.endTime = endTime; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+}
@@ -0,0 +1,58 @@
+package com.bookfast.backend.resource.model;
+
+import jakarta.persistence.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Open hours of a resource on one day of the week, optionally limited to [validFrom, validUntil].
+ * An endTime of LocalTime.MAX runs to midnight.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_availability_rule_resource", columnList = "resource_id")
+})
+public class AvailabilityRule {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long resourceId;
+
+    @Enumerated(EnumType.STRING)
+    private DayOfWeek dayOfWeek;
+
+    private LocalTime startTime;
+    private LocalTime endTime;
+
+    private LocalDate validFrom;
+    private LocalDate validUntil;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getResourceId() { return resourceId; }
+    public void setResourceId(Long resourceId) { this.resourceId = resourceId; }
+
+    public DayOfWeek getDayOfWeek() { return dayOfWeek; }
+    public void setDayOfWeek(DayOfWeek dayOfWeek) { this.dayOfWeek = dayOfWeek; }
+
+    public LocalTime getStartTime() { return startTime; }
+    public void setStartTime(LocalTime startTime) { this.startTime = startTime; }
+
+    public LocalTime getEndTime() { return endTime; }
+    public void setEndTime(LocalTime endTime) { this.endTime = endTime; }
+
+    public LocalDate getValidFrom() { return validFrom; }
+    public void setValidFrom(LocalDate validFrom) { this.validFrom = validFrom; }
+
+    public LocalDate getValidUntil() { return validUntil; }
+    public void setValidUntil(LocalDate validUntil) { this.validUntil = validUntil; }
+
+    public boolean appliesTo(LocalDate date) {
+        return date.getDayOfWeek() == dayOfWeek
+            && (validFrom == null || !date.isBefore(validFrom))
+            && (validUntil == null || !date.isAfter(validUntil));
+    }
+}
@@ -0,0 +1,35 @@
+package com.bookfast.backend.resource.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Recurring availability of one resource: weekly hours (AvailabilityRule) and dated exceptions
+ * (AvailabilityException), expanded into virtual slots at query time. version grows with every change
+ * to the rules or exceptions, so anything derived from them (expanded days, availability bitmaps)
+ * can tell whether it is out of date.
+ */
+@Entity
+public class AvailabilitySchedule {
+    @Id
+    private Long resourceId;
+
+    // Length of each virtual slot cut from the open hours
+    private int slotMinutes;
+
+    private long version;
+
+    private LocalDateTime updatedAt;
+
+    public Long getResourceId() { return resourceId; }
+    public void setResourceId(Long resourceId) { this.resourceId = resourceId; }
+
+    public int getSlotMinutes() { return slotMinutes; }
+    public void setSlotMinutes(int slotMinutes) { this.slotMinutes = slotMinutes; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
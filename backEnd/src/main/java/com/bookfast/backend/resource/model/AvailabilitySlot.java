@@ -8,9 +8,17 @@ import java.time.LocalTime;
 
 @Entity
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+@Table(indexes = {
+    @Index(name = "idx_availability_slot_google_event", columnList = "google_event_id"),
+    // Per-resource date lookups and ranges (slot listings, availability bitmaps, next-available search)
+    @Index(name = "idx_availability_slot_resource_date", columnList = "resource_id, date")
+})
 public class AvailabilitySlot {
+    // Pooled sequence instead of IDENTITY so bulk slot imports are inserted as JDBC batches.
+    // IdSequenceSynchronizer moves the sequence past existing ids on startup.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "availability_slot_seq")
+    @SequenceGenerator(name = "availability_slot_seq", sequenceName = "availability_slot_seq", allocationSize = 50)
     private Long id;
 
     private LocalDate date;
@@ -19,11 +27,23 @@ public class AvailabilitySlot {
     private String status; // e.g., "available", "booked", "unavailable"
     private String reason; // Reason for unavailability (optional, only used when status is "unavailable")
 
+    // Set on "unavailable" slots mirrored from a busy event in the provider's Google Calendar
+    @JsonIgnore
+    private String googleEventId;
+
     @ManyToOne
     @JoinColumn(name = "resource_id")
     @JsonIgnore
     private Resource resource;
 
+    // Expanded from the resource's availability schedule, not stored; id is null
+    @Transient
+    private boolean virtual;
+
+    // Overlaps a checkout hold (SlotHold) of anyone but the customer viewing the listing; set on listings only
+    @Transient
+    private boolean held;
+
     // Getters and setters
     public Long getId() {
         return id;
@@ -73,6 +93,30 @@ public class AvailabilitySlot {
         this.resource = resource;
     }
 
+    public String getGoogleEventId() {
+        return googleEventId;
+    }
+
+    public void setGoogleEventId(String googleEventId) {
+        this.googleEventId = googleEventId;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public void setVirtual(boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    public boolean isHeld() {
+        return held;
+    }
+
+    public void setHeld(boolean held) {
+        this.held = held;
+    }
+
     public String getReason() {
         return reason;
     }
@@ -5,12 +5,27 @@ import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+    // Supports the overlap check (resource_id = ? AND start_time < ? AND end_time > ?)
+    @Index(name = "idx_booking_resource_start", columnList = "resource_id, start_time"),
+    // Supports the reminder range scan (start_time in a window, then status)
+    @Index(name = "idx_booking_start_status", columnList = "start_time, status"),
+    // Latest bookings for the admin recent-activity feed
+    @Index(name = "idx_booking_created_at", columnList = "created_at"),
+    // Paged booking listings sorted by these columns order and seek on (column, id)
+    @Index(name = "idx_booking_start_time_id", columnList = "start_time, id"),
+    @Index(name = "idx_booking_final_amount_id", columnList = "final_amount, id")
+})
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Booking {
+    // Pooled sequence instead of IDENTITY so multi-slot bookings are inserted as one JDBC batch.
+    // IdSequenceSynchronizer moves the sequence past existing ids on startup.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+    @SequenceGenerator(name = "booking_seq", sequenceName = "booking_seq", allocationSize = 50)
     private Long id;
 
     @Transient
@@ -29,6 +44,10 @@ public class Booking {
     private Integer slotId;
     private Double finalAmount;
 
+    // Checkout hold (SlotHold) the booking is made under; consumed when the booking is saved
+    @Transient
+    private UUID holdToken;
+
     @ManyToOne
     @JoinColumn(name = "resource_id")
     @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"reviews", "availabilitySlots", "hibernateLazyInitializer", "handler"})
@@ -37,6 +56,79 @@ public class Booking {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
 
+    // When the booking was made; null for bookings stored before this column existed
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    // Fields as last read from / written to the database; lets the analytics rollups apply the
+    // exact delta of an edit or delete, and the availability bitmaps find the days it vacated
+    @Transient
+    @JsonIgnore
+    private Long persistedResourceId;
+
+    @Transient
+    @JsonIgnore
+    private LocalDateTime persistedStartTime;
+
+    @Transient
+    @JsonIgnore
+    private LocalDateTime persistedEndTime;
+
+    @Transient
+    @JsonIgnore
+    private String persistedStatus;
+
+    @Transient
+    @JsonIgnore
+    private Double persistedFinalAmount;
+
+    @Transient
+    @JsonIgnore
+    private boolean persisted;
+
+    @PrePersist
+    void stampCreatedAt() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void rememberPersistedState() {
+        this.persistedResourceId = resource != null ? resource.getId() : null;
+        this.persistedStartTime = startTime;
+        this.persistedEndTime = endTime;
+        this.persistedStatus = status;
+        this.persistedFinalAmount = finalAmount;
+        this.persisted = true;
+    }
+
+    public Long getPersistedResourceId() {
+        return persistedResourceId;
+    }
+
+    public LocalDateTime getPersistedStartTime() {
+        return persistedStartTime;
+    }
+
+    public LocalDateTime getPersistedEndTime() {
+        return persistedEndTime;
+    }
+
+    public String getPersistedStatus() {
+        return persistedStatus;
+    }
+
+    public Double getPersistedFinalAmount() {
+        return persistedFinalAmount;
+    }
+
+    public boolean isPersisted() {
+        return persisted;
+    }
+
     // Getters and setters
 
     public Long getResourceId() {
@@ -47,6 +139,14 @@ public class Booking {
         this.resourceId = resourceId;
     }
 
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
     public Resource getResource() {
         return resource;
     }
@@ -87,6 +187,14 @@ public class Booking {
         this.customerZip = customerZip;
     }
 
+    public UUID getHoldToken() {
+        return holdToken;
+    }
+
+    public void setHoldToken(UUID holdToken) {
+        this.holdToken = holdToken;
+    }
+
     public Integer getSlotId() {
         return slotId;
     }
@@ -0,0 +1,62 @@
+package com.bookfast.backend.resource.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One reminder of a booking: a channel (email or SMS) at an offset before the start. The row is
+ * claimed before sending and marked sent afterwards; the unique key makes every reminder go out
+ * once even when scheduler runs overlap or several instances are running.
+ */
+@Entity
+@Table(
+    uniqueConstraints = @UniqueConstraint(name = "uk_booking_reminder",
+        columnNames = {"booking_id", "channel", "offset_minutes"})
+)
+public class BookingReminder {
+    public static final String CHANNEL_EMAIL = "EMAIL";
+    public static final String CHANNEL_SMS = "SMS";
+
+    public static final String OUTCOME_SENT = "SENT";
+    public static final String OUTCOME_SKIPPED = "SKIPPED"; // no address, or the channel is not configured
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "booking_id", nullable = false)
+    private Long bookingId;
+
+    @Column(nullable = false)
+    private String channel;
+
+    @Column(name = "offset_minutes", nullable = false)
+    private int offsetMinutes;
+
+    private LocalDateTime claimedAt;
+
+    // Null while the reminder is being sent
+    private LocalDateTime sentAt;
+    private String outcome;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getBookingId() { return bookingId; }
+    public void setBookingId(Long bookingId) { this.bookingId = bookingId; }
+
+    public String getChannel() { return channel; }
+    public void setChannel(String channel) { this.channel = channel; }
+
+    public int getOffsetMinutes() { return offsetMinutes; }
+    public void setOffsetMinutes(int offsetMinutes) { this.offsetMinutes = offsetMinutes; }
+
+    public LocalDateTime getClaimedAt() { return claimedAt; }
+    public void setClaimedAt(LocalDateTime claimedAt) { this.claimedAt = claimedAt; }
+
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+
+    public String getOutcome() { return outcome; }
+    public void setOutcome(String outcome) { this.outcome = outcome; }
+}
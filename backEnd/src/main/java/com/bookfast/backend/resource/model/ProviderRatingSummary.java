@@ -0,0 +1,49 @@
+package com.bookfast.backend.resource.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Materialized rating aggregate of one provider, maintained incrementally by RatingAggregateService.
+ */
+@Entity
+public class ProviderRatingSummary {
+    @Id
+    private Long providerId;
+
+    @Embedded
+    private RatingStats stats = new RatingStats();
+
+    private LocalDateTime updatedAt;
+
+    public ProviderRatingSummary() {
+    }
+
+    public ProviderRatingSummary(Long providerId) {
+        this.providerId = providerId;
+    }
+
+    public Long getProviderId() {
+        return providerId;
+    }
+
+    public void setProviderId(Long providerId) {
+        this.providerId = providerId;
+    }
+
+    public RatingStats getStats() {
+        return stats != null ? stats : new RatingStats();
+    }
+
+    public void setStats(RatingStats stats) {
+        this.stats = stats;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,117 @@
+package com.bookfast.backend.resource.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Count, sum and 1-5 star histogram of a set of review ratings. Ratings are bucketed by
+ * rounding to the nearest star, clamped to 1..5.
+ */
+@Embeddable
+public class RatingStats {
+    private Long ratingCount = 0L;
+    private Double ratingSum = 0.0;
+
+    @Column(name = "star1")
+    private Long star1 = 0L;
+    @Column(name = "star2")
+    private Long star2 = 0L;
+    @Column(name = "star3")
+    private Long star3 = 0L;
+    @Column(name = "star4")
+    private Long star4 = 0L;
+    @Column(name = "star5")
+    private Long star5 = 0L;
+
+    public static int bucket(double rating) {
+        return (int) Math.max(1, Math.min(5, Math.round(rating)));
+    }
+
+    /**
+     * Add (times > 0) or remove (times < 0) a rating.
+     */
+    public void add(double rating, long times) {
+        ratingCount = getRatingCount() + times;
+        ratingSum = getRatingSum() + rating * times;
+        switch (bucket(rating)) {
+            case 1 -> star1 = getStar1() + times;
+            case 2 -> star2 = getStar2() + times;
+            case 3 -> star3 = getStar3() + times;
+            case 4 -> star4 = getStar4() + times;
+            default -> star5 = getStar5() + times;
+        }
+    }
+
+    public void add(RatingStats other) {
+        ratingCount = getRatingCount() + other.getRatingCount();
+        ratingSum = getRatingSum() + other.getRatingSum();
+        star1 = getStar1() + other.getStar1();
+        star2 = getStar2() + other.getStar2();
+        star3 = getStar3() + other.getStar3();
+        star4 = getStar4() + other.getStar4();
+        star5 = getStar5() + other.getStar5();
+    }
+
+    public double average() {
+        return getRatingCount() > 0 ? getRatingSum() / getRatingCount() : 0.0;
+    }
+
+    public boolean isEmpty() {
+        return getRatingCount() == 0;
+    }
+
+    public Map<Integer, Long> histogram() {
+        Map<Integer, Long> histogram = new LinkedHashMap<>();
+        histogram.put(1, getStar1());
+        histogram.put(2, getStar2());
+        histogram.put(3, getStar3());
+        histogram.put(4, getStar4());
+        histogram.put(5, getStar5());
+        return histogram;
+    }
+
+    /**
+     * Same counts and (within floating point noise) the same sum.
+     */
+    public boolean matches(RatingStats other) {
+        return getRatingCount() == other.getRatingCount()
+            && Math.abs(getRatingSum() - other.getRatingSum()) < 1e-6
+            && histogram().equals(other.histogram());
+    }
+
+    // Getters are null-safe so rows written outside JPA never break reads
+    public long getRatingCount() {
+        return ratingCount != null ? ratingCount : 0L;
+    }
+
+    public double getRatingSum() {
+        return ratingSum != null ? ratingSum : 0.0;
+    }
+
+    public long getStar1() {
+        return star1 != null ? star1 : 0L;
+    }
+
+    public long getStar2() {
+        return star2 != null ? star2 : 0L;
+    }
+
+    public long getStar3() {
+        return star3 != null ? star3 : 0L;
+    }
+
+    public long getStar4() {
+        return star4 != null ? star4 : 0L;
+    }
+
+    public long getStar5() {
+        return star5 != null ? star5 : 0L;
+    }
+
+    @Override
+    public String toString() {
+        return "RatingStats{count=" + getRatingCount() + ", sum=" + getRatingSum() + ", histogram=" + histogram() + "}";
+    }
+}
@@ -6,7 +6,11 @@ import jakarta.persistence.*;
 import java.util.List;
 
 @Entity
-@Table(name = "resource")
+@Table(name = "resource", indexes = {
+    // Paged resource listings sorted by these columns order and seek on (column, id)
+    @Index(name = "idx_resource_name_id", columnList = "name, id"),
+    @Index(name = "idx_resource_price_id", columnList = "price, id")
+})
 @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Resource {
     @Id
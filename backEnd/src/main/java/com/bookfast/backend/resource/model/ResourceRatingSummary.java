@@ -0,0 +1,49 @@
+package com.bookfast.backend.resource.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Materialized rating aggregate of one resource, maintained incrementally by RatingAggregateService.
+ */
+@Entity
+public class ResourceRatingSummary {
+    @Id
+    private Long resourceId;
+
+    @Embedded
+    private RatingStats stats = new RatingStats();
+
+    private LocalDateTime updatedAt;
+
+    public ResourceRatingSummary() {
+    }
+
+    public ResourceRatingSummary(Long resourceId) {
+        this.resourceId = resourceId;
+    }
+
+    public Long getResourceId() {
+        return resourceId;
+    }
+
+    public void setResourceId(Long resourceId) {
+        this.resourceId = resourceId;
+    }
+
+    public RatingStats getStats() {
+        return stats != null ? stats : new RatingStats();
+    }
+
+    public void setStats(RatingStats stats) {
+        this.stats = stats;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
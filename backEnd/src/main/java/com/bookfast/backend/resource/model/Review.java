@@ -23,6 +23,50 @@ public class Review {
     @JsonIgnore
     private Resource resource;
 
+    // Rating, resource and date as last read from / written to the database; lets rating aggregates
+    // and analytics rollups apply the exact delta of an edit or delete
+    @Transient
+    @JsonIgnore
+    private Double persistedRating;
+
+    @Transient
+    @JsonIgnore
+    private Resource persistedResource;
+
+    @Transient
+    @JsonIgnore
+    private LocalDate persistedDate;
+
+    @Transient
+    @JsonIgnore
+    private boolean persisted;
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void rememberPersistedState() {
+        this.persistedRating = rating;
+        this.persistedResource = resource;
+        this.persistedDate = date;
+        this.persisted = true;
+    }
+
+    public Double getPersistedRating() {
+        return persistedRating;
+    }
+
+    public Resource getPersistedResource() {
+        return persistedResource;
+    }
+
+    public LocalDate getPersistedDate() {
+        return persistedDate;
+    }
+
+    public boolean isPersisted() {
+        return persisted;
+    }
+
     // Getters and setters
     public Long getCustomerId() {
         return customerId;
@@ -0,0 +1,57 @@
+package com.bookfast.backend.resource.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A short-lived reservation of [startTime, endTime) on a resource while a customer checks out. Other
+ * customers cannot hold or book overlapping time until it expires or is released; the booking made
+ * with its token consumes it. Rows past expiresAt are ignored and removed by SlotHoldService's sweeper.
+ */
+@Entity
+@Table(indexes = {
+    @Index(name = "idx_slot_hold_resource_start", columnList = "resource_id, start_time"),
+    @Index(name = "idx_slot_hold_expires", columnList = "expires_at")
+})
+public class SlotHold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID token;
+
+    private Long resourceId;
+
+    private Long customerId;
+
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+
+    private LocalDateTime expiresAt;
+
+    private LocalDateTime createdAt;
+
+    public UUID getToken() { return token; }
+    public void setToken(UUID token) { this.token = token; }
+
+    public Long getResourceId() { return resourceId; }
+    public void setResourceId(Long resourceId) { this.resourceId = resourceId; }
+
+    public Long getCustomerId() { return customerId; }
+    public void setCustomerId(Long customerId) { this.customerId = customerId; }
+
+    public LocalDateTime getStartTime() { return startTime; }
+    public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+
+    public LocalDateTime getEndTime() { return endTime; }
+    public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+        return startTime.isBefore(end) && endTime.isAfter(start);
+    }
+}
@@ -0,0 +1,59 @@
+package com.bookfast.backend.resource.repository;
+
+import com.bookfast.backend.resource.model.AvailabilityDay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AvailabilityDayRepository extends JpaRepository<AvailabilityDay, AvailabilityDay.Key> {
+
+    @Query("SELECT d FROM AvailabilityDay d WHERE d.resourceId = :resourceId AND d.day BETWEEN :from AND :to")
+    List<AvailabilityDay> findRange(@Param("resourceId") Long resourceId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Mark the (resource, day) row stale and bump its version, creating it on first use. Runs in the
+     * writer's transaction, so the row stays locked until the slot or booking change commits.
+     * Nothing is written if the resource no longer exists.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO availability_day (resource_id, day, granularity_minutes, free_slots, stale, version, updated_at) "
+            + "SELECT r.id, :day, 0, 0, true, 0, CURRENT_TIMESTAMP FROM resource r WHERE r.id = :resourceId "
+            + "ON CONFLICT (resource_id, day) DO UPDATE SET stale = true, version = availability_day.version + 1, "
+            + "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int markStale(@Param("resourceId") Long resourceId, @Param("day") LocalDate day);
+
+    /**
+     * Store a recomputed bitmap unless a writer bumped the version since it was read. expectedVersion
+     * -1 means the row did not exist then; an existing row never has that version. scheduleVersion is
+     * the availability schedule version the bitmap was expanded from.
+     *
+     * @return 1 when stored, 0 when the computation is already out of date
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO availability_day (resource_id, day, granularity_minutes, bitmap, free_slots, stale, version, schedule_version, updated_at) "
+            + "SELECT r.id, :day, :granularity, :bitmap, :freeSlots, false, 0, :scheduleVersion, CURRENT_TIMESTAMP FROM resource r WHERE r.id = :resourceId "
+            + "ON CONFLICT (resource_id, day) DO UPDATE SET granularity_minutes = EXCLUDED.granularity_minutes, "
+            + "bitmap = EXCLUDED.bitmap, free_slots = EXCLUDED.free_slots, stale = false, "
+            + "schedule_version = EXCLUDED.schedule_version, updated_at = EXCLUDED.updated_at "
+            + "WHERE availability_day.version = :expectedVersion", nativeQuery = true)
+    int storeIfUnchanged(@Param("resourceId") Long resourceId, @Param("day") LocalDate day,
+                         @Param("granularity") int granularity, @Param("bitmap") byte[] bitmap,
+                         @Param("freeSlots") int freeSlots, @Param("scheduleVersion") long scheduleVersion,
+                         @Param("expectedVersion") long expectedVersion);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM availability_day WHERE resource_id = :resourceId", nativeQuery = true)
+    int deleteByResourceId(@Param("resourceId") Long resourceId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM availability_day WHERE day < :before", nativeQuery = true)
+    int deleteDaysBefore(@Param("before") LocalDate before);
+}
@@ -0,0 +1,31 @@
+package com.bookfast.backend.resource.repository;
+
+import com.bookfast.backend.resource.model.AvailabilityException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface AvailabilityExceptionRepository extends JpaRepository<AvailabilityException, Long> {
+
+    @Query("SELECT e FROM AvailabilityException e WHERE e.resourceId = :resourceId ORDER BY e.date, e.startTime")
+    List<AvailabilityException> findByResourceId(@Param("resourceId") Long resourceId);
+
+    @Query("SELECT e FROM AvailabilityException e WHERE e.resourceId = :resourceId AND e.date BETWEEN :from AND :to")
+    List<AvailabilityException> findInRange(@Param("resourceId") Long resourceId,
+                                            @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Rows of (resourceId, first date with extra open hours in [from, to])
+    @Query("SELECT e.resourceId, MIN(e.date) FROM AvailabilityException e WHERE e.resourceId IN :resourceIds "
+            + "AND e.type = 'open' AND e.date BETWEEN :from AND :to GROUP BY e.resourceId")
+    List<Object[]> findFirstOpenDates(@Param("resourceIds") Collection<Long> resourceIds,
+                                      @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM AvailabilityException e WHERE e.resourceId = :resourceId")
+    int deleteByResourceId(@Param("resourceId") Long resourceId);
+}
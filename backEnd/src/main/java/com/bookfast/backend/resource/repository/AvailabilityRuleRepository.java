@@ -0,0 +1,23 @@
+package com.bookfast.backend.resource.repository;
+
+import com.bookfast.backend.resource.model.AvailabilityRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface AvailabilityRuleRepository extends JpaRepository<AvailabilityRule, Long> {
+
+    @Query("SELECT r FROM AvailabilityRule r WHERE r.resourceId = :resourceId ORDER BY r.dayOfWeek, r.startTime")
+    List<AvailabilityRule> findByResourceId(@Param("resourceId") Long resourceId);
+
+    @Query("SELECT DISTINCT r.resourceId FROM AvailabilityRule r WHERE r.resourceId IN :resourceIds")
+    List<Long> findResourceIdsWithRules(@Param("resourceIds") Collection<Long> resourceIds);
+
+    @Modifying
+    @Query("DELETE FROM AvailabilityRule r WHERE r.resourceId = :resourceId")
+    int deleteByResourceId(@Param("resourceId") Long resourceId);
+}
@@ -0,0 +1,31 @@
+package com.bookfast.backend.resource.repository;
+
+import com.bookfast.backend.resource.model.AvailabilitySchedule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface AvailabilityScheduleRepository extends JpaRepository<AvailabilitySchedule, Long> {
+
+    @Query("SELECT s.version FROM AvailabilitySchedule s WHERE s.resourceId = :resourceId")
+    Optional<Long> findVersion(@Param("resourceId") Long resourceId);
+
+    /**
+     * Create the schedule or bump its version. The row stays locked until the caller commits, which
+     * serializes concurrent edits of one resource's schedule.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO availability_schedule (resource_id, slot_minutes, version, updated_at) "
+            + "VALUES (:resourceId, :slotMinutes, 1, CURRENT_TIMESTAMP) "
+            + "ON CONFLICT (resource_id) DO UPDATE SET slot_minutes = EXCLUDED.slot_minutes, "
+            + "version = availability_schedule.version + 1, updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int upsertAndBump(@Param("resourceId") Long resourceId, @Param("slotMinutes") int slotMinutes);
+
+    @Modifying
+    @Query(value = "UPDATE availability_schedule SET version = version + 1, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE resource_id = :resourceId", nativeQuery = true)
+    int bump(@Param("resourceId") Long resourceId);
+}
@@ -2,11 +2,55 @@ package com.bookfast.backend.resource.repository;
 
 import com.bookfast.backend.resource.model.AvailabilitySlot;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface AvailabilitySlotRepository extends JpaRepository<AvailabilitySlot, Long> {
     List<AvailabilitySlot> findByResourceIdAndDate(Long resourceId, LocalDate date);
     List<AvailabilitySlot> findByResourceId(Long resourceId);
+    List<AvailabilitySlot> findByResourceIdAndDateBetween(Long resourceId, LocalDate from, LocalDate to);
+
+    /**
+     * Slots by id together with their resource, in a single query.
+     */
+    @Query("SELECT s FROM AvailabilitySlot s JOIN FETCH s.resource WHERE s.id IN :ids")
+    List<AvailabilitySlot> findAllWithResourceByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM AvailabilitySlot s WHERE s.googleEventId IN :eventIds AND s.resource.id IN :resourceIds")
+    int deleteByGoogleEventIds(@Param("eventIds") Collection<String> eventIds, @Param("resourceIds") Collection<Long> resourceIds);
+
+    // Every slot mirrored from Google Calendar, before a full re-sync
+    @Modifying
+    @Query("DELETE FROM AvailabilitySlot s WHERE s.googleEventId IS NOT NULL AND s.resource.id IN :resourceIds")
+    int deleteAllGoogleSlots(@Param("resourceIds") Collection<Long> resourceIds);
+
+    @Query("SELECT DISTINCT s.resource.id FROM AvailabilitySlot s WHERE s.resource.id IN :resourceIds AND LOWER(s.status) = 'available'")
+    List<Long> findResourceIdsWithAvailableSlots(@Param("resourceIds") Collection<Long> resourceIds);
+
+    // Rows of (resourceId, first date with an "available" slot in [from, to]); resources without one are absent
+    @Query("SELECT s.resource.id, MIN(s.date) FROM AvailabilitySlot s WHERE s.resource.id IN :resourceIds "
+            + "AND LOWER(s.status) = 'available' AND s.date BETWEEN :from AND :to GROUP BY s.resource.id")
+    List<Object[]> findFirstAvailableDates(@Param("resourceIds") Collection<Long> resourceIds,
+                                           @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Slot intervals (date, startTime, endTime, status) of a resource in a date range, for the availability bitmaps
+    @Query("SELECT s.date, s.startTime, s.endTime, s.status FROM AvailabilitySlot s WHERE s.resource.id = :resourceId "
+            + "AND s.date BETWEEN :from AND :to")
+    List<Object[]> findIntervalsByResourceAndDateRange(@Param("resourceId") Long resourceId,
+                                                       @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // (resourceId, date) pairs holding slots of the given Google events, before they are replaced
+    @Query("SELECT DISTINCT s.resource.id, s.date FROM AvailabilitySlot s WHERE s.googleEventId IN :eventIds "
+            + "AND s.resource.id IN :resourceIds")
+    List<Object[]> findGoogleSlotDays(@Param("eventIds") Collection<String> eventIds, @Param("resourceIds") Collection<Long> resourceIds);
+
+    @Query("SELECT DISTINCT s.resource.id, s.date FROM AvailabilitySlot s WHERE s.googleEventId IS NOT NULL "
+            + "AND s.resource.id IN :resourceIds")
+    List<Object[]> findAllGoogleSlotDays(@Param("resourceIds") Collection<Long> resourceIds);
 }
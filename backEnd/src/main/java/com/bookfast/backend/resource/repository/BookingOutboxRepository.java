@@ -0,0 +1,63 @@
+package com.bookfast.backend.resource.repository;
+
+import com.bookfast.backend.resource.model.BookingOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BookingOutboxRepository extends JpaRepository<BookingOutboxEvent, Long> {
+
+    /**
+     * Due events of one channel, locked for the surrounding transaction. Rows already locked by
+     * another instance are skipped instead of waited on.
+     */
+    @Query(value = "SELECT * FROM booking_outbox_event WHERE status = 'PENDING' AND channel = :channel "
+            + "AND next_attempt_at <= :now ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<BookingOutboxEvent> lockDueEvents(@Param("channel") String channel, @Param("now") LocalDateTime now,
+                                           @Param("limit") int limit);
+
+    // The claimedAt condition fences out a worker whose claim was reset as stale and taken over
+    @Transactional
+    @Modifying
+    @Query("UPDATE BookingOutboxEvent e SET e.status = 'DONE', e.attempts = e.attempts + 1, e.lastError = null, e.updatedAt = :now "
+            + "WHERE e.id = :id AND e.status = 'IN_PROGRESS' AND e.claimedAt = :claimedAt")
+    int markDone(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BookingOutboxEvent e SET e.status = :status, e.attempts = :attempts, e.nextAttemptAt = :nextAttemptAt, "
+            + "e.lastError = :error, e.claimedAt = null, e.updatedAt = :now "
+            + "WHERE e.id = :id AND e.status = 'IN_PROGRESS' AND e.claimedAt = :claimedAt")
+    int markFailed(@Param("id") Long id, @Param("claimedAt") LocalDateTime claimedAt, @Param("status") String status,
+                   @Param("attempts") int attempts, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                   @Param("error") String error, @Param("now") LocalDateTime now);
+
+    /**
+     * Hand events back whose worker died mid-dispatch (at-least-once delivery).
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE BookingOutboxEvent e SET e.status = 'PENDING', e.claimedAt = null, e.updatedAt = :now "
+            + "WHERE e.status = 'IN_PROGRESS' AND e.claimedAt < :cutoff")
+    int releaseStaleClaims(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM BookingOutboxEvent e WHERE e.status = 'DONE' AND e.updatedAt < :cutoff")
+    int purgeDone(@Param("cutoff") LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BookingOutboxEvent e SET e.status = 'PENDING', e.attempts = 0, e.nextAttemptAt = :now, e.updatedAt = :now "
+            + "WHERE e.id = :id AND e.status = 'DEAD'")
+    int retryDead(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    List<BookingOutboxEvent> findByStatusOrderByIdDesc(String status);
+
+    long countByStatus(String status);
+}
@@ -0,0 +1,51 @@
+package com.bookfast.backend.resource.repository;
+
+import com.bookfast.backend.resource.model.BookingReminder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BookingReminderRepository extends JpaRepository<BookingReminder, Long> {
+
+    /**
+     * Claim this reminder for confirmed bookings starting in (from, to] that have not had it yet,
+     * and return their ids. Uses the (start_time, status) index on booking. A claim that was never
+     * marked sent is taken over once it is older than staleBefore; a concurrent claim of the same
+     * reminder loses on the unique key and returns nothing.
+     */
+    @Transactional
+    @Query(value = "INSERT INTO booking_reminder (booking_id, channel, offset_minutes, claimed_at) "
+            + "SELECT b.id, :channel, :offsetMinutes, :now FROM booking b "
+            + "WHERE b.start_time > :from AND b.start_time <= :to AND LOWER(b.status) = 'confirmed' "
+            + "AND NOT EXISTS (SELECT 1 FROM booking_reminder r WHERE r.booking_id = b.id AND r.channel = :channel "
+            + "AND r.offset_minutes = :offsetMinutes AND (r.sent_at IS NOT NULL OR r.claimed_at >= :staleBefore)) "
+            + "ORDER BY b.start_time LIMIT :limit "
+            + "ON CONFLICT (booking_id, channel, offset_minutes) DO UPDATE SET claimed_at = EXCLUDED.claimed_at "
+            + "WHERE booking_reminder.sent_at IS NULL AND booking_reminder.claimed_at < :staleBefore "
+            + "RETURNING booking_id", nativeQuery = true)
+    List<Long> claimDue(@Param("channel") String channel, @Param("offsetMinutes") int offsetMinutes,
+                        @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                        @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore,
+                        @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE BookingReminder r SET r.sentAt = :now, r.outcome = :outcome WHERE r.bookingId = :bookingId "
+            + "AND r.channel = :channel AND r.offsetMinutes = :offsetMinutes AND r.claimedAt = :claimedAt")
+    int markSent(@Param("bookingId") Long bookingId, @Param("channel") String channel,
+                 @Param("offsetMinutes") int offsetMinutes, @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("outcome") String outcome, @Param("now") LocalDateTime now);
+
+    // Sending failed: drop the claim so the next run retries while the booking is still in the window
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM BookingReminder r WHERE r.bookingId = :bookingId AND r.channel = :channel "
+            + "AND r.offsetMinutes = :offsetMinutes AND r.claimedAt = :claimedAt AND r.sentAt IS NULL")
+    int release(@Param("bookingId") Long bookingId, @Param("channel") String channel,
+                @Param("offsetMinutes") int offsetMinutes, @Param("claimedAt") LocalDateTime claimedAt);
+}
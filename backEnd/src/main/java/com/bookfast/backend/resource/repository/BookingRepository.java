@@ -2,13 +2,22 @@
 package com.bookfast.backend.resource.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import com.bookfast.backend.resource.dto.AdminBookingDTO;
+import com.bookfast.backend.resource.dto.BookingDetailsDTO;
 import com.bookfast.backend.resource.model.Booking;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
     List<Booking> findByResource_Id(Long resourceId);
@@ -22,6 +31,33 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Query("SELECT b FROM Booking b JOIN FETCH b.resource r WHERE r.providerId = :providerId")
     List<Booking> findByResourceProviderId(@Param("providerId") Long providerId);
 
+    // Admin bookings table in one query: booking, resource and provider columns straight into the DTO
+    @Query("SELECT new com.bookfast.backend.resource.dto.AdminBookingDTO(b.id, b.customerId, b.customerName, "
+            + "b.customerEmail, b.customerPhone, b.customerZip, b.status, b.paymentStatus, b.finalAmount, b.startTime, "
+            + "b.endTime, b.date, b.startTimeStr, b.endTimeStr, b.slotId, r.id, r.name, r.description, r.price, "
+            + "p.id, p.firstName, p.lastName, p.email, p.organizationName) "
+            + "FROM Booking b LEFT JOIN b.resource r LEFT JOIN User p ON p.id = r.providerId ORDER BY b.id")
+    List<AdminBookingDTO> findAdminBookings();
+
+    @Query("SELECT new com.bookfast.backend.resource.dto.BookingDetailsDTO(b.id, b.customerId, b.customerName, "
+            + "b.customerEmail, b.customerPhone, b.customerZip, b.status, b.paymentStatus, b.finalAmount, b.startTime, "
+            + "b.endTime, b.date, b.startTimeStr, b.endTimeStr, r.id, r.name, r.description, r.price, r.specialization, "
+            + "r.providerId, p.id, p.firstName, p.lastName, p.email, p.organizationName, p.serviceCategory) "
+            + "FROM Booking b JOIN b.resource r LEFT JOIN User p ON p.id = r.providerId "
+            + "WHERE r.providerId = :providerId ORDER BY b.id")
+    List<BookingDetailsDTO> findDetailsByProviderId(@Param("providerId") Long providerId);
+
+    // Export cursor: rows arrive in fetch-size chunks with their resource; consume inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT b FROM Booking b LEFT JOIN FETCH b.resource ORDER BY b.id")
+    Stream<Booking> streamAllForExport();
+
+    @Query("SELECT b FROM Booking b LEFT JOIN FETCH b.resource WHERE b.id IN :ids")
+    List<Booking> findAllWithResourceByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT b FROM Booking b JOIN FETCH b.resource r WHERE r.providerId = :providerId ORDER BY b.startTime DESC NULLS LAST")
+    List<Booking> findRecentByProviderId(@Param("providerId") Long providerId, Pageable pageable);
+
     // Aggregate total revenue (CAD)
     @org.springframework.data.jpa.repository.Query("SELECT COALESCE(SUM(b.finalAmount), 0) FROM Booking b WHERE b.status = 'COMPLETED'")
     Double sumTotalAmount();
@@ -36,6 +72,19 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             @org.springframework.data.repository.query.Param("startTime") java.time.LocalDateTime startTime,
             @org.springframework.data.repository.query.Param("endTime") java.time.LocalDateTime endTime);
 
+    // Interval snapshots (id, resourceId, startTime, endTime) for the in-memory overlap index
+    @Query("SELECT b.id, b.resource.id, b.startTime, b.endTime FROM Booking b WHERE b.resource IS NOT NULL AND b.status <> 'cancelled' AND b.startTime IS NOT NULL AND b.endTime IS NOT NULL")
+    List<Object[]> findActiveBookingIntervals();
+
+    @Query("SELECT b.id, b.resource.id, b.startTime, b.endTime FROM Booking b WHERE b.resource.id = :resourceId AND b.status <> 'cancelled' AND b.startTime IS NOT NULL AND b.endTime IS NOT NULL")
+    List<Object[]> findActiveBookingIntervalsByResource(@Param("resourceId") Long resourceId);
+
+    // (startTime, endTime) of the resource's active bookings overlapping [from, to), for the availability bitmaps
+    @Query("SELECT b.startTime, b.endTime FROM Booking b WHERE b.resource.id = :resourceId AND b.status <> 'cancelled' "
+            + "AND b.startTime < :to AND b.endTime > :from")
+    List<Object[]> findActiveIntervalsBetween(@Param("resourceId") Long resourceId,
+                                              @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
     // Admin statistics methods
     long countByPaymentStatus(String paymentStatus);
     
@@ -48,6 +97,10 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     @Query("SELECT COALESCE(SUM(b.finalAmount), 0) FROM Booking b WHERE b.startTime >= :date")
     Double sumTotalAmountByDateAfter(@Param("date") java.time.LocalDateTime date);
     
+    // Most recently made bookings, for the admin recent-activity feed
+    @Query("SELECT b FROM Booking b LEFT JOIN FETCH b.resource WHERE b.createdAt IS NOT NULL ORDER BY b.createdAt DESC")
+    List<Booking> findRecentlyCreated(Pageable pageable);
+
     // Find recent bookings for admin dashboard
     @Query("SELECT b FROM Booking b ORDER BY b.startTime DESC")
     List<Booking> findTop10ByOrderByDateDesc();
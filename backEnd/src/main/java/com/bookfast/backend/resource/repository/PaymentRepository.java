@@ -1,11 +1,15 @@
 package com.bookfast.backend.resource.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import com.bookfast.backend.resource.model.Payment;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT p FROM Payment p WHERE p.booking.id = :bookingId")
@@ -14,4 +18,24 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     // Admin report methods
     @Query("SELECT p FROM Payment p WHERE p.paymentDate >= :date")
     List<Payment> findByPaymentDateAfter(@Param("date") java.time.LocalDateTime date);
+
+    // Latest payments, for the admin recent-activity feed
+    @Query("SELECT p FROM Payment p LEFT JOIN FETCH p.booking WHERE p.paymentDate IS NOT NULL ORDER BY p.paymentDate DESC")
+    List<Payment> findRecentPayments(org.springframework.data.domain.Pageable pageable);
+
+    // Export cursor: rows arrive in fetch-size chunks with their booking; consume inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p FROM Payment p LEFT JOIN FETCH p.booking b LEFT JOIN FETCH b.resource ORDER BY p.id")
+    Stream<Payment> streamAllForExport();
+
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p")
+    Double sumAmounts();
+
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.paymentDate >= :date")
+    Double sumAmountsSince(@Param("date") java.time.LocalDateTime date);
+
+    // Payment totals per day/week/month bucket since :from, as rows of (bucket start date, sum)
+    @Query(value = "SELECT CAST(date_trunc(CAST(:unit AS text), p.payment_date) AS date), COALESCE(SUM(p.amount), 0) FROM payment p "
+            + "WHERE p.payment_date >= :from GROUP BY 1 ORDER BY 1", nativeQuery = true)
+    List<Object[]> sumAmountsByBucket(@Param("unit") String unit, @Param("from") java.time.LocalDateTime from);
 }
@@ -0,0 +1,39 @@
+package com.bookfast.backend.resource.repository;
+
+import com.bookfast.backend.resource.model.ProviderRatingSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface ProviderRatingSummaryRepository extends JpaRepository<ProviderRatingSummary, Long> {
+
+    /**
+     * Atomically add a delta to the aggregate, creating the row on first use.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO provider_rating_summary (provider_id, rating_count, rating_sum, star1, star2, star3, star4, star5, updated_at) "
+            + "VALUES (:id, :count, :sum, :s1, :s2, :s3, :s4, :s5, CURRENT_TIMESTAMP) "
+            + "ON CONFLICT (provider_id) DO UPDATE SET "
+            + "rating_count = provider_rating_summary.rating_count + EXCLUDED.rating_count, "
+            + "rating_sum = provider_rating_summary.rating_sum + EXCLUDED.rating_sum, "
+            + "star1 = provider_rating_summary.star1 + EXCLUDED.star1, "
+            + "star2 = provider_rating_summary.star2 + EXCLUDED.star2, "
+            + "star3 = provider_rating_summary.star3 + EXCLUDED.star3, "
+            + "star4 = provider_rating_summary.star4 + EXCLUDED.star4, "
+            + "star5 = provider_rating_summary.star5 + EXCLUDED.star5, "
+            + "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int applyDelta(@Param("id") Long id, @Param("count") long count, @Param("sum") double sum,
+                   @Param("s1") long s1, @Param("s2") long s2, @Param("s3") long s3,
+                   @Param("s4") long s4, @Param("s5") long s5);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProviderRatingSummary s WHERE s.providerId = :id")
+    Optional<ProviderRatingSummary> findByIdForUpdate(@Param("id") Long id);
+}
@@ -1,10 +1,15 @@
 package com.bookfast.backend.resource.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.bookfast.backend.resource.model.Resource;
 
+import jakarta.persistence.LockModeType;
 import java.util.List;
+import java.util.Optional;
 
 public interface ResourceRepository extends JpaRepository<Resource, Long> {
     List<Resource> findBySpecializationAndStatus(String specialization, String status);
@@ -14,4 +19,17 @@ public interface ResourceRepository extends JpaRepository<Resource, Long> {
     List<Resource> findByProviderId(Long providerId);
 
     List<Resource> findByStatus(String status);
+
+    // Resources shown to customers: status null, empty, "active" or "available" (any case)
+    @Query("SELECT r FROM Resource r WHERE r.status IS NULL OR r.status = '' OR LOWER(r.status) IN ('active', 'available')")
+    List<Resource> findActiveForCustomers();
+
+    // Rows of (resourceId, providerId)
+    @Query("SELECT r.id, r.providerId FROM Resource r")
+    List<Object[]> findAllProviderIds();
+
+    // SELECT ... FOR UPDATE on the resource row; serializes booking writers for one resource across instances
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Resource r WHERE r.id = :id")
+    Optional<Resource> findByIdForUpdate(@Param("id") Long id);
 }
\ No newline at end of file
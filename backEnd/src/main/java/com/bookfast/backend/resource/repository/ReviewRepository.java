@@ -1,5 +1,6 @@
 package com.bookfast.backend.resource.repository;
 
+import com.bookfast.backend.resource.dto.ReviewDetailsDTO;
 import com.bookfast.backend.resource.model.Resource;
 import com.bookfast.backend.resource.model.Review;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -15,11 +16,34 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
 
     List<Review> findByCustomerId(Long customerId);
 
+    // A provider's reviews with customer email and provider details, newest first per resource, in one query
+    @Query("SELECT new com.bookfast.backend.resource.dto.ReviewDetailsDTO(rv.id, rv.customerId, rv.customerName, "
+            + "c.email, rv.rating, rv.comment, rv.date, r.id, r.name, r.description, r.price, r.specialization, "
+            + "r.providerId, p.id, p.firstName, p.lastName, p.email, p.organizationName, p.serviceCategory) "
+            + "FROM Review rv JOIN rv.resource r LEFT JOIN User c ON c.id = rv.customerId "
+            + "LEFT JOIN User p ON p.id = r.providerId "
+            + "WHERE r.providerId = :providerId ORDER BY r.id, rv.date DESC")
+    List<ReviewDetailsDTO> findDetailsByProviderId(@Param("providerId") Long providerId);
+
+    // Rating histograms used to rebuild the materialized aggregates: rows of (resourceId, rating, count)
+    @Query("SELECT r.resource.id, r.rating, COUNT(r) FROM Review r WHERE r.rating IS NOT NULL AND r.resource IS NOT NULL "
+            + "GROUP BY r.resource.id, r.rating")
+    List<Object[]> countRatingsByResource();
+
+    // Rows of (rating, count)
+    @Query("SELECT r.rating, COUNT(r) FROM Review r WHERE r.resource.id = :resourceId AND r.rating IS NOT NULL GROUP BY r.rating")
+    List<Object[]> countRatingsForResource(@Param("resourceId") Long resourceId);
+
+    // Rows of (rating, count)
+    @Query("SELECT r.rating, COUNT(r) FROM Review r WHERE r.resource.providerId = :providerId AND r.rating IS NOT NULL GROUP BY r.rating")
+    List<Object[]> countRatingsForProvider(@Param("providerId") Long providerId);
+
     // Admin statistics methods
     @Query("SELECT COUNT(r) FROM Review r WHERE r.date >= :date")
     long countByDateAfter(@Param("date") LocalDate date);
     
-    @Query("SELECT AVG(r.rating) FROM Review r")
+    // Platform-wide average from the materialized per-resource aggregates
+    @Query("SELECT SUM(s.stats.ratingSum) / SUM(s.stats.ratingCount) FROM ResourceRatingSummary s")
     Double getAverageRating();
     
     // Find recent reviews for admin dashboard
@@ -0,0 +1,35 @@
+package com.bookfast.backend.resource.repository;
+
+import com.bookfast.backend.resource.model.SlotHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+public interface SlotHoldRepository extends JpaRepository<SlotHold, UUID> {
+
+    @Query("SELECT h FROM SlotHold h WHERE h.resourceId = :resourceId AND h.expiresAt > :now")
+    List<SlotHold> findActiveByResource(@Param("resourceId") Long resourceId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT h FROM SlotHold h WHERE h.resourceId = :resourceId AND h.expiresAt > :now "
+            + "AND h.startTime < :endTime AND h.endTime > :startTime")
+    List<SlotHold> findActiveOverlapping(@Param("resourceId") Long resourceId, @Param("startTime") LocalDateTime startTime,
+                                         @Param("endTime") LocalDateTime endTime, @Param("now") LocalDateTime now);
+
+    @Query("SELECT COUNT(h) FROM SlotHold h WHERE h.customerId = :customerId AND h.expiresAt > :now")
+    long countActiveByCustomer(@Param("customerId") Long customerId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM SlotHold h WHERE h.token = :token")
+    int deleteByToken(@Param("token") UUID token);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM SlotHold h WHERE h.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
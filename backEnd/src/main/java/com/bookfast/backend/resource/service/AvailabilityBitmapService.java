@@ -0,0 +1,466 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.common.service.SchedulerLeaseService;
+import com.bookfast.backend.common.util.TransactionHooks;
+import com.bookfast.backend.resource.model.AvailabilityDay;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.repository.AvailabilityDayRepository;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Free time of resources as per-day bitmaps (DayBitmap), so availability questions over a provider's
+ * calendar are answered with word operations instead of loading and scanning AvailabilitySlot rows.
+ *
+ * A slot of a day is free when an "available" slot or the resource's availability schedule (see
+ * AvailabilityTemplateService) covers it completely and no other slot ("booked", "unavailable") and
+ * no active booking touches it. Bitmaps are kept in availability_day
+ * and in a small in-process cache:
+ * <ul>
+ *   <li>Writers (AvailabilitySlotService, BookingService, CalendarBusyTimeSync) call the *Changed
+ *   methods inside their transaction; the affected rows are marked stale with a version bump that
+ *   commits or rolls back with the change, and this instance drops its cached copies after commit.</li>
+ *   <li>Readers use fresh rows as they are and recompute stale or missing days from the source rows
+ *   in one range query each. The result is stored only if the row's version is still the one read
+ *   before the sources, so a recomputation racing a writer can never overwrite its invalidation.</li>
+ * </ul>
+ * Rows and cached copies are tagged with the schedule version they were expanded from and are not
+ * used once the schedule has moved on. Other instances' cached copies expire after cache-ttl-seconds, and rows older than max-age-hours
+ * are recomputed on read, which also repairs days changed by writes made outside the services.
+ */
+@Service
+public class AvailabilityBitmapService {
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+
+    private final AvailabilityDayRepository dayRepository;
+    private final AvailabilitySlotRepository slotRepository;
+    private final BookingRepository bookingRepository;
+    private final SchedulerLeaseService leaseService;
+    private final AvailabilityTemplateService templates;
+    private final int granularityMinutes;
+    private final Map<DayKey, CachedDay> cache;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder rowHits = new LongAdder();
+    private final LongAdder computedDays = new LongAdder();
+    private final LongAdder storeConflicts = new LongAdder();
+    private final LongAdder invalidatedDays = new LongAdder();
+
+    @Value("${availability.bitmap.cache-ttl-seconds:30}")
+    private long cacheTtlSeconds;
+
+    @Value("${availability.bitmap.max-age-hours:24}")
+    private long maxAgeHours;
+
+    @Value("${availability.bitmap.max-range-days:366}")
+    private int maxRangeDays;
+
+    @Value("${availability.bitmap.retention-days:7}")
+    private int retentionDays;
+
+    /**
+     * A run of free time on one day; endTime is LocalTime.MAX when it runs to midnight.
+     */
+    public record FreeWindow(LocalDate date, LocalTime startTime, LocalTime endTime) {
+    }
+
+    private record DayKey(Long resourceId, LocalDate day) {
+    }
+
+    private record CachedDay(DayBitmap bitmap, long scheduleVersion, long loadedAtNanos) {
+    }
+
+    public AvailabilityBitmapService(AvailabilityDayRepository dayRepository, AvailabilitySlotRepository slotRepository,
+                                     BookingRepository bookingRepository, SchedulerLeaseService leaseService,
+                                     AvailabilityTemplateService templates,
+                                     @Value("${availability.bitmap.granularity-minutes:15}") int granularityMinutes,
+                                     @Value("${availability.bitmap.cache-max-days:20000}") int cacheMaxDays) {
+        this.dayRepository = dayRepository;
+        this.slotRepository = slotRepository;
+        this.bookingRepository = bookingRepository;
+        this.leaseService = leaseService;
+        this.templates = templates;
+        // Validates the granularity at startup
+        this.granularityMinutes = new DayBitmap(granularityMinutes).getGranularityMinutes();
+        this.cache = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DayKey, CachedDay> eldest) {
+                return size() > cacheMaxDays;
+            }
+        };
+    }
+
+    public int getGranularityMinutes() {
+        return granularityMinutes;
+    }
+
+    /**
+     * The bitmaps of every day in [from, to]; callers get their own copies.
+     */
+    public SortedMap<LocalDate, DayBitmap> getDays(Long resourceId, LocalDate from, LocalDate to) {
+        SortedMap<LocalDate, DayBitmap> days = new TreeMap<>();
+        loadDays(resourceId, from, to).forEach((day, bitmap) -> days.put(day, bitmap.copy()));
+        return days;
+    }
+
+    /**
+     * Whether [startTime, endTime) on the date is free, rounded out to whole slots.
+     */
+    public boolean isFree(Long resourceId, LocalDate date, LocalTime startTime, LocalTime endTime) {
+        int startMinute = startMinute(startTime);
+        int endMinute = endMinute(startTime, endTime);
+        if (endMinute <= startMinute) {
+            throw new IllegalArgumentException("End time must be after start time");
+        }
+        return loadDays(resourceId, date, date).get(date).isFreeMinutes(startMinute, endMinute);
+    }
+
+    /**
+     * The earliest free window of the given length in [from, to], starting on a slot boundary and
+     * not before notBefore on the first day. Windows do not span midnight.
+     */
+    public Optional<FreeWindow> findFirstFreeWindow(Long resourceId, LocalDate from, LocalDate to,
+                                                    int minutes, LocalTime notBefore) {
+        if (minutes < 1 || minutes > DayBitmap.MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Window length must be between 1 and " + DayBitmap.MINUTES_PER_DAY + " minutes");
+        }
+        int length = Math.ceilDiv(minutes, granularityMinutes);
+        for (Map.Entry<LocalDate, DayBitmap> entry : loadDays(resourceId, from, to).entrySet()) {
+            DayBitmap bitmap = entry.getValue();
+            int firstSlot = entry.getKey().equals(from) && notBefore != null ? bitmap.slotCeil(startMinute(notBefore)) : 0;
+            int start = bitmap.firstFreeRun(firstSlot, length);
+            if (start >= 0) {
+                int startMinute = start * granularityMinutes;
+                return Optional.of(new FreeWindow(entry.getKey(), timeOf(startMinute), timeOf(startMinute + minutes)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Every maximal run of free time in [from, to], in order.
+     */
+    public List<FreeWindow> getFreeWindows(Long resourceId, LocalDate from, LocalDate to) {
+        List<FreeWindow> windows = new ArrayList<>();
+        loadDays(resourceId, from, to).forEach((day, bitmap) -> {
+            int start = bitmap.nextFree(0);
+            while (start >= 0) {
+                int end = bitmap.nextTaken(start);
+                windows.add(new FreeWindow(day, timeOf(start * granularityMinutes), timeOf(end * granularityMinutes)));
+                start = bitmap.nextFree(end);
+            }
+        });
+        return windows;
+    }
+
+    /**
+     * Slots of the resource on these days were created, edited or deleted.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void slotsChanged(Long resourceId, Collection<LocalDate> days) {
+        List<DayKey> keys = new ArrayList<>();
+        for (LocalDate day : days) {
+            if (resourceId != null && day != null) {
+                keys.add(new DayKey(resourceId, day));
+            }
+        }
+        invalidate(keys);
+    }
+
+    /**
+     * Same as slotsChanged, for rows of (resourceId, date) pairs.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void slotDaysChanged(Collection<Object[]> resourceDays) {
+        List<DayKey> keys = new ArrayList<>();
+        for (Object[] row : resourceDays) {
+            keys.add(new DayKey((Long) row[0], (LocalDate) row[1]));
+        }
+        invalidate(keys);
+    }
+
+    /**
+     * Bookings were created or edited; both the days they were persisted on and the days they cover
+     * now are invalidated. Call before the change is flushed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingsChanged(Collection<Booking> bookings) {
+        List<DayKey> keys = new ArrayList<>();
+        for (Booking booking : bookings) {
+            if (booking.isPersisted()) {
+                addDays(keys, booking.getPersistedResourceId(), booking.getPersistedStartTime(), booking.getPersistedEndTime());
+            }
+            addDays(keys, booking.getResource() != null ? booking.getResource().getId() : null,
+                booking.getStartTime(), booking.getEndTime());
+        }
+        invalidate(keys);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingDeleted(Booking booking) {
+        if (!booking.isPersisted()) {
+            return;
+        }
+        List<DayKey> keys = new ArrayList<>();
+        addDays(keys, booking.getPersistedResourceId(), booking.getPersistedStartTime(), booking.getPersistedEndTime());
+        invalidate(keys);
+    }
+
+    public void resourceRemoved(Long resourceId) {
+        dayRepository.deleteByResourceId(resourceId);
+        TransactionHooks.afterCommit(() -> evictResource(resourceId));
+    }
+
+    @Scheduled(cron = "${availability.bitmap.purge-cron:0 30 3 * * *}")
+    public void purgePastDays() {
+        try {
+            leaseService.runExclusive("availability-bitmap-purge", lease -> {
+                int purged = dayRepository.deleteDaysBefore(LocalDate.now().minusDays(retentionDays));
+                if (purged > 0) {
+                    System.out.println("[AvailabilityBitmapService] Purged " + purged + " past availability days");
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("[AvailabilityBitmapService] Purge failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("granularityMinutes", granularityMinutes);
+        synchronized (cache) {
+            stats.put("cachedDays", cache.size());
+        }
+        stats.put("cacheHits", cacheHits.sum());
+        stats.put("rowHits", rowHits.sum());
+        stats.put("computedDays", computedDays.sum());
+        stats.put("storeConflicts", storeConflicts.sum());
+        stats.put("invalidatedDays", invalidatedDays.sum());
+        return stats;
+    }
+
+    /**
+     * Cached, stored or recomputed bitmaps of [from, to]; shared instances, not to be modified.
+     */
+    private SortedMap<LocalDate, DayBitmap> loadDays(Long resourceId, LocalDate from, LocalDate to) {
+        if (resourceId == null || from == null || to == null) {
+            throw new IllegalArgumentException("Resource and date range are required");
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Range end must not be before its start");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new IllegalArgumentException("Range must not exceed " + maxRangeDays + " days");
+        }
+        SortedMap<LocalDate, DayBitmap> days = new TreeMap<>();
+        List<LocalDate> missing = new ArrayList<>();
+        long now = System.nanoTime();
+        long ttlNanos = cacheTtlSeconds * 1_000_000_000L;
+        Long scheduleVersion = templates.knownVersion(resourceId);
+        synchronized (cache) {
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                CachedDay cached = cache.get(new DayKey(resourceId, day));
+                if (cached != null && now - cached.loadedAtNanos() < ttlNanos && scheduleVersion != null
+                        && cached.scheduleVersion() == scheduleVersion) {
+                    days.put(day, cached.bitmap());
+                } else {
+                    missing.add(day);
+                }
+            }
+        }
+        cacheHits.add(days.size());
+        if (!missing.isEmpty()) {
+            load(resourceId, missing, days);
+        }
+        return days;
+    }
+
+    private void load(Long resourceId, List<LocalDate> missing, Map<LocalDate, DayBitmap> days) {
+        LocalDate first = missing.get(0);
+        LocalDate last = missing.get(missing.size() - 1);
+        long scheduleVersion = templates.currentVersion(resourceId);
+        Map<LocalDate, AvailabilityDay> rows = new HashMap<>();
+        for (AvailabilityDay row : dayRepository.findRange(resourceId, first, last)) {
+            rows.put(row.getDay(), row);
+        }
+
+        // Versions are read before the sources; see storeIfUnchanged
+        LocalDateTime freshAfter = LocalDateTime.now().minusHours(maxAgeHours);
+        Map<LocalDate, Long> expectedVersions = new TreeMap<>();
+        for (LocalDate day : missing) {
+            AvailabilityDay row = rows.get(day);
+            if (row != null && !row.isStale() && row.getBitmap() != null && row.getGranularityMinutes() == granularityMinutes
+                    && row.getUpdatedAt() != null && row.getUpdatedAt().isAfter(freshAfter)
+                    && row.getScheduleVersion() != null && row.getScheduleVersion() == scheduleVersion) {
+                DayBitmap bitmap = DayBitmap.fromBytes(granularityMinutes, row.getBitmap());
+                cache(resourceId, day, bitmap, scheduleVersion);
+                days.put(day, bitmap);
+                rowHits.increment();
+            } else {
+                expectedVersions.put(day, row != null ? row.getVersion() : -1L);
+            }
+        }
+        if (expectedVersions.isEmpty()) {
+            return;
+        }
+
+        Map<LocalDate, DayBitmap> computed = compute(resourceId, expectedVersions.keySet());
+        computedDays.add(computed.size());
+        computed.forEach((day, bitmap) -> {
+            // Tagged with the version read first; if the schedule changed since, the next read recomputes
+            int stored = dayRepository.storeIfUnchanged(resourceId, day, granularityMinutes, bitmap.toBytes(),
+                bitmap.freeCount(), scheduleVersion, expectedVersions.get(day));
+            if (stored == 1) {
+                cache(resourceId, day, bitmap, scheduleVersion);
+            } else {
+                // A writer changed the day meanwhile; answer with what was read but keep it out of the caches
+                storeConflicts.increment();
+            }
+            days.put(day, bitmap);
+        });
+    }
+
+    /**
+     * Bitmaps of the given days from the schedule, slot and booking tables, with one query each over
+     * their span.
+     */
+    private Map<LocalDate, DayBitmap> compute(Long resourceId, Collection<LocalDate> wanted) {
+        TreeSet<LocalDate> sortedDays = new TreeSet<>(wanted);
+        LocalDate first = sortedDays.first();
+        LocalDate last = sortedDays.last();
+        Map<LocalDate, DayBitmap> days = new TreeMap<>();
+        for (LocalDate day : sortedDays) {
+            days.put(day, new DayBitmap(granularityMinutes));
+        }
+
+        // Open the scheduled hours and available slots first, then take out everything that blocks them
+        templates.expand(resourceId, first, last).days().forEach((day, open) -> {
+            DayBitmap bitmap = days.get(day);
+            if (bitmap != null) {
+                open.forEach(interval -> bitmap.setMinutes(interval.startMinute(), interval.endMinute()));
+            }
+        });
+        List<Object[]> slots = slotRepository.findIntervalsByResourceAndDateRange(resourceId, first, last);
+        for (Object[] slot : slots) {
+            DayBitmap bitmap = days.get((LocalDate) slot[0]);
+            if (bitmap != null && slot[1] != null && slot[2] != null && "available".equalsIgnoreCase((String) slot[3])) {
+                int startMinute = startMinute((LocalTime) slot[1]);
+                int endMinute = endMinute((LocalTime) slot[1], (LocalTime) slot[2]);
+                if (startMinute < endMinute) {
+                    bitmap.setMinutes(startMinute, endMinute);
+                }
+            }
+        }
+        for (Object[] slot : slots) {
+            DayBitmap bitmap = days.get((LocalDate) slot[0]);
+            if (bitmap != null && slot[1] != null && slot[2] != null && !"available".equalsIgnoreCase((String) slot[3])) {
+                int startMinute = startMinute((LocalTime) slot[1]);
+                int endMinute = endMinute((LocalTime) slot[1], (LocalTime) slot[2]);
+                if (startMinute < endMinute) {
+                    bitmap.clearMinutes(startMinute, endMinute);
+                }
+            }
+        }
+
+        for (Object[] booking : bookingRepository.findActiveIntervalsBetween(resourceId, first.atStartOfDay(),
+                last.plusDays(1).atStartOfDay())) {
+            LocalDateTime start = (LocalDateTime) booking[0];
+            LocalDateTime end = (LocalDateTime) booking[1];
+            for (LocalDate day = start.toLocalDate(); day.isBefore(end.toLocalDate().plusDays(1)) && !day.isAfter(last);
+                    day = day.plusDays(1)) {
+                DayBitmap bitmap = days.get(day);
+                if (bitmap == null) {
+                    continue;
+                }
+                int startMinute = start.toLocalDate().equals(day) ? startMinute(start.toLocalTime()) : 0;
+                int endMinute = end.toLocalDate().equals(day) ? endMinute(LocalTime.MIN, end.toLocalTime()) : DayBitmap.MINUTES_PER_DAY;
+                if (startMinute < endMinute) {
+                    bitmap.clearMinutes(startMinute, endMinute);
+                }
+            }
+        }
+        return days;
+    }
+
+    private void invalidate(List<DayKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        // One lock order for all writers, so two of them invalidating overlapping days cannot deadlock
+        List<DayKey> sorted = keys.stream().distinct()
+            .sorted(Comparator.comparing(DayKey::resourceId).thenComparing(DayKey::day))
+            .toList();
+        for (DayKey key : sorted) {
+            dayRepository.markStale(key.resourceId(), key.day());
+        }
+        invalidatedDays.add(sorted.size());
+        TransactionHooks.afterCommit(() -> {
+            synchronized (cache) {
+                sorted.forEach(cache::remove);
+            }
+        });
+    }
+
+    private static void addDays(List<DayKey> keys, Long resourceId, LocalDateTime start, LocalDateTime end) {
+        if (resourceId == null || start == null || end == null || end.isBefore(start)) {
+            return;
+        }
+        LocalDate lastDay = end.toLocalTime().equals(LocalTime.MIDNIGHT) && end.isAfter(start)
+            ? end.toLocalDate().minusDays(1) : end.toLocalDate();
+        for (LocalDate day = start.toLocalDate(); !day.isAfter(lastDay); day = day.plusDays(1)) {
+            keys.add(new DayKey(resourceId, day));
+        }
+    }
+
+    private void cache(Long resourceId, LocalDate day, DayBitmap bitmap, long scheduleVersion) {
+        synchronized (cache) {
+            cache.put(new DayKey(resourceId, day), new CachedDay(bitmap, scheduleVersion, System.nanoTime()));
+        }
+    }
+
+    private void evictResource(Long resourceId) {
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key.resourceId().equals(resourceId));
+        }
+    }
+
+    private static int startMinute(LocalTime time) {
+        return (int) (time.toNanoOfDay() / NANOS_PER_MINUTE);
+    }
+
+    /**
+     * Minute of day an interval ends at, rounded up; an end of midnight after a later start is the
+     * end of the day, as is LocalTime.MAX.
+     */
+    private static int endMinute(LocalTime start, LocalTime end) {
+        if (end.equals(LocalTime.MIDNIGHT) && start.isAfter(LocalTime.MIDNIGHT)) {
+            return DayBitmap.MINUTES_PER_DAY;
+        }
+        return (int) Math.ceilDiv(end.toNanoOfDay(), NANOS_PER_MINUTE);
+    }
+
+    private static LocalTime timeOf(int minute) {
+        return minute >= DayBitmap.MINUTES_PER_DAY ? LocalTime.MAX : LocalTime.MIN.plusMinutes(minute);
+    }
+}
@@ -1,34 +1,64 @@
 package com.bookfast.backend.resource.service;
 
+import com.bookfast.backend.resource.dto.AvailabilitySlotBulkRequest;
+import com.bookfast.backend.resource.dto.AvailabilitySlotBulkRequest.SlotSpec;
 import com.bookfast.backend.resource.model.AvailabilitySlot;
 import com.bookfast.backend.resource.model.Resource;
 import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
 import com.bookfast.backend.resource.repository.ResourceRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 public class AvailabilitySlotService {
     private final AvailabilitySlotRepository availabilitySlotRepository;
     private final ResourceRepository resourceRepository;
+    private final AvailabilityBitmapService availabilityBitmaps;
+    private final AvailabilityTemplateService templates;
+    private final SlotHoldService slotHolds;
 
-    public AvailabilitySlotService(AvailabilitySlotRepository availabilitySlotRepository, ResourceRepository resourceRepository) {
+    @Value("${availability.bulk.max-slots:10000}")
+    private int maxBulkSlots;
+
+    public AvailabilitySlotService(AvailabilitySlotRepository availabilitySlotRepository, ResourceRepository resourceRepository,
+                                   AvailabilityBitmapService availabilityBitmaps, AvailabilityTemplateService templates,
+                                   SlotHoldService slotHolds) {
         this.availabilitySlotRepository = availabilitySlotRepository;
         this.resourceRepository = resourceRepository;
+        this.availabilityBitmaps = availabilityBitmaps;
+        this.templates = templates;
+        this.slotHolds = slotHolds;
     }
 
-    public List<AvailabilitySlot> getAvailabilitySlotsForResource(Long resourceId) {
-        return availabilitySlotRepository.findByResourceId(resourceId);
+    /**
+     * Stored slots, plus the virtual slots of the resource's schedule from today for listing-days days.
+     * Slots under another customer's checkout hold are flagged as held; customerId is the viewer, or null.
+     */
+    public List<AvailabilitySlot> getAvailabilitySlotsForResource(Long resourceId, Long customerId) {
+        LocalDate today = LocalDate.now();
+        return slotHolds.markHeld(resourceId, templates.withVirtualSlots(resourceId, today,
+            today.plusDays(templates.getListingDays() - 1L), availabilitySlotRepository.findByResourceId(resourceId)),
+            customerId);
     }
 
-    public List<AvailabilitySlot> getAvailabilitySlotsForResourceAndDate(Long resourceId, LocalDate date) {
-        return availabilitySlotRepository.findByResourceIdAndDate(resourceId, date);
+    public List<AvailabilitySlot> getAvailabilitySlotsForResourceAndDate(Long resourceId, LocalDate date, Long customerId) {
+        return slotHolds.markHeld(resourceId, templates.withVirtualSlots(resourceId, date, date,
+            availabilitySlotRepository.findByResourceIdAndDate(resourceId, date)), customerId);
     }
 
+    @Transactional
     public AvailabilitySlot createAvailabilitySlot(Long resourceId, LocalDate date, LocalTime startTime, LocalTime endTime, String status, String reason) {
         Resource resource = resourceRepository.findById(resourceId)
                                 .orElseThrow(() -> new RuntimeException("Resource not found"));
@@ -40,6 +70,7 @@ public class AvailabilitySlotService {
         slot.setEndTime(endTime);
         slot.setStatus(status);
         slot.setReason(reason != null && !reason.trim().isEmpty() ? reason : null);
+        availabilityBitmaps.slotsChanged(resourceId, List.of(date));
         return availabilitySlotRepository.save(slot);
     }
 
@@ -47,9 +78,15 @@ public class AvailabilitySlotService {
         return availabilitySlotRepository.findById(id);
     }
 
+    @Transactional
     public AvailabilitySlot updateAvailabilitySlot(Long id, LocalDate date, LocalTime startTime, LocalTime endTime, String status, String reason) {
         AvailabilitySlot slot = availabilitySlotRepository.findById(id)
                                 .orElseThrow(() -> new RuntimeException("Availability slot not found"));
+        // The day the slot leaves and the day it moves to
+        List<LocalDate> changedDays = new ArrayList<>();
+        changedDays.add(slot.getDate());
+        changedDays.add(date);
+        availabilityBitmaps.slotsChanged(slot.getResource() != null ? slot.getResource().getId() : null, changedDays);
         slot.setDate(date);
         slot.setStartTime(startTime);
         slot.setEndTime(endTime);
@@ -58,7 +95,229 @@ public class AvailabilitySlotService {
         return availabilitySlotRepository.save(slot);
     }
 
+    @Transactional
     public void deleteAvailabilitySlot(Long id) {
+        availabilitySlotRepository.findById(id).ifPresent(slot -> {
+            if (slot.getResource() != null) {
+                availabilityBitmaps.slotsChanged(slot.getResource().getId(), List.of(slot.getDate()));
+            }
+        });
         availabilitySlotRepository.deleteById(id);
     }
+
+    /**
+     * Create many slots of one resource in one transaction. The new slots are checked against each
+     * other and against the stored slots of their dates in memory, then inserted as JDBC batches.
+     */
+    @Transactional
+    public List<AvailabilitySlot> createAvailabilitySlots(Long resourceId, AvailabilitySlotBulkRequest request) {
+        Resource resource = resourceRepository.findById(resourceId)
+                                .orElseThrow(() -> new RuntimeException("Resource not found"));
+        List<SlotSpec> specs = request.slots() != null && !request.slots().isEmpty() ? request.slots() : expandRange(request);
+        if (specs.isEmpty()) {
+            throw new IllegalArgumentException("No slot fits the range: check daysOfWeek and that slotMinutes fits the daily window");
+        }
+        checkSize(specs.size());
+
+        List<AvailabilitySlot> created = new ArrayList<>();
+        for (SlotSpec spec : specs) {
+            AvailabilitySlot slot = new AvailabilitySlot();
+            slot.setResource(resource);
+            apply(slot, spec);
+            created.add(slot);
+        }
+        TreeSet<LocalDate> days = datesOf(created);
+        List<AvailabilitySlot> all = new ArrayList<>(
+            availabilitySlotRepository.findByResourceIdAndDateBetween(resourceId, days.first(), days.last()));
+        all.addAll(created);
+        checkOverlaps(all);
+
+        availabilityBitmaps.slotsChanged(resourceId, days);
+        return availabilitySlotRepository.saveAll(created);
+    }
+
+    /**
+     * Update many slots of one resource in one transaction; every spec needs the id of a slot of the
+     * resource. Overlaps are checked as for createAvailabilitySlots. No specs updates nothing.
+     */
+    @Transactional
+    public List<AvailabilitySlot> updateAvailabilitySlots(Long resourceId, AvailabilitySlotBulkRequest request) {
+        List<SlotSpec> specs = request.slots() != null ? request.slots() : List.of();
+        if (specs.isEmpty()) {
+            return List.of();
+        }
+        checkSize(specs.size());
+        Map<Long, SlotSpec> specsById = new LinkedHashMap<>();
+        for (SlotSpec spec : specs) {
+            if (spec.id() == null || specsById.put(spec.id(), spec) != null) {
+                throw new IllegalArgumentException("Every slot to update needs a distinct id");
+            }
+        }
+        List<AvailabilitySlot> updated = findSlotsOfResource(resourceId, specsById.keySet());
+
+        // Days the slots leave and days they move to
+        TreeSet<LocalDate> days = datesOf(updated);
+        for (SlotSpec spec : specs) {
+            if (spec.date() != null) {
+                days.add(spec.date());
+            }
+        }
+        Map<Long, AvailabilitySlot> all = new LinkedHashMap<>();
+        for (AvailabilitySlot slot : availabilitySlotRepository.findByResourceIdAndDateBetween(resourceId, days.first(), days.last())) {
+            all.put(slot.getId(), slot);
+        }
+        for (AvailabilitySlot slot : updated) {
+            apply(slot, specsById.get(slot.getId()));
+            all.put(slot.getId(), slot);
+        }
+        checkOverlaps(new ArrayList<>(all.values()));
+
+        availabilityBitmaps.slotsChanged(resourceId, days);
+        return availabilitySlotRepository.saveAll(updated);
+    }
+
+    /**
+     * Delete slots of one resource by id or by date range (and status) with a single statement.
+     * "booked" slots are kept, since bookings refer to them.
+     *
+     * @return the number of slots deleted and of booked slots kept
+     */
+    @Transactional
+    public Map<String, Integer> deleteAvailabilitySlots(Long resourceId, AvailabilitySlotBulkRequest request) {
+        List<AvailabilitySlot> slots;
+        if (request.ids() != null && !request.ids().isEmpty()) {
+            checkSize(request.ids().size());
+            slots = findSlotsOfResource(resourceId, new TreeSet<>(request.ids()));
+        } else if (request.from() != null && request.to() != null) {
+            if (request.to().isBefore(request.from())) {
+                throw new IllegalArgumentException("Date range is inverted: from " + request.from() + " is after to " + request.to());
+            }
+            slots = new ArrayList<>(availabilitySlotRepository.findByResourceIdAndDateBetween(resourceId, request.from(), request.to()));
+            if (request.status() != null) {
+                slots.removeIf(slot -> !request.status().equalsIgnoreCase(slot.getStatus()));
+            }
+        } else {
+            throw new IllegalArgumentException("Either ids or a from/to date range is required");
+        }
+
+        List<Long> ids = new ArrayList<>();
+        List<AvailabilitySlot> deleted = new ArrayList<>();
+        for (AvailabilitySlot slot : slots) {
+            if (!"booked".equalsIgnoreCase(slot.getStatus())) {
+                ids.add(slot.getId());
+                deleted.add(slot);
+            }
+        }
+        if (!ids.isEmpty()) {
+            availabilityBitmaps.slotsChanged(resourceId, datesOf(deleted));
+            availabilitySlotRepository.deleteAllByIdInBatch(ids);
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        result.put("deleted", ids.size());
+        result.put("keptBooked", slots.size() - ids.size());
+        return result;
+    }
+
+    private List<AvailabilitySlot> findSlotsOfResource(Long resourceId, Set<Long> ids) {
+        List<AvailabilitySlot> slots = new ArrayList<>(availabilitySlotRepository.findAllWithResourceByIdIn(ids));
+        slots.removeIf(slot -> !resourceId.equals(slot.getResource().getId()));
+        if (slots.size() != ids.size()) {
+            throw new RuntimeException("Availability slot not found");
+        }
+        return slots;
+    }
+
+    /**
+     * Slots of the request's date range: each matching day cut from startTime to endTime.
+     */
+    private List<SlotSpec> expandRange(AvailabilitySlotBulkRequest request) {
+        if (request.from() == null || request.to() == null || request.startTime() == null || request.endTime() == null) {
+            throw new IllegalArgumentException("Either slots or from, to, startTime and endTime are required");
+        }
+        if (request.to().isBefore(request.from())) {
+            throw new IllegalArgumentException("Range end must not be before its start");
+        }
+        int startMinute = request.startTime().toSecondOfDay() / 60;
+        int endMinute = endMinute(request.startTime(), request.endTime());
+        int length = request.slotMinutes() != null ? request.slotMinutes() : endMinute - startMinute;
+        if (length < 1 || endMinute <= startMinute) {
+            throw new IllegalArgumentException("The daily window and slotMinutes must be positive");
+        }
+        List<SlotSpec> specs = new ArrayList<>();
+        for (LocalDate day = request.from(); !day.isAfter(request.to()); day = day.plusDays(1)) {
+            if (request.daysOfWeek() != null && !request.daysOfWeek().isEmpty() && !request.daysOfWeek().contains(day.getDayOfWeek())) {
+                continue;
+            }
+            for (int start = startMinute; start + length <= endMinute; start += length) {
+                // Checked per slot, so a huge range fails before it is fully expanded
+                checkSize(specs.size() + 1);
+                specs.add(new SlotSpec(null, day, LocalTime.MIN.plusMinutes(start),
+                    LocalTime.MIN.plusMinutes((start + length) % (24 * 60)), request.status(), request.reason()));
+            }
+        }
+        return specs;
+    }
+
+    private static void apply(AvailabilitySlot slot, SlotSpec spec) {
+        if (spec.date() == null || spec.startTime() == null || spec.endTime() == null) {
+            throw new IllegalArgumentException("Every slot needs date, startTime and endTime");
+        }
+        if (endMinute(spec.startTime(), spec.endTime()) <= spec.startTime().toSecondOfDay() / 60) {
+            throw new IllegalArgumentException("Slot on " + spec.date() + " at " + spec.startTime() + " must end after it starts");
+        }
+        slot.setDate(spec.date());
+        slot.setStartTime(spec.startTime());
+        slot.setEndTime(spec.endTime());
+        slot.setStatus(spec.status() != null ? spec.status() : "available");
+        slot.setReason(spec.reason() != null && !spec.reason().trim().isEmpty() ? spec.reason() : null);
+    }
+
+    /**
+     * Reject the first pair of slots on the same date whose times intersect.
+     */
+    private static void checkOverlaps(List<AvailabilitySlot> slots) {
+        // Incomplete legacy rows cannot overlap anything
+        slots.removeIf(slot -> slot.getDate() == null || slot.getStartTime() == null || slot.getEndTime() == null);
+        slots.sort(Comparator.comparing(AvailabilitySlot::getDate).thenComparing(AvailabilitySlot::getStartTime));
+        AvailabilitySlot latest = null;
+        for (AvailabilitySlot slot : slots) {
+            if (latest != null && latest.getDate().equals(slot.getDate())
+                    && slot.getStartTime().toSecondOfDay() / 60 < endMinute(latest.getStartTime(), latest.getEndTime())) {
+                throw new IllegalArgumentException("Slot " + describe(slot) + " overlaps slot " + describe(latest));
+            }
+            if (latest == null || !latest.getDate().equals(slot.getDate())
+                    || endMinute(slot.getStartTime(), slot.getEndTime()) > endMinute(latest.getStartTime(), latest.getEndTime())) {
+                latest = slot;
+            }
+        }
+    }
+
+    private static String describe(AvailabilitySlot slot) {
+        return slot.getDate() + " " + slot.getStartTime() + "-" + slot.getEndTime() + (slot.getId() != null ? " (id " + slot.getId() + ")" : "");
+    }
+
+    private void checkSize(int size) {
+        if (size > maxBulkSlots) {
+            throw new IllegalArgumentException("At most " + maxBulkSlots + " slots per request");
+        }
+    }
+
+    private static TreeSet<LocalDate> datesOf(List<AvailabilitySlot> slots) {
+        TreeSet<LocalDate> days = new TreeSet<>();
+        for (AvailabilitySlot slot : slots) {
+            days.add(slot.getDate());
+        }
+        if (days.isEmpty()) {
+            throw new IllegalArgumentException("No slots given");
+        }
+        return days;
+    }
+
+    // Minute of day a slot ends at; an end of midnight after a later start is the end of the day
+    private static int endMinute(LocalTime start, LocalTime end) {
+        if (end.equals(LocalTime.MIDNIGHT) && start.isAfter(LocalTime.MIDNIGHT)) {
+            return 24 * 60;
+        }
+        return end.toSecondOfDay() / 60;
+    }
 }
@@ -0,0 +1,541 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.common.util.TransactionHooks;
+import com.bookfast.backend.resource.dto.AvailabilityScheduleDTO;
+import com.bookfast.backend.resource.model.AvailabilityException;
+import com.bookfast.backend.resource.model.AvailabilityRule;
+import com.bookfast.backend.resource.model.AvailabilitySchedule;
+import com.bookfast.backend.resource.model.AvailabilitySlot;
+import com.bookfast.backend.resource.repository.AvailabilityExceptionRepository;
+import com.bookfast.backend.resource.repository.AvailabilityRuleRepository;
+import com.bookfast.backend.resource.repository.AvailabilityScheduleRepository;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recurring availability: weekly hours and dated exceptions per resource, expanded into slots when
+ * they are read instead of being stored as one AvailabilitySlot row per slot.
+ *
+ * A day's open time is its weekly hours, minus "closed" exceptions, plus "open" exceptions; it is cut
+ * into slotMinutes-long virtual slots. Stored slots take precedence: a virtual slot overlapping any
+ * stored slot of the day is hidden, and a virtual slot is only written as a row when it is booked
+ * (materializeBooked). Expanded days are kept in a bounded LRU cache tagged with the schedule version,
+ * which every change bumps in the database, so a change on any instance is seen on the next read.
+ */
+@Service
+public class AvailabilityTemplateService {
+    private static final long NANOS_PER_MINUTE = 60_000_000_000L;
+
+    private final AvailabilityScheduleRepository scheduleRepository;
+    private final AvailabilityRuleRepository ruleRepository;
+    private final AvailabilityExceptionRepository exceptionRepository;
+    private final AvailabilitySlotRepository slotRepository;
+    private final BookingRepository bookingRepository;
+    private final ResourceRepository resourceRepository;
+    private final Map<DayKey, ExpandedDay> cache;
+    // Last schedule version seen per resource, for callers that validate their own caches without a query
+    private final Map<Long, Long> knownVersions = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder expandedDays = new LongAdder();
+    private final LongAdder materializedSlots = new LongAdder();
+
+    @Value("${availability.templates.slot-minutes:60}")
+    private int defaultSlotMinutes;
+
+    @Value("${availability.templates.listing-days:30}")
+    private int listingDays;
+
+    @Value("${availability.templates.max-range-days:366}")
+    private int maxRangeDays;
+
+    /**
+     * Open time of one day, in minutes of the day; end is exclusive and may be 1440.
+     */
+    public record OpenInterval(int startMinute, int endMinute) {
+    }
+
+    /**
+     * Open time of every day in a range, expanded from the schedule at the given version.
+     */
+    public record Expansion(long version, int slotMinutes, SortedMap<LocalDate, List<OpenInterval>> days) {
+    }
+
+    private record DayKey(Long resourceId, LocalDate day) {
+    }
+
+    private record ExpandedDay(long version, int slotMinutes, List<OpenInterval> open) {
+    }
+
+    public AvailabilityTemplateService(AvailabilityScheduleRepository scheduleRepository,
+                                       AvailabilityRuleRepository ruleRepository,
+                                       AvailabilityExceptionRepository exceptionRepository,
+                                       AvailabilitySlotRepository slotRepository, BookingRepository bookingRepository,
+                                       ResourceRepository resourceRepository,
+                                       @Value("${availability.templates.cache-max-days:20000}") int cacheMaxDays) {
+        this.scheduleRepository = scheduleRepository;
+        this.ruleRepository = ruleRepository;
+        this.exceptionRepository = exceptionRepository;
+        this.slotRepository = slotRepository;
+        this.bookingRepository = bookingRepository;
+        this.resourceRepository = resourceRepository;
+        this.cache = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DayKey, ExpandedDay> eldest) {
+                return size() > cacheMaxDays;
+            }
+        };
+    }
+
+    public int getListingDays() {
+        return listingDays;
+    }
+
+    public AvailabilityScheduleDTO getSchedule(Long resourceId) {
+        AvailabilitySchedule schedule = scheduleRepository.findById(resourceId).orElse(null);
+        return new AvailabilityScheduleDTO(resourceId,
+            schedule != null ? schedule.getSlotMinutes() : defaultSlotMinutes,
+            schedule != null ? schedule.getVersion() : 0L,
+            ruleRepository.findByResourceId(resourceId),
+            exceptionRepository.findByResourceId(resourceId));
+    }
+
+    /**
+     * Replace the weekly hours, exceptions and slot length of the resource in one go.
+     */
+    @Transactional
+    public AvailabilityScheduleDTO replaceSchedule(Long resourceId, AvailabilityScheduleDTO request) {
+        if (!resourceRepository.existsById(resourceId)) {
+            throw new RuntimeException("Resource not found");
+        }
+        int slotMinutes = request.slotMinutes() != null ? request.slotMinutes() : defaultSlotMinutes;
+        if (slotMinutes < 5 || slotMinutes > DayBitmap.MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("slotMinutes must be between 5 and " + DayBitmap.MINUTES_PER_DAY);
+        }
+        List<AvailabilityRule> rules = request.weekly() != null ? request.weekly() : List.of();
+        List<AvailabilityException> exceptions = request.exceptions() != null ? request.exceptions() : List.of();
+        rules.forEach(AvailabilityTemplateService::validate);
+        exceptions.forEach(AvailabilityTemplateService::validate);
+
+        // Bump first: the schedule row stays locked until commit, so concurrent replaces apply one after the other
+        scheduleRepository.upsertAndBump(resourceId, slotMinutes);
+        ruleRepository.deleteByResourceId(resourceId);
+        exceptionRepository.deleteByResourceId(resourceId);
+        for (AvailabilityRule rule : rules) {
+            rule.setId(null);
+            rule.setResourceId(resourceId);
+        }
+        for (AvailabilityException exception : exceptions) {
+            exception.setId(null);
+            exception.setResourceId(resourceId);
+        }
+        ruleRepository.saveAll(rules);
+        exceptionRepository.saveAll(exceptions);
+        changed(resourceId);
+        return getSchedule(resourceId);
+    }
+
+    @Transactional
+    public AvailabilityException addException(Long resourceId, AvailabilityException exception) {
+        if (!resourceRepository.existsById(resourceId)) {
+            throw new RuntimeException("Resource not found");
+        }
+        validate(exception);
+        bump(resourceId);
+        exception.setId(null);
+        exception.setResourceId(resourceId);
+        AvailabilityException saved = exceptionRepository.save(exception);
+        changed(resourceId);
+        return saved;
+    }
+
+    @Transactional
+    public void deleteException(Long resourceId, Long exceptionId) {
+        AvailabilityException exception = exceptionRepository.findById(exceptionId)
+            .filter(e -> resourceId.equals(e.getResourceId()))
+            .orElseThrow(() -> new RuntimeException("Availability exception not found"));
+        bump(resourceId);
+        exceptionRepository.delete(exception);
+        changed(resourceId);
+    }
+
+    /**
+     * Remove all weekly hours and exceptions. The schedule row is kept so its version keeps growing.
+     */
+    @Transactional
+    public void clearSchedule(Long resourceId) {
+        if (scheduleRepository.bump(resourceId) == 0) {
+            return;
+        }
+        ruleRepository.deleteByResourceId(resourceId);
+        exceptionRepository.deleteByResourceId(resourceId);
+        changed(resourceId);
+    }
+
+    @Transactional
+    public void resourceRemoved(Long resourceId) {
+        ruleRepository.deleteByResourceId(resourceId);
+        exceptionRepository.deleteByResourceId(resourceId);
+        scheduleRepository.deleteById(resourceId);
+        TransactionHooks.afterCommit(() -> {
+            knownVersions.remove(resourceId);
+            evictResource(resourceId);
+        });
+    }
+
+    /**
+     * The schedule version from the database (0 when the resource has none); also remembered as the
+     * known version.
+     */
+    public long currentVersion(Long resourceId) {
+        long version = scheduleRepository.findVersion(resourceId).orElse(0L);
+        knownVersions.put(resourceId, version);
+        return version;
+    }
+
+    /**
+     * The last version this instance read or wrote, without a query; null if it has seen none.
+     */
+    public Long knownVersion(Long resourceId) {
+        return knownVersions.get(resourceId);
+    }
+
+    /**
+     * Open time of every day in [from, to], from the cache where it is still at the current version.
+     */
+    public Expansion expand(Long resourceId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Range end must not be before its start");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new IllegalArgumentException("Range must not exceed " + maxRangeDays + " days");
+        }
+        long version = currentVersion(resourceId);
+        SortedMap<LocalDate, List<OpenInterval>> days = new TreeMap<>();
+        if (version == 0) {
+            // Never had a schedule
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                days.put(day, List.of());
+            }
+            return new Expansion(0, defaultSlotMinutes, days);
+        }
+
+        int slotMinutes = 0;
+        List<LocalDate> missing = new ArrayList<>();
+        synchronized (cache) {
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                ExpandedDay cached = cache.get(new DayKey(resourceId, day));
+                if (cached != null && cached.version() == version) {
+                    days.put(day, cached.open());
+                    slotMinutes = cached.slotMinutes();
+                } else {
+                    missing.add(day);
+                }
+            }
+        }
+        cacheHits.add(days.size());
+        if (!missing.isEmpty()) {
+            slotMinutes = expandMissing(resourceId, version, missing, days);
+        }
+        return new Expansion(version, slotMinutes, days);
+    }
+
+    /**
+     * Stored slots of [from, to] plus the virtual slots not overlapping any of them, in date and time
+     * order. Virtual slots overlapping an active booking are reported as "booked".
+     */
+    public List<AvailabilitySlot> withVirtualSlots(Long resourceId, LocalDate from, LocalDate to,
+                                                   List<AvailabilitySlot> stored) {
+        Expansion expansion = expand(resourceId, from, to);
+        List<AvailabilitySlot> slots = new ArrayList<>(stored);
+        if (expansion.days().values().stream().allMatch(List::isEmpty)) {
+            return slots;
+        }
+        Map<LocalDate, List<AvailabilitySlot>> storedByDay = new HashMap<>();
+        for (AvailabilitySlot slot : stored) {
+            if (slot.getDate() != null && slot.getStartTime() != null && slot.getEndTime() != null) {
+                storedByDay.computeIfAbsent(slot.getDate(), d -> new ArrayList<>()).add(slot);
+            }
+        }
+        List<Object[]> bookings = bookingRepository.findActiveIntervalsBetween(resourceId, from.atStartOfDay(),
+            to.plusDays(1).atStartOfDay());
+
+        expansion.days().forEach((day, open) -> {
+            List<AvailabilitySlot> taken = storedByDay.getOrDefault(day, List.of());
+            for (OpenInterval slice : slices(open, expansion.slotMinutes())) {
+                boolean hidden = taken.stream().anyMatch(slot -> startMinute(slot.getStartTime()) < slice.endMinute()
+                    && slice.startMinute() < endMinute(slot.getStartTime(), slot.getEndTime()));
+                if (hidden) {
+                    continue;
+                }
+                LocalDateTime start = day.atStartOfDay().plusMinutes(slice.startMinute());
+                LocalDateTime end = day.atStartOfDay().plusMinutes(slice.endMinute());
+                boolean booked = bookings.stream().anyMatch(b -> ((LocalDateTime) b[0]).isBefore(end)
+                    && ((LocalDateTime) b[1]).isAfter(start));
+                slots.add(virtualSlot(day, slice, booked ? "booked" : "available"));
+            }
+        });
+        slots.sort(Comparator.comparing(AvailabilitySlot::getDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(AvailabilitySlot::getStartTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        return slots;
+    }
+
+    /**
+     * Store the virtual slot [start, end) as a "booked" row, so the booking has a slot like any other.
+     * Call under the resource's booking lock, after the overlap check.
+     *
+     * @return the stored slot, or null when the interval is not exactly one visible virtual slot
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public AvailabilitySlot materializeBooked(Long resourceId, LocalDateTime start, LocalDateTime end) {
+        OpenInterval slice = visibleSlice(resourceId, start, end);
+        if (slice == null) {
+            return null;
+        }
+        AvailabilitySlot slot = virtualSlot(start.toLocalDate(), slice, "booked");
+        slot.setVirtual(false);
+        slot.setResource(resourceRepository.getReferenceById(resourceId));
+        AvailabilitySlot saved = slotRepository.save(slot);
+        materializedSlots.increment();
+        return saved;
+    }
+
+    /**
+     * Whether [start, end) is exactly one virtual slot of the schedule that no stored slot hides.
+     * Bookings are not considered.
+     */
+    public boolean isVirtualSlot(Long resourceId, LocalDateTime start, LocalDateTime end) {
+        return visibleSlice(resourceId, start, end) != null;
+    }
+
+    private OpenInterval visibleSlice(Long resourceId, LocalDateTime start, LocalDateTime end) {
+        LocalDate day = start.toLocalDate();
+        boolean sameDay = end.toLocalDate().equals(day)
+            || (end.toLocalDate().equals(day.plusDays(1)) && end.toLocalTime().equals(LocalTime.MIDNIGHT));
+        boolean wholeMinutes = start.getSecond() == 0 && start.getNano() == 0 && end.getSecond() == 0 && end.getNano() == 0;
+        if (!sameDay || !wholeMinutes || !end.isAfter(start)) {
+            return null;
+        }
+        Expansion expansion = expand(resourceId, day, day);
+        int startMinute = startMinute(start.toLocalTime());
+        int endMinute = (int) ChronoUnit.MINUTES.between(day.atStartOfDay(), end);
+        OpenInterval slice = new OpenInterval(startMinute, endMinute);
+        if (!slices(expansion.days().get(day), expansion.slotMinutes()).contains(slice)) {
+            return null;
+        }
+        for (Object[] stored : slotRepository.findIntervalsByResourceAndDateRange(resourceId, day, day)) {
+            if (stored[1] != null && stored[2] != null && startMinute((LocalTime) stored[1]) < endMinute
+                    && startMinute < endMinute((LocalTime) stored[1], (LocalTime) stored[2])) {
+                return null;
+            }
+        }
+        return slice;
+    }
+
+    /**
+     * First date in [from, to] on which each resource may have scheduled open time: from itself for
+     * resources with weekly hours, else the first "open" exception. Resources with neither are absent.
+     */
+    public Map<Long, LocalDate> findFirstScheduledDates(Collection<Long> resourceIds, LocalDate from, LocalDate to) {
+        Map<Long, LocalDate> firstDates = new HashMap<>();
+        if (resourceIds.isEmpty()) {
+            return firstDates;
+        }
+        for (Object[] row : exceptionRepository.findFirstOpenDates(resourceIds, from, to)) {
+            firstDates.put((Long) row[0], (LocalDate) row[1]);
+        }
+        for (Long resourceId : ruleRepository.findResourceIdsWithRules(resourceIds)) {
+            firstDates.put(resourceId, from);
+        }
+        return firstDates;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (cache) {
+            stats.put("cachedDays", cache.size());
+        }
+        stats.put("cacheHits", cacheHits.sum());
+        stats.put("expandedDays", expandedDays.sum());
+        stats.put("materializedSlots", materializedSlots.sum());
+        return stats;
+    }
+
+    /**
+     * Expand the missing days with one query per table over their span.
+     *
+     * @return the schedule's slot length
+     */
+    private int expandMissing(Long resourceId, long version, List<LocalDate> missing,
+                              Map<LocalDate, List<OpenInterval>> days) {
+        LocalDate first = missing.get(0);
+        LocalDate last = missing.get(missing.size() - 1);
+        int slotMinutes = scheduleRepository.findById(resourceId)
+            .map(AvailabilitySchedule::getSlotMinutes)
+            .orElse(defaultSlotMinutes);
+        List<AvailabilityRule> rules = ruleRepository.findByResourceId(resourceId);
+        Map<LocalDate, List<AvailabilityException>> exceptionsByDay = new HashMap<>();
+        for (AvailabilityException exception : exceptionRepository.findInRange(resourceId, first, last)) {
+            exceptionsByDay.computeIfAbsent(exception.getDate(), d -> new ArrayList<>()).add(exception);
+        }
+
+        for (LocalDate day : missing) {
+            List<OpenInterval> open = expandDay(day, rules, exceptionsByDay.getOrDefault(day, List.of()));
+            days.put(day, open);
+            synchronized (cache) {
+                cache.put(new DayKey(resourceId, day), new ExpandedDay(version, slotMinutes, open));
+            }
+        }
+        expandedDays.add(missing.size());
+        return slotMinutes;
+    }
+
+    /**
+     * Weekly hours of the day, minus closed exceptions, plus open exceptions, as maximal runs.
+     */
+    static List<OpenInterval> expandDay(LocalDate day, List<AvailabilityRule> rules, List<AvailabilityException> exceptions) {
+        DayBitmap minutes = new DayBitmap(1);
+        for (AvailabilityRule rule : rules) {
+            if (rule.appliesTo(day)) {
+                minutes.set(startMinute(rule.getStartTime()), endMinute(rule.getStartTime(), rule.getEndTime()));
+            }
+        }
+        for (AvailabilityException exception : exceptions) {
+            if (AvailabilityException.CLOSED.equals(exception.getType())) {
+                if (exception.getStartTime() == null) {
+                    minutes.clear(0, DayBitmap.MINUTES_PER_DAY);
+                } else {
+                    minutes.clear(startMinute(exception.getStartTime()),
+                        endMinute(exception.getStartTime(), exception.getEndTime()));
+                }
+            }
+        }
+        for (AvailabilityException exception : exceptions) {
+            if (AvailabilityException.OPEN.equals(exception.getType())) {
+                minutes.set(startMinute(exception.getStartTime()), endMinute(exception.getStartTime(), exception.getEndTime()));
+            }
+        }
+        List<OpenInterval> open = new ArrayList<>();
+        int start = minutes.nextFree(0);
+        while (start >= 0) {
+            int end = minutes.nextTaken(start);
+            open.add(new OpenInterval(start, end));
+            start = minutes.nextFree(end);
+        }
+        return List.copyOf(open);
+    }
+
+    /**
+     * Consecutive slotMinutes-long slots from the start of each open run; a shorter remainder is dropped.
+     */
+    static List<OpenInterval> slices(List<OpenInterval> open, int slotMinutes) {
+        List<OpenInterval> slices = new ArrayList<>();
+        for (OpenInterval run : open) {
+            for (int start = run.startMinute(); start + slotMinutes <= run.endMinute(); start += slotMinutes) {
+                slices.add(new OpenInterval(start, start + slotMinutes));
+            }
+        }
+        return slices;
+    }
+
+    private static void validate(AvailabilityRule rule) {
+        if (rule.getDayOfWeek() == null || rule.getStartTime() == null || rule.getEndTime() == null) {
+            throw new IllegalArgumentException("Weekly hours need dayOfWeek, startTime and endTime");
+        }
+        if (endMinute(rule.getStartTime(), rule.getEndTime()) <= startMinute(rule.getStartTime())) {
+            throw new IllegalArgumentException("Weekly hours must end after they start");
+        }
+        if (rule.getValidFrom() != null && rule.getValidUntil() != null && rule.getValidUntil().isBefore(rule.getValidFrom())) {
+            throw new IllegalArgumentException("validUntil must not be before validFrom");
+        }
+    }
+
+    private static void validate(AvailabilityException exception) {
+        if (exception.getDate() == null) {
+            throw new IllegalArgumentException("Exception date is required");
+        }
+        if (exception.getType() == null) {
+            exception.setType(AvailabilityException.CLOSED);
+        }
+        exception.setType(exception.getType().toLowerCase());
+        if (!AvailabilityException.CLOSED.equals(exception.getType()) && !AvailabilityException.OPEN.equals(exception.getType())) {
+            throw new IllegalArgumentException("Exception type must be 'closed' or 'open'");
+        }
+        boolean whole = exception.getStartTime() == null && exception.getEndTime() == null;
+        if (whole && AvailabilityException.OPEN.equals(exception.getType())) {
+            throw new IllegalArgumentException("Open exceptions need startTime and endTime");
+        }
+        if (!whole && (exception.getStartTime() == null || exception.getEndTime() == null
+                || endMinute(exception.getStartTime(), exception.getEndTime()) <= startMinute(exception.getStartTime()))) {
+            throw new IllegalArgumentException("Exception times must both be given and end after they start");
+        }
+    }
+
+    /**
+     * Bump the version of an existing schedule, or create one with the default slot length.
+     */
+    private void bump(Long resourceId) {
+        if (scheduleRepository.bump(resourceId) == 0) {
+            scheduleRepository.upsertAndBump(resourceId, defaultSlotMinutes);
+        }
+    }
+
+    private void changed(Long resourceId) {
+        long version = scheduleRepository.findVersion(resourceId).orElse(0L);
+        TransactionHooks.afterCommit(() -> {
+            knownVersions.put(resourceId, version);
+            evictResource(resourceId);
+        });
+    }
+
+    private void evictResource(Long resourceId) {
+        synchronized (cache) {
+            cache.keySet().removeIf(key -> key.resourceId().equals(resourceId));
+        }
+    }
+
+    private static AvailabilitySlot virtualSlot(LocalDate day, OpenInterval slice, String status) {
+        AvailabilitySlot slot = new AvailabilitySlot();
+        slot.setDate(day);
+        slot.setStartTime(LocalTime.MIN.plusMinutes(slice.startMinute()));
+        // 24:00 is stored as midnight, which slot readers take as the end of the day
+        slot.setEndTime(LocalTime.MIN.plusMinutes(slice.endMinute() % DayBitmap.MINUTES_PER_DAY));
+        slot.setStatus(status);
+        slot.setVirtual(true);
+        return slot;
+    }
+
+    private static int startMinute(LocalTime time) {
+        return (int) (time.toNanoOfDay() / NANOS_PER_MINUTE);
+    }
+
+    /**
+     * Minute an interval ends at, rounded up; midnight after a later start and LocalTime.MAX are 1440.
+     */
+    private static int endMinute(LocalTime start, LocalTime end) {
+        if (end.equals(LocalTime.MIDNIGHT) && start.isAfter(LocalTime.MIDNIGHT)) {
+            return DayBitmap.MINUTES_PER_DAY;
+        }
+        return (int) Math.ceilDiv(end.toNanoOfDay(), NANOS_PER_MINUTE);
+    }
+}
@@ -0,0 +1,306 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.common.util.TransactionHooks;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of non-cancelled bookings per resource, used for overlap checks
+ * on the booking write path instead of a range query per request.
+ *
+ * Each resource keeps its intervals sorted by start time together with the longest
+ * interval seen, so an overlap lookup only walks the intervals starting inside
+ * [start - longest, end). The index mirrors BookingRepository.findOverlappingBookings:
+ * a booking is indexed when it has a resource, both times, and a status other than "cancelled".
+ */
+@Component
+public class BookingIntervalIndex {
+    private static final Comparator<Interval> BY_START_THEN_ID =
+            Comparator.comparing(Interval::start).thenComparing(Interval::bookingId);
+
+    private final BookingRepository bookingRepository;
+    private final Map<Long, ResourceIntervals> byResource = new ConcurrentHashMap<>();
+    private final Map<Long, Long> resourceByBooking = new ConcurrentHashMap<>();
+    private final Set<Long> touchedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    @Value("${booking.interval-index.enabled:true}")
+    private boolean enabled;
+
+    private volatile boolean ready = false;
+    private volatile boolean rebuilding = false;
+
+    public BookingIntervalIndex(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+    }
+
+    /**
+     * Whether overlap checks can be answered from memory. Until the startup rebuild
+     * has finished callers should fall back to the database query.
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Ids of indexed bookings on the resource overlapping [start, end), excluding excludeBookingId.
+     */
+    public List<Long> findOverlappingIds(Long resourceId, LocalDateTime start, LocalDateTime end, Long excludeBookingId) {
+        ResourceIntervals intervals = byResource.get(resourceId);
+        if (intervals == null) {
+            return List.of();
+        }
+        return intervals.findOverlapping(start, end, excludeBookingId);
+    }
+
+    /**
+     * Add, move or drop a booking depending on its current state. Inside a transaction
+     * the change is applied once it commits, so a rollback never leaves the index ahead of the database.
+     */
+    public void upsert(Booking booking) {
+        if (booking == null || booking.getId() == null) {
+            return;
+        }
+        Interval interval = isIndexable(booking)
+                ? new Interval(booking.getId(), booking.getResource().getId(), booking.getStartTime(), booking.getEndTime())
+                : null;
+        Long bookingId = booking.getId();
+        TransactionHooks.afterCommit(() -> {
+            removeNow(bookingId);
+            if (interval != null) {
+                byResource.computeIfAbsent(interval.resourceId(), id -> new ResourceIntervals()).add(interval);
+                resourceByBooking.put(bookingId, interval.resourceId());
+                markTouched(interval.resourceId());
+            }
+        });
+    }
+
+    public void remove(Long bookingId) {
+        if (bookingId == null) {
+            return;
+        }
+        TransactionHooks.afterCommit(() -> removeNow(bookingId));
+    }
+
+    private void removeNow(Long bookingId) {
+        Long resourceId = resourceByBooking.remove(bookingId);
+        if (resourceId == null) {
+            return;
+        }
+        ResourceIntervals intervals = byResource.get(resourceId);
+        if (intervals != null) {
+            intervals.remove(bookingId);
+        }
+        markTouched(resourceId);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!enabled) {
+            System.out.println("[BookingIntervalIndex] Disabled - overlap checks will query the database");
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            System.err.println("[BookingIntervalIndex] Failed to build index, falling back to database checks: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reload every resource from the database. Resources written to while the snapshot
+     * was loading are reloaded individually afterwards so their writes are not lost.
+     */
+    public synchronized void rebuild() {
+        long started = System.currentTimeMillis();
+        rebuilding = true;
+        touchedDuringRebuild.clear();
+        try {
+            Map<Long, ResourceIntervals> fresh = new HashMap<>();
+            Map<Long, Long> freshResourceByBooking = new HashMap<>();
+            for (Object[] row : bookingRepository.findActiveBookingIntervals()) {
+                Interval interval = toInterval(row);
+                fresh.computeIfAbsent(interval.resourceId(), id -> new ResourceIntervals()).add(interval);
+                freshResourceByBooking.put(interval.bookingId(), interval.resourceId());
+            }
+            int count = freshResourceByBooking.size();
+            byResource.keySet().retainAll(fresh.keySet());
+            byResource.putAll(fresh);
+            resourceByBooking.keySet().retainAll(freshResourceByBooking.keySet());
+            resourceByBooking.putAll(freshResourceByBooking);
+            rebuilding = false;
+            for (Long resourceId : new ArrayList<>(touchedDuringRebuild)) {
+                reloadResource(resourceId);
+            }
+            ready = true;
+            System.out.println("[BookingIntervalIndex] Indexed " + count + " bookings across " + fresh.size()
+                    + " resources in " + (System.currentTimeMillis() - started) + " ms");
+        } finally {
+            rebuilding = false;
+            touchedDuringRebuild.clear();
+        }
+    }
+
+    /**
+     * Replace the intervals of a single resource with what the database currently holds.
+     */
+    public void reloadResource(Long resourceId) {
+        ResourceIntervals fresh = new ResourceIntervals();
+        for (Object[] row : bookingRepository.findActiveBookingIntervalsByResource(resourceId)) {
+            fresh.add(toInterval(row));
+        }
+        ResourceIntervals previous = fresh.isEmpty() ? byResource.remove(resourceId) : byResource.put(resourceId, fresh);
+        if (previous != null) {
+            previous.snapshot().keySet().forEach(bookingId -> resourceByBooking.remove(bookingId, resourceId));
+        }
+        fresh.snapshot().keySet().forEach(bookingId -> resourceByBooking.put(bookingId, resourceId));
+    }
+
+    /**
+     * Consistency checker: compare the index with the database, repair resources that drifted
+     * and report what was found.
+     */
+    @Scheduled(fixedDelayString = "${booking.interval-index.verify-interval-ms:900000}", initialDelayString = "${booking.interval-index.verify-interval-ms:900000}")
+    public void scheduledVerify() {
+        if (!isReady()) {
+            return;
+        }
+        try {
+            Map<String, Object> report = verifyAgainstDatabase();
+            if (!Boolean.TRUE.equals(report.get("consistent"))) {
+                System.err.println("[BookingIntervalIndex] Drift detected and repaired: " + report);
+            }
+        } catch (Exception e) {
+            System.err.println("[BookingIntervalIndex] Consistency check failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> verifyAgainstDatabase() {
+        Map<Long, Map<Long, Interval>> expected = new HashMap<>();
+        for (Object[] row : bookingRepository.findActiveBookingIntervals()) {
+            Interval interval = toInterval(row);
+            expected.computeIfAbsent(interval.resourceId(), id -> new HashMap<>()).put(interval.bookingId(), interval);
+        }
+
+        Set<Long> resourceIds = ConcurrentHashMap.newKeySet();
+        resourceIds.addAll(expected.keySet());
+        resourceIds.addAll(byResource.keySet());
+
+        List<Long> driftedResources = new ArrayList<>();
+        int indexedCount = 0;
+        int databaseCount = 0;
+        for (Long resourceId : resourceIds) {
+            Map<Long, Interval> inDatabase = expected.getOrDefault(resourceId, Map.of());
+            ResourceIntervals intervals = byResource.get(resourceId);
+            Map<Long, Interval> inIndex = intervals != null ? intervals.snapshot() : Map.of();
+            indexedCount += inIndex.size();
+            databaseCount += inDatabase.size();
+            if (!inIndex.equals(inDatabase)) {
+                driftedResources.add(resourceId);
+                reloadResource(resourceId);
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("consistent", driftedResources.isEmpty());
+        report.put("indexedBookings", indexedCount);
+        report.put("databaseBookings", databaseCount);
+        report.put("repairedResources", driftedResources);
+        report.put("checkedAt", LocalDateTime.now());
+        return report;
+    }
+
+    private void markTouched(Long resourceId) {
+        if (rebuilding) {
+            touchedDuringRebuild.add(resourceId);
+        }
+    }
+
+    private static boolean isIndexable(Booking booking) {
+        return booking.getResource() != null
+                && booking.getResource().getId() != null
+                && booking.getStartTime() != null
+                && booking.getEndTime() != null
+                && booking.getStatus() != null
+                && !"cancelled".equals(booking.getStatus());
+    }
+
+    private static Interval toInterval(Object[] row) {
+        return new Interval((Long) row[0], (Long) row[1], (LocalDateTime) row[2], (LocalDateTime) row[3]);
+    }
+
+    record Interval(Long bookingId, Long resourceId, LocalDateTime start, LocalDateTime end) {
+    }
+
+    /**
+     * Sorted intervals of one resource. Methods are synchronized on the instance; contention
+     * is limited to writers and readers of the same resource.
+     */
+    static final class ResourceIntervals {
+        private final TreeSet<Interval> sorted = new TreeSet<>(BY_START_THEN_ID);
+        private final Map<Long, Interval> byBookingId = new HashMap<>();
+        private Duration longest = Duration.ZERO;
+
+        synchronized void add(Interval interval) {
+            Interval previous = byBookingId.put(interval.bookingId(), interval);
+            if (previous != null) {
+                sorted.remove(previous);
+            }
+            sorted.add(interval);
+            Duration length = Duration.between(interval.start(), interval.end());
+            if (length.compareTo(longest) > 0) {
+                longest = length;
+            }
+        }
+
+        synchronized boolean remove(Long bookingId) {
+            Interval previous = byBookingId.remove(bookingId);
+            if (previous == null) {
+                return false;
+            }
+            sorted.remove(previous);
+            return true;
+        }
+
+        synchronized boolean isEmpty() {
+            return byBookingId.isEmpty();
+        }
+
+        synchronized List<Long> findOverlapping(LocalDateTime start, LocalDateTime end, Long excludeBookingId) {
+            if (sorted.isEmpty()) {
+                return List.of();
+            }
+            // Anything starting before (start - longest) has already ended by start.
+            Interval from = new Interval(Long.MIN_VALUE, null, start.minus(longest), null);
+            Interval to = new Interval(Long.MIN_VALUE, null, end, null);
+            List<Long> overlapping = new ArrayList<>();
+            for (Interval candidate : sorted.subSet(from, true, to, false)) {
+                if (candidate.start().isBefore(end) && candidate.end().isAfter(start)
+                        && !candidate.bookingId().equals(excludeBookingId)) {
+                    overlapping.add(candidate.bookingId());
+                }
+            }
+            return overlapping;
+        }
+
+        synchronized Map<Long, Interval> snapshot() {
+            return new HashMap<>(byBookingId);
+        }
+    }
+}
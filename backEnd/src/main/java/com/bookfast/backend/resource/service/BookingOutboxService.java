@@ -0,0 +1,92 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.provider.service.CalendarSyncService;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.BookingOutboxEvent;
+import com.bookfast.backend.resource.repository.BookingOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records booking side effects in the outbox. Must be called inside the transaction that changes
+ * the booking, so the effects are persisted if and only if the booking change commits.
+ *
+ * Calendar events are not outbox events: they are queued with CalendarSyncService, which coalesces
+ * and batches them per user.
+ */
+@Service
+public class BookingOutboxService {
+    private final BookingOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+    private final CalendarSyncService calendarSync;
+
+    public BookingOutboxService(BookingOutboxRepository outboxRepository, ObjectMapper objectMapper,
+                                CalendarSyncService calendarSync) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+        this.calendarSync = calendarSync;
+    }
+
+    /**
+     * Calendar events for every booking, plus one confirmation email and SMS covering all of them.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingsCreated(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        for (Booking booking : bookings) {
+            calendarSync.bookingChanged(booking);
+        }
+        List<BookingOutboxEvent> events = new ArrayList<>();
+        Booking first = bookings.get(0);
+        List<Long> bookingIds = bookings.stream().map(Booking::getId).toList();
+        if (first.getCustomerEmail() != null && !first.getCustomerEmail().isEmpty()) {
+            events.add(newEvent(BookingOutboxEvent.TYPE_CONFIRMATION_EMAIL, BookingOutboxEvent.CHANNEL_EMAIL,
+                first.getId(), null, Map.of("bookingIds", bookingIds)));
+        }
+        if (first.getCustomerPhone() != null && !first.getCustomerPhone().trim().isEmpty()) {
+            events.add(newEvent(BookingOutboxEvent.TYPE_CONFIRMATION_SMS, BookingOutboxEvent.CHANNEL_SMS,
+                first.getId(), null, Map.of("bookingIds", bookingIds)));
+        }
+        outboxRepository.saveAll(events);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingUpdated(Booking booking) {
+        calendarSync.bookingChanged(booking);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingDeleted(Booking booking) {
+        calendarSync.bookingChanged(booking);
+    }
+
+    private BookingOutboxEvent newEvent(String type, String channel, Long bookingId, Long targetUserId, Map<String, Object> payload) {
+        LocalDateTime now = LocalDateTime.now();
+        BookingOutboxEvent event = new BookingOutboxEvent();
+        event.setEventType(type);
+        event.setChannel(channel);
+        event.setBookingId(bookingId);
+        event.setTargetUserId(targetUserId);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize outbox payload", e);
+        }
+        event.setStatus(BookingOutboxEvent.STATUS_PENDING);
+        event.setAttempts(0);
+        event.setNextAttemptAt(now);
+        event.setCreatedAt(now);
+        event.setUpdatedAt(now);
+        return event;
+    }
+}
@@ -0,0 +1,188 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.common.service.SchedulerLeaseService;
+import com.bookfast.backend.common.util.ClaimedWork;
+import com.bookfast.backend.resource.model.BookingOutboxEvent;
+import com.bookfast.backend.resource.repository.BookingOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the booking outbox. Due events are claimed with FOR UPDATE SKIP LOCKED (so several
+ * instances can poll the same table) and dispatched on virtual threads, with a separate
+ * concurrency limit per channel so a slow calendar API cannot starve email or SMS. Each channel
+ * claims only as many events as it has free permits, so a claimed event is always being worked on
+ * and never sits in a queue until its claim goes stale and another worker sends it a second time.
+ *
+ * Failed events are retried with exponential backoff and move to DEAD after max-attempts.
+ * Events claimed by an instance that died are handed back after stale-after-ms, so every
+ * side effect is delivered at least once.
+ */
+@Component
+public class BookingOutboxWorker {
+    private final BookingOutboxRepository outboxRepository;
+    private final BookingSideEffectHandler handler;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeaseService leaseService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Semaphore> channelLimits = new LinkedHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${booking.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${booking.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${booking.outbox.max-in-flight:200}")
+    private int maxInFlight;
+
+    @Value("${booking.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${booking.outbox.backoff-base-ms:5000}")
+    private long backoffBaseMs;
+
+    @Value("${booking.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${booking.outbox.stale-after-ms:300000}")
+    private long staleAfterMs;
+
+    @Value("${booking.outbox.retention-days:7}")
+    private int retentionDays;
+
+    public BookingOutboxWorker(BookingOutboxRepository outboxRepository, BookingSideEffectHandler handler,
+                               TransactionTemplate transactionTemplate, SchedulerLeaseService leaseService,
+                               @Value("${booking.outbox.concurrency.calendar:4}") int calendarConcurrency,
+                               @Value("${booking.outbox.concurrency.email:4}") int emailConcurrency,
+                               @Value("${booking.outbox.concurrency.sms:2}") int smsConcurrency) {
+        this.outboxRepository = outboxRepository;
+        this.handler = handler;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseService = leaseService;
+        channelLimits.put(BookingOutboxEvent.CHANNEL_CALENDAR, new Semaphore(calendarConcurrency));
+        channelLimits.put(BookingOutboxEvent.CHANNEL_EMAIL, new Semaphore(emailConcurrency));
+        channelLimits.put(BookingOutboxEvent.CHANNEL_SMS, new Semaphore(smsConcurrency));
+    }
+
+    @Scheduled(fixedDelayString = "${booking.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        channelLimits.forEach(this::pollChannel);
+    }
+
+    private void pollChannel(String channel, Semaphore limit) {
+        // Permits are taken before claiming and handed to the dispatch; unused ones go straight back
+        int wanted = Math.min(batchSize, maxInFlight - inFlight.get());
+        int permits = 0;
+        while (permits < wanted && limit.tryAcquire()) {
+            permits++;
+        }
+        if (permits == 0) {
+            return;
+        }
+        List<BookingOutboxEvent> claimed = List.of();
+        try {
+            claimed = claim(channel, permits);
+        } catch (Exception e) {
+            System.err.println("[BookingOutboxWorker] Failed to claim " + channel + " outbox events: " + e.getMessage());
+        } finally {
+            limit.release(permits - claimed.size());
+        }
+        for (BookingOutboxEvent event : claimed) {
+            inFlight.incrementAndGet();
+            executor.submit(() -> dispatch(event, limit));
+        }
+    }
+
+    private List<BookingOutboxEvent> claim(String channel, int limit) {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = ClaimedWork.claimTimestamp();
+            List<BookingOutboxEvent> events = outboxRepository.lockDueEvents(channel, now, limit);
+            for (BookingOutboxEvent event : events) {
+                event.setStatus(BookingOutboxEvent.STATUS_IN_PROGRESS);
+                event.setClaimedAt(now);
+                event.setUpdatedAt(now);
+            }
+            return outboxRepository.saveAll(events);
+        });
+    }
+
+    // Runs with the channel permit taken in pollChannel
+    private void dispatch(BookingOutboxEvent event, Semaphore limit) {
+        try {
+            handler.handle(event);
+            outboxRepository.markDone(event.getId(), event.getClaimedAt(), LocalDateTime.now());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            recordFailure(event, e);
+        } finally {
+            limit.release();
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void recordFailure(BookingOutboxEvent event, Exception error) {
+        int attempts = event.getAttempts() + 1;
+        boolean dead = attempts >= maxAttempts;
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(ClaimedWork.backoff(backoffBaseMs, backoffMaxMs, attempts), ChronoUnit.MILLIS);
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        try {
+            outboxRepository.markFailed(event.getId(), event.getClaimedAt(),
+                dead ? BookingOutboxEvent.STATUS_DEAD : BookingOutboxEvent.STATUS_PENDING,
+                attempts, nextAttemptAt, message, LocalDateTime.now());
+        } catch (Exception e) {
+            // The claim goes stale and the event is retried later
+            System.err.println("[BookingOutboxWorker] Failed to record failure of event " + event.getId() + ": " + e.getMessage());
+        }
+        if (dead) {
+            System.err.println("[BookingOutboxWorker] Event " + event.getId() + " (" + event.getEventType() + ", booking "
+                + event.getBookingId() + ") moved to DEAD after " + attempts + " attempts: " + message);
+        } else {
+            System.err.println("[BookingOutboxWorker] Event " + event.getId() + " (" + event.getEventType() + ") failed, attempt "
+                + attempts + ", retrying at " + nextAttemptAt + ": " + message);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${booking.outbox.maintenance-interval-ms:60000}")
+    public void maintenance() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // Polling is spread over all instances; the sweep only needs one of them
+            leaseService.runExclusive("booking-outbox-maintenance", lease -> {
+                LocalDateTime now = LocalDateTime.now();
+                int released = outboxRepository.releaseStaleClaims(now.minus(staleAfterMs, ChronoUnit.MILLIS), now);
+                if (released > 0) {
+                    System.out.println("[BookingOutboxWorker] Released " + released + " stale outbox claims");
+                }
+                outboxRepository.purgeDone(now.minusDays(retentionDays));
+            });
+        } catch (Exception e) {
+            System.err.println("[BookingOutboxWorker] Outbox maintenance failed: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ClaimedWork.shutdown(executor);
+    }
+}
@@ -1,48 +1,95 @@
 package com.bookfast.backend.resource.service;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.bookfast.backend.common.pagination.KeysetListing;
+import com.bookfast.backend.common.pagination.KeysetPage;
+import com.bookfast.backend.common.pagination.KeysetPager;
+import com.bookfast.backend.common.pagination.KeysetRequest;
+import com.bookfast.backend.common.pagination.SortKey;
+import com.bookfast.backend.provider.service.BookingRollupService;
 import com.bookfast.backend.resource.model.Booking;
 import com.bookfast.backend.resource.model.Payment;
 import com.bookfast.backend.resource.model.AvailabilitySlot;
+import com.bookfast.backend.resource.model.Resource;
 import com.bookfast.backend.resource.repository.BookingRepository;
 import com.bookfast.backend.resource.repository.PaymentRepository;
 import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
 import com.bookfast.backend.resource.dto.BookingDetailsDTO;
-import com.bookfast.backend.common.model.User;
-import com.bookfast.backend.common.repository.UserRepository;
-import com.bookfast.backend.provider.service.GoogleCalendarService;
-import com.bookfast.backend.common.notification.EmailService;
-import com.bookfast.backend.common.notification.SmsService;
+
+import jakarta.persistence.criteria.Join;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
-import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.time.LocalDateTime;
 import org.springframework.beans.factory.annotation.Autowired;
 
 @Service
 public class BookingService {
     private final BookingRepository repository;
     private final PaymentRepository paymentRepository;
-    private final UserRepository userRepository;
-    private final GoogleCalendarService googleCalendarService;
     private final AvailabilitySlotRepository availabilitySlotRepository;
-    private final EmailService emailService;
-    private final SmsService smsService;
+    private final BookingIntervalIndex intervalIndex;
+    private final ResourceRepository resourceRepository;
+    private final ResourceLockStripes resourceLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingOutboxService outboxService;
+    private final BookingRollupService rollups;
+    private final AvailabilityBitmapService availabilityBitmaps;
+    private final AvailabilityTemplateService templates;
+    private final SlotHoldService slotHolds;
+    private final KeysetPager keysetPager;
+
+    private static final KeysetListing<Booking> PROVIDER_BOOKING_LISTING = KeysetListing.of(Booking.class, Booking::getId)
+        .sortKey(SortKey.ofDateTime("startTime", "startTime", Booking::getStartTime))
+        .defaultSort("startTime", true)
+        .fetch("resource");
+
+    /**
+     * "database" (default) re-checks overlaps against the database while holding the resource row lock,
+     * which is safe across several backend instances. "local" trusts the in-memory interval index under
+     * the in-process stripe lock, so booking writes run no overlap query; it is only correct when a single
+     * instance writes bookings. getOverlapCheckStats() reports how often the index would have been wrong.
+     */
+    @Value("${booking.concurrency.mode:database}")
+    private String concurrencyMode;
 
-    public BookingService(BookingRepository repository, PaymentRepository paymentRepository, 
-                         UserRepository userRepository, GoogleCalendarService googleCalendarService,
+    private final LongAdder indexChecks = new LongAdder();
+    private final LongAdder databaseChecks = new LongAdder();
+    private final LongAdder indexMisses = new LongAdder();
+
+    public BookingService(BookingRepository repository, PaymentRepository paymentRepository,
                          AvailabilitySlotRepository availabilitySlotRepository,
-                         EmailService emailService, SmsService smsService) {
+                         BookingIntervalIndex intervalIndex, ResourceRepository resourceRepository,
+                         ResourceLockStripes resourceLocks, TransactionTemplate transactionTemplate,
+                         BookingOutboxService outboxService, BookingRollupService rollups,
+                         AvailabilityBitmapService availabilityBitmaps, AvailabilityTemplateService templates,
+                         SlotHoldService slotHolds, KeysetPager keysetPager) {
         this.repository = repository;
         this.paymentRepository = paymentRepository;
-        this.userRepository = userRepository;
-        this.googleCalendarService = googleCalendarService;
         this.availabilitySlotRepository = availabilitySlotRepository;
-        this.emailService = emailService;
-        this.smsService = smsService;
+        this.intervalIndex = intervalIndex;
+        this.resourceRepository = resourceRepository;
+        this.resourceLocks = resourceLocks;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxService = outboxService;
+        this.rollups = rollups;
+        this.availabilityBitmaps = availabilityBitmaps;
+        this.templates = templates;
+        this.slotHolds = slotHolds;
+        this.keysetPager = keysetPager;
     }
 
     public Booking createBooking(Booking booking) {
@@ -57,237 +104,194 @@ public class BookingService {
             throw new IllegalArgumentException("Start time cannot be after end time");
         }
         
-        // Prevent double booking: check for overlapping bookings
-        List<Booking> overlaps = repository.findOverlappingBookings(
-                booking.getResource().getId(),
-                booking.getStartTime(),
-                booking.getEndTime());
+        Long resourceId = booking.getResource().getId();
         
-        if (!overlaps.isEmpty()) {
-            StringBuilder errorMessage = new StringBuilder("Double booking detected! This time slot is already booked. ");
-            errorMessage.append("Conflicting booking(s): ");
-            for (int i = 0; i < overlaps.size(); i++) {
-                Booking conflict = overlaps.get(i);
-                errorMessage.append(String.format("Booking #%d (Customer: %s, Time: %s to %s)", 
-                    conflict.getId(), 
-                    conflict.getCustomerName(),
-                    conflict.getStartTime(),
-                    conflict.getEndTime()));
-                if (i < overlaps.size() - 1) {
-                    errorMessage.append(", ");
-                }
+        // Cheap rejection from memory before queueing on the lock
+        if (intervalIndex.isReady()) {
+            List<Booking> overlaps = findOverlappingBookings(resourceId, booking.getStartTime(), booking.getEndTime(), null);
+            if (!overlaps.isEmpty()) {
+                throw new IllegalStateException(buildDoubleBookingMessage(overlaps));
             }
-            throw new IllegalStateException(errorMessage.toString());
         }
+        slotHolds.checkBookable(resourceId, List.of(booking), booking.getHoldToken(), booking.getCustomerId(), false);
         
-        // Save the booking first
-        Booking savedBooking = repository.save(booking);
-        
-        // Mark the slot as booked
-        if (savedBooking.getSlotId() != null) {
-            try {
-                Optional<AvailabilitySlot> slotOpt = availabilitySlotRepository.findById(Long.valueOf(savedBooking.getSlotId()));
+        // Check and save atomically: writers on the same resource serialize on the stripe lock (this instance)
+        // and on the resource row lock (other instances); writers on other resources are not blocked.
+        Booking savedBooking = resourceLocks.withResourceLock(resourceId, () -> transactionTemplate.execute(status -> {
+            lockResourceRow(resourceId);
+            List<Booking> conflicts = findConflictsUnderLock(resourceId, booking.getStartTime(), booking.getEndTime(), null);
+            if (!conflicts.isEmpty()) {
+                throw new IllegalStateException(buildDoubleBookingMessage(conflicts));
+            }
+            slotHolds.checkBookable(resourceId, List.of(booking), booking.getHoldToken(), booking.getCustomerId(), true);
+            // A booking of a virtual slot from the resource's schedule stores that slot, marked below
+            if (booking.getSlotId() == null) {
+                AvailabilitySlot materialized = templates.materializeBooked(resourceId, booking.getStartTime(), booking.getEndTime());
+                if (materialized != null) {
+                    booking.setSlotId(Math.toIntExact(materialized.getId()));
+                }
+            }
+            
+            Booking saved = repository.save(booking);
+            intervalIndex.upsert(saved);
+            availabilityBitmaps.bookingsChanged(List.of(saved));
+            slotHolds.consume(resourceId, booking.getHoldToken(), booking.getCustomerId());
+            
+            // Mark the slot as booked
+            if (saved.getSlotId() != null) {
+                Optional<AvailabilitySlot> slotOpt = availabilitySlotRepository.findById(Long.valueOf(saved.getSlotId()));
                 if (slotOpt.isPresent()) {
                     AvailabilitySlot slot = slotOpt.get();
                     slot.setStatus("booked");
                     availabilitySlotRepository.save(slot);
-                    System.out.println("[BookingService] Marked slot " + savedBooking.getSlotId() + " as booked");
+                    availabilityBitmaps.slotsChanged(resourceId, List.of(slot.getDate()));
+                    System.out.println("[BookingService] Marked slot " + saved.getSlotId() + " as booked");
                 }
-            } catch (Exception e) {
-                System.err.println("Failed to update slot status: " + e.getMessage());
             }
-        }
-        
-        // Create Google Calendar event for the provider
-        try {
-            createGoogleCalendarEvent(savedBooking);
-        } catch (Exception e) {
-            // Log the error but don't fail the booking creation
-            System.err.println("Failed to create Google Calendar event: " + e.getMessage());
-        }
-        
-        // Send confirmation notifications (email & SMS)
-        try {
-            sendBookingConfirmationNotifications(savedBooking);
-        } catch (Exception e) {
-            // Log the error but don't fail the booking creation
-            System.err.println("[BookingService] Failed to send notifications: " + e.getMessage());
-        }
+            // Calendar events and confirmations are sent by BookingOutboxWorker once this commits
+            outboxService.bookingsCreated(List.of(saved));
+            rollups.bookingsCreated(List.of(saved));
+            return saved;
+        }));
         
         return savedBooking;
     }
     
     /**
-     * Send booking confirmation notifications via email and SMS
+     * Book several slots of one resource at once. All slots are loaded in one query, every interval is
+     * checked in a single sweep (against existing bookings and against each other), and all bookings are
+     * inserted in one transaction - either every slot is booked or none is. The customer gets one
+     * consolidated confirmation through the outbox.
+     *
+     * @param details carries the customer, status and amount fields copied onto every booking
      */
-    private void sendBookingConfirmationNotifications(Booking booking) {
-        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy");
-        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("h:mm a");
-        
-        String date = booking.getStartTime().format(dateFormatter);
-        String startTime = booking.getStartTime().format(timeFormatter);
-        String endTime = booking.getEndTime().format(timeFormatter);
-        
-        String serviceName = booking.getResource() != null ? booking.getResource().getName() : "Service";
-        
-        // Get provider name from User entity
-        String providerName = "Provider";
-        if (booking.getResource() != null && booking.getResource().getProviderId() != null) {
-            Optional<User> providerOpt = userRepository.findById(booking.getResource().getProviderId());
-            if (providerOpt.isPresent()) {
-                User provider = providerOpt.get();
-                providerName = provider.getFirstName() + " " + provider.getLastName();
-            }
+    public List<Booking> createMultiSlotBooking(Long resourceId, List<Long> slotIds, Booking details) {
+        if (resourceId == null) {
+            throw new IllegalArgumentException("Resource is required for booking");
+        }
+        if (slotIds == null || slotIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one slot is required for booking");
+        }
+        Set<Long> uniqueSlotIds = new LinkedHashSet<>(slotIds);
+        List<AvailabilitySlot> slots = availabilitySlotRepository.findAllWithResourceByIdIn(uniqueSlotIds);
+        if (slots.size() != uniqueSlotIds.size()) {
+            Set<Long> missing = new LinkedHashSet<>(uniqueSlotIds);
+            slots.forEach(slot -> missing.remove(slot.getId()));
+            throw new IllegalArgumentException("Availability slot(s) not found: " + missing);
         }
         
-        // Send Email Confirmation
-        if (booking.getCustomerEmail() != null && !booking.getCustomerEmail().isEmpty()) {
-            try {
-                String emailContent = createBookingConfirmationEmail(booking, date, startTime, endTime, serviceName, providerName);
-                emailService.sendHtmlEmail(
-                    booking.getCustomerEmail(),
-                    "Booking Confirmation - " + serviceName,
-                    emailContent
-                );
-                System.out.println("[BookingService] Confirmation email sent to: " + booking.getCustomerEmail());
-            } catch (Exception e) {
-                System.err.println("[BookingService] Failed to send confirmation email: " + e.getMessage());
+        List<Booking> bookings = new ArrayList<>();
+        List<Long> notAvailable = new ArrayList<>();
+        for (AvailabilitySlot slot : slots) {
+            if (slot.getResource() == null || !resourceId.equals(slot.getResource().getId())) {
+                throw new IllegalArgumentException("Slot " + slot.getId() + " does not belong to resource " + resourceId);
+            }
+            if (slot.getDate() == null || slot.getStartTime() == null || slot.getEndTime() == null) {
+                throw new IllegalArgumentException("Slot " + slot.getId() + " has no date or time");
             }
+            // Booked or blocked slots are refused from the rows already loaded
+            if (!"available".equalsIgnoreCase(slot.getStatus())) {
+                notAvailable.add(slot.getId());
+            }
+            bookings.add(toSlotBooking(slot, details));
+        }
+        if (!notAvailable.isEmpty()) {
+            throw new IllegalStateException("Slot(s) no longer available: " + notAvailable);
         }
+        bookings.sort(Comparator.comparing(Booking::getStartTime));
+        LocalDateTime spanStart = bookings.get(0).getStartTime();
+        LocalDateTime spanEnd = bookings.stream().map(Booking::getEndTime).max(Comparator.naturalOrder()).get();
         
-        // Send SMS Confirmation (only if phone number is provided)
-        if (booking.getCustomerPhone() != null && !booking.getCustomerPhone().trim().isEmpty()) {
-            try {
-                String smsContent = createBookingConfirmationSms(booking, date, startTime, endTime, serviceName, providerName);
-                boolean smsSent = smsService.sendSms(booking.getCustomerPhone(), smsContent);
-                if (smsSent) {
-                    System.out.println("[BookingService] Confirmation SMS sent to: " + booking.getCustomerPhone());
-                } else {
-                    System.out.println("[BookingService] SMS not sent (Twilio not configured or phone number invalid)");
-                }
-            } catch (Exception e) {
-                System.err.println("[BookingService] Failed to send confirmation SMS: " + e.getMessage());
+        slotHolds.checkBookable(resourceId, bookings, details.getHoldToken(), details.getCustomerId(), false);
+        
+        List<Booking> savedBookings = resourceLocks.withResourceLock(resourceId, () -> transactionTemplate.execute(status -> {
+            lockResourceRow(resourceId);
+            // One query for everything overlapping the whole span, then a single sweep over both lists
+            List<Booking> existing = findConflictsUnderLock(resourceId, spanStart, spanEnd, null);
+            List<Booking> conflicts = findSweepConflicts(bookings, existing);
+            if (!conflicts.isEmpty()) {
+                throw new IllegalStateException(buildDoubleBookingMessage(conflicts));
             }
-        } else {
-            System.out.println("[BookingService] No phone number provided. Skipping SMS notification.");
-        }
+            slotHolds.checkBookable(resourceId, bookings, details.getHoldToken(), details.getCustomerId(), true);
+            
+            List<Booking> saved = repository.saveAll(bookings);
+            saved.forEach(intervalIndex::upsert);
+            
+            slots.forEach(slot -> slot.setStatus("booked"));
+            availabilitySlotRepository.saveAll(slots);
+            // The bookings cover the slots' days, so this also covers the status change
+            availabilityBitmaps.bookingsChanged(saved);
+            slotHolds.consume(resourceId, details.getHoldToken(), details.getCustomerId());
+            outboxService.bookingsCreated(saved);
+            rollups.bookingsCreated(saved);
+            return saved;
+        }));
+        System.out.println("[BookingService] Booked " + savedBookings.size() + " slots on resource " + resourceId);
+        
+        return savedBookings;
     }
     
-    /**
-     * Create HTML email content for booking confirmation
-     */
-    private String createBookingConfirmationEmail(Booking booking, String date, String startTime, 
-                                                  String endTime, String serviceName, String providerName) {
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #10b981; color: white; padding: 20px; text-align: center; border-radius: 8px 8px 0 0; }
-                    .content { background-color: #f9fafb; padding: 30px; border: 1px solid #e5e7eb; }
-                    .booking-details { background-color: white; padding: 20px; margin: 20px 0; border-left: 4px solid #10b981; border-radius: 4px; }
-                    .detail-item { margin: 12px 0; }
-                    .detail-label { font-weight: bold; color: #10b981; }
-                    .detail-value { margin-left: 10px; }
-                    .footer { text-align: center; padding: 20px; color: #6b7280; font-size: 0.875rem; }
-                    .important { background-color: #fef3c7; padding: 15px; border-radius: 6px; margin: 20px 0; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>✅ Booking Confirmed!</h1>
-                    </div>
-                    <div class="content">
-                        <h2>Hello %s,</h2>
-                        <p>Your booking has been successfully confirmed! Here are the details:</p>
-                        
-                        <div class="booking-details">
-                            <h3>📋 Booking Details:</h3>
-                            <div class="detail-item">
-                                <span class="detail-label">Booking ID:</span>
-                                <span class="detail-value">#%d</span>
-                            </div>
-                            <div class="detail-item">
-                                <span class="detail-label">Service:</span>
-                                <span class="detail-value">%s</span>
-                            </div>
-                            <div class="detail-item">
-                                <span class="detail-label">Provider:</span>
-                                <span class="detail-value">%s</span>
-                            </div>
-                            <div class="detail-item">
-                                <span class="detail-label">Date:</span>
-                                <span class="detail-value">%s</span>
-                            </div>
-                            <div class="detail-item">
-                                <span class="detail-label">Time:</span>
-                                <span class="detail-value">%s - %s</span>
-                            </div>
-                            <div class="detail-item">
-                                <span class="detail-label">Amount:</span>
-                                <span class="detail-value">$%.2f</span>
-                            </div>
-                            <div class="detail-item">
-                                <span class="detail-label">Status:</span>
-                                <span class="detail-value">%s</span>
-                            </div>
-                        </div>
-                        
-                        <div class="important">
-                            <strong>⏰ Reminder:</strong> Please arrive 5 minutes before your scheduled time.
-                        </div>
-                        
-                        <p>If you need to cancel or reschedule, please log in to your account or contact us at least 24 hours in advance.</p>
-                        
-                        <p>Thank you for choosing BookFast!</p>
-                    </div>
-                    <div class="footer">
-                        <p>© 2025 BookFast. All rights reserved.</p>
-                        <p>This is an automated message. Please do not reply to this email.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            booking.getCustomerName(),
-            booking.getId(),
-            serviceName,
-            providerName,
-            date,
-            startTime,
-            endTime,
-            booking.getFinalAmount() != null ? booking.getFinalAmount() : 0.0,
-            booking.getStatus() != null ? booking.getStatus().toUpperCase() : "PENDING"
-        );
+    private Booking toSlotBooking(AvailabilitySlot slot, Booking details) {
+        Booking booking = new Booking();
+        booking.setCustomerId(details.getCustomerId());
+        booking.setCustomerName(details.getCustomerName());
+        booking.setCustomerEmail(details.getCustomerEmail());
+        booking.setCustomerPhone(details.getCustomerPhone());
+        booking.setCustomerZip(details.getCustomerZip());
+        booking.setStatus(details.getStatus());
+        booking.setPaymentStatus(details.getPaymentStatus());
+        booking.setFinalAmount(details.getFinalAmount());
+        booking.setResource(slot.getResource());
+        booking.setSlotId(slot.getId().intValue());
+        booking.setDate(slot.getDate().toString());
+        booking.setStartTimeStr(slot.getStartTime().toString());
+        booking.setEndTimeStr(slot.getEndTime().toString());
+        booking.setStartTime(LocalDateTime.of(slot.getDate(), slot.getStartTime()));
+        booking.setEndTime(LocalDateTime.of(slot.getDate(), slot.getEndTime()));
+        return booking;
     }
     
     /**
-     * Create SMS content for booking confirmation
+     * Sweep the requested bookings and the existing ones in start order, tracking the latest end seen on
+     * each side. Returns the existing bookings that collide with a request; a collision between two
+     * requested slots is rejected outright.
      */
-    private String createBookingConfirmationSms(Booking booking, String date, String startTime, 
-                                                String endTime, String serviceName, String providerName) {
-        return String.format(
-            "✅ BookFast Booking Confirmed!\n\n" +
-            "Booking #%d\n" +
-            "Service: %s\n" +
-            "Provider: %s\n" +
-            "Date: %s\n" +
-            "Time: %s - %s\n" +
-            "Amount: $%.2f\n\n" +
-            "Please arrive 5 min early. Thank you!",
-            booking.getId(),
-            serviceName,
-            providerName,
-            date,
-            startTime,
-            endTime,
-            booking.getFinalAmount() != null ? booking.getFinalAmount() : 0.0
-        );
+    private List<Booking> findSweepConflicts(List<Booking> requested, List<Booking> existing) {
+        List<Booking> sortedExisting = new ArrayList<>(existing);
+        sortedExisting.sort(Comparator.comparing(Booking::getStartTime));
+        Set<Booking> conflicts = new LinkedHashSet<>();
+        Booking latestRequested = null;
+        Booking latestExisting = null;
+        int r = 0;
+        int e = 0;
+        while (r < requested.size() || e < sortedExisting.size()) {
+            boolean takeRequested = e >= sortedExisting.size()
+                || (r < requested.size() && !requested.get(r).getStartTime().isAfter(sortedExisting.get(e).getStartTime()));
+            if (takeRequested) {
+                Booking current = requested.get(r++);
+                if (latestRequested != null && current.getStartTime().isBefore(latestRequested.getEndTime())) {
+                    throw new IllegalArgumentException("Selected slots overlap each other: " + latestRequested.getStartTime()
+                        + " to " + latestRequested.getEndTime() + " and " + current.getStartTime() + " to " + current.getEndTime());
+                }
+                if (latestExisting != null && current.getStartTime().isBefore(latestExisting.getEndTime())) {
+                    conflicts.add(latestExisting);
+                }
+                if (latestRequested == null || current.getEndTime().isAfter(latestRequested.getEndTime())) {
+                    latestRequested = current;
+                }
+            } else {
+                Booking current = sortedExisting.get(e++);
+                if (latestRequested != null && current.getStartTime().isBefore(latestRequested.getEndTime())) {
+                    conflicts.add(current);
+                }
+                if (latestExisting == null || current.getEndTime().isAfter(latestExisting.getEndTime())) {
+                    latestExisting = current;
+                }
+            }
+        }
+        return new ArrayList<>(conflicts);
     }
-
+    
     public List<Booking> getBookingsByResource(Long resourceId) {
         return repository.findByResource_Id(resourceId);
     }
@@ -310,9 +314,6 @@ public class BookingService {
             .orElseThrow(() -> new IllegalArgumentException("Booking not found with id: " + bookingId));
         
         // Validate required fields
-        if (updatedBooking.getResource() == null || updatedBooking.getResource().getId() == null) {
-            throw new IllegalArgumentException("Resource is required for booking");
-        }
         if (updatedBooking.getStartTime() == null || updatedBooking.getEndTime() == null) {
             throw new IllegalArgumentException("Start time and end time are required for booking");
         }
@@ -320,55 +321,100 @@ public class BookingService {
             throw new IllegalArgumentException("Start time cannot be after end time");
         }
         
-        // Prevent double booking: check for overlapping bookings (excluding current booking)
-        List<Booking> overlaps = repository.findOverlappingBookings(
-                updatedBooking.getResource().getId(),
-                updatedBooking.getStartTime(),
-                updatedBooking.getEndTime());
-        
-        // Filter out the current booking from overlaps
-        overlaps = overlaps.stream()
-            .filter(booking -> !booking.getId().equals(bookingId))
-            .collect(java.util.stream.Collectors.toList());
+        // The lock and the overlap check are taken on the stored resource, never on one sent by the client
+        Long resourceId = storedResourceId(existingBooking);
+        if (resourceId == null) {
+            throw new IllegalArgumentException("Resource is required for booking");
+        }
+        if (updatedBooking.getResource() != null && updatedBooking.getResource().getId() != null
+                && !resourceId.equals(updatedBooking.getResource().getId())) {
+            throw new IllegalArgumentException("A booking cannot be moved to another resource; cancel it and book the new resource instead");
+        }
         
-        if (!overlaps.isEmpty()) {
-            StringBuilder errorMessage = new StringBuilder("Double booking detected! This time slot is already booked. ");
-            errorMessage.append("Conflicting booking(s): ");
-            for (int i = 0; i < overlaps.size(); i++) {
-                Booking conflict = overlaps.get(i);
-                errorMessage.append(String.format("Booking #%d (Customer: %s, Time: %s to %s)", 
-                    conflict.getId(), 
-                    conflict.getCustomerName(),
-                    conflict.getStartTime(),
-                    conflict.getEndTime()));
-                if (i < overlaps.size() - 1) {
-                    errorMessage.append(", ");
-                }
+        // Prevent double booking: check for overlapping bookings (excluding current booking)
+        if (intervalIndex.isReady()) {
+            List<Booking> overlaps = findOverlappingBookings(resourceId, updatedBooking.getStartTime(), updatedBooking.getEndTime(), bookingId);
+            if (!overlaps.isEmpty()) {
+                throw new IllegalStateException(buildDoubleBookingMessage(overlaps));
             }
-            throw new IllegalStateException(errorMessage.toString());
         }
+        slotHolds.checkBookable(resourceId, List.of(updatedBooking), null, existingBooking.getCustomerId(), false);
         
-        // Update the booking fields
-        existingBooking.setCustomerName(updatedBooking.getCustomerName());
-        existingBooking.setCustomerEmail(updatedBooking.getCustomerEmail());
-        existingBooking.setCustomerPhone(updatedBooking.getCustomerPhone());
-        existingBooking.setCustomerZip(updatedBooking.getCustomerZip());
-        existingBooking.setStartTime(updatedBooking.getStartTime());
-        existingBooking.setEndTime(updatedBooking.getEndTime());
-        existingBooking.setDate(updatedBooking.getDate());
-        existingBooking.setStatus(updatedBooking.getStatus());
-        existingBooking.setFinalAmount(updatedBooking.getFinalAmount());
-        
-        Booking savedBooking = repository.save(existingBooking);
-        
-        // Update Google Calendar event
-        try {
-            updateGoogleCalendarEvent(savedBooking);
-        } catch (Exception e) {
-            System.err.println("Failed to update Google Calendar event: " + e.getMessage());
+        return changeUnderLock(existingBooking, resourceId, booking -> {
+            // Update the booking fields
+            booking.setCustomerName(updatedBooking.getCustomerName());
+            booking.setCustomerEmail(updatedBooking.getCustomerEmail());
+            booking.setCustomerPhone(updatedBooking.getCustomerPhone());
+            booking.setCustomerZip(updatedBooking.getCustomerZip());
+            booking.setStartTime(updatedBooking.getStartTime());
+            booking.setEndTime(updatedBooking.getEndTime());
+            booking.setDate(updatedBooking.getDate());
+            booking.setStatus(updatedBooking.getStatus());
+            booking.setFinalAmount(updatedBooking.getFinalAmount());
+        });
+    }
+
+    /**
+     * Apply provider or admin edits to a stored booking. Times and status can change (which can move the
+     * booking or bring a cancelled one back), so the edit runs under the same locks and overlap check as
+     * updateBooking. The resource cannot be changed here.
+     */
+    public Booking changeBooking(Long bookingId, Consumer<Booking> changes) {
+        Booking existingBooking = repository.findById(bookingId)
+            .orElseThrow(() -> new IllegalArgumentException("Booking not found with id: " + bookingId));
+        return changeUnderLock(existingBooking, storedResourceId(existingBooking), changes);
+    }
+
+    private Booking changeUnderLock(Booking existingBooking, Long resourceId, Consumer<Booking> changes) {
+        if (resourceId == null) {
+            // A booking without a resource takes no resource's time, so there is nothing to lock or check
+            return transactionTemplate.execute(status -> applyChange(existingBooking, null, changes));
+        }
+        return resourceLocks.withResourceLock(resourceId, () -> transactionTemplate.execute(status -> {
+            lockResourceRow(resourceId);
+            return applyChange(existingBooking, resourceId, changes);
+        }));
+    }
+
+    private Booking applyChange(Booking existingBooking, Long resourceId, Consumer<Booking> changes) {
+        changes.accept(existingBooking);
+        Long changedResourceId = existingBooking.getResource() != null ? existingBooking.getResource().getId() : null;
+        if (!java.util.Objects.equals(resourceId, changedResourceId)) {
+            throw new IllegalArgumentException("A booking cannot be moved to another resource; cancel it and book the new resource instead");
+        }
+        if (resourceId == null) {
+            rollups.bookingChanged(existingBooking);
+            return repository.save(existingBooking);
+        }
+        if (existingBooking.getStartTime() == null || existingBooking.getEndTime() == null) {
+            throw new IllegalArgumentException("Start time and end time are required for booking");
+        }
+        if (existingBooking.getStartTime().isAfter(existingBooking.getEndTime())) {
+            throw new IllegalArgumentException("Start time cannot be after end time");
+        }
+        // Only a booking that now takes time it did not take before can collide
+        if (!"cancelled".equals(existingBooking.getStatus()) && (!existingBooking.isPersisted()
+                || "cancelled".equals(existingBooking.getPersistedStatus())
+                || !existingBooking.getStartTime().equals(existingBooking.getPersistedStartTime())
+                || !existingBooking.getEndTime().equals(existingBooking.getPersistedEndTime()))) {
+            List<Booking> conflicts = findConflictsUnderLock(resourceId, existingBooking.getStartTime(),
+                existingBooking.getEndTime(), existingBooking.getId());
+            if (!conflicts.isEmpty()) {
+                throw new IllegalStateException(buildDoubleBookingMessage(conflicts));
+            }
+            slotHolds.checkBookable(resourceId, List.of(existingBooking), null, existingBooking.getCustomerId(), true);
         }
         
-        return savedBooking;
+        rollups.bookingChanged(existingBooking);
+        availabilityBitmaps.bookingsChanged(List.of(existingBooking));
+        Booking saved = repository.save(existingBooking);
+        intervalIndex.upsert(saved);
+        outboxService.bookingUpdated(saved);
+        return saved;
+    }
+
+    private static Long storedResourceId(Booking booking) {
+        return booking.getResource() != null ? booking.getResource().getId() : null;
     }
 
     @Transactional
@@ -382,17 +428,16 @@ public class BookingService {
             paymentRepository.delete(payment);
         }
         
-        // Delete Google Calendar event
+        // Delete Google Calendar events once the deletion commits
         if (booking != null) {
-            try {
-                deleteGoogleCalendarEvent(booking);
-            } catch (Exception e) {
-                System.err.println("Failed to delete Google Calendar event: " + e.getMessage());
-            }
+            outboxService.bookingDeleted(booking);
+            rollups.bookingDeleted(booking);
+            availabilityBitmaps.bookingDeleted(booking);
         }
         
         // Then delete the booking
         repository.deleteById(bookingId);
+        intervalIndex.remove(bookingId);
     }
 
     @Transactional
@@ -424,6 +469,11 @@ public class BookingService {
             // Then delete the booking
             System.out.println("[BookingService] Deleting booking ID: " + bookingId);
             repository.deleteById(bookingId);
+            intervalIndex.remove(bookingId);
+            rollups.bookingDeleted(booking);
+            availabilityBitmaps.bookingDeleted(booking);
+            // Remove the provider/customer calendar events once the cancellation commits
+            outboxService.bookingDeleted(booking);
             
             // Mark the slot as available again
             if (slotId != null) {
@@ -433,6 +483,9 @@ public class BookingService {
                         AvailabilitySlot slot = slotOpt.get();
                         slot.setStatus("available");
                         availabilitySlotRepository.save(slot);
+                        if (slot.getResource() != null) {
+                            availabilityBitmaps.slotsChanged(slot.getResource().getId(), List.of(slot.getDate()));
+                        }
                         System.out.println("[BookingService] Marked slot " + slotId + " as available again");
                     }
                 } catch (Exception e) {
@@ -452,212 +505,115 @@ public class BookingService {
         return repository.findById(bookingId).orElse(null);
     }
 
-    public Booking saveBooking(Booking booking) {
-        return repository.save(booking);
-    }
-
-    public List<Booking> getBookingsByProvider(Long providerId) {
-        return repository.findByResourceProviderId(providerId);
+    /**
+     * Bookings on the resource overlapping [startTime, endTime), answered from the in-memory
+     * interval index when it is ready. Conflicting rows are only loaded on the (rare) conflict path.
+     */
+    private List<Booking> findOverlappingBookings(Long resourceId, java.time.LocalDateTime startTime,
+                                                  java.time.LocalDateTime endTime, Long excludeBookingId) {
+        if (intervalIndex.isReady()) {
+            List<Long> conflictIds = intervalIndex.findOverlappingIds(resourceId, startTime, endTime, excludeBookingId);
+            return conflictIds.isEmpty() ? List.of() : repository.findAllById(conflictIds);
+        }
+        return repository.findOverlappingBookings(resourceId, startTime, endTime).stream()
+            .filter(booking -> !booking.getId().equals(excludeBookingId))
+            .collect(java.util.stream.Collectors.toList());
     }
 
-    public List<BookingDetailsDTO> getDetailedBookingsByProvider(Long providerId) {
-        List<Booking> bookings = repository.findByResourceProviderId(providerId);
-        List<BookingDetailsDTO> detailedBookings = new ArrayList<>();
-        
-        for (Booking booking : bookings) {
-            BookingDetailsDTO dto = new BookingDetailsDTO();
-            
-            // Basic booking information
-            dto.setId(booking.getId());
-            dto.setCustomerId(booking.getCustomerId());
-            dto.setCustomerName(booking.getCustomerName());
-            dto.setCustomerEmail(booking.getCustomerEmail());
-            dto.setCustomerPhone(booking.getCustomerPhone());
-            dto.setCustomerZip(booking.getCustomerZip());
-            dto.setStatus(booking.getStatus());
-            dto.setPaymentStatus(booking.getPaymentStatus());
-            dto.setFinalAmount(booking.getFinalAmount());
-            dto.setStartTime(booking.getStartTime());
-            dto.setEndTime(booking.getEndTime());
-            dto.setDate(booking.getDate());
-            dto.setStartTimeStr(booking.getStartTimeStr());
-            dto.setEndTimeStr(booking.getEndTimeStr());
-            
-            // Resource information
-            if (booking.getResource() != null) {
-                dto.setResourceId(booking.getResource().getId());
-                dto.setResourceName(booking.getResource().getName());
-                dto.setResourceDescription(booking.getResource().getDescription());
-                dto.setResourcePrice(booking.getResource().getPrice());
-                dto.setResourceSpecialization(booking.getResource().getSpecialization());
-                dto.setProviderId(booking.getResource().getProviderId());
-                
-                // Get provider details from User table
-                if (booking.getResource().getProviderId() != null) {
-                    Optional<User> provider = userRepository.findById(booking.getResource().getProviderId());
-                    if (provider.isPresent()) {
-                        User providerUser = provider.get();
-                        dto.setProviderName(providerUser.getFirstName() + " " + providerUser.getLastName());
-                        dto.setProviderEmail(providerUser.getEmail());
-                        dto.setProviderOrganization(providerUser.getOrganizationName());
-                        dto.setProviderServiceCategory(providerUser.getServiceCategory());
-                    }
-                }
+    /**
+     * Overlap check run while holding both resource locks. In "local" mode the interval index answers
+     * it (the index is updated on commit, before the stripe lock is released), so the write path runs
+     * no overlap query at all. In "database" mode the database is the authority, so another instance's
+     * committed booking is always seen; the index is still consulted and every booking it missed is
+     * counted, which shows whether a deployment could run in "local" mode.
+     */
+    private List<Booking> findConflictsUnderLock(Long resourceId, java.time.LocalDateTime startTime,
+                                                 java.time.LocalDateTime endTime, Long excludeBookingId) {
+        if ("local".equalsIgnoreCase(concurrencyMode)) {
+            if (intervalIndex.isReady()) {
+                indexChecks.increment();
+            } else {
+                databaseChecks.increment();
             }
-            
-            detailedBookings.add(dto);
+            return findOverlappingBookings(resourceId, startTime, endTime, excludeBookingId);
         }
-        
-        return detailedBookings;
+        databaseChecks.increment();
+        List<Booking> conflicts = repository.findOverlappingBookings(resourceId, startTime, endTime).stream()
+            .filter(booking -> !booking.getId().equals(excludeBookingId))
+            .collect(java.util.stream.Collectors.toList());
+        if (!conflicts.isEmpty() && intervalIndex.isReady()) {
+            Set<Long> indexed = new java.util.HashSet<>(
+                intervalIndex.findOverlappingIds(resourceId, startTime, endTime, excludeBookingId));
+            conflicts.stream().filter(booking -> !indexed.contains(booking.getId())).forEach(booking -> indexMisses.increment());
+        }
+        return conflicts;
     }
 
-    private void createGoogleCalendarEvent(Booking booking) {
-        try {
-            System.out.println("=== CALENDAR EVENT CREATION DEBUG ===");
-            System.out.println("Booking ID: " + booking.getId());
-            System.out.println("Customer ID: " + booking.getCustomerId());
-            System.out.println("Resource ID: " + (booking.getResource() != null ? booking.getResource().getId() : "null"));
-            System.out.println("Provider ID: " + (booking.getResource() != null ? booking.getResource().getProviderId() : "null"));
-            
-            // Get provider information
-            if (booking.getResource() != null && booking.getResource().getProviderId() != null) {
-                User provider = userRepository.findById(booking.getResource().getProviderId()).orElse(null);
-                if (provider != null) {
-                    System.out.println("Provider found: " + provider.getEmail());
-                    System.out.println("Provider calendar connected: " + googleCalendarService.isCalendarConnected(provider.getId()));
-                    
-                    if (googleCalendarService.isCalendarConnected(provider.getId())) {
-                        // Create event title
-                        String eventTitle = String.format("BookFast: %s - %s", 
-                            booking.getResource().getName(), 
-                            booking.getCustomerName());
-                        
-                        // Create the calendar event for provider
-                        String eventId = googleCalendarService.createCalendarEvent(
-                            provider.getId(),
-                            eventTitle,
-                            booking.getStartTime(),
-                            booking.getEndTime()
-                        );
-                        
-                        System.out.println("✅ Google Calendar event created for provider booking: " + booking.getId() + ", Event ID: " + eventId);
-                    } else {
-                        System.out.println("❌ Provider calendar not connected - skipping calendar event creation");
-                    }
-                } else {
-                    System.out.println("❌ Provider not found");
-                }
-            }
+    /**
+     * How overlap checks under the lock were answered, and how many conflicting bookings the database
+     * found that the interval index did not (written by another instance or not yet indexed).
+     */
+    public Map<String, Object> getOverlapCheckStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", concurrencyMode);
+        stats.put("indexReady", intervalIndex.isReady());
+        stats.put("answeredByIndex", indexChecks.sum());
+        stats.put("answeredByDatabase", databaseChecks.sum());
+        stats.put("indexMisses", indexMisses.sum());
+        return stats;
+    }
 
-            // Also create calendar event for customer if they have calendar connected
-            if (booking.getCustomerId() != null) {
-                User customer = userRepository.findById(booking.getCustomerId()).orElse(null);
-                if (customer != null) {
-                    System.out.println("Customer found: " + customer.getEmail());
-                    System.out.println("Customer calendar connected: " + googleCalendarService.isCalendarConnected(customer.getId()));
-                    
-                    if (googleCalendarService.isCalendarConnected(customer.getId())) {
-                        String eventTitle = String.format("BookFast Booking: %s", 
-                            booking.getResource().getName());
-                        
-                        String eventId = googleCalendarService.createCalendarEvent(
-                            customer.getId(),
-                            eventTitle,
-                            booking.getStartTime(),
-                            booking.getEndTime()
-                        );
-                        
-                        System.out.println("✅ Google Calendar event created for customer booking: " + booking.getId() + ", Event ID: " + eventId);
-                    } else {
-                        System.out.println("❌ Customer calendar not connected - skipping calendar event creation");
-                    }
-                } else {
-                    System.out.println("❌ Customer not found");
-                }
-            }
-            System.out.println("=== END CALENDAR EVENT CREATION DEBUG ===");
-        } catch (Exception e) {
-            System.err.println("❌ Error creating Google Calendar event: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * SELECT ... FOR UPDATE on the resource row; held until the surrounding transaction ends.
+     */
+    private void lockResourceRow(Long resourceId) {
+        if (resourceRepository.findByIdForUpdate(resourceId).isEmpty()) {
+            throw new IllegalArgumentException("Resource not found with id: " + resourceId);
         }
     }
 
-    private void updateGoogleCalendarEvent(Booking booking) {
-        try {
-            if (booking.getResource() != null && booking.getResource().getProviderId() != null) {
-                User provider = userRepository.findById(booking.getResource().getProviderId()).orElse(null);
-                if (provider != null && googleCalendarService.isCalendarConnected(provider.getId())) {
-                    String eventTitle = String.format("BookFast: %s - %s", 
-                        booking.getResource().getName(), 
-                        booking.getCustomerName());
-                    
-                    // In a real implementation, you would use the actual event ID from the database
-                    String eventId = "booking_" + booking.getId();
-                    
-                    googleCalendarService.updateCalendarEvent(
-                        provider.getId(),
-                        eventId,
-                        eventTitle,
-                        booking.getStartTime(),
-                        booking.getEndTime()
-                    );
-                    
-                    System.out.println("Google Calendar event updated for booking: " + booking.getId());
-                }
-            }
-
-            // Also update customer calendar event if connected
-            if (booking.getCustomerId() != null) {
-                User customer = userRepository.findById(booking.getCustomerId()).orElse(null);
-                if (customer != null && googleCalendarService.isCalendarConnected(customer.getId())) {
-                    String eventTitle = String.format("BookFast Booking: %s", 
-                        booking.getResource().getName());
-                    
-                    String eventId = "customer_booking_" + booking.getId();
-                    
-                    googleCalendarService.updateCalendarEvent(
-                        customer.getId(),
-                        eventId,
-                        eventTitle,
-                        booking.getStartTime(),
-                        booking.getEndTime()
-                    );
-                    
-                    System.out.println("Customer Google Calendar event updated for booking: " + booking.getId());
-                }
+    private String buildDoubleBookingMessage(List<Booking> overlaps) {
+        StringBuilder errorMessage = new StringBuilder("Double booking detected! This time slot is already booked. ");
+        errorMessage.append("Conflicting booking(s): ");
+        for (int i = 0; i < overlaps.size(); i++) {
+            Booking conflict = overlaps.get(i);
+            errorMessage.append(String.format("Booking #%d (Customer: %s, Time: %s to %s)", 
+                conflict.getId(), 
+                conflict.getCustomerName(),
+                conflict.getStartTime(),
+                conflict.getEndTime()));
+            if (i < overlaps.size() - 1) {
+                errorMessage.append(", ");
             }
-        } catch (Exception e) {
-            System.err.println("Error updating Google Calendar event: " + e.getMessage());
         }
+        return errorMessage.toString();
     }
 
-    private void deleteGoogleCalendarEvent(Booking booking) {
-        try {
-            if (booking.getResource() != null && booking.getResource().getProviderId() != null) {
-                User provider = userRepository.findById(booking.getResource().getProviderId()).orElse(null);
-                if (provider != null && googleCalendarService.isCalendarConnected(provider.getId())) {
-                    // In a real implementation, you would use the actual event ID from the database
-                    String eventId = "booking_" + booking.getId();
-                    
-                    googleCalendarService.deleteCalendarEvent(provider.getId(), eventId);
-                    
-                    System.out.println("Google Calendar event deleted for booking: " + booking.getId());
-                }
-            }
+    public List<Booking> getBookingsByProvider(Long providerId) {
+        return repository.findByResourceProviderId(providerId);
+    }
 
-            // Also delete customer calendar event if connected
-            if (booking.getCustomerId() != null) {
-                User customer = userRepository.findById(booking.getCustomerId()).orElse(null);
-                if (customer != null && googleCalendarService.isCalendarConnected(customer.getId())) {
-                    String eventId = "customer_booking_" + booking.getId();
-                    
-                    googleCalendarService.deleteCalendarEvent(customer.getId(), eventId);
-                    
-                    System.out.println("Customer Google Calendar event deleted for booking: " + booking.getId());
-                }
+    /**
+     * A provider's bookings one page at a time, newest start first unless sorted otherwise.
+     */
+    public KeysetPage<Booking> getBookingsByProviderPage(Long providerId, KeysetRequest request, String status,
+                                                         LocalDateTime from, LocalDateTime to) {
+        return keysetPager.fetch(PROVIDER_BOOKING_LISTING, request, (cb, root, where) -> {
+            Join<Booking, Resource> resource = KeysetPager.fetched(root, "resource");
+            where.add(cb.equal(resource.get("providerId"), providerId));
+            if (status != null && !status.isBlank()) {
+                where.add(cb.equal(cb.lower(root.get("status")), status.toLowerCase()));
             }
-        } catch (Exception e) {
-            System.err.println("Error deleting Google Calendar event: " + e.getMessage());
-        }
+            if (from != null) {
+                where.add(cb.greaterThanOrEqualTo(root.get("startTime"), from));
+            }
+            if (to != null) {
+                where.add(cb.lessThan(root.get("startTime"), to));
+            }
+        });
+    }
+
+    public List<BookingDetailsDTO> getDetailedBookingsByProvider(Long providerId) {
+        return repository.findDetailsByProviderId(providerId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,233 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.common.notification.EmailService;
+import com.bookfast.backend.common.notification.EmailTemplates;
+import com.bookfast.backend.common.notification.SmsService;
+import com.bookfast.backend.common.repository.UserRepository;
+import com.bookfast.backend.provider.service.CalendarSyncService;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.BookingOutboxEvent;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Performs the side effects recorded in the booking outbox: confirmation email/SMS (calendar events
+ * are synced by CalendarSyncService). Every method throws when the remote call fails so the worker
+ * can retry; an effect that no longer applies (booking gone, channel not configured) returns
+ * normally and is treated as done.
+ */
+@Component
+public class BookingSideEffectHandler {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("EEEE, MMMM d, yyyy");
+    private static final DateTimeFormatter SHORT_DATE_FORMAT = DateTimeFormatter.ofPattern("EEE, MMM d, yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("h:mm a");
+
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final CalendarSyncService calendarSync;
+    private final EmailService emailService;
+    private final SmsService smsService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${booking.outbox.email-timeout-ms:30000}")
+    private long emailTimeoutMs;
+
+    public BookingSideEffectHandler(BookingRepository bookingRepository, UserRepository userRepository,
+                                    CalendarSyncService calendarSync, EmailService emailService,
+                                    SmsService smsService, ObjectMapper objectMapper) {
+        this.bookingRepository = bookingRepository;
+        this.userRepository = userRepository;
+        this.calendarSync = calendarSync;
+        this.emailService = emailService;
+        this.smsService = smsService;
+        this.objectMapper = objectMapper;
+    }
+
+    public void handle(BookingOutboxEvent event) throws Exception {
+        Map<?, ?> payload = event.getPayload() != null ? objectMapper.readValue(event.getPayload(), Map.class) : Map.of();
+        switch (event.getEventType()) {
+            // Calendar events recorded before calendar sync existed: hand them over to it
+            case BookingOutboxEvent.TYPE_CALENDAR_CREATE, BookingOutboxEvent.TYPE_CALENDAR_UPDATE,
+                 BookingOutboxEvent.TYPE_CALENDAR_DELETE ->
+                calendarSync.markDirty(event.getBookingId(), event.getTargetUserId(), (String) payload.get("role"));
+            case BookingOutboxEvent.TYPE_CONFIRMATION_EMAIL -> sendConfirmationEmail(loadBookings(payload));
+            case BookingOutboxEvent.TYPE_CONFIRMATION_SMS -> sendConfirmationSms(loadBookings(payload));
+            default -> throw new IllegalArgumentException("Unknown outbox event type: " + event.getEventType());
+        }
+    }
+
+    private List<Booking> loadBookings(Map<?, ?> payload) {
+        List<Long> ids = new ArrayList<>();
+        for (Object id : (List<?>) payload.get("bookingIds")) {
+            ids.add(Long.valueOf(id.toString()));
+        }
+        List<Booking> bookings = new ArrayList<>(bookingRepository.findAllById(ids));
+        bookings.removeIf(booking -> "cancelled".equals(booking.getStatus()));
+        bookings.sort(Comparator.comparing(Booking::getStartTime));
+        return bookings;
+    }
+
+    /**
+     * One email covering all bookings of a (multi-slot) request.
+     */
+    private void sendConfirmationEmail(List<Booking> bookings) throws InterruptedException, ExecutionException {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        if (!emailService.isConfigured()) {
+            System.out.println("[BookingSideEffectHandler] SendGrid not configured. Skipping confirmation email.");
+            return;
+        }
+        Booking first = bookings.get(0);
+        String serviceName = first.getResource() != null ? first.getResource().getName() : "Service";
+        String providerName = resolveProviderName(first);
+        
+        String subject;
+        String template;
+        Map<String, Object> values;
+        if (bookings.size() == 1) {
+            subject = "Booking Confirmation - " + serviceName;
+            template = "booking-confirmation";
+            values = EmailTemplates.values(
+                "customerName", first.getCustomerName(),
+                "bookingId", first.getId(),
+                "serviceName", serviceName,
+                "providerName", providerName,
+                "date", DATE_FORMAT.format(first.getStartTime()),
+                "startTime", TIME_FORMAT.format(first.getStartTime()),
+                "endTime", TIME_FORMAT.format(first.getEndTime()),
+                "amount", String.format("%.2f", first.getFinalAmount() != null ? first.getFinalAmount() : 0.0),
+                "status", first.getStatus() != null ? first.getStatus().toUpperCase() : "PENDING");
+        } else {
+            subject = "Booking Confirmation - " + serviceName + " (" + bookings.size() + " sessions)";
+            template = "booking-confirmation-multi";
+            StringBuilder sessions = new StringBuilder();
+            for (String line : sessionLines(bookings)) {
+                sessions.append("<div class=\"detail-item\"><span class=\"detail-value\">").append(line).append("</span></div>");
+            }
+            values = EmailTemplates.values(
+                "customerName", first.getCustomerName(),
+                "sessionCount", bookings.size(),
+                "serviceName", serviceName,
+                "providerName", providerName,
+                "sessions", sessions,
+                "total", String.format("%.2f", totalAmount(bookings)));
+        }
+        // Waits for the dispatcher, but not forever: the outbox retries the event if SendGrid did not take it in time
+        boolean accepted;
+        try {
+            accepted = emailService.send(first.getCustomerEmail(), subject, template, values)
+                .get(emailTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Confirmation email to " + first.getCustomerEmail() + " not sent within "
+                + emailTimeoutMs + " ms", e);
+        }
+        if (!accepted) {
+            throw new IllegalStateException("SendGrid did not accept the confirmation email to " + first.getCustomerEmail());
+        }
+        System.out.println("[BookingSideEffectHandler] Confirmation email sent to: " + first.getCustomerEmail());
+    }
+
+    /**
+     * One SMS covering all bookings of a (multi-slot) request.
+     */
+    private void sendConfirmationSms(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        if (!smsService.isConfigured()) {
+            System.out.println("[BookingSideEffectHandler] Twilio not configured. Skipping confirmation SMS.");
+            return;
+        }
+        Booking first = bookings.get(0);
+        if (first.getCustomerPhone() == null || first.getCustomerPhone().isBlank()) {
+            System.out.println("[BookingSideEffectHandler] No phone number for booking " + first.getId() + ". Skipping confirmation SMS.");
+            return;
+        }
+        String serviceName = first.getResource() != null ? first.getResource().getName() : "Service";
+        String providerName = resolveProviderName(first);
+        
+        String smsContent;
+        if (bookings.size() == 1) {
+            smsContent = createBookingConfirmationSms(first, DATE_FORMAT.format(first.getStartTime()),
+                TIME_FORMAT.format(first.getStartTime()), TIME_FORMAT.format(first.getEndTime()), serviceName, providerName);
+        } else {
+            smsContent = "✅ BookFast Booking Confirmed!\n\n"
+                + "Service: " + serviceName + "\n"
+                + "Provider: " + providerName + "\n"
+                + String.join("\n", sessionLines(bookings)) + "\n"
+                + String.format("Total: $%.2f\n\n", totalAmount(bookings))
+                + "Please arrive 5 min early. Thank you!";
+        }
+        // Queued only; SmsDispatcher paces, retries and records the delivery
+        if (!smsService.sendSms(first.getCustomerPhone(), smsContent)) {
+            // Configuration and phone were checked above; SmsService logged why it still skipped
+            System.out.println("[BookingSideEffectHandler] Confirmation SMS for booking " + first.getId() + " was not queued.");
+            return;
+        }
+        System.out.println("[BookingSideEffectHandler] Confirmation SMS queued for: " + first.getCustomerPhone());
+    }
+
+    private static List<String> sessionLines(List<Booking> bookings) {
+        List<String> lines = new ArrayList<>();
+        for (Booking booking : bookings) {
+            lines.add(String.format("#%d  %s, %s - %s", booking.getId(),
+                booking.getStartTime().format(SHORT_DATE_FORMAT),
+                booking.getStartTime().format(TIME_FORMAT),
+                booking.getEndTime().format(TIME_FORMAT)));
+        }
+        return lines;
+    }
+
+    private static double totalAmount(List<Booking> bookings) {
+        return bookings.stream().mapToDouble(booking -> booking.getFinalAmount() != null ? booking.getFinalAmount() : 0.0).sum();
+    }
+    
+    private String resolveProviderName(Booking booking) {
+        if (booking.getResource() != null && booking.getResource().getProviderId() != null) {
+            Optional<User> providerOpt = userRepository.findById(booking.getResource().getProviderId());
+            if (providerOpt.isPresent()) {
+                User provider = providerOpt.get();
+                return provider.getFirstName() + " " + provider.getLastName();
+            }
+        }
+        return "Provider";
+    }
+    
+    /**
+     * Create SMS content for booking confirmation
+     */
+    private String createBookingConfirmationSms(Booking booking, String date, String startTime, 
+                                                String endTime, String serviceName, String providerName) {
+        return String.format(
+            "✅ BookFast Booking Confirmed!\n\n" +
+            "Booking #%d\n" +
+            "Service: %s\n" +
+            "Provider: %s\n" +
+            "Date: %s\n" +
+            "Time: %s - %s\n" +
+            "Amount: $%.2f\n\n" +
+            "Please arrive 5 min early. Thank you!",
+            booking.getId(),
+            serviceName,
+            providerName,
+            date,
+            startTime,
+            endTime,
+            booking.getFinalAmount() != null ? booking.getFinalAmount() : 0.0
+        );
+    }
+}
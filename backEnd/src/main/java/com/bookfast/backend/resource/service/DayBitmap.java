@@ -0,0 +1,325 @@
+package com.bookfast.backend.resource.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Free time of one resource on one day as a bitset: the day is cut into slots of
+ * granularityMinutes and bit i is set when slot i (starting at minute i * granularity) is free.
+ *
+ * Single-slot checks are one word lookup, range set/clear/check touch one word per 64 slots, and
+ * run searches skip whole words with numberOfTrailingZeros. Not thread-safe; the service hands out
+ * copies of cached bitmaps.
+ */
+public final class DayBitmap {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final int granularityMinutes;
+    private final int size;
+    private final long[] words;
+
+    public DayBitmap(int granularityMinutes) {
+        this(granularityMinutes, null);
+    }
+
+    private DayBitmap(int granularityMinutes, long[] words) {
+        if (granularityMinutes < 1 || MINUTES_PER_DAY % granularityMinutes != 0) {
+            throw new IllegalArgumentException("Granularity must divide a day evenly, got " + granularityMinutes + " minutes");
+        }
+        this.granularityMinutes = granularityMinutes;
+        this.size = MINUTES_PER_DAY / granularityMinutes;
+        int wordCount = (size + 63) >>> 6;
+        this.words = words != null ? Arrays.copyOf(words, wordCount) : new long[wordCount];
+    }
+
+    /**
+     * Inverse of toBytes().
+     */
+    public static DayBitmap fromBytes(int granularityMinutes, byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        long[] words = new long[bytes.length / Long.BYTES];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = buffer.getLong();
+        }
+        DayBitmap bitmap = new DayBitmap(granularityMinutes, words);
+        bitmap.clearTail();
+        return bitmap;
+    }
+
+    /**
+     * The words as little-endian bytes, for the packed bitmap column.
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+
+    public DayBitmap copy() {
+        return new DayBitmap(granularityMinutes, words);
+    }
+
+    public int getGranularityMinutes() {
+        return granularityMinutes;
+    }
+
+    /**
+     * Number of slots in the day.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isFree(int slot) {
+        checkIndex(slot);
+        return (words[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Whether every slot in [from, to) is free; an empty range is free.
+     */
+    public boolean isFree(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return true;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        for (int i = first; i <= last; i++) {
+            long mask = mask(i, first, last, from, to);
+            if ((words[i] & mask) != mask) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mark the slots in [from, to) free.
+     */
+    public void set(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        for (int i = first; i <= last; i++) {
+            words[i] |= mask(i, first, last, from, to);
+        }
+    }
+
+    /**
+     * Mark the slots in [from, to) taken.
+     */
+    public void clear(int from, int to) {
+        checkRange(from, to);
+        if (from == to) {
+            return;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        for (int i = first; i <= last; i++) {
+            words[i] &= ~mask(i, first, last, from, to);
+        }
+    }
+
+    /**
+     * Keep only the slots that are free in both bitmaps.
+     */
+    public void and(DayBitmap other) {
+        checkSameGranularity(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+    /**
+     * Take every slot that is free in other.
+     */
+    public void andNot(DayBitmap other) {
+        checkSameGranularity(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * First free slot at or after from, or -1.
+     */
+    public int nextFree(int from) {
+        if (from < 0) {
+            throw new IndexOutOfBoundsException("Slot " + from + " out of range");
+        }
+        if (from >= size) {
+            return -1;
+        }
+        int i = from >>> 6;
+        long word = words[i] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++i == words.length) {
+                return -1;
+            }
+            word = words[i];
+        }
+    }
+
+    /**
+     * First taken slot at or after from, or size() when the rest of the day is free.
+     */
+    public int nextTaken(int from) {
+        if (from < 0) {
+            throw new IndexOutOfBoundsException("Slot " + from + " out of range");
+        }
+        if (from >= size) {
+            return size;
+        }
+        int i = from >>> 6;
+        long word = ~words[i] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return Math.min(size, (i << 6) + Long.numberOfTrailingZeros(word));
+            }
+            if (++i == words.length) {
+                return size;
+            }
+            word = ~words[i];
+        }
+    }
+
+    /**
+     * Start of the first run of at least length free slots beginning at or after from, or -1.
+     * Walks run by run, so a day with few runs costs a few word scans whatever length is.
+     */
+    public int firstFreeRun(int from, int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Run length must be at least 1");
+        }
+        int start = nextFree(Math.max(from, 0));
+        while (start >= 0 && size - start >= length) {
+            int end = nextTaken(start);
+            if (end - start >= length) {
+                return start;
+            }
+            start = nextFree(end);
+        }
+        return -1;
+    }
+
+    public int freeCount() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Free the slots lying entirely inside [startMinute, endMinute); a partly covered slot stays as it is.
+     */
+    public void setMinutes(int startMinute, int endMinute) {
+        int from = slotCeil(startMinute);
+        int to = slotFloor(endMinute);
+        if (from < to) {
+            set(from, to);
+        }
+    }
+
+    /**
+     * Take every slot touching [startMinute, endMinute).
+     */
+    public void clearMinutes(int startMinute, int endMinute) {
+        int from = slotFloor(startMinute);
+        int to = slotCeil(endMinute);
+        if (from < to) {
+            clear(from, to);
+        }
+    }
+
+    /**
+     * Whether every slot touching [startMinute, endMinute) is free.
+     */
+    public boolean isFreeMinutes(int startMinute, int endMinute) {
+        int from = slotFloor(startMinute);
+        int to = slotCeil(endMinute);
+        return from < to && isFree(from, to);
+    }
+
+    public int slotFloor(int minute) {
+        checkMinute(minute);
+        return minute / granularityMinutes;
+    }
+
+    public int slotCeil(int minute) {
+        checkMinute(minute);
+        return (minute + granularityMinutes - 1) / granularityMinutes;
+    }
+
+    private static long mask(int word, int first, int last, int from, int to) {
+        long mask = -1L;
+        if (word == first) {
+            mask &= -1L << from;
+        }
+        if (word == last) {
+            mask &= -1L >>> -to;
+        }
+        return mask;
+    }
+
+    private void clearTail() {
+        if ((size & 63) != 0) {
+            words[words.length - 1] &= -1L >>> -size;
+        }
+    }
+
+    private void checkIndex(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " out of range [0, " + size + ")");
+        }
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Slot range [" + from + ", " + to + ") out of range [0, " + size + ")");
+        }
+    }
+
+    private static void checkMinute(int minute) {
+        if (minute < 0 || minute > MINUTES_PER_DAY) {
+            throw new IllegalArgumentException("Minute " + minute + " is not within a day");
+        }
+    }
+
+    private void checkSameGranularity(DayBitmap other) {
+        if (other.granularityMinutes != granularityMinutes) {
+            throw new IllegalArgumentException("Bitmaps have different granularities");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DayBitmap other)) return false;
+        return granularityMinutes == other.granularityMinutes && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * granularityMinutes + Arrays.hashCode(words);
+    }
+}
@@ -0,0 +1,227 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import com.bookfast.backend.resource.service.AvailabilityBitmapService.FreeWindow;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * "Next available" search: the earliest open windows of a given length across every active resource
+ * matching the filters, instead of the client listing each resource's slots.
+ *
+ * Each resource is a lazy stream of its free windows in time order, read from the availability
+ * bitmaps a few days at a time. The streams are merged with a priority queue; a resource enters the
+ * queue with the date of its first "available" slot or scheduled opening as a lower bound (grouped
+ * queries for all candidates) and its bitmaps are only loaded when that bound reaches the head. The merge stops at
+ * the limit, so resources whose first opening lies after the last result are never read.
+ */
+@Service
+public class NextAvailableSearch {
+    private static final int IN_CHUNK_SIZE = 1000;
+    private static final Comparator<Head> EARLIEST_FIRST =
+        Comparator.comparing(Head::start).thenComparing(head -> head.stream().resource.getId());
+
+    private final ResourceRepository resourceRepository;
+    private final AvailabilitySlotRepository slotRepository;
+    private final AvailabilityBitmapService availabilityBitmaps;
+    private final AvailabilityTemplateService templates;
+    private final ResourceEnricher resourceEnricher;
+
+    @Value("${search.next-available.max-limit:50}")
+    private int maxLimit;
+
+    @Value("${search.next-available.max-days:60}")
+    private int maxDays;
+
+    // Days of bitmaps loaded per step of one resource's stream
+    @Value("${search.next-available.chunk-days:7}")
+    private int chunkDays;
+
+    public record Criteria(String specialization, String category, Double minPrice, Double maxPrice,
+                           int minutes, LocalDateTime from, int days, int limit, int maxPerResource) {
+    }
+
+    public record OpenWindow(Long resourceId, String resourceName, String providerName, String specialization,
+                             String serviceCategory, Double price, LocalDate date, LocalTime startTime, LocalTime endTime) {
+    }
+
+    private record Head(LocalDateTime start, WindowStream stream, FreeWindow window) {
+    }
+
+    public NextAvailableSearch(ResourceRepository resourceRepository, AvailabilitySlotRepository slotRepository,
+                               AvailabilityBitmapService availabilityBitmaps, AvailabilityTemplateService templates,
+                               ResourceEnricher resourceEnricher) {
+        this.resourceRepository = resourceRepository;
+        this.slotRepository = slotRepository;
+        this.availabilityBitmaps = availabilityBitmaps;
+        this.templates = templates;
+        this.resourceEnricher = resourceEnricher;
+    }
+
+    public List<OpenWindow> search(Criteria criteria) {
+        validate(criteria);
+        LocalDateTime from = criteria.from() != null ? criteria.from() : LocalDateTime.now();
+        LocalDate firstDay = from.toLocalDate();
+        LocalDate lastDay = firstDay.plusDays(criteria.days() - 1L);
+
+        List<Resource> candidates = candidates(criteria);
+        Map<Long, Resource> byId = new HashMap<>();
+        candidates.forEach(resource -> byId.put(resource.getId(), resource));
+
+        PriorityQueue<Head> queue = new PriorityQueue<>(EARLIEST_FIRST);
+        List<Long> ids = new ArrayList<>(byId.keySet());
+        for (int i = 0; i < ids.size(); i += IN_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(i, Math.min(i + IN_CHUNK_SIZE, ids.size()));
+            Map<Long, LocalDate> firstOpenDays = new HashMap<>(templates.findFirstScheduledDates(chunk, firstDay, lastDay));
+            for (Object[] row : slotRepository.findFirstAvailableDates(chunk, firstDay, lastDay)) {
+                firstOpenDays.merge((Long) row[0], (LocalDate) row[1], (a, b) -> a.isBefore(b) ? a : b);
+            }
+            firstOpenDays.forEach((resourceId, firstOpenDay) -> {
+                WindowStream stream = new WindowStream(byId.get(resourceId), firstOpenDay, lastDay, from, criteria.minutes());
+                LocalDateTime bound = firstOpenDay.atStartOfDay();
+                queue.add(new Head(bound.isAfter(from) ? bound : from, stream, null));
+            });
+        }
+
+        List<Head> results = new ArrayList<>();
+        while (results.size() < criteria.limit() && !queue.isEmpty()) {
+            Head head = queue.poll();
+            WindowStream stream = head.stream();
+            if (head.window() != null) {
+                results.add(head);
+                if (++stream.emitted >= criteria.maxPerResource()) {
+                    continue;
+                }
+            }
+            FreeWindow next = stream.next();
+            if (next != null) {
+                queue.add(new Head(next.date().atTime(next.startTime()), stream, next));
+            }
+        }
+
+        List<Resource> found = results.stream().map(head -> head.stream().resource).distinct().toList();
+        if (criteria.category() == null || criteria.category().isBlank()) {
+            resourceEnricher.enrichProviders(found, true);
+        }
+        return results.stream().map(head -> toOpenWindow(head.stream().resource, head.window())).toList();
+    }
+
+    private void validate(Criteria criteria) {
+        if (criteria.minutes() < 1 || criteria.minutes() > 24 * 60) {
+            throw new IllegalArgumentException("minutes must be between 1 and 1440");
+        }
+        if (criteria.days() < 1 || criteria.days() > maxDays) {
+            throw new IllegalArgumentException("days must be between 1 and " + maxDays);
+        }
+        if (criteria.limit() < 1 || criteria.limit() > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+        if (criteria.maxPerResource() < 1) {
+            throw new IllegalArgumentException("perResource must be at least 1");
+        }
+    }
+
+    /**
+     * Active resources (as listed to customers) matching the specialization, price and category filters.
+     */
+    private List<Resource> candidates(Criteria criteria) {
+        List<Resource> resources = new ArrayList<>();
+        for (Resource resource : resourceRepository.findActiveForCustomers()) {
+            if (criteria.specialization() != null && !criteria.specialization().isBlank()
+                    && !criteria.specialization().equalsIgnoreCase(resource.getSpecialization())) {
+                continue;
+            }
+            if (criteria.minPrice() != null && (resource.getPrice() == null || resource.getPrice() < criteria.minPrice())) {
+                continue;
+            }
+            if (criteria.maxPrice() != null && (resource.getPrice() == null || resource.getPrice() > criteria.maxPrice())) {
+                continue;
+            }
+            resources.add(resource);
+        }
+        if (criteria.category() != null && !criteria.category().isBlank()) {
+            // The category is the provider's; resolve it for the remaining candidates in one pass
+            resourceEnricher.enrichProviders(resources, true);
+            resources.removeIf(resource -> !criteria.category().equalsIgnoreCase(resource.getServiceCategory()));
+        }
+        return resources;
+    }
+
+    private static OpenWindow toOpenWindow(Resource resource, FreeWindow window) {
+        return new OpenWindow(resource.getId(), resource.getName(), resource.getProviderName(), resource.getSpecialization(),
+            resource.getServiceCategory(), resource.getPrice(), window.date(), window.startTime(), window.endTime());
+    }
+
+    /**
+     * Free windows of one resource from its first open day on, one per free run, loading bitmaps
+     * chunkDays at a time.
+     */
+    private final class WindowStream {
+        private final Resource resource;
+        private final LocalDate lastDay;
+        private final LocalDateTime notBefore;
+        private final int minutes;
+        private SortedMap<LocalDate, DayBitmap> loaded = new TreeMap<>();
+        private LocalDate day;
+        private int slot;
+        private int emitted;
+
+        WindowStream(Resource resource, LocalDate firstDay, LocalDate lastDay, LocalDateTime notBefore, int minutes) {
+            this.resource = resource;
+            this.day = firstDay;
+            this.lastDay = lastDay;
+            this.notBefore = notBefore;
+            this.minutes = minutes;
+        }
+
+        FreeWindow next() {
+            int granularity = availabilityBitmaps.getGranularityMinutes();
+            int length = Math.ceilDiv(minutes, granularity);
+            while (!day.isAfter(lastDay)) {
+                DayBitmap bitmap = bitmap(day);
+                if (slot == 0 && day.equals(notBefore.toLocalDate())) {
+                    LocalTime time = notBefore.toLocalTime();
+                    slot = bitmap.slotCeil(time.getHour() * 60 + time.getMinute() + (time.getSecond() > 0 || time.getNano() > 0 ? 1 : 0));
+                }
+                int start = slot < bitmap.size() ? bitmap.firstFreeRun(slot, length) : -1;
+                if (start >= 0) {
+                    // Continue after this free run, so one opening is reported once
+                    slot = bitmap.nextTaken(start);
+                    int startMinute = start * granularity;
+                    return new FreeWindow(day, LocalTime.MIN.plusMinutes(startMinute), endOf(startMinute + minutes));
+                }
+                day = day.plusDays(1);
+                slot = 0;
+            }
+            return null;
+        }
+
+        private DayBitmap bitmap(LocalDate date) {
+            DayBitmap bitmap = loaded.get(date);
+            if (bitmap == null) {
+                LocalDate chunkEnd = date.plusDays(chunkDays - 1L);
+                loaded = availabilityBitmaps.getDays(resource.getId(), date, chunkEnd.isAfter(lastDay) ? lastDay : chunkEnd);
+                bitmap = loaded.get(date);
+            }
+            return bitmap;
+        }
+    }
+
+    private static LocalTime endOf(int minute) {
+        return minute >= DayBitmap.MINUTES_PER_DAY ? LocalTime.MAX : LocalTime.MIN.plusMinutes(minute);
+    }
+}
@@ -0,0 +1,229 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.common.service.SchedulerLeaseService;
+import com.bookfast.backend.resource.model.ProviderRatingSummary;
+import com.bookfast.backend.resource.model.RatingStats;
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.model.ResourceRatingSummary;
+import com.bookfast.backend.resource.model.Review;
+import com.bookfast.backend.resource.repository.ProviderRatingSummaryRepository;
+import com.bookfast.backend.resource.repository.ResourceRatingSummaryRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import com.bookfast.backend.resource.repository.ReviewRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Materialized rating aggregates (count, sum, 1-5 star histogram) per resource and per provider.
+ *
+ * Review writes apply their delta with an atomic upsert in the same transaction, so reads never
+ * touch the review table. reconcile() recomputes everything from the reviews and repairs rows
+ * that drifted (e.g. reviews removed by a resource delete cascade or edited outside the service).
+ */
+@Service
+public class RatingAggregateService {
+    private final ResourceRatingSummaryRepository resourceSummaryRepository;
+    private final ProviderRatingSummaryRepository providerSummaryRepository;
+    private final ReviewRepository reviewRepository;
+    private final ResourceRepository resourceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeaseService leaseService;
+
+    public RatingAggregateService(ResourceRatingSummaryRepository resourceSummaryRepository,
+                                  ProviderRatingSummaryRepository providerSummaryRepository,
+                                  ReviewRepository reviewRepository, ResourceRepository resourceRepository,
+                                  TransactionTemplate transactionTemplate, SchedulerLeaseService leaseService) {
+        this.resourceSummaryRepository = resourceSummaryRepository;
+        this.providerSummaryRepository = providerSummaryRepository;
+        this.reviewRepository = reviewRepository;
+        this.resourceRepository = resourceRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseService = leaseService;
+    }
+
+    public RatingStats getResourceStats(Long resourceId) {
+        return resourceSummaryRepository.findById(resourceId).map(ResourceRatingSummary::getStats).orElseGet(RatingStats::new);
+    }
+
+    public RatingStats getProviderStats(Long providerId) {
+        return providerSummaryRepository.findById(providerId).map(ProviderRatingSummary::getStats).orElseGet(RatingStats::new);
+    }
+
+    public Map<Long, RatingStats> getProviderStats(Collection<Long> providerIds) {
+        Map<Long, RatingStats> stats = new HashMap<>();
+        for (ProviderRatingSummary summary : providerSummaryRepository.findAllById(providerIds)) {
+            stats.put(summary.getProviderId(), summary.getStats());
+        }
+        return stats;
+    }
+
+    public Map<Long, RatingStats> getResourceStats(Collection<Long> resourceIds) {
+        Map<Long, RatingStats> stats = new HashMap<>();
+        for (ResourceRatingSummary summary : resourceSummaryRepository.findAllById(resourceIds)) {
+            stats.put(summary.getResourceId(), summary.getStats());
+        }
+        return stats;
+    }
+
+    public void recordAdded(Review review) {
+        apply(review.getResource(), review.getRating(), 1);
+    }
+
+    /**
+     * Move a rating from its previously persisted state (resource, rating) to its current one.
+     */
+    public void recordChanged(Resource previousResource, Double previousRating, Review review) {
+        apply(previousResource, previousRating, -1);
+        apply(review.getResource(), review.getRating(), 1);
+    }
+
+    public void recordRemoved(Resource resource, Double rating) {
+        apply(resource, rating, -1);
+    }
+
+    /**
+     * A resource is about to be deleted together with its reviews: take its share out of the provider.
+     */
+    public void recordResourceRemoved(Resource resource) {
+        resourceSummaryRepository.findById(resource.getId()).ifPresent(summary -> {
+            RatingStats stats = summary.getStats();
+            if (resource.getProviderId() != null && !stats.isEmpty()) {
+                providerSummaryRepository.applyDelta(resource.getProviderId(), -stats.getRatingCount(), -stats.getRatingSum(),
+                    -stats.getStar1(), -stats.getStar2(), -stats.getStar3(), -stats.getStar4(), -stats.getStar5());
+            }
+            resourceSummaryRepository.delete(summary);
+        });
+    }
+
+    private void apply(Resource resource, Double rating, int sign) {
+        if (resource == null || resource.getId() == null || rating == null) {
+            return;
+        }
+        long[] stars = new long[6];
+        stars[RatingStats.bucket(rating)] = sign;
+        resourceSummaryRepository.applyDelta(resource.getId(), sign, sign * rating,
+            stars[1], stars[2], stars[3], stars[4], stars[5]);
+        if (resource.getProviderId() != null) {
+            providerSummaryRepository.applyDelta(resource.getProviderId(), sign, sign * rating,
+                stars[1], stars[2], stars[3], stars[4], stars[5]);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        scheduledReconcile();
+    }
+
+    @Scheduled(cron = "${reviews.rating-reconcile.cron:0 30 3 * * *}")
+    public void scheduledReconcile() {
+        try {
+            // Repairs lock their rows, so a second instance would only repeat the scan
+            leaseService.runExclusive("rating-reconcile", lease -> {
+                Map<String, Object> report = reconcile();
+                System.out.println("[RatingAggregateService] Reconciled rating aggregates: " + report);
+            });
+        } catch (Exception e) {
+            System.err.println("[RatingAggregateService] Rating reconcile failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recompute all aggregates from the reviews in one grouped query and repair rows that differ.
+     * Each repair recomputes its row under a row lock, so deltas applied concurrently are not lost.
+     */
+    public Map<String, Object> reconcile() {
+        Map<Long, RatingStats> expectedByResource = new HashMap<>();
+        for (Object[] row : reviewRepository.countRatingsByResource()) {
+            expectedByResource.computeIfAbsent((Long) row[0], id -> new RatingStats())
+                .add(((Number) row[1]).doubleValue(), ((Number) row[2]).longValue());
+        }
+        Map<Long, RatingStats> expectedByProvider = new HashMap<>();
+        for (Object[] row : resourceRepository.findAllProviderIds()) {
+            RatingStats resourceStats = expectedByResource.get((Long) row[0]);
+            if (row[1] != null && resourceStats != null) {
+                expectedByProvider.computeIfAbsent((Long) row[1], id -> new RatingStats()).add(resourceStats);
+            }
+        }
+
+        Map<Long, RatingStats> currentByResource = new HashMap<>();
+        resourceSummaryRepository.findAll().forEach(s -> currentByResource.put(s.getResourceId(), s.getStats()));
+        Map<Long, RatingStats> currentByProvider = new HashMap<>();
+        providerSummaryRepository.findAll().forEach(s -> currentByProvider.put(s.getProviderId(), s.getStats()));
+
+        List<Long> repairedResources = new ArrayList<>();
+        for (Long resourceId : drifted(expectedByResource, currentByResource)) {
+            repairResource(resourceId);
+            repairedResources.add(resourceId);
+        }
+        List<Long> repairedProviders = new ArrayList<>();
+        for (Long providerId : drifted(expectedByProvider, currentByProvider)) {
+            repairProvider(providerId);
+            repairedProviders.add(providerId);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("resources", expectedByResource.size());
+        report.put("providers", expectedByProvider.size());
+        report.put("repairedResources", repairedResources);
+        report.put("repairedProviders", repairedProviders);
+        return report;
+    }
+
+    private static Set<Long> drifted(Map<Long, RatingStats> expected, Map<Long, RatingStats> current) {
+        Set<Long> ids = new HashSet<>(expected.keySet());
+        ids.addAll(current.keySet());
+        ids.removeIf(id -> expected.getOrDefault(id, new RatingStats()).matches(current.getOrDefault(id, new RatingStats())));
+        return ids;
+    }
+
+    private void repairResource(Long resourceId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            ResourceRatingSummary summary = resourceSummaryRepository.findByIdForUpdate(resourceId)
+                .orElseGet(() -> new ResourceRatingSummary(resourceId));
+            RatingStats stats = toStats(reviewRepository.countRatingsForResource(resourceId));
+            if (stats.isEmpty()) {
+                resourceSummaryRepository.deleteById(resourceId);
+                return;
+            }
+            summary.setStats(stats);
+            summary.setUpdatedAt(LocalDateTime.now());
+            resourceSummaryRepository.save(summary);
+        });
+    }
+
+    private void repairProvider(Long providerId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            ProviderRatingSummary summary = providerSummaryRepository.findByIdForUpdate(providerId)
+                .orElseGet(() -> new ProviderRatingSummary(providerId));
+            RatingStats stats = toStats(reviewRepository.countRatingsForProvider(providerId));
+            if (stats.isEmpty()) {
+                providerSummaryRepository.deleteById(providerId);
+                return;
+            }
+            summary.setStats(stats);
+            summary.setUpdatedAt(LocalDateTime.now());
+            providerSummaryRepository.save(summary);
+        });
+    }
+
+    private static RatingStats toStats(List<Object[]> ratingCounts) {
+        RatingStats stats = new RatingStats();
+        for (Object[] row : ratingCounts) {
+            stats.add(((Number) row[0]).doubleValue(), ((Number) row[1]).longValue());
+        }
+        return stats;
+    }
+}
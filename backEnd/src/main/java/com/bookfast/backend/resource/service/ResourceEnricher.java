@@ -0,0 +1,183 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.admin.model.ServiceCategory;
+import com.bookfast.backend.admin.repository.ServiceCategoryRepository;
+import com.bookfast.backend.common.model.User;
+import com.bookfast.backend.common.repository.UserRepository;
+import com.bookfast.backend.resource.model.RatingStats;
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.repository.AvailabilityRuleRepository;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Fills the transient listing fields of Resource (providerName, serviceCategory, rating,
+ * hasAvailableSlots) for a whole list at once: providers, categories, materialized rating aggregates
+ * and slot availability are each fetched with one IN query, so the cost does not grow with the list length.
+ */
+@Component
+public class ResourceEnricher {
+    // Keeps bind-parameter counts well below the driver limit for very large catalogs
+    private static final int IN_CHUNK_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final RatingAggregateService ratingAggregates;
+    private final AvailabilitySlotRepository availabilitySlotRepository;
+    private final AvailabilityRuleRepository availabilityRuleRepository;
+    private final ServiceCategoryRepository serviceCategoryRepository;
+
+    public ResourceEnricher(UserRepository userRepository, RatingAggregateService ratingAggregates,
+                            AvailabilitySlotRepository availabilitySlotRepository,
+                            AvailabilityRuleRepository availabilityRuleRepository,
+                            ServiceCategoryRepository serviceCategoryRepository) {
+        this.userRepository = userRepository;
+        this.ratingAggregates = ratingAggregates;
+        this.availabilitySlotRepository = availabilitySlotRepository;
+        this.availabilityRuleRepository = availabilityRuleRepository;
+        this.serviceCategoryRepository = serviceCategoryRepository;
+    }
+
+    /**
+     * Provider fields, average rating and slot availability.
+     *
+     * @param resolveCategories translate numeric serviceCategory ids into category names
+     */
+    public void enrich(List<Resource> resources, boolean resolveCategories) {
+        if (resources.isEmpty()) {
+            return;
+        }
+        enrichProviders(resources, resolveCategories);
+
+        Set<Long> resourceIds = new LinkedHashSet<>();
+        for (Resource resource : resources) {
+            resourceIds.add(resource.getId());
+        }
+        Map<Long, RatingStats> ratings = new HashMap<>();
+        for (List<Long> chunk : chunks(resourceIds)) {
+            ratings.putAll(ratingAggregates.getResourceStats(chunk));
+        }
+        Set<Long> withAvailableSlots = new HashSet<>(
+            inChunks(resourceIds, availabilitySlotRepository::findResourceIdsWithAvailableSlots));
+        // Resources with weekly hours offer virtual slots without stored ones
+        withAvailableSlots.addAll(inChunks(resourceIds, availabilityRuleRepository::findResourceIdsWithRules));
+
+        for (Resource resource : resources) {
+            // Only overwrite the stored rating when the resource actually has reviews
+            RatingStats stats = ratings.get(resource.getId());
+            if (stats != null && !stats.isEmpty()) {
+                resource.setRating(stats.average());
+            }
+            resource.setHasAvailableSlots(withAvailableSlots.contains(resource.getId()));
+        }
+    }
+
+    /**
+     * Provider display name and service category only.
+     */
+    public void enrichProviders(List<Resource> resources, boolean resolveCategories) {
+        Set<Long> providerIds = new LinkedHashSet<>();
+        for (Resource resource : resources) {
+            if (resource.getProviderId() != null) {
+                providerIds.add(resource.getProviderId());
+            }
+        }
+        if (providerIds.isEmpty()) {
+            return;
+        }
+        Map<Long, User> providers = new HashMap<>();
+        for (User user : inChunks(providerIds, userRepository::findAllById)) {
+            providers.put(user.getId(), user);
+        }
+        Map<String, String> categoryNames = resolveCategories ? loadCategoryNames(providers.values()) : Map.of();
+
+        for (Resource resource : resources) {
+            User p = resource.getProviderId() != null ? providers.get(resource.getProviderId()) : null;
+            if (p == null) {
+                continue;
+            }
+            String stored = p.getServiceCategory();
+            resource.setServiceCategory(resolveCategories ? resolveCategoryName(stored, categoryNames) : stored);
+            resource.setProviderName(displayName(p));
+        }
+    }
+
+    private static String displayName(User p) {
+        boolean hasPersonalName = (p.getFirstName() != null && !p.getFirstName().isBlank())
+            || (p.getLastName() != null && !p.getLastName().isBlank());
+        if (hasPersonalName) {
+            return ((p.getFirstName() != null ? p.getFirstName() : "") + " " + (p.getLastName() != null ? p.getLastName() : "")).trim();
+        }
+        return p.getOrganizationName() != null && !p.getOrganizationName().isBlank() ? p.getOrganizationName() : p.getEmail();
+    }
+
+    /**
+     * Names of the categories that providers reference by numeric id, keyed by the stored id string.
+     */
+    private Map<String, String> loadCategoryNames(Collection<User> providers) {
+        Set<Long> categoryIds = new LinkedHashSet<>();
+        for (User provider : providers) {
+            String stored = provider.getServiceCategory();
+            if (isNumeric(stored)) {
+                try {
+                    categoryIds.add(Long.valueOf(stored));
+                } catch (NumberFormatException ex) {
+                    // Too long for a Long; resolveCategoryName keeps the stored value
+                }
+            }
+        }
+        Map<String, String> names = new HashMap<>();
+        if (!categoryIds.isEmpty()) {
+            for (ServiceCategory category : serviceCategoryRepository.findAllById(categoryIds)) {
+                names.put(String.valueOf(category.getId()), category.getName());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Same rules as ResourceService used per resource: numeric values are category ids,
+     * anything else is already a name.
+     */
+    private static String resolveCategoryName(String stored, Map<String, String> categoryNames) {
+        if (stored == null || stored.isBlank()) return null;
+        if (!isNumeric(stored)) {
+            return stored;
+        }
+        try {
+            return categoryNames.getOrDefault(String.valueOf(Long.valueOf(stored)), stored);
+        } catch (NumberFormatException ex) {
+            return stored;
+        }
+    }
+
+    private static boolean isNumeric(String stored) {
+        return stored != null && !stored.isBlank() && stored.chars().allMatch(Character::isDigit);
+    }
+
+    private static <T> List<T> inChunks(Collection<Long> ids, Function<List<Long>, ? extends Collection<T>> query) {
+        List<T> results = new ArrayList<>();
+        for (List<Long> chunk : chunks(ids)) {
+            results.addAll(query.apply(chunk));
+        }
+        return results;
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> all = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            chunks.add(all.subList(from, Math.min(from + IN_CHUNK_SIZE, all.size())));
+        }
+        return chunks;
+    }
+}
@@ -1,14 +1,15 @@
 package com.bookfast.backend.resource.service;
 
+import com.bookfast.backend.common.pagination.KeysetListing;
+import com.bookfast.backend.common.pagination.KeysetPage;
+import com.bookfast.backend.common.pagination.KeysetPager;
+import com.bookfast.backend.common.pagination.KeysetRequest;
+import com.bookfast.backend.common.pagination.SortKey;
+import com.bookfast.backend.provider.service.BookingRollupService;
 import com.bookfast.backend.resource.model.Resource;
 import com.bookfast.backend.resource.repository.ResourceRepository;
-import com.bookfast.backend.resource.repository.ReviewRepository;
-import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
-import com.bookfast.backend.common.model.User;
-import com.bookfast.backend.admin.repository.ServiceCategoryRepository;
-import com.bookfast.backend.admin.model.ServiceCategory;
-import com.bookfast.backend.common.repository.UserRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
@@ -18,21 +19,29 @@ import java.util.List;
 public class ResourceService {
 
     private final ResourceRepository repository;
-    private final UserRepository userRepository;
-    private final ReviewRepository reviewRepository;
-    private final AvailabilitySlotRepository availabilitySlotRepository;
-    private final ServiceCategoryRepository serviceCategoryRepository;
-
-    public ResourceService(ResourceRepository repository,
-                           UserRepository userRepository,
-                           ReviewRepository reviewRepository,
-                           AvailabilitySlotRepository availabilitySlotRepository,
-                           ServiceCategoryRepository serviceCategoryRepository) {
+    private final ResourceEnricher resourceEnricher;
+    private final RatingAggregateService ratingAggregates;
+    private final BookingRollupService rollups;
+    private final AvailabilityBitmapService availabilityBitmaps;
+    private final AvailabilityTemplateService templates;
+    private final KeysetPager keysetPager;
+
+    private static final KeysetListing<Resource> RESOURCE_LISTING = KeysetListing.of(Resource.class, Resource::getId)
+        .sortKey(SortKey.ofString("name", "name", Resource::getName))
+        .sortKey(SortKey.ofDouble("price", "price", Resource::getPrice))
+        .defaultSort("id", false);
+
+    public ResourceService(ResourceRepository repository, ResourceEnricher resourceEnricher,
+                           RatingAggregateService ratingAggregates, BookingRollupService rollups,
+                           AvailabilityBitmapService availabilityBitmaps, AvailabilityTemplateService templates,
+                           KeysetPager keysetPager) {
         this.repository = repository;
-        this.userRepository = userRepository;
-        this.reviewRepository = reviewRepository;
-        this.availabilitySlotRepository = availabilitySlotRepository;
-        this.serviceCategoryRepository = serviceCategoryRepository;
+        this.resourceEnricher = resourceEnricher;
+        this.ratingAggregates = ratingAggregates;
+        this.rollups = rollups;
+        this.availabilityBitmaps = availabilityBitmaps;
+        this.templates = templates;
+        this.keysetPager = keysetPager;
     }
 
     // Extract providerId from JWT (stub for demo)
@@ -42,7 +51,13 @@ public class ResourceService {
         return 1L;
     }
 
+    @Transactional
     public void deleteResource(Long id) {
+        // Reviews go with the resource (cascade), so take them out of the provider's rating aggregate
+        repository.findById(id).ifPresent(ratingAggregates::recordResourceRemoved);
+        rollups.resourceRemoved(id);
+        availabilityBitmaps.resourceRemoved(id);
+        templates.resourceRemoved(id);
         repository.deleteById(id);
     }
 
@@ -54,75 +69,16 @@ public class ResourceService {
     }
 
     public List<Resource> getResourcesBySpecializationAndStatus(String specialization, String status) {
-        // You may need to add a custom query to ResourceRepository for this
         List<Resource> resources = repository.findBySpecializationAndStatus(specialization, status);
-        // Populate serviceCategory, averageRating, and hasAvailableSlots for each resource
-        for (Resource resource : resources) {
-            if (resource.getProviderId() != null) {
-                java.util.Optional<User> provider = userRepository.findById(resource.getProviderId());
-                if (provider.isPresent()) {
-                    User p = provider.get();
-                    resource.setServiceCategory(p.getServiceCategory());
-                    String displayName = (
-                        (p.getFirstName() != null && !p.getFirstName().isBlank()) ||
-                        (p.getLastName() != null && !p.getLastName().isBlank())
-                    )
-                        ? ( (p.getFirstName() != null ? p.getFirstName() : "") + " " + (p.getLastName() != null ? p.getLastName() : "") ).trim()
-                        : (p.getOrganizationName() != null && !p.getOrganizationName().isBlank() ? p.getOrganizationName() : p.getEmail());
-                    resource.setProviderName(displayName);
-                }
-            }
-            // Calculate and set average rating from reviews
-            List<com.bookfast.backend.resource.model.Review> reviews = reviewRepository.findByResource(resource);
-            if (!reviews.isEmpty()) {
-                double avgRating = reviews.stream()
-                    .mapToDouble(com.bookfast.backend.resource.model.Review::getRating)
-                    .average()
-                    .orElse(0.0);
-                resource.setRating(avgRating);
-            }
-            // Check if resource has any available slots
-            List<com.bookfast.backend.resource.model.AvailabilitySlot> slots = availabilitySlotRepository.findByResourceId(resource.getId());
-            boolean hasAvailable = slots.stream()
-                .anyMatch(slot -> slot.getStatus() != null && slot.getStatus().equalsIgnoreCase("available"));
-            resource.setHasAvailableSlots(hasAvailable);
-        }
+        // Populate serviceCategory, averageRating, and hasAvailableSlots for the whole list
+        resourceEnricher.enrich(resources, false);
         return resources;
     }
 
     public List<Resource> getResourcesByStatus(String status) {
         List<Resource> resources = repository.findByStatus(status);
-        // Populate serviceCategory, averageRating, and hasAvailableSlots for each resource
-        for (Resource resource : resources) {
-            if (resource.getProviderId() != null) {
-                java.util.Optional<User> provider = userRepository.findById(resource.getProviderId());
-                if (provider.isPresent()) {
-                    User p = provider.get();
-                    resource.setServiceCategory(p.getServiceCategory());
-                    String displayName = (
-                        (p.getFirstName() != null && !p.getFirstName().isBlank()) ||
-                        (p.getLastName() != null && !p.getLastName().isBlank())
-                    )
-                        ? ( (p.getFirstName() != null ? p.getFirstName() : "") + " " + (p.getLastName() != null ? p.getLastName() : "") ).trim()
-                        : (p.getOrganizationName() != null && !p.getOrganizationName().isBlank() ? p.getOrganizationName() : p.getEmail());
-                    resource.setProviderName(displayName);
-                }
-            }
-            // Calculate and set average rating from reviews
-            List<com.bookfast.backend.resource.model.Review> reviews = reviewRepository.findByResource(resource);
-            if (!reviews.isEmpty()) {
-                double avgRating = reviews.stream()
-                    .mapToDouble(com.bookfast.backend.resource.model.Review::getRating)
-                    .average()
-                    .orElse(0.0);
-                resource.setRating(avgRating);
-            }
-            // Check if resource has any available slots
-            List<com.bookfast.backend.resource.model.AvailabilitySlot> slots = availabilitySlotRepository.findByResourceId(resource.getId());
-            boolean hasAvailable = slots.stream()
-                .anyMatch(slot -> slot.getStatus() != null && slot.getStatus().equalsIgnoreCase("available"));
-            resource.setHasAvailableSlots(hasAvailable);
-        }
+        // Populate serviceCategory, averageRating, and hasAvailableSlots for the whole list
+        resourceEnricher.enrich(resources, false);
         return resources;
     }
 
@@ -130,153 +86,51 @@ public class ResourceService {
         return repository.findAll();
     }
 
-    // Return only active resources for customers
-    // Returns resources with status "active" or null (default active)
-    public List<Resource> getAllActiveResourcesForCustomers() {
-        List<Resource> allResources = repository.findAll();
-        // Filter to include only active resources or resources with null status (treat as active)
-        List<Resource> filteredResources = allResources.stream()
-            .filter(resource -> {
-                String status = resource.getStatus();
-                // Include if status is null, empty, "active", or "available"
-                return status == null || 
-                       status.isEmpty() || 
-                       status.equalsIgnoreCase("active") || 
-                       status.equalsIgnoreCase("available");
-            })
-            .collect(java.util.stream.Collectors.toList());
-        
-        // Populate serviceCategory, averageRating, and hasAvailableSlots for each resource
-        for (Resource resource : filteredResources) {
-            if (resource.getProviderId() != null) {
-                java.util.Optional<User> provider = userRepository.findById(resource.getProviderId());
-                if (provider.isPresent()) {
-                    User p = provider.get();
-                    resource.setServiceCategory(resolveCategoryName(p.getServiceCategory()));
-                    String displayName = (
-                        (p.getFirstName() != null && !p.getFirstName().isBlank()) ||
-                        (p.getLastName() != null && !p.getLastName().isBlank())
-                    )
-                        ? ( (p.getFirstName() != null ? p.getFirstName() : "") + " " + (p.getLastName() != null ? p.getLastName() : "") ).trim()
-                        : (p.getOrganizationName() != null && !p.getOrganizationName().isBlank() ? p.getOrganizationName() : p.getEmail());
-                    resource.setProviderName(displayName);
-                }
+    /**
+     * Resources one page at a time, filtered and sorted in the database. Only the page is enriched.
+     */
+    public KeysetPage<Resource> getResourcesPage(KeysetRequest request, String status, Long providerId,
+                                                 String specialization, String q) {
+        KeysetPage<Resource> page = keysetPager.fetch(RESOURCE_LISTING, request, (cb, root, where) -> {
+            if (status != null && !status.isBlank()) {
+                where.add(cb.equal(cb.lower(root.get("status")), status.toLowerCase()));
             }
-            // Calculate and set average rating from reviews
-            List<com.bookfast.backend.resource.model.Review> reviews = reviewRepository.findByResource(resource);
-            if (!reviews.isEmpty()) {
-                double avgRating = reviews.stream()
-                    .mapToDouble(com.bookfast.backend.resource.model.Review::getRating)
-                    .average()
-                    .orElse(0.0);
-                resource.setRating(avgRating);
+            if (providerId != null) {
+                where.add(cb.equal(root.get("providerId"), providerId));
             }
-            // Check if resource has any available slots
-            List<com.bookfast.backend.resource.model.AvailabilitySlot> slots = availabilitySlotRepository.findByResourceId(resource.getId());
-            boolean hasAvailable = slots.stream()
-                .anyMatch(slot -> slot.getStatus() != null && slot.getStatus().equalsIgnoreCase("available"));
-            resource.setHasAvailableSlots(hasAvailable);
-        }
-        
-        return filteredResources;
+            if (specialization != null && !specialization.isBlank()) {
+                where.add(cb.equal(cb.lower(root.get("specialization")), specialization.toLowerCase()));
+            }
+            if (q != null && !q.isBlank()) {
+                where.add(KeysetPager.containsIgnoreCase(cb, q,
+                    List.of(root.get("name"), root.get("description"), root.get("specialization"))));
+            }
+        });
+        resourceEnricher.enrich(page.items(), false);
+        return page;
+    }
+
+    // Return only active resources for customers
+    // Returns resources with status "active", "available", empty or null (default active)
+    public List<Resource> getAllActiveResourcesForCustomers() {
+        List<Resource> resources = repository.findActiveForCustomers();
+        // Populate serviceCategory, averageRating, and hasAvailableSlots for the whole list
+        resourceEnricher.enrich(resources, true);
+        return resources;
     }
 
     public Resource getResourceById(Long id) {
         Resource resource = repository.findById(id).orElse(null);
         if (resource != null) {
-            if (resource.getProviderId() != null) {
-                java.util.Optional<User> provider = userRepository.findById(resource.getProviderId());
-                if (provider.isPresent()) {
-                    User p = provider.get();
-                    resource.setServiceCategory(p.getServiceCategory());
-                    String displayName = (
-                        (p.getFirstName() != null && !p.getFirstName().isBlank()) ||
-                        (p.getLastName() != null && !p.getLastName().isBlank())
-                    )
-                        ? ( (p.getFirstName() != null ? p.getFirstName() : "") + " " + (p.getLastName() != null ? p.getLastName() : "") ).trim()
-                        : (p.getOrganizationName() != null && !p.getOrganizationName().isBlank() ? p.getOrganizationName() : p.getEmail());
-                    resource.setProviderName(displayName);
-                }
-            }
-            // Calculate and set average rating from reviews
-            List<com.bookfast.backend.resource.model.Review> reviews = reviewRepository.findByResource(resource);
-            if (!reviews.isEmpty()) {
-                double avgRating = reviews.stream()
-                    .mapToDouble(com.bookfast.backend.resource.model.Review::getRating)
-                    .average()
-                    .orElse(0.0);
-                resource.setRating(avgRating);
-            }
-            // Check if resource has any available slots
-            List<com.bookfast.backend.resource.model.AvailabilitySlot> slots = availabilitySlotRepository.findByResourceId(resource.getId());
-            boolean hasAvailable = slots.stream()
-                .anyMatch(slot -> slot.getStatus() != null && slot.getStatus().equalsIgnoreCase("available"));
-            resource.setHasAvailableSlots(hasAvailable);
+            resourceEnricher.enrich(List.of(resource), false);
         }
         return resource;
     }
 
     public List<Resource> getResourcesBySpecialization(String specialization) {
         List<Resource> resources = repository.findBySpecialization(specialization);
-        // Populate serviceCategory, averageRating, and hasAvailableSlots for each resource
-        for (Resource resource : resources) {
-            if (resource.getProviderId() != null) {
-                java.util.Optional<User> provider = userRepository.findById(resource.getProviderId());
-                if (provider.isPresent()) {
-                    User p = provider.get();
-                    resource.setServiceCategory(resolveCategoryName(p.getServiceCategory()));
-                    String displayName = (
-                        (p.getFirstName() != null && !p.getFirstName().isBlank()) ||
-                        (p.getLastName() != null && !p.getLastName().isBlank())
-                    )
-                        ? ( (p.getFirstName() != null ? p.getFirstName() : "") + " " + (p.getLastName() != null ? p.getLastName() : "") ).trim()
-                        : (p.getOrganizationName() != null && !p.getOrganizationName().isBlank() ? p.getOrganizationName() : p.getEmail());
-                    resource.setProviderName(displayName);
-                }
-            }
-            if (resource.getProviderId() != null) {
-                java.util.Optional<User> provider = userRepository.findById(resource.getProviderId());
-                if (provider.isPresent()) {
-                    User p = provider.get();
-                    resource.setServiceCategory(resolveCategoryName(p.getServiceCategory()));
-                    String displayName = (
-                        (p.getFirstName() != null && !p.getFirstName().isBlank()) ||
-                        (p.getLastName() != null && !p.getLastName().isBlank())
-                    )
-                        ? ( (p.getFirstName() != null ? p.getFirstName() : "") + " " + (p.getLastName() != null ? p.getLastName() : "") ).trim()
-                        : (p.getOrganizationName() != null && !p.getOrganizationName().isBlank() ? p.getOrganizationName() : p.getEmail());
-                    resource.setProviderName(displayName);
-                }
-            }
-            if (resource.getProviderId() != null) {
-                java.util.Optional<User> provider = userRepository.findById(resource.getProviderId());
-                if (provider.isPresent()) {
-                    User p = provider.get();
-                    resource.setServiceCategory(resolveCategoryName(p.getServiceCategory()));
-                    String displayName = (
-                        (p.getFirstName() != null && !p.getFirstName().isBlank()) ||
-                        (p.getLastName() != null && !p.getLastName().isBlank())
-                    )
-                        ? ( (p.getFirstName() != null ? p.getFirstName() : "") + " " + (p.getLastName() != null ? p.getLastName() : "") ).trim()
-                        : (p.getOrganizationName() != null && !p.getOrganizationName().isBlank() ? p.getOrganizationName() : p.getEmail());
-                    resource.setProviderName(displayName);
-                }
-            }
-            // Calculate and set average rating from reviews
-            List<com.bookfast.backend.resource.model.Review> reviews = reviewRepository.findByResource(resource);
-            if (!reviews.isEmpty()) {
-                double avgRating = reviews.stream()
-                    .mapToDouble(com.bookfast.backend.resource.model.Review::getRating)
-                    .average()
-                    .orElse(0.0);
-                resource.setRating(avgRating);
-            }
-            // Check if resource has any available slots
-            List<com.bookfast.backend.resource.model.AvailabilitySlot> slots = availabilitySlotRepository.findByResourceId(resource.getId());
-            boolean hasAvailable = slots.stream()
-                .anyMatch(slot -> slot.getStatus() != null && slot.getStatus().equalsIgnoreCase("available"));
-            resource.setHasAvailableSlots(hasAvailable);
-        }
+        // Populate serviceCategory, averageRating, and hasAvailableSlots for the whole list
+        resourceEnricher.enrich(resources, true);
         return resources;
     }
 
@@ -285,21 +139,8 @@ public class ResourceService {
         List<Resource> resources = repository.findByProviderId(providerId);
         // Explicitly set relationships to null to prevent any lazy loading/proxy serialization issues
         // Even though @JsonIgnore should prevent serialization, setting to null is extra safety
+        resourceEnricher.enrichProviders(resources, false);
         for (Resource resource : resources) {
-            if (resource.getProviderId() != null) {
-                java.util.Optional<User> provider = userRepository.findById(resource.getProviderId());
-                if (provider.isPresent()) {
-                    User p = provider.get();
-                    resource.setServiceCategory(p.getServiceCategory());
-                    String displayName = (
-                        (p.getFirstName() != null && !p.getFirstName().isBlank()) ||
-                        (p.getLastName() != null && !p.getLastName().isBlank())
-                    )
-                        ? ( (p.getFirstName() != null ? p.getFirstName() : "") + " " + (p.getLastName() != null ? p.getLastName() : "") ).trim()
-                        : (p.getOrganizationName() != null && !p.getOrganizationName().isBlank() ? p.getOrganizationName() : p.getEmail());
-                    resource.setProviderName(displayName);
-                }
-            }
             // Set to null to completely avoid any lazy loading during JSON serialization
             // The @JsonIgnore annotations should already prevent serialization, but this is extra safety
             resource.setReviews(null);
@@ -311,24 +152,4 @@ public class ResourceService {
     public Resource createResource(Resource resource) {
         return repository.save(resource);
     }
-
-    /**
-     * Resolve a user.stored serviceCategory value into a display name.
-     * If the stored value is a numeric id, look up the ServiceCategory table.
-     * Otherwise, treat it as an already-resolved name.
-     */
-    private String resolveCategoryName(String stored) {
-        if (stored == null || stored.isBlank()) return null;
-        boolean numeric = stored.chars().allMatch(Character::isDigit);
-        if (!numeric) {
-            return stored;
-        }
-        try {
-            Long id = Long.valueOf(stored);
-            java.util.Optional<ServiceCategory> sc = serviceCategoryRepository.findById(id);
-            return sc.map(ServiceCategory::getName).orElse(stored);
-        } catch (NumberFormatException ex) {
-            return stored;
-        }
-    }
 }
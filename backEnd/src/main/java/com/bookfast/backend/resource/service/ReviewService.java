@@ -1,44 +1,73 @@
 package com.bookfast.backend.resource.service;
 
+import com.bookfast.backend.provider.service.BookingRollupService;
+import com.bookfast.backend.resource.dto.ReviewDetailsDTO;
+import com.bookfast.backend.resource.model.RatingStats;
 import com.bookfast.backend.resource.model.Resource;
 import com.bookfast.backend.resource.model.Review;
 import com.bookfast.backend.resource.repository.ReviewRepository;
 import com.bookfast.backend.resource.repository.ResourceRepository;
-import com.bookfast.backend.common.model.User;
-import com.bookfast.backend.common.repository.UserRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Optional;
 
 @Service
 public class ReviewService {
+    @Transactional
     public void deleteReview(Resource resource, Long reviewId) {
-        reviewRepository.deleteById(reviewId);
+        deleteReviewById(reviewId);
     }
 
+    @Transactional
     public void deleteReviewById(Long reviewId) {
-        reviewRepository.deleteById(reviewId);
+        reviewRepository.findById(reviewId).ifPresent(review -> {
+            reviewRepository.delete(review);
+            ratingAggregates.recordRemoved(review.getPersistedResource(), review.getPersistedRating());
+            rollups.reviewRemoved(review.getPersistedResource(), review.getPersistedDate(), review.getPersistedRating());
+        });
     }
 
     public Review getReviewById(Long id) {
         return reviewRepository.findById(id).orElse(null);
     }
 
+    @Transactional
     public Review saveReview(Review review) {
-        return reviewRepository.save(review);
+        // A review that was not loaded through JPA has no snapshot of its stored state; read it
+        Review previous = review;
+        if (review.getId() != null && !review.isPersisted()) {
+            previous = reviewRepository.findById(review.getId()).orElse(null);
+        }
+        Resource previousResource = previous != null ? previous.getPersistedResource() : null;
+        Double previousRating = previous != null ? previous.getPersistedRating() : null;
+        java.time.LocalDate previousDate = previous != null ? previous.getPersistedDate() : null;
+        boolean existed = previous != null && previous.isPersisted();
+        
+        Review saved = reviewRepository.save(review);
+        if (existed) {
+            ratingAggregates.recordChanged(previousResource, previousRating, saved);
+            rollups.reviewChanged(previousResource, previousDate, previousRating, saved);
+        } else {
+            ratingAggregates.recordAdded(saved);
+            rollups.reviewAdded(saved);
+        }
+        return saved;
     }
 
     private final ReviewRepository reviewRepository;
     private final ResourceRepository resourceRepository;
-    private final UserRepository userRepository;
+    private final RatingAggregateService ratingAggregates;
+    private final BookingRollupService rollups;
 
-    public ReviewService(ReviewRepository reviewRepository, ResourceRepository resourceRepository, UserRepository userRepository) {
+    public ReviewService(ReviewRepository reviewRepository, ResourceRepository resourceRepository,
+                         RatingAggregateService ratingAggregates, BookingRollupService rollups) {
         this.reviewRepository = reviewRepository;
         this.resourceRepository = resourceRepository;
-        this.userRepository = userRepository;
+        this.ratingAggregates = ratingAggregates;
+        this.rollups = rollups;
     }
 
     public List<Review> getReviewsForResource(Resource resource) {
@@ -46,12 +75,14 @@ public class ReviewService {
     }
 
     public double getAverageRating(Resource resource) {
-        List<Review> reviews = reviewRepository.findByResource(resource);
-        if (reviews.isEmpty())
-            return 0.0;
-        return reviews.stream().mapToDouble(Review::getRating).average().orElse(0.0);
+        return ratingAggregates.getResourceStats(resource.getId()).average();
+    }
+
+    public RatingStats getRatingStats(Resource resource) {
+        return ratingAggregates.getResourceStats(resource.getId());
     }
 
+    @Transactional
     public Review addReview(Resource resource, String customerName, Long customerId, double rating, String comment) {
         Review review = new Review();
         review.setResource(resource);
@@ -60,7 +91,10 @@ public class ReviewService {
         review.setRating(rating);
         review.setComment(comment);
         review.setDate(java.time.LocalDate.now());
-        return reviewRepository.save(review);
+        Review saved = reviewRepository.save(review);
+        ratingAggregates.recordAdded(saved);
+        rollups.reviewAdded(saved);
+        return saved;
     }
 
     public List<Review> getReviewsByCustomer(Long customerId) {
@@ -71,80 +105,6 @@ public class ReviewService {
     }
 
     public List<ReviewDetailsDTO> getDetailedReviewsByProvider(Long providerId) {
-        // Get all resources for this provider
-        List<Resource> providerResources = resourceRepository.findByProviderId(providerId);
-        List<ReviewDetailsDTO> detailedReviews = new ArrayList<>();
-
-        for (Resource resource : providerResources) {
-            List<Review> reviews = reviewRepository.findByResourceOrderByDateDesc(resource);
-            for (Review review : reviews) {
-                ReviewDetailsDTO dto = new ReviewDetailsDTO(review);
-
-                // Get customer details from User table
-                if (review.getCustomerId() != null) {
-                    Optional<User> customer = userRepository.findById(review.getCustomerId());
-                    if (customer.isPresent()) {
-                        User customerUser = customer.get();
-                        dto.customerEmail = customerUser.getEmail();
-                    }
-                }
-
-                // Get provider details from User table
-                if (resource.getProviderId() != null) {
-                    Optional<User> provider = userRepository.findById(resource.getProviderId());
-                    if (provider.isPresent()) {
-                        User providerUser = provider.get();
-                        dto.providerName = providerUser.getFirstName() + " " + providerUser.getLastName();
-                        dto.providerEmail = providerUser.getEmail();
-                        dto.providerOrganization = providerUser.getOrganizationName();
-                        dto.providerServiceCategory = providerUser.getServiceCategory();
-                    }
-                }
-
-                detailedReviews.add(dto);
-            }
-        }
-        return detailedReviews;
-    }
-
-    // DTO class for detailed review information
-    public static class ReviewDetailsDTO {
-        public Long id;
-        public Long customerId;
-        public String customerName;
-        public String customerEmail;
-        public Double rating;
-        public String comment;
-        public String date;
-        public Long resourceId;
-        public String resourceName;
-        public String resourceDescription;
-        public Double resourcePrice;
-        public String resourceSpecialization;
-        public Long providerId;
-        public String providerName;
-        public String providerEmail;
-        public String providerOrganization;
-        public String providerServiceCategory;
-
-        public ReviewDetailsDTO() {}
-
-        public ReviewDetailsDTO(Review review) {
-            this.id = review.getId();
-            this.customerId = review.getCustomerId();
-            this.customerName = review.getCustomerName();
-            this.rating = review.getRating();
-            this.comment = review.getComment();
-            this.date = review.getDate() != null ? review.getDate().toString() : null;
-            
-            if (review.getResource() != null) {
-                this.resourceId = review.getResource().getId();
-                this.resourceName = review.getResource().getName();
-                this.resourceDescription = review.getResource().getDescription();
-                this.resourcePrice = review.getResource().getPrice();
-                this.resourceSpecialization = review.getResource().getSpecialization();
-                this.providerId = review.getResource().getProviderId();
-            }
-        }
+        return reviewRepository.findDetailsByProviderId(providerId);
     }
 }
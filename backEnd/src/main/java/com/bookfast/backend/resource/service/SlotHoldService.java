@@ -0,0 +1,416 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.common.service.SchedulerLeaseService;
+import com.bookfast.backend.common.util.TransactionHooks;
+import com.bookfast.backend.resource.model.AvailabilitySlot;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.SlotHold;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import com.bookfast.backend.resource.repository.SlotHoldRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checkout holds: a customer who picks a time gets a SlotHold for hold-seconds, during which nobody
+ * else can hold or book overlapping time, so contention is settled when the slot is chosen rather
+ * than when the booking form is submitted.
+ *
+ * Holds are placed under the same locks as bookings (ResourceLockStripes and the resource row lock),
+ * checked against active bookings and other customers' holds in the database, and stored in slot_hold
+ * so every instance sees them. Each instance also keeps the active holds of recently read resources
+ * in memory: slot listings and BookingService's early overlap rejection read that copy, which follows
+ * local changes immediately and other instances' within cache-ttl-seconds. The checks under the
+ * locks always read the database (unless booking.concurrency.mode is "local"). Expired holds are
+ * ignored everywhere and removed by a periodic sweep.
+ */
+@Service
+public class SlotHoldService {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final SlotHoldRepository holdRepository;
+    private final BookingRepository bookingRepository;
+    private final AvailabilitySlotRepository slotRepository;
+    private final ResourceRepository resourceRepository;
+    private final AvailabilityTemplateService templates;
+    private final ResourceLockStripes resourceLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeaseService leaseService;
+    private final Map<Long, CachedHolds> cache;
+    private final LongAdder placed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    @Value("${holds.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${holds.max-minutes:240}")
+    private long maxMinutes;
+
+    @Value("${holds.max-per-customer:5}")
+    private int maxPerCustomer;
+
+    @Value("${holds.cache-ttl-seconds:5}")
+    private long cacheTtlSeconds;
+
+    @Value("${booking.concurrency.mode:database}")
+    private String concurrencyMode;
+
+    private record CachedHolds(List<SlotHold> holds, long loadedAtNanos) {
+    }
+
+    public SlotHoldService(SlotHoldRepository holdRepository, BookingRepository bookingRepository,
+                           AvailabilitySlotRepository slotRepository, ResourceRepository resourceRepository,
+                           AvailabilityTemplateService templates, ResourceLockStripes resourceLocks, TransactionTemplate transactionTemplate,
+                           SchedulerLeaseService leaseService,
+                           @Value("${holds.cache-max-resources:10000}") int cacheMaxResources) {
+        this.holdRepository = holdRepository;
+        this.bookingRepository = bookingRepository;
+        this.slotRepository = slotRepository;
+        this.resourceRepository = resourceRepository;
+        this.templates = templates;
+        this.resourceLocks = resourceLocks;
+        this.transactionTemplate = transactionTemplate;
+        this.leaseService = leaseService;
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedHolds> eldest) {
+                return size() > cacheMaxResources;
+            }
+        };
+    }
+
+    /**
+     * Hold a stored slot, which must still be "available".
+     */
+    public SlotHold holdSlot(Long resourceId, Long slotId, Long customerId) {
+        AvailabilitySlot slot = slotRepository.findById(slotId)
+            .filter(s -> s.getResource() != null && s.getResource().getId().equals(resourceId))
+            .orElseThrow(() -> new IllegalArgumentException("Availability slot not found: " + slotId));
+        if (!"available".equalsIgnoreCase(slot.getStatus())) {
+            throw new IllegalStateException("This slot is no longer available");
+        }
+        if (slot.getDate() == null || slot.getStartTime() == null || slot.getEndTime() == null) {
+            throw new IllegalArgumentException("Slot " + slotId + " has no date or time");
+        }
+        LocalDateTime start = slot.getDate().atTime(slot.getStartTime());
+        LocalDateTime end = slotEnd(slot);
+        checkRange(resourceId, start, end);
+        return hold(resourceId, start, end, customerId);
+    }
+
+    /**
+     * Hold [startTime, endTime) for the customer. The range must be exactly one available stored slot
+     * or one virtual slot of the resource's schedule. The customer's own overlapping holds are
+     * replaced, so changing the selection does not block it.
+     *
+     * @throws IllegalStateException when the time is booked or held by someone else
+     */
+    public SlotHold placeHold(Long resourceId, LocalDateTime startTime, LocalDateTime endTime, Long customerId) {
+        checkRange(resourceId, startTime, endTime);
+        if (!isAvailableSlot(resourceId, startTime, endTime)) {
+            throw new IllegalArgumentException("Holds must cover exactly one available slot");
+        }
+        return hold(resourceId, startTime, endTime, customerId);
+    }
+
+    private void checkRange(Long resourceId, LocalDateTime startTime, LocalDateTime endTime) {
+        if (resourceId == null || startTime == null || endTime == null) {
+            throw new IllegalArgumentException("Resource, start time and end time are required for a hold");
+        }
+        if (!endTime.isAfter(startTime)) {
+            throw new IllegalArgumentException("End time must be after start time");
+        }
+        if (endTime.isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Cannot hold time in the past");
+        }
+        if (Duration.between(startTime, endTime).toMinutes() > maxMinutes) {
+            throw new IllegalArgumentException("A hold cannot be longer than " + maxMinutes + " minutes");
+        }
+    }
+
+    private boolean isAvailableSlot(Long resourceId, LocalDateTime startTime, LocalDateTime endTime) {
+        for (AvailabilitySlot slot : slotRepository.findByResourceIdAndDate(resourceId, startTime.toLocalDate())) {
+            if ("available".equalsIgnoreCase(slot.getStatus()) && slot.getStartTime() != null && slot.getEndTime() != null
+                    && slot.getDate().atTime(slot.getStartTime()).equals(startTime) && slotEnd(slot).equals(endTime)) {
+                return true;
+            }
+        }
+        return templates.isVirtualSlot(resourceId, startTime, endTime);
+    }
+
+    private static LocalDateTime slotEnd(AvailabilitySlot slot) {
+        LocalDateTime start = slot.getDate().atTime(slot.getStartTime());
+        LocalDateTime end = slot.getDate().atTime(slot.getEndTime());
+        // A slot ending at or before its start runs to midnight
+        return end.isAfter(start) ? end : slot.getDate().plusDays(1).atStartOfDay();
+    }
+
+    private SlotHold hold(Long resourceId, LocalDateTime startTime, LocalDateTime endTime, Long customerId) {
+        // Cheap rejection from memory before queueing on the lock
+        List<SlotHold> cachedConflicts = findConflicts(resourceId, startTime, endTime, null, customerId, false);
+        if (!cachedConflicts.isEmpty()) {
+            rejected.increment();
+            throw new IllegalStateException(heldMessage(cachedConflicts));
+        }
+
+        SlotHold hold = resourceLocks.withResourceLock(resourceId, () -> transactionTemplate.execute(status -> {
+            if (resourceRepository.findByIdForUpdate(resourceId).isEmpty()) {
+                throw new IllegalArgumentException("Resource not found with id: " + resourceId);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (!bookingRepository.findOverlappingBookings(resourceId, startTime, endTime).isEmpty()) {
+                rejected.increment();
+                throw new IllegalStateException("This time slot is already booked");
+            }
+            List<SlotHold> own = new ArrayList<>();
+            List<SlotHold> others = new ArrayList<>();
+            for (SlotHold existing : holdRepository.findActiveOverlapping(resourceId, startTime, endTime, now)) {
+                (customerId != null && customerId.equals(existing.getCustomerId()) ? own : others).add(existing);
+            }
+            if (!others.isEmpty()) {
+                rejected.increment();
+                throw new IllegalStateException(heldMessage(others));
+            }
+            if (customerId != null && holdRepository.countActiveByCustomer(customerId, now) - own.size() >= maxPerCustomer) {
+                rejected.increment();
+                throw new IllegalStateException("At most " + maxPerCustomer + " slots can be held at a time");
+            }
+            holdRepository.deleteAll(own);
+
+            SlotHold created = new SlotHold();
+            created.setResourceId(resourceId);
+            created.setCustomerId(customerId);
+            created.setStartTime(startTime);
+            created.setEndTime(endTime);
+            created.setCreatedAt(now);
+            created.setExpiresAt(now.plusSeconds(ttlSeconds));
+            SlotHold saved = holdRepository.save(created);
+            TransactionHooks.afterCommit(() -> {
+                own.forEach(h -> forget(resourceId, h.getToken()));
+                remember(saved);
+            });
+            return saved;
+        }));
+        placed.increment();
+        return hold;
+    }
+
+    /**
+     * Release a hold before it expires. Needs the hold's token, and a hold placed by a signed-in
+     * customer can only be released by that customer.
+     *
+     * @return whether an active hold was released
+     */
+    @Transactional
+    public boolean releaseHold(UUID token, Long customerId) {
+        if (token == null) {
+            throw new IllegalArgumentException("Hold token is required");
+        }
+        SlotHold hold = holdRepository.findById(token).orElse(null);
+        if (hold == null) {
+            return false;
+        }
+        if (hold.getCustomerId() != null && !hold.getCustomerId().equals(customerId)) {
+            throw new IllegalStateException("This hold belongs to another customer");
+        }
+        holdRepository.deleteByToken(token);
+        TransactionHooks.afterCommit(() -> forget(hold.getResourceId(), token));
+        released.increment();
+        return true;
+    }
+
+    /**
+     * Active holds overlapping [startTime, endTime) that block the customer: everyone else's, apart
+     * from the hold with ownToken.
+     *
+     * @param fromDatabase read slot_hold instead of the in-memory copy; required for authoritative
+     *                     checks under the resource locks
+     */
+    public List<SlotHold> findConflicts(Long resourceId, LocalDateTime startTime, LocalDateTime endTime,
+                                        UUID ownToken, Long customerId, boolean fromDatabase) {
+        LocalDateTime now = LocalDateTime.now();
+        List<SlotHold> candidates = fromDatabase && !"local".equalsIgnoreCase(concurrencyMode)
+            ? holdRepository.findActiveOverlapping(resourceId, startTime, endTime, now)
+            : activeHolds(resourceId);
+        List<SlotHold> conflicts = new ArrayList<>();
+        for (SlotHold hold : candidates) {
+            if (hold.getExpiresAt().isAfter(now) && hold.overlaps(startTime, endTime)
+                    && !(hold.getToken().equals(ownToken) && tokenUsableBy(hold, customerId))
+                    && (customerId == null || !customerId.equals(hold.getCustomerId()))) {
+                conflicts.add(hold);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Check the bookings against other customers' holds and throw if any of them is blocked.
+     */
+    public void checkBookable(Long resourceId, List<Booking> bookings, UUID ownToken, Long customerId, boolean fromDatabase) {
+        LocalDateTime spanStart = null;
+        LocalDateTime spanEnd = null;
+        for (Booking booking : bookings) {
+            spanStart = spanStart == null || booking.getStartTime().isBefore(spanStart) ? booking.getStartTime() : spanStart;
+            spanEnd = spanEnd == null || booking.getEndTime().isAfter(spanEnd) ? booking.getEndTime() : spanEnd;
+        }
+        if (spanStart == null) {
+            return;
+        }
+        List<SlotHold> conflicts = new ArrayList<>();
+        for (SlotHold hold : findConflicts(resourceId, spanStart, spanEnd, ownToken, customerId, fromDatabase)) {
+            if (bookings.stream().anyMatch(booking -> hold.overlaps(booking.getStartTime(), booking.getEndTime()))) {
+                conflicts.add(hold);
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            rejected.increment();
+            throw new IllegalStateException(heldMessage(conflicts));
+        }
+    }
+
+    /**
+     * The booking made with the hold replaces it; runs in the booking's transaction. A token of a
+     * hold on another resource, or of another customer's hold, is left alone.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void consume(Long resourceId, UUID token, Long customerId) {
+        if (token == null) {
+            return;
+        }
+        SlotHold hold = holdRepository.findById(token).orElse(null);
+        if (hold == null || !resourceId.equals(hold.getResourceId()) || !tokenUsableBy(hold, customerId)) {
+            return;
+        }
+        if (holdRepository.deleteByToken(token) > 0) {
+            consumed.increment();
+        }
+        TransactionHooks.afterCommit(() -> forget(resourceId, token));
+    }
+
+    // A hold's token stands for its customer, but not for a different signed-in customer
+    private static boolean tokenUsableBy(SlotHold hold, Long customerId) {
+        return hold.getCustomerId() == null || customerId == null || hold.getCustomerId().equals(customerId);
+    }
+
+    /**
+     * Flag the slots that overlap another customer's active hold, from the in-memory copy. With no
+     * customer (signed out) every hold counts.
+     */
+    public List<AvailabilitySlot> markHeld(Long resourceId, List<AvailabilitySlot> slots, Long customerId) {
+        List<SlotHold> holds = activeHolds(resourceId).stream()
+            .filter(hold -> customerId == null || !customerId.equals(hold.getCustomerId()))
+            .toList();
+        if (holds.isEmpty()) {
+            return slots;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (AvailabilitySlot slot : slots) {
+            if (slot.getDate() == null || slot.getStartTime() == null || slot.getEndTime() == null) {
+                continue;
+            }
+            LocalDateTime start = slot.getDate().atTime(slot.getStartTime());
+            LocalDateTime end = slot.getEndTime().isAfter(slot.getStartTime())
+                ? slot.getDate().atTime(slot.getEndTime()) : slot.getDate().plusDays(1).atStartOfDay();
+            slot.setHeld(holds.stream().anyMatch(hold -> hold.getExpiresAt().isAfter(now) && hold.overlaps(start, end)));
+        }
+        return slots;
+    }
+
+    @Scheduled(fixedDelayString = "${holds.sweep-interval-ms:60000}")
+    public void sweepExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        synchronized (cache) {
+            cache.replaceAll((resourceId, cached) -> new CachedHolds(
+                cached.holds().stream().filter(hold -> hold.getExpiresAt().isAfter(now)).toList(), cached.loadedAtNanos()));
+        }
+        try {
+            leaseService.runExclusive("slot-hold-sweep", lease -> {
+                int removed = holdRepository.deleteExpired(now);
+                if (removed > 0) {
+                    expired.add(removed);
+                    System.out.println("[SlotHoldService] Removed " + removed + " expired holds");
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("[SlotHoldService] Sweep failed: " + e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (cache) {
+            stats.put("cachedResources", cache.size());
+        }
+        stats.put("placed", placed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("consumed", consumed.sum());
+        stats.put("released", released.sum());
+        stats.put("expired", expired.sum());
+        return stats;
+    }
+
+    /**
+     * Active holds of the resource from memory, reloaded from the database once older than cache-ttl-seconds.
+     */
+    private List<SlotHold> activeHolds(Long resourceId) {
+        long now = System.nanoTime();
+        synchronized (cache) {
+            CachedHolds cached = cache.get(resourceId);
+            if (cached != null && now - cached.loadedAtNanos() < cacheTtlSeconds * 1_000_000_000L) {
+                return cached.holds();
+            }
+        }
+        List<SlotHold> holds = List.copyOf(holdRepository.findActiveByResource(resourceId, LocalDateTime.now()));
+        synchronized (cache) {
+            cache.put(resourceId, new CachedHolds(holds, now));
+        }
+        return holds;
+    }
+
+    private void remember(SlotHold hold) {
+        synchronized (cache) {
+            CachedHolds cached = cache.get(hold.getResourceId());
+            if (cached != null) {
+                List<SlotHold> holds = new ArrayList<>(cached.holds());
+                holds.add(hold);
+                cache.put(hold.getResourceId(), new CachedHolds(List.copyOf(holds), cached.loadedAtNanos()));
+            }
+        }
+    }
+
+    private void forget(Long resourceId, UUID token) {
+        synchronized (cache) {
+            CachedHolds cached = cache.get(resourceId);
+            if (cached != null) {
+                cache.put(resourceId, new CachedHolds(
+                    cached.holds().stream().filter(hold -> !Objects.equals(hold.getToken(), token)).toList(),
+                    cached.loadedAtNanos()));
+            }
+        }
+    }
+
+    private static String heldMessage(List<SlotHold> holds) {
+        LocalDateTime until = holds.stream().map(SlotHold::getExpiresAt).max(LocalDateTime::compareTo).orElseThrow();
+        return "This time slot is being held by another customer until " + until.format(TIME_FORMAT)
+            + ". Please choose another time or try again later.";
+    }
+}
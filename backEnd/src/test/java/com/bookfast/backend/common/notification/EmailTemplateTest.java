@@ -0,0 +1,54 @@
+package com.bookfast.backend.common.notification;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks placeholder rendering and the SendGrid substitution form used for batched sends, and that
+ * the bundled templates compile with the placeholders their callers fill in.
+ */
+class EmailTemplateTest {
+
+    @Test
+    void rendersPlaceholdersAndSubstitutionTags() {
+        EmailTemplate template = EmailTemplate.compile("greeting", "<p>Hi {{ name }}, booking #{{id}} for {{name}}</p>");
+
+        assertEquals(List.of("name", "id"), template.getPlaceholders());
+        assertEquals("<p>Hi Ana, booking #42 for Ana</p>", template.render(EmailTemplates.values("name", "Ana", "id", 42)));
+        assertEquals("<p>Hi , booking #7 for </p>", template.render(EmailTemplates.values("name", null, "id", 7)));
+        assertEquals("<p>Hi -name-, booking #-id- for -name-</p>", template.getSubstitutionContent());
+    }
+
+    @Test
+    void rejectsMissingValuesAndUnclosedPlaceholders() {
+        EmailTemplate template = EmailTemplate.compile("greeting", "Hi {{name}}");
+
+        assertThrows(IllegalArgumentException.class, () -> template.render(Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> EmailTemplate.compile("broken", "Hi {{name"));
+    }
+
+    @Test
+    void bundledTemplatesRender() {
+        EmailTemplates templates = new EmailTemplates();
+
+        String reminder = templates.render("booking-reminder", EmailTemplates.values(
+            "customerName", "Ana", "when", "tomorrow", "bookingId", 12,
+            "serviceName", "Haircut", "startTime", "Oct 20, 2026 at 10:00 AM"));
+        assertTrue(reminder.contains("Hi Ana,"));
+        assertTrue(reminder.contains("Your appointment is tomorrow!"));
+        assertFalse(reminder.contains("{{"));
+
+        for (String name : new String[] {"admin-customer-welcome", "admin-provider-welcome", "admin-user-welcome",
+                "provider-account-created", "customer-welcome", "provider-welcome", "password-reset",
+                "booking-confirmation", "booking-confirmation-multi"}) {
+            assertFalse(templates.get(name).getPlaceholders().isEmpty(), name);
+        }
+    }
+}
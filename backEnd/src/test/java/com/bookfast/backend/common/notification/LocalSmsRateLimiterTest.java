@@ -0,0 +1,59 @@
+package com.bookfast.backend.common.notification;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Token bucket pacing per sending number, on a manual clock.
+ */
+class LocalSmsRateLimiterTest {
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void pacesEachNumberAndSpreadsOverNumbers() {
+        LocalSmsRateLimiter limiter = new LocalSmsRateLimiter(List.of("+1000", "+2000"), 1.0, 1, clock::get);
+
+        assertEquals("+1000", limiter.tryAcquire());
+        assertEquals("+2000", limiter.tryAcquire());
+        assertNull(limiter.tryAcquire());
+        assertEquals(TimeUnit.SECONDS.toNanos(1), limiter.nanosUntilAvailable());
+
+        advanceMs(500);
+        assertNull(limiter.tryAcquire());
+        advanceMs(500);
+        assertEquals("+1000", limiter.tryAcquire());
+        assertEquals("+2000", limiter.tryAcquire());
+    }
+
+    @Test
+    void burstIsCappedAndThrottlePausesTheNumber() {
+        LocalSmsRateLimiter limiter = new LocalSmsRateLimiter(List.of("+1000"), 2.0, 3, clock::get);
+
+        advanceMs(10_000);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("+1000", limiter.tryAcquire());
+        }
+        assertNull(limiter.tryAcquire());
+
+        advanceMs(500);
+        limiter.throttled("+1000", 2000);
+        advanceMs(1900);
+        assertNull(limiter.tryAcquire());
+        // Refills from the end of the pause: one token after another 500 ms at 2/s
+        advanceMs(100);
+        assertNull(limiter.tryAcquire());
+        advanceMs(500);
+        assertEquals("+1000", limiter.tryAcquire());
+        assertNull(limiter.tryAcquire());
+    }
+
+    private void advanceMs(long ms) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+}
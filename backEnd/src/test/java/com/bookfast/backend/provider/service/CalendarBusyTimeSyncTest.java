@@ -0,0 +1,129 @@
+package com.bookfast.backend.provider.service;
+
+import com.bookfast.backend.provider.service.CalendarBusyTimeSync.BusyPiece;
+import com.bookfast.backend.provider.service.GoogleCalendarService.EventChanges;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Incremental events.list against the local stub Calendar server, and how busy events become
+ * per-day unavailable slots.
+ */
+class CalendarBusyTimeSyncTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 8, 0);
+    private static final LocalDateTime HORIZON = NOW.plusDays(30);
+
+    private StubCalendarServer server;
+    private Calendar calendar;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new StubCalendarServer();
+        calendar = new Calendar.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(), null)
+            .setRootUrl(server.rootUrl())
+            .setApplicationName("BookFast test")
+            .build();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void onlyChangesSinceTheLastSyncTokenAreFetched() throws Exception {
+        for (int i = 0; i < 300; i++) {
+            server.addEvent(busy("Meeting " + i));
+        }
+        EventChanges full = GoogleCalendarService.listEvents(calendar, null);
+        assertTrue(full.fullSync());
+        assertEquals(300, full.events().size());
+        // 250 per page
+        assertEquals(2, server.listRequests());
+        assertNotNull(full.nextSyncToken());
+
+        String added = server.addEvent(busy("Dentist"));
+        server.removeEvent(full.events().get(0).getId());
+        EventChanges incremental = GoogleCalendarService.listEvents(calendar, full.nextSyncToken());
+        assertFalse(incremental.fullSync());
+        assertEquals(2, incremental.events().size());
+        assertEquals(added, incremental.events().get(0).getId());
+        assertEquals("cancelled", incremental.events().get(1).getStatus());
+
+        EventChanges unchanged = GoogleCalendarService.listEvents(calendar, incremental.nextSyncToken());
+        assertTrue(unchanged.events().isEmpty());
+    }
+
+    @Test
+    void expiredSyncTokenIsRejected() throws Exception {
+        server.addEvent(busy("Meeting"));
+        String token = GoogleCalendarService.listEvents(calendar, null).nextSyncToken();
+        server.expireSyncTokens();
+        try {
+            GoogleCalendarService.listEvents(calendar, token);
+        } catch (GoogleJsonResponseException e) {
+            assertEquals(410, e.getStatusCode());
+            return;
+        }
+        throw new AssertionError("Expected 410 Gone");
+    }
+
+    @Test
+    void busyEventsAreSplitIntoDailyPieces() {
+        Event overnight = event(LocalDateTime.of(2030, 1, 1, 22, 0), LocalDateTime.of(2030, 1, 2, 2, 0));
+        assertEquals(List.of(
+            new BusyPiece(LocalDate.of(2030, 1, 1), LocalTime.of(22, 0), LocalTime.MAX),
+            new BusyPiece(LocalDate.of(2030, 1, 2), LocalTime.MIDNIGHT, LocalTime.of(2, 0))),
+            CalendarBusyTimeSync.busyPieces(overnight, NOW, HORIZON));
+
+        // All-day event: end date is exclusive
+        Event allDay = new Event()
+            .setStart(new EventDateTime().setDate(new DateTime("2030-01-03")))
+            .setEnd(new EventDateTime().setDate(new DateTime("2030-01-04")));
+        assertEquals(List.of(new BusyPiece(LocalDate.of(2030, 1, 3), LocalTime.MIDNIGHT, LocalTime.MAX)),
+            CalendarBusyTimeSync.busyPieces(allDay, NOW, HORIZON));
+    }
+
+    @Test
+    void freeCancelledAndPastEventsBlockNothing() {
+        Event free = event(NOW.plusHours(1), NOW.plusHours(2)).setTransparency("transparent");
+        Event cancelled = event(NOW.plusHours(1), NOW.plusHours(2)).setStatus("cancelled");
+        Event past = event(NOW.minusHours(3), NOW.minusHours(1));
+        assertTrue(CalendarBusyTimeSync.busyPieces(free, NOW, HORIZON).isEmpty());
+        assertTrue(CalendarBusyTimeSync.busyPieces(cancelled, NOW, HORIZON).isEmpty());
+        assertTrue(CalendarBusyTimeSync.busyPieces(past, NOW, HORIZON).isEmpty());
+        assertTrue(CalendarBusyTimeSync.busyPieces(event(HORIZON.plusDays(1), HORIZON.plusDays(2)), NOW, HORIZON).isEmpty());
+    }
+
+    private static Map<String, Object> busy(String summary) {
+        return Map.of("summary", summary, "status", "confirmed",
+            "start", Map.of("dateTime", "2030-01-01T10:00:00Z"),
+            "end", Map.of("dateTime", "2030-01-01T11:00:00Z"));
+    }
+
+    private static Event event(LocalDateTime start, LocalDateTime end) {
+        return new Event()
+            .setStart(new EventDateTime().setDateTime(new DateTime(start.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())))
+            .setEnd(new EventDateTime().setDateTime(new DateTime(end.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())));
+    }
+}
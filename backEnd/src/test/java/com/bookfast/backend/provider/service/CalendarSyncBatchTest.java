@@ -0,0 +1,137 @@
+package com.bookfast.backend.provider.service;
+
+import com.bookfast.backend.provider.model.CalendarSyncEntry;
+import com.bookfast.backend.provider.service.GoogleCalendarService.ChangeType;
+import com.bookfast.backend.provider.service.GoogleCalendarService.EventChange;
+import com.bookfast.backend.provider.service.GoogleCalendarService.EventChangeResult;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.Resource;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.calendar.Calendar;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the Calendar batch requests of GoogleCalendarService against a local stub server, and checks
+ * how CalendarSyncService coalesces booking changes into a single operation.
+ */
+class CalendarSyncBatchTest {
+    private static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 9, 0);
+
+    private StubCalendarServer server;
+    private Calendar calendar;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = new StubCalendarServer();
+        calendar = new Calendar.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(), null)
+            .setRootUrl(server.rootUrl())
+            .setApplicationName("BookFast test")
+            .build();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    @Test
+    void insertPatchAndDeleteGoThroughOneBatchRequest() throws Exception {
+        List<EventChangeResult> inserted = GoogleCalendarService.executeBatch(calendar, List.of(
+            insert("First"), insert("Second")));
+        assertEquals(1, server.batchRequests());
+        assertTrue(inserted.get(0).success());
+        String first = inserted.get(0).eventId();
+        String second = inserted.get(1).eventId();
+        assertNotNull(first);
+        assertEquals(2, server.events().size());
+
+        List<EventChangeResult> results = GoogleCalendarService.executeBatch(calendar, List.of(
+            new EventChange(ChangeType.PATCH, first, "First (moved)", START.plusHours(2), START.plusHours(3)),
+            new EventChange(ChangeType.DELETE, second, null, null, null)));
+        assertEquals(2, server.batchRequests());
+        assertTrue(results.get(0).success());
+        assertEquals(first, results.get(0).eventId());
+        assertTrue(results.get(1).success());
+        assertEquals("First (moved)", server.events().get(first).get("summary"));
+        assertFalse(server.events().containsKey(second));
+    }
+
+    @Test
+    void largeChangeSetsAreSplitIntoBatchesOfFifty() throws Exception {
+        List<EventChange> changes = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            changes.add(insert("Booking " + i));
+        }
+        List<EventChangeResult> results = GoogleCalendarService.executeBatch(calendar, changes);
+        assertEquals(3, server.batchRequests());
+        assertEquals(120, server.operations());
+        assertEquals(120, results.stream().filter(EventChangeResult::success).count());
+        assertEquals(120, server.events().size());
+    }
+
+    @Test
+    void missingEventsAreReportedPerOperation() throws Exception {
+        List<EventChangeResult> results = GoogleCalendarService.executeBatch(calendar, List.of(
+            new EventChange(ChangeType.DELETE, "unknown", null, null, null),
+            new EventChange(ChangeType.PATCH, "unknown", "Title", START, START.plusHours(1))));
+        // Deleting an event that is already gone is what we wanted
+        assertTrue(results.get(0).success());
+        assertFalse(results.get(1).success());
+        assertTrue(GoogleCalendarService.isGone(results.get(1).statusCode()));
+    }
+
+    @Test
+    void changesCoalesceIntoOneOperation() {
+        Booking booking = booking("confirmed");
+
+        // Created and updated before the first flush: a single insert with the latest state
+        EventChange change = CalendarSyncService.planChange(entry(null), booking);
+        assertEquals(ChangeType.INSERT, change.type());
+        assertEquals("BookFast: Massage - Jane Doe", change.title());
+
+        assertEquals(ChangeType.PATCH, CalendarSyncService.planChange(entry("evt1"), booking).type());
+        assertEquals(ChangeType.DELETE, CalendarSyncService.planChange(entry("evt1"), null).type());
+        assertEquals(ChangeType.DELETE, CalendarSyncService.planChange(entry("evt1"), booking("cancelled")).type());
+        // Created and deleted before the first flush: nothing to send
+        assertNull(CalendarSyncService.planChange(entry(null), null));
+    }
+
+    private static EventChange insert(String title) {
+        return new EventChange(ChangeType.INSERT, null, title, START, START.plusHours(1));
+    }
+
+    private static CalendarSyncEntry entry(String googleEventId) {
+        CalendarSyncEntry entry = new CalendarSyncEntry();
+        entry.setBookingId(1L);
+        entry.setUserId(7L);
+        entry.setRole(CalendarSyncEntry.ROLE_PROVIDER);
+        entry.setGoogleEventId(googleEventId);
+        return entry;
+    }
+
+    private static Booking booking(String status) {
+        Resource resource = new Resource();
+        resource.setName("Massage");
+        Booking booking = new Booking();
+        booking.setId(1L);
+        booking.setResource(resource);
+        booking.setCustomerName("Jane Doe");
+        booking.setStartTime(START);
+        booking.setEndTime(START.plusHours(1));
+        booking.setStatus(status);
+        return booking;
+    }
+}
@@ -0,0 +1,243 @@
+package com.bookfast.backend.provider.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * In-process stand-in for the Google Calendar API on the primary calendar: multipart/mixed batches
+ * of event insert, patch and delete, and events.list with paging and sync tokens. Events are kept
+ * in memory; every change is numbered so a sync token ("sync-<n>") returns what changed after it.
+ */
+class StubCalendarServer implements AutoCloseable {
+    private static final String EVENTS_PATH = "/calendar/v3/calendars/primary/events";
+    private static final String BOUNDARY = "stub_batch_response";
+
+    private final HttpServer server;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Map<String, Object>> events = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicInteger batchRequests = new AtomicInteger();
+    private final AtomicInteger operations = new AtomicInteger();
+    private final AtomicInteger listRequests = new AtomicInteger();
+    // Latest version of every event ever seen (deleted ones as status "cancelled"), by change number
+    private final Map<String, Long> changedAt = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> latest = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+    private volatile long expiredBefore;
+
+    StubCalendarServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/batch/calendar/v3", this::handleBatch);
+        server.createContext(EVENTS_PATH, this::handleList);
+        server.start();
+    }
+
+    String rootUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    Map<String, Map<String, Object>> events() {
+        return events;
+    }
+
+    int batchRequests() {
+        return batchRequests.get();
+    }
+
+    int operations() {
+        return operations.get();
+    }
+
+    int listRequests() {
+        return listRequests.get();
+    }
+
+    /**
+     * Adds an event as if the user created it in Google Calendar; returns its id.
+     */
+    String addEvent(Map<String, Object> event) {
+        Map<String, Object> copy = new LinkedHashMap<>(event);
+        String id = "evt" + ids.incrementAndGet();
+        copy.put("id", id);
+        events.put(id, copy);
+        changed(id, copy);
+        return id;
+    }
+
+    void removeEvent(String id) {
+        events.remove(id);
+        changed(id, new LinkedHashMap<>(Map.of("id", id, "status", "cancelled")));
+    }
+
+    // Sync tokens issued so far answer 410 Gone, as Google does after a token expires
+    void expireSyncTokens() {
+        expiredBefore = changes.incrementAndGet();
+    }
+
+    private void changed(String id, Map<String, Object> event) {
+        changedAt.put(id, changes.incrementAndGet());
+        latest.put(id, event);
+    }
+
+    private void handleList(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET") || !exchange.getRequestURI().getPath().equals(EVENTS_PATH)) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        listRequests.incrementAndGet();
+        Map<String, String> query = new LinkedHashMap<>();
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                query.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        List<Map<String, Object>> items = new ArrayList<>();
+        String syncToken = query.get("syncToken");
+        if (syncToken != null) {
+            long since = Long.parseLong(syncToken.substring("sync-".length()));
+            if (since < expiredBefore) {
+                send(exchange, 410, Map.of("error", Map.of("code", 410, "message", "Sync token is no longer valid")));
+                return;
+            }
+            changedAt.entrySet().stream().filter(e -> e.getValue() > since).sorted(Map.Entry.comparingByValue())
+                .forEach(e -> items.add(latest.get(e.getKey())));
+        } else {
+            changedAt.entrySet().stream().filter(e -> events.containsKey(e.getKey())).sorted(Map.Entry.comparingByValue())
+                .forEach(e -> items.add(events.get(e.getKey())));
+        }
+        int offset = query.containsKey("pageToken") ? Integer.parseInt(query.get("pageToken")) : 0;
+        int pageSize = query.containsKey("maxResults") ? Integer.parseInt(query.get("maxResults")) : 250;
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", items.subList(Math.min(offset, items.size()), Math.min(offset + pageSize, items.size())));
+        if (offset + pageSize < items.size()) {
+            page.put("nextPageToken", String.valueOf(offset + pageSize));
+        } else {
+            page.put("nextSyncToken", "sync-" + changes.get());
+        }
+        send(exchange, 200, page);
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        batchRequests.incrementAndGet();
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length()).replace("\"", "");
+        // ISO-8859-1 maps bytes 1:1, so gzip-encoded part bodies survive the string handling
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.ISO_8859_1);
+
+        StringBuilder response = new StringBuilder();
+        for (String part : body.split("--" + boundary)) {
+            String trimmed = part.strip();
+            if (trimmed.isEmpty() || trimmed.equals("--")) {
+                continue;
+            }
+            operations.incrementAndGet();
+            response.append("--").append(BOUNDARY).append("\r\n")
+                .append("Content-Type: application/http\r\n\r\n")
+                .append(handleOperation(trimmed)).append("\r\n");
+        }
+        response.append("--").append(BOUNDARY).append("--\r\n");
+
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "multipart/mixed; boundary=" + BOUNDARY);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // part = part headers, blank line, embedded HTTP request
+    private String handleOperation(String part) throws IOException {
+        String request = part.substring(part.indexOf("\r\n\r\n") + 4);
+        int headersEnd = request.indexOf("\r\n\r\n");
+        String head = headersEnd >= 0 ? request.substring(0, headersEnd) : request;
+        String content = headersEnd >= 0 ? request.substring(headersEnd + 4) : "";
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        String method = requestLine[0];
+        String path = URI.create(requestLine[1]).getPath();
+        boolean gzip = false;
+        for (int i = 1; i < lines.length; i++) {
+            String header = lines[i].toLowerCase();
+            if (header.startsWith("content-encoding:") && header.contains("gzip")) {
+                gzip = true;
+            }
+            // Transports without PATCH support send it as POST with an override, like Google accepts
+            if (header.startsWith("x-http-method-override:")) {
+                method = lines[i].substring(lines[i].indexOf(':') + 1).trim().toUpperCase();
+            }
+        }
+
+        String eventId = path.startsWith(EVENTS_PATH + "/") ? path.substring(EVENTS_PATH.length() + 1) : null;
+        if (method.equals("POST") && eventId == null) {
+            Map<String, Object> event = readJson(content, gzip);
+            String id = "evt" + ids.incrementAndGet();
+            event.put("id", id);
+            events.put(id, event);
+            changed(id, event);
+            return json(200, event);
+        }
+        if (eventId == null || !events.containsKey(eventId)) {
+            return json(404, Map.of("error", Map.of("code", 404, "message", "Not Found")));
+        }
+        if (method.equals("PATCH")) {
+            Map<String, Object> event = events.get(eventId);
+            event.putAll(readJson(content, gzip));
+            changed(eventId, event);
+            return json(200, event);
+        }
+        if (method.equals("DELETE")) {
+            removeEvent(eventId);
+            return "HTTP/1.1 204 No Content\r\n\r\n";
+        }
+        return json(400, Map.of("error", Map.of("code", 400, "message", "Unsupported " + method)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readJson(String content, boolean gzip) throws IOException {
+        byte[] bytes = content.strip().getBytes(StandardCharsets.ISO_8859_1);
+        if (gzip) {
+            bytes = new GZIPInputStream(new ByteArrayInputStream(content.getBytes(StandardCharsets.ISO_8859_1))).readAllBytes();
+        }
+        return new LinkedHashMap<>(objectMapper.readValue(bytes, Map.class));
+    }
+
+    private String json(int status, Object body) throws IOException {
+        return "HTTP/1.1 " + status + (status == 200 ? " OK" : " Error") + "\r\n"
+            + "Content-Type: application/json; charset=UTF-8\r\n\r\n"
+            + objectMapper.writeValueAsString(body);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
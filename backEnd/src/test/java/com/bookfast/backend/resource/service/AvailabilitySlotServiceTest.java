@@ -0,0 +1,123 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.resource.dto.AvailabilitySlotBulkRequest;
+import com.bookfast.backend.resource.dto.AvailabilitySlotBulkRequest.SlotSpec;
+import com.bookfast.backend.resource.model.AvailabilitySlot;
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bulk slot creation: range expansion and in-memory overlap checks before the batch insert; empty bulk
+ * requests; bulk delete ranges.
+ */
+class AvailabilitySlotServiceTest {
+    private static final LocalDate MONDAY = LocalDate.of(2026, 3, 2);
+
+    private final AvailabilitySlotRepository slotRepository = mock(AvailabilitySlotRepository.class);
+    private final AvailabilityBitmapService bitmaps = mock(AvailabilityBitmapService.class);
+    private final List<AvailabilitySlot> stored = new ArrayList<>();
+    private AvailabilitySlotService service;
+
+    @BeforeEach
+    void setUp() {
+        ResourceRepository resourceRepository = mock(ResourceRepository.class);
+        Resource resource = new Resource();
+        resource.setId(1L);
+        when(resourceRepository.findById(1L)).thenReturn(Optional.of(resource));
+        when(slotRepository.findByResourceIdAndDateBetween(eq(1L), any(), any())).thenAnswer(invocation -> new ArrayList<>(stored));
+        when(slotRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service = new AvailabilitySlotService(slotRepository, resourceRepository, bitmaps, mock(AvailabilityTemplateService.class),
+            mock(SlotHoldService.class));
+        ReflectionTestUtils.setField(service, "maxBulkSlots", 100);
+    }
+
+    @Test
+    void expandsDateRangeIntoSlotsOnChosenWeekdays() {
+        List<AvailabilitySlot> created = service.createAvailabilitySlots(1L, new AvailabilitySlotBulkRequest(null, null,
+            MONDAY, MONDAY.plusDays(6), List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY),
+            LocalTime.of(9, 0), LocalTime.of(11, 30), 60, null, null));
+
+        // Two one-hour slots per day; the last 30 minutes do not make a slot
+        assertEquals(4, created.size());
+        assertEquals(MONDAY.plusDays(2), created.get(2).getDate());
+        assertEquals(LocalTime.of(10, 0), created.get(3).getStartTime());
+        assertTrue(created.stream().allMatch(slot -> "available".equals(slot.getStatus()) && slot.getResource() != null));
+        verify(bitmaps).slotsChanged(1L, new TreeSet<>(List.of(MONDAY, MONDAY.plusDays(2))));
+    }
+
+    @Test
+    void rejectsSlotsOverlappingStoredOnesOrEachOther() {
+        AvailabilitySlot existing = new AvailabilitySlot();
+        existing.setId(7L);
+        existing.setDate(MONDAY);
+        existing.setStartTime(LocalTime.of(9, 0));
+        existing.setEndTime(LocalTime.of(10, 0));
+        stored.add(existing);
+
+        assertThrows(IllegalArgumentException.class, () -> service.createAvailabilitySlots(1L, request(
+            new SlotSpec(null, MONDAY, LocalTime.of(9, 30), LocalTime.of(10, 30), null, null))));
+        assertThrows(IllegalArgumentException.class, () -> service.createAvailabilitySlots(1L, request(
+            new SlotSpec(null, MONDAY.plusDays(1), LocalTime.of(9, 0), LocalTime.of(12, 0), null, null),
+            new SlotSpec(null, MONDAY.plusDays(1), LocalTime.of(10, 0), LocalTime.of(11, 0), null, null))));
+        verify(slotRepository, never()).saveAll(anyCollection());
+
+        // Touching end to start is fine, as is a slot running to midnight
+        assertEquals(2, service.createAvailabilitySlots(1L, request(
+            new SlotSpec(null, MONDAY, LocalTime.of(10, 0), LocalTime.of(11, 0), null, null),
+            new SlotSpec(null, MONDAY, LocalTime.of(23, 0), LocalTime.MIDNIGHT, null, null))).size());
+    }
+
+    @Test
+    void rangeProducingNoSlotsIsRejected() {
+        // No Sunday in the range, then a slot longer than the daily window
+        assertThrows(IllegalArgumentException.class, () -> service.createAvailabilitySlots(1L, new AvailabilitySlotBulkRequest(
+            null, null, MONDAY, MONDAY.plusDays(5), List.of(DayOfWeek.SUNDAY), LocalTime.of(9, 0), LocalTime.of(11, 0), 60, null, null)));
+        assertThrows(IllegalArgumentException.class, () -> service.createAvailabilitySlots(1L, new AvailabilitySlotBulkRequest(
+            null, null, MONDAY, MONDAY, null, LocalTime.of(9, 0), LocalTime.of(10, 0), 90, null, null)));
+        verify(slotRepository, never()).findByResourceIdAndDateBetween(any(), any(), any());
+    }
+
+    @Test
+    void bulkUpdateWithoutSlotsChangesNothing() {
+        assertTrue(service.updateAvailabilitySlots(1L, request()).isEmpty());
+        verify(slotRepository, never()).findByResourceIdAndDateBetween(any(), any(), any());
+        verify(bitmaps, never()).slotsChanged(any(), any());
+    }
+
+    @Test
+    void bulkDeleteRejectsAnInvertedRange() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> service.deleteAvailabilitySlots(1L,
+            new AvailabilitySlotBulkRequest(null, null, MONDAY.plusDays(1), MONDAY, null, null, null, null, null, null)));
+        assertTrue(error.getMessage().contains("inverted"));
+        verify(slotRepository, never()).findByResourceIdAndDateBetween(any(), any(), any());
+    }
+
+    private static AvailabilitySlotBulkRequest request(SlotSpec... slots) {
+        return new AvailabilitySlotBulkRequest(List.of(slots), null, null, null, null, null, null, null, null, null);
+    }
+}
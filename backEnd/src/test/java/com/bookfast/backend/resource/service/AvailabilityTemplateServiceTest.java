@@ -0,0 +1,126 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.resource.model.AvailabilityException;
+import com.bookfast.backend.resource.model.AvailabilityRule;
+import com.bookfast.backend.resource.model.AvailabilitySchedule;
+import com.bookfast.backend.resource.model.AvailabilitySlot;
+import com.bookfast.backend.resource.repository.AvailabilityExceptionRepository;
+import com.bookfast.backend.resource.repository.AvailabilityRuleRepository;
+import com.bookfast.backend.resource.repository.AvailabilityScheduleRepository;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import com.bookfast.backend.resource.service.AvailabilityTemplateService.OpenInterval;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Expansion of weekly hours and exceptions into virtual slots, and their merge with stored slots.
+ */
+class AvailabilityTemplateServiceTest {
+    private static final LocalDate MONDAY = LocalDate.of(2026, 3, 2);
+
+    @Test
+    void expandsWeeklyHoursMinusClosedPlusOpenExceptions() {
+        List<AvailabilityRule> rules = List.of(
+            rule(DayOfWeek.MONDAY, 9, 12), rule(DayOfWeek.MONDAY, 13, 17), rule(DayOfWeek.TUESDAY, 9, 17));
+
+        List<OpenInterval> monday = AvailabilityTemplateService.expandDay(MONDAY, rules, List.of(
+            exception(MONDAY, AvailabilityException.CLOSED, LocalTime.of(10, 0), LocalTime.of(11, 0)),
+            exception(MONDAY, AvailabilityException.OPEN, LocalTime.of(18, 0), LocalTime.MIDNIGHT)));
+        assertEquals(List.of(new OpenInterval(540, 600), new OpenInterval(660, 720), new OpenInterval(780, 1020),
+            new OpenInterval(1080, 1440)), monday);
+
+        // A whole-day closure (holiday) takes the day off
+        LocalDate tuesday = MONDAY.plusDays(1);
+        assertEquals(List.of(), AvailabilityTemplateService.expandDay(tuesday, rules,
+            List.of(exception(tuesday, AvailabilityException.CLOSED, null, null))));
+
+        // 13:00-17:00 in 90-minute slots: the last 60 minutes do not make a slot
+        assertEquals(List.of(new OpenInterval(780, 870), new OpenInterval(870, 960)),
+            AvailabilityTemplateService.slices(List.of(new OpenInterval(780, 1020)), 90));
+    }
+
+    @Test
+    void storedSlotsHideOverlappingVirtualSlotsAndBookingsMarkThemBooked() {
+        AvailabilityScheduleRepository scheduleRepository = mock(AvailabilityScheduleRepository.class);
+        AvailabilityRuleRepository ruleRepository = mock(AvailabilityRuleRepository.class);
+        AvailabilityExceptionRepository exceptionRepository = mock(AvailabilityExceptionRepository.class);
+        BookingRepository bookingRepository = mock(BookingRepository.class);
+        AvailabilitySchedule schedule = new AvailabilitySchedule();
+        schedule.setResourceId(1L);
+        schedule.setSlotMinutes(60);
+        schedule.setVersion(3);
+        when(scheduleRepository.findVersion(1L)).thenReturn(Optional.of(3L));
+        when(scheduleRepository.findById(1L)).thenReturn(Optional.of(schedule));
+        when(ruleRepository.findByResourceId(1L)).thenReturn(List.of(rule(DayOfWeek.MONDAY, 9, 13)));
+        when(bookingRepository.findActiveIntervalsBetween(eq(1L), any(), any())).thenReturn(List.<Object[]>of(
+            new Object[] {MONDAY.atTime(12, 0), MONDAY.atTime(12, 30)}));
+
+        AvailabilityTemplateService templates = new AvailabilityTemplateService(scheduleRepository, ruleRepository,
+            exceptionRepository, mock(AvailabilitySlotRepository.class), bookingRepository, mock(ResourceRepository.class), 100);
+        ReflectionTestUtils.setField(templates, "defaultSlotMinutes", 60);
+        ReflectionTestUtils.setField(templates, "maxRangeDays", 366);
+
+        AvailabilitySlot stored = new AvailabilitySlot();
+        stored.setDate(MONDAY);
+        stored.setStartTime(LocalTime.of(10, 30));
+        stored.setEndTime(LocalTime.of(11, 30));
+        stored.setStatus("unavailable");
+
+        List<AvailabilitySlot> slots = templates.withVirtualSlots(1L, MONDAY, MONDAY, List.of(stored));
+        assertEquals(3, slots.size());
+        assertSlot(slots.get(0), LocalTime.of(9, 0), "available", true);
+        assertSlot(slots.get(1), LocalTime.of(10, 30), "unavailable", false);
+        assertSlot(slots.get(2), LocalTime.of(12, 0), "booked", true);
+
+        // The expanded day is cached at version 3
+        templates.withVirtualSlots(1L, MONDAY, MONDAY, List.of());
+        verify(ruleRepository, times(1)).findByResourceId(anyLong());
+        assertEquals(3L, templates.knownVersion(1L));
+    }
+
+    private static void assertSlot(AvailabilitySlot slot, LocalTime start, String status, boolean virtual) {
+        assertEquals(start, slot.getStartTime());
+        assertEquals(status, slot.getStatus());
+        if (virtual) {
+            assertTrue(slot.isVirtual());
+        } else {
+            assertFalse(slot.isVirtual());
+        }
+    }
+
+    private static AvailabilityRule rule(DayOfWeek day, int startHour, int endHour) {
+        AvailabilityRule rule = new AvailabilityRule();
+        rule.setDayOfWeek(day);
+        rule.setStartTime(LocalTime.of(startHour, 0));
+        rule.setEndTime(LocalTime.of(endHour, 0));
+        return rule;
+    }
+
+    private static AvailabilityException exception(LocalDate date, String type, LocalTime start, LocalTime end) {
+        AvailabilityException exception = new AvailabilityException();
+        exception.setDate(date);
+        exception.setType(type);
+        exception.setStartTime(start);
+        exception.setEndTime(end);
+        return exception;
+    }
+}
@@ -0,0 +1,137 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.BackendApplication;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Booking writes from two application instances against a real PostgreSQL. Each instance has its
+ * own stripe locks and interval index, so only the SELECT ... FOR UPDATE on the resource row keeps
+ * writers of different instances apart. Run with mvn -Ppostgres-it verify; the database comes from
+ * BOOKING_IT_DATABASE_URL / _USERNAME / _PASSWORD (see application-postgres-it.properties).
+ */
+class BookingConcurrencyPostgresIT {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 20;
+
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startInstances() {
+        first = startInstance();
+        second = startInstance();
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        if (first != null) {
+            first.close();
+        }
+        if (second != null) {
+            second.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startInstance() {
+        return new SpringApplicationBuilder(BackendApplication.class)
+            .profiles("postgres-it")
+            .properties("server.port=0", "booking.concurrency.mode=database")
+            .run();
+    }
+
+    @Test
+    void twoInstancesNeverDoubleBookOneResource() throws Exception {
+        ResourceRepository resources = first.getBean(ResourceRepository.class);
+        BookingRepository bookings = first.getBean(BookingRepository.class);
+        Resource resource = new Resource();
+        resource.setName("Booking concurrency IT " + UUID.randomUUID());
+        resource.setStatus("active");
+        Long resourceId = resources.save(resource).getId();
+        List<BookingService> instances = List.of(first.getBean(BookingService.class), second.getBean(BookingService.class));
+        LocalDateTime base = LocalDateTime.now().plusYears(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        try {
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                BookingService service = instances.get(t % 2);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                        // Everyone competes for the same ten 30-minute windows, staggered by 15 minutes
+                        LocalDateTime slotStart = base.plusMinutes(15L * (i % 10));
+                        try {
+                            Booking saved = service.createBooking(booking(resourceId, slotStart, slotStart.plusMinutes(30)));
+                            created.incrementAndGet();
+                            // Then try to move it onto a neighbour's window through the update path
+                            service.updateBooking(saved.getId(), booking(resourceId, slotStart.plusMinutes(15), slotStart.plusMinutes(45)));
+                        } catch (IllegalStateException e) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+            pool.shutdown();
+
+            List<Booking> stored = bookings.findByResource_Id(resourceId);
+            assertTrue(created.get() > 0);
+            assertTrue(rejected.get() > 0);
+            assertEquals(created.get(), stored.size());
+            for (int i = 0; i < stored.size(); i++) {
+                for (int j = i + 1; j < stored.size(); j++) {
+                    Booking a = stored.get(i);
+                    Booking b = stored.get(j);
+                    assertFalse(a.getStartTime().isBefore(b.getEndTime()) && b.getStartTime().isBefore(a.getEndTime()),
+                            "Double booking: #" + a.getId() + " and #" + b.getId());
+                }
+            }
+        } finally {
+            bookings.deleteAll(bookings.findByResource_Id(resourceId));
+            resources.deleteById(resourceId);
+        }
+    }
+
+    private static Booking booking(Long resourceId, LocalDateTime start, LocalDateTime end) {
+        Resource resource = new Resource();
+        resource.setId(resourceId);
+        Booking booking = new Booking();
+        booking.setResource(resource);
+        booking.setCustomerName("Concurrency IT");
+        booking.setStartTime(start);
+        booking.setEndTime(end);
+        booking.setStatus("confirmed");
+        return booking;
+    }
+}
@@ -0,0 +1,203 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.common.pagination.KeysetPager;
+import com.bookfast.backend.provider.service.BookingRollupService;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import com.bookfast.backend.resource.repository.PaymentRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Hammers BookingService.createBooking from many threads against an in-memory booking table
+ * whose overlap query is deliberately slow, so an unserialized check-then-insert would race.
+ * This covers the in-process stripe lock only; BookingConcurrencyPostgresIT runs the row lock
+ * and two instances against a real database.
+ */
+@SpringJUnitConfig(BookingConcurrencyStressTest.Config.class)
+class BookingConcurrencyStressTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 25;
+
+    private final List<Booking> table = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @Autowired
+    private BookingService service;
+    @MockitoBean
+    private BookingRepository bookingRepository;
+    @MockitoBean
+    private ResourceRepository resourceRepository;
+    @MockitoBean
+    private PaymentRepository paymentRepository;
+    @MockitoBean
+    private AvailabilitySlotRepository availabilitySlotRepository;
+    @MockitoBean
+    private PlatformTransactionManager transactionManager;
+    @MockitoBean
+    private BookingOutboxService outboxService;
+    @MockitoBean
+    private BookingRollupService rollups;
+    @MockitoBean
+    private AvailabilityBitmapService availabilityBitmaps;
+    @MockitoBean
+    private AvailabilityTemplateService templates;
+    @MockitoBean
+    private SlotHoldService slotHolds;
+    @MockitoBean
+    private KeysetPager keysetPager;
+
+    /**
+     * The booking write path as the application wires it; everything it talks to is mocked.
+     */
+    @Configuration
+    @Import({BookingService.class, BookingIntervalIndex.class, ResourceLockStripes.class})
+    static class Config {
+        @Bean
+        TransactionTemplate transactionTemplate(PlatformTransactionManager transactionManager) {
+            return new TransactionTemplate(transactionManager);
+        }
+    }
+
+    @Test
+    void sameResourceUnderContentionNeverDoubleBooks() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2030, 1, 1, 9, 0);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    // Every thread competes for the same ten 30-minute windows, staggered by 15 minutes
+                    LocalDateTime slotStart = base.plusMinutes(15L * (i % 10));
+                    try {
+                        service.createBooking(booking(1L, slotStart, slotStart.plusMinutes(30)));
+                        accepted.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD, accepted.get() + rejected.get());
+        assertTrue(accepted.get() > 0);
+        assertEquals(accepted.get(), table.size());
+        for (int i = 0; i < table.size(); i++) {
+            for (int j = i + 1; j < table.size(); j++) {
+                Booking a = table.get(i);
+                Booking b = table.get(j);
+                assertFalse(a.getStartTime().isBefore(b.getEndTime()) && b.getStartTime().isBefore(a.getEndTime()),
+                        "Double booking: #" + a.getId() + " and #" + b.getId());
+            }
+        }
+    }
+
+    @Test
+    void differentResourcesDoNotBlockEachOther() throws Exception {
+        ResourceLockStripes locks = new ResourceLockStripes(64);
+        long first = 1L;
+        long second = 2L;
+        assertNotEquals(locks.stripeFor(first), locks.stripeFor(second));
+
+        // Both writers must be inside their resource lock at the same time to pass the barrier
+        CyclicBarrier bothInside = new CyclicBarrier(2);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<Boolean> a = pool.submit(() -> locks.withResourceLock(first, () -> await(bothInside)));
+        Future<Boolean> b = pool.submit(() -> locks.withResourceLock(second, () -> await(bothInside)));
+        assertTrue(a.get(10, TimeUnit.SECONDS));
+        assertTrue(b.get(10, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+
+    private static boolean await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(bookingRepository.findOverlappingBookings(anyLong(), any(), any())).thenAnswer(invocation -> {
+            Long resourceId = invocation.getArgument(0);
+            LocalDateTime startTime = invocation.getArgument(1);
+            LocalDateTime endTime = invocation.getArgument(2);
+            List<Booking> overlaps = table.stream()
+                    .filter(existing -> existing.getResource().getId().equals(resourceId))
+                    .filter(existing -> existing.getStartTime().isBefore(endTime) && existing.getEndTime().isAfter(startTime))
+                    .toList();
+            // Widen the window between the check and the insert
+            Thread.sleep(1);
+            return overlaps;
+        });
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+            Booking booking = invocation.getArgument(0);
+            booking.setId(ids.incrementAndGet());
+            table.add(booking);
+            return booking;
+        });
+        when(resourceRepository.findByIdForUpdate(anyLong())).thenAnswer(invocation -> {
+            Resource resource = new Resource();
+            resource.setId(invocation.getArgument(0));
+            return Optional.of(resource);
+        });
+    }
+
+    private static Booking booking(Long resourceId, LocalDateTime start, LocalDateTime end) {
+        Resource resource = new Resource();
+        resource.setId(resourceId);
+        Booking booking = new Booking();
+        booking.setResource(resource);
+        booking.setStartTime(start);
+        booking.setEndTime(end);
+        booking.setStatus("confirmed");
+        return booking;
+    }
+}
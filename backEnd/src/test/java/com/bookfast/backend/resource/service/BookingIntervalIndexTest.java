@@ -0,0 +1,106 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Index writes (insert, move, cancel), rebuild from the database and the drift checker.
+ */
+class BookingIntervalIndexTest {
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 1, 7, 9, 0);
+
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private final List<Object[]> rows = new ArrayList<>();
+    private BookingIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(bookingRepository.findActiveBookingIntervals()).thenAnswer(invocation -> new ArrayList<>(rows));
+        when(bookingRepository.findActiveBookingIntervalsByResource(anyLong())).thenAnswer(invocation -> rows.stream()
+            .filter(row -> row[1].equals(invocation.getArgument(0))).toList());
+        index = new BookingIntervalIndex(bookingRepository);
+        ReflectionTestUtils.setField(index, "enabled", true);
+    }
+
+    @Test
+    void insertMoveAndCancelKeepOverlapAnswersCurrent() {
+        index.rebuild();
+        assertTrue(index.isReady());
+
+        index.upsert(booking(1L, 1L, NINE, NINE.plusHours(1), "confirmed"));
+        // A long booking earlier in the day still overlaps a later window
+        index.upsert(booking(2L, 1L, NINE.minusHours(3), NINE.plusMinutes(30), "confirmed"));
+        index.upsert(booking(3L, 2L, NINE, NINE.plusHours(1), "confirmed"));
+        assertEquals(List.of(2L, 1L), index.findOverlappingIds(1L, NINE.plusMinutes(15), NINE.plusMinutes(45), null));
+        assertEquals(List.of(1L), index.findOverlappingIds(1L, NINE.plusMinutes(30), NINE.plusHours(2), null));
+        // Touching end to start is not an overlap; the booking being edited is excluded
+        assertEquals(List.of(), index.findOverlappingIds(1L, NINE.plusHours(1), NINE.plusHours(2), null));
+        assertEquals(List.of(2L), index.findOverlappingIds(1L, NINE, NINE.plusHours(1), 1L));
+
+        // Moving a booking to another resource drops it from the first
+        index.upsert(booking(1L, 2L, NINE.plusHours(2), NINE.plusHours(3), "confirmed"));
+        assertEquals(List.of(), index.findOverlappingIds(1L, NINE.plusMinutes(45), NINE.plusHours(3), null));
+        assertEquals(List.of(1L), index.findOverlappingIds(2L, NINE.plusHours(2), NINE.plusHours(4), null));
+
+        // Cancelled bookings are not indexed, and removed ones are gone
+        index.upsert(booking(3L, 2L, NINE, NINE.plusHours(1), "cancelled"));
+        index.remove(2L);
+        assertEquals(List.of(), index.findOverlappingIds(2L, NINE, NINE.plusHours(1), null));
+        assertEquals(List.of(), index.findOverlappingIds(1L, NINE.minusHours(3), NINE, null));
+    }
+
+    @Test
+    void rebuildLoadsTheDatabaseAndTheCheckerRepairsDrift() {
+        rows.add(row(1L, 1L, NINE, NINE.plusHours(1)));
+        rows.add(row(2L, 2L, NINE, NINE.plusHours(1)));
+        index.rebuild();
+        assertEquals(List.of(1L), index.findOverlappingIds(1L, NINE, NINE.plusMinutes(5), null));
+
+        Map<String, Object> report = index.verifyAgainstDatabase();
+        assertTrue((Boolean) report.get("consistent"));
+        assertEquals(2, report.get("indexedBookings"));
+
+        // Another writer added a booking and cancelled one without going through this index
+        rows.add(row(3L, 1L, NINE.plusHours(2), NINE.plusHours(3)));
+        rows.removeIf(row -> row[0].equals(2L));
+        report = index.verifyAgainstDatabase();
+        assertFalse((Boolean) report.get("consistent"));
+        assertEquals(Set.of(1L, 2L), Set.copyOf((List<?>) report.get("repairedResources")));
+        assertEquals(List.of(3L), index.findOverlappingIds(1L, NINE.plusHours(2), NINE.plusHours(4), null));
+        assertEquals(List.of(), index.findOverlappingIds(2L, NINE, NINE.plusHours(1), null));
+        assertTrue((Boolean) index.verifyAgainstDatabase().get("consistent"));
+    }
+
+    private static Object[] row(Long bookingId, Long resourceId, LocalDateTime start, LocalDateTime end) {
+        return new Object[] {bookingId, resourceId, start, end};
+    }
+
+    private static Booking booking(Long id, Long resourceId, LocalDateTime start, LocalDateTime end, String status) {
+        Resource resource = new Resource();
+        resource.setId(resourceId);
+        Booking booking = new Booking();
+        booking.setId(id);
+        booking.setResource(resource);
+        booking.setStartTime(start);
+        booking.setEndTime(end);
+        booking.setStatus(status);
+        return booking;
+    }
+}
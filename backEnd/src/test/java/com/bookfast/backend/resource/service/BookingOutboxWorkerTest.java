@@ -0,0 +1,130 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.common.service.SchedulerLeaseService;
+import com.bookfast.backend.resource.model.BookingOutboxEvent;
+import com.bookfast.backend.resource.repository.BookingOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A slow channel only claims what it is working on, so nothing it claimed waits in a queue until
+ * the stale sweep hands it to another worker.
+ */
+class BookingOutboxWorkerTest {
+    private final BookingOutboxRepository outboxRepository = mock(BookingOutboxRepository.class);
+    private final BookingSideEffectHandler handler = mock(BookingSideEffectHandler.class);
+    private final List<BookingOutboxEvent> stored = new ArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final AtomicInteger handled = new AtomicInteger();
+    private BookingOutboxWorker worker;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        when(outboxRepository.lockDueEvents(anyString(), any(), anyInt())).thenAnswer(invocation -> {
+            synchronized (stored) {
+                return stored.stream()
+                    .filter(event -> event.getStatus().equals(BookingOutboxEvent.STATUS_PENDING))
+                    .filter(event -> event.getChannel().equals(invocation.getArgument(0)))
+                    .limit((int) invocation.getArgument(2))
+                    .toList();
+            }
+        });
+        when(outboxRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(outboxRepository.releaseStaleClaims(any(), any())).thenAnswer(invocation -> {
+            LocalDateTime cutoff = invocation.getArgument(0);
+            synchronized (stored) {
+                int released = 0;
+                for (BookingOutboxEvent event : stored) {
+                    if (event.getStatus().equals(BookingOutboxEvent.STATUS_IN_PROGRESS) && event.getClaimedAt().isBefore(cutoff)) {
+                        event.setStatus(BookingOutboxEvent.STATUS_PENDING);
+                        event.setClaimedAt(null);
+                        released++;
+                    }
+                }
+                return released;
+            }
+        });
+        doAnswer(invocation -> {
+            handled.incrementAndGet();
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(handler).handle(any());
+
+        SchedulerLeaseService leaseService = mock(SchedulerLeaseService.class);
+        when(leaseService.runExclusive(eq("booking-outbox-maintenance"), any())).thenAnswer(invocation -> {
+            ((Consumer<SchedulerLeaseService.Lease>) invocation.getArgument(1)).accept(null);
+            return true;
+        });
+
+        worker = new BookingOutboxWorker(outboxRepository, handler,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), leaseService, 4, 1, 2);
+        ReflectionTestUtils.setField(worker, "enabled", true);
+        ReflectionTestUtils.setField(worker, "batchSize", 50);
+        ReflectionTestUtils.setField(worker, "maxInFlight", 200);
+        ReflectionTestUtils.setField(worker, "staleAfterMs", 50L);
+        ReflectionTestUtils.setField(worker, "retentionDays", 7);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        worker.shutdown();
+    }
+
+    @Test
+    void slowChannelLeavesUnstartedEventsUnclaimedPastTheStaleThreshold() throws InterruptedException {
+        for (long id = 1; id <= 3; id++) {
+            stored.add(event(id, BookingOutboxEvent.CHANNEL_EMAIL));
+        }
+
+        worker.poll();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        worker.maintenance();
+        worker.poll();
+
+        // Only the event holding the single email permit was ever claimed
+        assertEquals(1, handled.get());
+        assertNull(stored.get(1).getClaimedAt());
+        assertNull(stored.get(2).getClaimedAt());
+        assertEquals(BookingOutboxEvent.STATUS_PENDING, stored.get(1).getStatus());
+        assertEquals(BookingOutboxEvent.STATUS_PENDING, stored.get(2).getStatus());
+    }
+
+    private BookingOutboxEvent event(long id, String channel) {
+        BookingOutboxEvent event = new BookingOutboxEvent();
+        event.setId(id);
+        event.setChannel(channel);
+        event.setEventType(BookingOutboxEvent.TYPE_CONFIRMATION_EMAIL);
+        event.setStatus(BookingOutboxEvent.STATUS_PENDING);
+        event.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        return event;
+    }
+}
@@ -0,0 +1,83 @@
+package com.bookfast.backend.resource.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Word-level range operations and run searches, checked against java.util.BitSet.
+ */
+class DayBitmapTest {
+
+    @Test
+    void roundsSlotsInwardWhenFreeingAndOutwardWhenTaking() {
+        DayBitmap bitmap = new DayBitmap(15);
+        assertEquals(96, bitmap.size());
+
+        // 09:05-11:00 frees 09:15-11:00 only
+        bitmap.setMinutes(9 * 60 + 5, 11 * 60);
+        assertFalse(bitmap.isFree(36));
+        assertTrue(bitmap.isFree(37, 44));
+        assertFalse(bitmap.isFree(44));
+
+        // 10:10-10:20 takes 10:00-10:30
+        bitmap.clearMinutes(10 * 60 + 10, 10 * 60 + 20);
+        assertTrue(bitmap.isFreeMinutes(9 * 60 + 15, 10 * 60));
+        assertFalse(bitmap.isFreeMinutes(10 * 60 + 25, 10 * 60 + 35));
+        assertTrue(bitmap.isFreeMinutes(10 * 60 + 30, 11 * 60));
+        assertEquals(5, bitmap.freeCount());
+    }
+
+    @Test
+    void findsFirstRunLongEnough() {
+        DayBitmap bitmap = new DayBitmap(5);
+        bitmap.set(10, 12);
+        bitmap.set(60, 70);
+        bitmap.set(200, 288);
+
+        assertEquals(10, bitmap.firstFreeRun(0, 2));
+        assertEquals(60, bitmap.firstFreeRun(0, 3));
+        assertEquals(62, bitmap.firstFreeRun(62, 8));
+        assertEquals(200, bitmap.firstFreeRun(63, 8));
+        assertEquals(200, bitmap.firstFreeRun(0, 88));
+        assertEquals(-1, bitmap.firstFreeRun(0, 89));
+        assertEquals(288, bitmap.nextTaken(250));
+    }
+
+    @Test
+    void matchesBitSetOnRandomRanges() {
+        Random random = new Random(42);
+        DayBitmap bitmap = new DayBitmap(5);
+        BitSet expected = new BitSet(bitmap.size());
+        for (int i = 0; i < 2000; i++) {
+            int from = random.nextInt(bitmap.size() + 1);
+            int to = from + random.nextInt(bitmap.size() - from + 1);
+            if (random.nextBoolean()) {
+                bitmap.set(from, to);
+                expected.set(from, to);
+            } else {
+                bitmap.clear(from, to);
+                expected.clear(from, to);
+            }
+            int probe = random.nextInt(bitmap.size());
+            int probeEnd = probe + random.nextInt(bitmap.size() - probe + 1);
+            assertEquals(expected.nextClearBit(probe) >= probeEnd, bitmap.isFree(probe, probeEnd));
+            assertEquals(expected.nextSetBit(probe), bitmap.nextFree(probe));
+            assertEquals(Math.min(expected.nextClearBit(probe), bitmap.size()), bitmap.nextTaken(probe));
+            assertEquals(expected.cardinality(), bitmap.freeCount());
+        }
+        assertEquals(bitmap, DayBitmap.fromBytes(5, bitmap.toBytes()));
+    }
+
+    @Test
+    void rejectsGranularityNotDividingTheDay() {
+        assertThrows(IllegalArgumentException.class, () -> new DayBitmap(7));
+        assertThrows(IndexOutOfBoundsException.class, () -> new DayBitmap(60).set(20, 25));
+    }
+}
@@ -0,0 +1,123 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import com.bookfast.backend.resource.service.NextAvailableSearch.Criteria;
+import com.bookfast.backend.resource.service.NextAvailableSearch.OpenWindow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * k-way merge of per-resource free windows, with the first-open-day bound keeping late resources unread.
+ */
+class NextAvailableSearchTest {
+    private static final LocalDate DAY1 = LocalDate.of(2026, 3, 2);
+    private static final LocalDateTime FROM = DAY1.atTime(8, 0);
+
+    private final ResourceRepository resourceRepository = mock(ResourceRepository.class);
+    private final AvailabilitySlotRepository slotRepository = mock(AvailabilitySlotRepository.class);
+    private final AvailabilityBitmapService bitmaps = mock(AvailabilityBitmapService.class);
+    private final Map<Long, Map<LocalDate, DayBitmap>> free = new HashMap<>();
+    private NextAvailableSearch search;
+
+    @BeforeEach
+    void setUp() {
+        when(resourceRepository.findActiveForCustomers()).thenReturn(List.of(
+            resource(1L, "Dentist", 80.0), resource(2L, "Dentist", 60.0), resource(3L, "Dentist", 70.0),
+            resource(4L, "Massage", 50.0)));
+        Map<Long, LocalDate> firstOpenDays = Map.of(1L, DAY1, 2L, DAY1, 3L, DAY1.plusDays(2), 4L, DAY1);
+        when(slotRepository.findFirstAvailableDates(any(), any(), any())).thenAnswer(invocation -> {
+            Collection<Long> resourceIds = invocation.getArgument(0);
+            return resourceIds.stream().map(id -> new Object[] {id, firstOpenDays.get(id)}).toList();
+        });
+        when(bitmaps.getGranularityMinutes()).thenReturn(15);
+        when(bitmaps.getDays(anyLong(), any(), any())).thenAnswer(invocation -> {
+            Long resourceId = invocation.getArgument(0);
+            LocalDate from = invocation.getArgument(1);
+            LocalDate to = invocation.getArgument(2);
+            SortedMap<LocalDate, DayBitmap> days = new TreeMap<>();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                days.put(day, free.getOrDefault(resourceId, Map.of()).getOrDefault(day, new DayBitmap(15)).copy());
+            }
+            return days;
+        });
+
+        // Resource 1: 07:00-08:30 (only 30 minutes left after FROM), 09:00-10:00, then 13:00-17:00 the next day
+        open(1L, DAY1, 7 * 60, 8 * 60 + 30);
+        open(1L, DAY1, 9 * 60, 10 * 60);
+        open(1L, DAY1.plusDays(1), 13 * 60, 17 * 60);
+        open(2L, DAY1, 8 * 60 + 30, 12 * 60);
+        open(3L, DAY1.plusDays(2), 7 * 60, 8 * 60);
+        open(4L, DAY1, 8 * 60, 9 * 60);
+
+        search = new NextAvailableSearch(resourceRepository, slotRepository, bitmaps, mock(AvailabilityTemplateService.class),
+            mock(ResourceEnricher.class));
+        ReflectionTestUtils.setField(search, "maxLimit", 50);
+        ReflectionTestUtils.setField(search, "maxDays", 60);
+        ReflectionTestUtils.setField(search, "chunkDays", 7);
+    }
+
+    @Test
+    void mergesEarliestWindowsAndStopsBeforeLateResources() {
+        List<OpenWindow> windows = search.search(new Criteria("dentist", null, null, null, 60, FROM, 3, 3, 3));
+
+        assertEquals(3, windows.size());
+        assertWindow(windows.get(0), 2L, DAY1, LocalTime.of(8, 30));
+        assertWindow(windows.get(1), 1L, DAY1, LocalTime.of(9, 0));
+        assertWindow(windows.get(2), 1L, DAY1.plusDays(1), LocalTime.of(13, 0));
+        assertEquals(LocalTime.of(14, 0), windows.get(2).endTime());
+        verify(bitmaps, never()).getDays(eq(3L), any(), any());
+        verify(bitmaps, never()).getDays(eq(4L), any(), any());
+    }
+
+    @Test
+    void capsWindowsPerResourceAndFiltersByPrice() {
+        List<OpenWindow> windows = search.search(new Criteria("dentist", null, 65.0, null, 60, FROM, 3, 10, 1));
+
+        assertEquals(2, windows.size());
+        assertWindow(windows.get(0), 1L, DAY1, LocalTime.of(9, 0));
+        assertWindow(windows.get(1), 3L, DAY1.plusDays(2), LocalTime.of(7, 0));
+    }
+
+    private void open(Long resourceId, LocalDate day, int startMinute, int endMinute) {
+        free.computeIfAbsent(resourceId, id -> new HashMap<>())
+            .computeIfAbsent(day, d -> new DayBitmap(15))
+            .setMinutes(startMinute, endMinute);
+    }
+
+    private static void assertWindow(OpenWindow window, Long resourceId, LocalDate date, LocalTime start) {
+        assertEquals(resourceId, window.resourceId());
+        assertEquals(date, window.date());
+        assertEquals(start, window.startTime());
+    }
+
+    private static Resource resource(Long id, String specialization, Double price) {
+        Resource resource = new Resource();
+        resource.setId(id);
+        resource.setName("Resource " + id);
+        resource.setSpecialization(specialization);
+        resource.setPrice(price);
+        return resource;
+    }
+}
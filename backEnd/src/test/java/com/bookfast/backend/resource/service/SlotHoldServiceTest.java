@@ -0,0 +1,153 @@
+package com.bookfast.backend.resource.service;
+
+import com.bookfast.backend.common.service.SchedulerLeaseService;
+import com.bookfast.backend.resource.model.AvailabilitySlot;
+import com.bookfast.backend.resource.model.Booking;
+import com.bookfast.backend.resource.model.Resource;
+import com.bookfast.backend.resource.model.SlotHold;
+import com.bookfast.backend.resource.repository.AvailabilitySlotRepository;
+import com.bookfast.backend.resource.repository.BookingRepository;
+import com.bookfast.backend.resource.repository.ResourceRepository;
+import com.bookfast.backend.resource.repository.SlotHoldRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Holds cover one scheduled slot, block other customers' holds and bookings, never their own, are
+ * replaced on reselection, and show as held in other customers' listings.
+ */
+class SlotHoldServiceTest {
+    private static final LocalDateTime TEN = LocalDateTime.now().plusDays(1).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+    private final SlotHoldRepository holdRepository = mock(SlotHoldRepository.class);
+    private final List<SlotHold> stored = new ArrayList<>();
+    private SlotHoldService holds;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ResourceRepository resourceRepository = mock(ResourceRepository.class);
+        when(resourceRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new Resource()));
+        when(holdRepository.findActiveByResource(eq(1L), any())).thenAnswer(invocation -> List.copyOf(stored));
+        when(holdRepository.findActiveOverlapping(eq(1L), any(), any(), any())).thenAnswer(invocation -> stored.stream()
+            .filter(hold -> hold.overlaps(invocation.getArgument(1), invocation.getArgument(2))).toList());
+        when(holdRepository.countActiveByCustomer(anyLong(), any())).thenAnswer(invocation -> stored.stream()
+            .filter(hold -> hold.getCustomerId().equals(invocation.getArgument(0))).count());
+        when(holdRepository.save(any(SlotHold.class))).thenAnswer(invocation -> {
+            SlotHold hold = invocation.getArgument(0);
+            hold.setToken(UUID.randomUUID());
+            stored.add(hold);
+            return hold;
+        });
+        doAnswer(invocation -> stored.removeAll((Collection<SlotHold>) invocation.getArgument(0)))
+            .when(holdRepository).deleteAll(any(Iterable.class));
+
+        // The schedule has hour-long slots starting on the hour or half hour
+        AvailabilityTemplateService templates = mock(AvailabilityTemplateService.class);
+        when(templates.isVirtualSlot(eq(1L), any(), any())).thenAnswer(invocation -> {
+            LocalDateTime start = invocation.getArgument(1);
+            return start.getMinute() % 30 == 0 && start.plusHours(1).equals(invocation.getArgument(2));
+        });
+        holds = new SlotHoldService(holdRepository, mock(BookingRepository.class), mock(AvailabilitySlotRepository.class),
+            resourceRepository, templates, new ResourceLockStripes(4), new TransactionTemplate(mock(PlatformTransactionManager.class)),
+            mock(SchedulerLeaseService.class), 100);
+        ReflectionTestUtils.setField(holds, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(holds, "maxPerCustomer", 2);
+        ReflectionTestUtils.setField(holds, "maxMinutes", 240L);
+        // Read the database every time, as another instance's holds would be
+        ReflectionTestUtils.setField(holds, "cacheTtlSeconds", 0L);
+        ReflectionTestUtils.setField(holds, "concurrencyMode", "database");
+    }
+
+    @Test
+    void blocksOtherCustomersAndReplacesOwnOverlappingHold() {
+        SlotHold first = holds.placeHold(1L, TEN, TEN.plusHours(1), 7L);
+
+        assertThrows(IllegalStateException.class, () -> holds.placeHold(1L, TEN.plusMinutes(30), TEN.plusMinutes(90), 8L));
+        SlotHold moved = holds.placeHold(1L, TEN.plusMinutes(30), TEN.plusMinutes(90), 7L);
+        assertEquals(List.of(moved), stored);
+
+        holds.placeHold(1L, TEN.plusHours(3), TEN.plusHours(4), 7L);
+        assertThrows(IllegalStateException.class, () -> holds.placeHold(1L, TEN.plusHours(5), TEN.plusHours(6), 7L));
+        assertEquals(2, stored.size());
+        assertFalse(stored.contains(first));
+    }
+
+    @Test
+    void bookingsNeedTheHoldOrToBeItsCustomer() {
+        SlotHold hold = holds.placeHold(1L, TEN, TEN.plusHours(1), 7L);
+        Booking booking = new Booking();
+        booking.setStartTime(TEN.plusMinutes(15));
+        booking.setEndTime(TEN.plusMinutes(45));
+
+        assertThrows(IllegalStateException.class, () -> holds.checkBookable(1L, List.of(booking), null, 8L, true));
+        assertDoesNotThrow(() -> holds.checkBookable(1L, List.of(booking), hold.getToken(), null, true));
+        assertDoesNotThrow(() -> holds.checkBookable(1L, List.of(booking), null, 7L, false));
+
+        booking.setStartTime(TEN.plusHours(1));
+        booking.setEndTime(TEN.plusHours(2));
+        assertDoesNotThrow(() -> holds.checkBookable(1L, List.of(booking), null, 8L, true));
+
+        // Another signed-in customer cannot get past the hold with its token
+        booking.setStartTime(TEN.plusMinutes(15));
+        booking.setEndTime(TEN.plusMinutes(45));
+        assertThrows(IllegalStateException.class, () -> holds.checkBookable(1L, List.of(booking), hold.getToken(), 8L, true));
+    }
+
+    @Test
+    void holdsMustBeOneScheduledSlot() {
+        assertThrows(IllegalArgumentException.class, () -> holds.placeHold(1L, TEN, TEN.plusHours(5), 7L));
+        assertThrows(IllegalArgumentException.class, () -> holds.placeHold(1L, TEN, TEN.plusHours(2), 7L));
+        assertThrows(IllegalArgumentException.class, () -> holds.placeHold(1L, TEN.plusMinutes(10), TEN.plusMinutes(70), 7L));
+        assertTrue(stored.isEmpty());
+    }
+
+    @Test
+    void listingsFlagOtherCustomersHoldsOnly() {
+        holds.placeHold(1L, TEN, TEN.plusHours(1), 7L);
+        AvailabilitySlot slot = new AvailabilitySlot();
+        slot.setDate(TEN.toLocalDate());
+        slot.setStartTime(TEN.toLocalTime());
+        slot.setEndTime(TEN.toLocalTime().plusHours(1));
+
+        assertFalse(holds.markHeld(1L, List.of(slot), 7L).get(0).isHeld());
+        assertTrue(holds.markHeld(1L, List.of(slot), 8L).get(0).isHeld());
+        assertTrue(holds.markHeld(1L, List.of(slot), null).get(0).isHeld());
+    }
+
+    @Test
+    void releaseNeedsTheTokenAndTheHoldsCustomer() {
+        SlotHold own = holds.placeHold(1L, TEN, TEN.plusHours(1), 7L);
+        SlotHold anonymous = holds.placeHold(1L, TEN.plusHours(2), TEN.plusHours(3), null);
+        when(holdRepository.findById(any(UUID.class))).thenAnswer(invocation -> stored.stream()
+            .filter(hold -> hold.getToken().equals(invocation.getArgument(0))).findFirst());
+
+        assertThrows(IllegalArgumentException.class, () -> holds.releaseHold(null, 7L));
+        assertThrows(IllegalStateException.class, () -> holds.releaseHold(own.getToken(), 8L));
+        assertThrows(IllegalStateException.class, () -> holds.releaseHold(own.getToken(), null));
+        assertTrue(holds.releaseHold(own.getToken(), 7L));
+        assertTrue(holds.releaseHold(anonymous.getToken(), null));
+    }
+}